@@ -0,0 +1,246 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Description of the binary recording format written by <code>DataWriter</code>
+ * and read by <code>DataReader</code>. A file consists of a header (magic number,
+ * version, record size, creation time, driving task and driver) followed by a
+ * sequence of fixed-width records. All values are stored in big-endian byte order.
+ *
+ * Record layout (53 bytes): time stamp (long), position x/y/z (float),
+ * rotation x/y/z/w (float), speed (float), steering wheel position (float),
+ * gas pedal position (float), brake pedal position (float), engine on (byte).
+ *
+ * Compressed files (see <code>CompressedChunkWriter</code>) start with a different
+ * magic number and the same header. The records are grouped into chunks of a few
+ * seconds, each compressed separately: start time (long), number of records (int),
+ * compressed length (int), deflated records. The chunks are followed by an index
+ * (start time (long), file offset (long) and number of records (int) per chunk)
+ * and a trailer: offset of the index (long), number of chunks (int), index magic
+ * number (int).
+ *
+ * @author Rafael Math
+ */
+public class BinaryDataFormat
+{
+	public static final int MAGIC_NUMBER = 0x4F445352; // "ODSR"
+	public static final int COMPRESSED_MAGIC_NUMBER = 0x4F445343; // "ODSC"
+	public static final int INDEX_MAGIC_NUMBER = 0x4F445349; // "ODSI"
+	public static final short VERSION = 1;
+	public static final short RECORD_SIZE = 8 + 11*4 + 1;
+	public static final int CHUNK_HEADER_SIZE = 8 + 4 + 4;
+	public static final int INDEX_ENTRY_SIZE = 8 + 8 + 4;
+	public static final int TRAILER_SIZE = 8 + 4 + 4;
+	public static final String FILE_EXTENSION = ".bin";
+
+
+	/**
+	 * Writes the file header to the given stream.
+	 *
+	 * @param out
+	 * 			Output stream of the recording.
+	 *
+	 * @param drivingTask
+	 * 			Relative path of the driving task.
+	 *
+	 * @param creationTime
+	 * 			Time the recording was started.
+	 *
+	 * @param driverName
+	 * 			Name of the driver.
+	 *
+	 * @throws IOException
+	 */
+	public static void writeHeader(DataOutputStream out, String drivingTask, Date creationTime,
+			String driverName) throws IOException
+	{
+		writeHeader(out, MAGIC_NUMBER, drivingTask, creationTime, driverName);
+	}
+	
+	
+	/**
+	 * Writes the file header with the given magic number (<code>MAGIC_NUMBER</code> or 
+	 * <code>COMPRESSED_MAGIC_NUMBER</code>) to the given stream.
+	 * 
+	 * @throws IOException
+	 */
+	public static void writeHeader(DataOutputStream out, int magicNumber, String drivingTask, 
+			Date creationTime, String driverName) throws IOException
+	{
+		out.writeInt(magicNumber);
+		out.writeShort(VERSION);
+		out.writeShort(RECORD_SIZE);
+		out.writeLong(creationTime.getTime());
+		writeString(out, drivingTask);
+		writeString(out, driverName);
+	}
+
+
+	/**
+	 * Writes a single fixed-width record to the given stream.
+	 *
+	 * @param out
+	 * 			Output stream of the recording.
+	 *
+	 * @param row
+	 * 			Data unit to write.
+	 *
+	 * @throws IOException
+	 */
+	public static void writeRecord(DataOutputStream out, DataUnit row) throws IOException
+	{
+		writeRecord(out, row.getDate().getTime(), row.getXpos(), row.getYpos(), row.getZpos(), 
+				row.getXrot(), row.getYrot(), row.getZrot(), row.getWrot(), row.getSpeed(), 
+				row.getSteeringWheelPos(), row.getAcceleratorPedalPos(), row.getBrakePedalPos(), 
+				row.isEngineOn());
+	}
+	
+	
+	/**
+	 * Writes a single fixed-width record to the given stream.
+	 * 
+	 * @throws IOException
+	 */
+	public static void writeRecord(DataOutputStream out, long timeStamp, float x, float y, float z, 
+			float xRot, float yRot, float zRot, float wRot, float speed, float steeringWheelState, 
+			float gasPedalState, float brakePedalState, boolean isEngineOn) throws IOException
+	{
+		out.writeLong(timeStamp);
+		out.writeFloat(x);
+		out.writeFloat(y);
+		out.writeFloat(z);
+		out.writeFloat(xRot);
+		out.writeFloat(yRot);
+		out.writeFloat(zRot);
+		out.writeFloat(wRot);
+		out.writeFloat(speed);
+		out.writeFloat(steeringWheelState);
+		out.writeFloat(gasPedalState);
+		out.writeFloat(brakePedalState);
+		out.writeByte(isEngineOn ? 1 : 0);
+	}
+
+
+	/**
+	 * Checks whether the given file starts with the magic number of the
+	 * binary recording format (compressed or uncompressed).
+	 *
+	 * @param file
+	 * 			File to check.
+	 *
+	 * @return
+	 * 			true, if the file is a binary recording.
+	 */
+	public static boolean isBinaryFile(File file)
+	{
+		int magicNumber = readMagicNumber(file);
+		return magicNumber == MAGIC_NUMBER || magicNumber == COMPRESSED_MAGIC_NUMBER;
+	}
+
+
+	/**
+	 * Checks whether the given file starts with the magic number of the
+	 * compressed binary recording format.
+	 *
+	 * @param file
+	 * 			File to check.
+	 *
+	 * @return
+	 * 			true, if the file is a compressed recording.
+	 */
+	public static boolean isCompressedFile(File file)
+	{
+		return readMagicNumber(file) == COMPRESSED_MAGIC_NUMBER;
+	}
+
+
+	private static int readMagicNumber(File file)
+	{
+		if(file.length() < 4)
+			return 0;
+
+		DataInputStream in = null;
+		try {
+
+			in = new DataInputStream(new FileInputStream(file));
+			return in.readInt();
+
+		} catch (IOException e) {
+			return 0;
+
+		} finally {
+
+			try {
+				if(in != null)
+					in.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+
+	/**
+	 * Reads a string written by <code>writeString()</code> from the given
+	 * buffer and advances the buffer's position.
+	 *
+	 * @param buffer
+	 * 			Buffer positioned at the beginning of the string.
+	 *
+	 * @return
+	 * 			String read from buffer.
+	 */
+	public static String readString(ByteBuffer buffer)
+	{
+		int length = buffer.getShort() & 0xFFFF;
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Writes a string (UTF-8, max. 65535 bytes) preceded by its length to the
+	 * given stream.
+	 *
+	 * @param out
+	 * 			Output stream of the recording.
+	 *
+	 * @param string
+	 * 			String to write (null will be written as empty string).
+	 *
+	 * @throws IOException
+	 */
+	public static void writeString(DataOutputStream out, String string) throws IOException
+	{
+		byte[] bytes = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, 0xFFFF);
+		out.writeShort(length);
+		out.write(bytes, 0, length);
+	}
+}
@@ -0,0 +1,251 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Channels loaded from a channel data file (see <code>DataReader.loadChannelData()</code>).
+ * Every loaded channel is kept in a primitive array (float[], int[] or boolean[]
+ * depending on its type); all channels share the same time stamps.
+ * 
+ * @author Rafael Math
+ */
+public class ChannelData
+{
+	private String nameOfDrivingTaskFile;
+	private String nameOfDriver;
+	private Date fileDate;
+	private int sampleRate;
+	private Map<String, ChannelType> availableChannelMap = new LinkedHashMap<String, ChannelType>();
+	private Map<String, Object> columnMap = new LinkedHashMap<String, Object>();
+	private long[] timeStamps = new long[0];
+	
+	
+	ChannelData(String nameOfDrivingTaskFile, String nameOfDriver, Date fileDate, int sampleRate)
+	{
+		this.nameOfDrivingTaskFile = nameOfDrivingTaskFile;
+		this.nameOfDriver = nameOfDriver;
+		this.fileDate = fileDate;
+		this.sampleRate = sampleRate;
+	}
+	
+	
+	void addAvailableChannel(String name, ChannelType type)
+	{
+		availableChannelMap.put(name, type);
+	}
+	
+	
+	/**
+	 * Allocates the arrays of the given channels for the given number of samples.
+	 */
+	void allocate(List<String> channelNames, int size)
+	{
+		timeStamps = new long[size];
+		for(String name : channelNames)
+		{
+			switch(availableChannelMap.get(name))
+			{
+				case FLOAT: columnMap.put(name, new float[size]); break;
+				case INT: columnMap.put(name, new int[size]); break;
+				case BOOLEAN: columnMap.put(name, new boolean[size]); break;
+			}
+		}
+	}
+	
+	
+	long[] getTimeStampArray()
+	{
+		return timeStamps;
+	}
+	
+	
+	Object getColumn(String name)
+	{
+		return columnMap.get(name);
+	}
+	
+	
+	public String getNameOfDrivingTaskFile()
+	{
+		return nameOfDrivingTaskFile;
+	}
+	
+	
+	public String getNameOfDriver()
+	{
+		return nameOfDriver;
+	}
+	
+	
+	public Date getFileDate()
+	{
+		return fileDate;
+	}
+	
+	
+	public int getSampleRate()
+	{
+		return sampleRate;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Names of all channels contained in the file (loaded or not).
+	 */
+	public List<String> getAvailableChannelNames()
+	{
+		return new ArrayList<String>(availableChannelMap.keySet());
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Names of all channels that have been loaded.
+	 */
+	public List<String> getLoadedChannelNames()
+	{
+		return new ArrayList<String>(columnMap.keySet());
+	}
+	
+	
+	public ChannelType getChannelType(String name)
+	{
+		return availableChannelMap.get(name);
+	}
+	
+	
+	public boolean isLoaded(String name)
+	{
+		return columnMap.containsKey(name);
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of samples.
+	 */
+	public int size()
+	{
+		return timeStamps.length;
+	}
+	
+	
+	public long getTimeStamp(int index)
+	{
+		return timeStamps[index];
+	}
+	
+	
+	/**
+	 * Returns the index of the last sample recorded at or before the given time
+	 * (binary search). If the given time is before the first sample, 0 will be
+	 * returned.
+	 * 
+	 * @param timeStamp
+	 * 			Time stamp (ms) to look up.
+	 * 
+	 * @return
+	 * 			Index of the sample.
+	 */
+	public int getIndexAt(long timeStamp)
+	{
+		int index = Arrays.binarySearch(timeStamps, timeStamp);
+		
+		if(index < 0)
+			return Math.max(-index - 2, 0);
+		
+		while(index + 1 < timeStamps.length && timeStamps[index + 1] == timeStamp)
+			index++;
+		
+		return index;
+	}
+	
+	
+	/**
+	 * Returns the value of a loaded channel of any type as float 
+	 * (booleans: 1 = true, 0 = false).
+	 * 
+	 * @param name
+	 * 			Name of the channel.
+	 * 
+	 * @param index
+	 * 			Index of the sample.
+	 * 
+	 * @return
+	 * 			Value of the channel.
+	 */
+	public float getValue(String name, int index)
+	{
+		Object column = getLoadedColumn(name);
+		if(column instanceof float[])
+			return ((float[]) column)[index];
+		else if(column instanceof int[])
+			return ((int[]) column)[index];
+		else
+			return ((boolean[]) column)[index] ? 1 : 0;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			All values of the given (loaded) float channel.
+	 */
+	public float[] getFloatValues(String name)
+	{
+		return (float[]) getLoadedColumn(name);
+	}
+	
+	
+	/**
+	 * @return
+	 * 			All values of the given (loaded) integer channel.
+	 */
+	public int[] getIntValues(String name)
+	{
+		return (int[]) getLoadedColumn(name);
+	}
+	
+	
+	/**
+	 * @return
+	 * 			All values of the given (loaded) boolean channel.
+	 */
+	public boolean[] getBooleanValues(String name)
+	{
+		return (boolean[]) getLoadedColumn(name);
+	}
+	
+	
+	private Object getLoadedColumn(String name)
+	{
+		Object column = columnMap.get(name);
+		if(column == null)
+			throw new IllegalArgumentException("Channel '" + name + "' has not been loaded");
+		
+		return column;
+	}
+}
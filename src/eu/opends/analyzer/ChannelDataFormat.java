@@ -0,0 +1,108 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Description of the channel data format written by <code>ChannelRecorder</code>
+ * and read by <code>DataReader.loadChannelData()</code>. All values are stored in
+ * big-endian byte order.
+ * 
+ * Header: magic number (int), version (short), creation time (long), driving task 
+ * and driver (strings, see <code>BinaryDataFormat</code>), sample rate in Hz (int), 
+ * number of channels (int) and for each channel its name (string) and type (byte, 
+ * ordinal of <code>ChannelType</code>).
+ * 
+ * The header is followed by blocks of samples stored column by column: number of 
+ * samples (int), time stamps (long each), followed by the values of the first 
+ * channel, the values of the second channel, etc. (float, int or byte each). As 
+ * the size of each column follows from the number of samples, a reader can skip 
+ * all channels it is not interested in.
+ * 
+ * @author Rafael Math
+ */
+public class ChannelDataFormat
+{
+	public static final int MAGIC_NUMBER = 0x4F44534D; // "ODSM"
+	public static final short VERSION = 1;
+	public static final int BLOCK_HEADER_SIZE = 4;
+	public static final String FILE_EXTENSION = ".chd";
+	
+	
+	/**
+	 * Writes the file header to the given stream.
+	 * 
+	 * @param out
+	 * 			Output stream of the recording.
+	 * 
+	 * @param drivingTask
+	 * 			Relative path of the driving task.
+	 * 
+	 * @param creationTime
+	 * 			Time the recording was started.
+	 * 
+	 * @param driverName
+	 * 			Name of the driver.
+	 * 
+	 * @param sampleRate
+	 * 			Number of samples per second.
+	 * 
+	 * @param channelList
+	 * 			Channels contained in the recording (in order of the columns).
+	 * 
+	 * @throws IOException
+	 */
+	public static void writeHeader(DataOutputStream out, String drivingTask, Date creationTime,
+			String driverName, int sampleRate, List<RecordingChannel> channelList) throws IOException
+	{
+		out.writeInt(MAGIC_NUMBER);
+		out.writeShort(VERSION);
+		out.writeLong(creationTime.getTime());
+		BinaryDataFormat.writeString(out, drivingTask);
+		BinaryDataFormat.writeString(out, driverName);
+		out.writeInt(sampleRate);
+		out.writeInt(channelList.size());
+		for(RecordingChannel channel : channelList)
+		{
+			BinaryDataFormat.writeString(out, channel.getName());
+			out.writeByte(channel.getType().ordinal());
+		}
+	}
+	
+	
+	/**
+	 * @param channelList
+	 * 			Channels contained in the recording.
+	 * 
+	 * @return
+	 * 			Number of bytes of one sample (time stamp and all values).
+	 */
+	public static int getSampleSize(List<RecordingChannel> channelList)
+	{
+		int size = 8;
+		for(RecordingChannel channel : channelList)
+			size += channel.getType().getSize();
+		
+		return size;
+	}
+}
@@ -0,0 +1,349 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import eu.opends.tools.Util;
+
+/**
+ * Records all channels of a <code>ChannelRegistry</code> at a fixed sample rate
+ * into one time-aligned, column-oriented file (see <code>ChannelDataFormat</code>).
+ * The set of channels is taken from the registry when the recorder is created.
+ * 
+ * Like in <code>DataWriter</code>, samples are copied into a preallocated ring 
+ * buffer by the render thread and written to file by a separate writer thread.
+ * The writer thread collects up to <code>BLOCK_SIZE</code> samples (or the samples
+ * of at most <code>MAX_BLOCK_DELAY</code> ms) and writes them as one block.
+ * 
+ * @author Rafael Math
+ */
+public class ChannelRecorder 
+{
+	// 4096 samples = 3.4 minutes at 20 Hz
+	private static final int RING_BUFFER_CAPACITY = 4096;
+	
+	// max. number of samples per block
+	private static final int BLOCK_SIZE = 256;
+	
+	// max. time samples are kept in the ring buffer before being written (ms)
+	private static final int MAX_BLOCK_DELAY = 1000;
+	
+	// time the writer thread sleeps if not enough samples are available (ms)
+	private static final int IDLE_SLEEP_TIME = 20;
+	
+	private RecordingChannel[] channels;
+	private DataRingBuffer ringBuffer;
+	private ByteBuffer blockBuffer;
+	private WriterThread writerThread;
+	private volatile boolean writerRunning = false;
+	private volatile boolean writeErrorOccurred = false;
+	private volatile long writtenSamples = 0;
+	private DataOutputStream out;
+	private File outFile;
+	private long sampleInterval;
+	private long lastSample;
+	
+	
+	/**
+	 * Creates a new recorder and opens the output file.
+	 * 
+	 * @param outputFolder
+	 * 			Folder the recording will be written to.
+	 * 
+	 * @param registry
+	 * 			Registry containing all channels to record.
+	 * 
+	 * @param driverName
+	 * 			Name of the driver.
+	 * 
+	 * @param absoluteDrivingTaskPath
+	 * 			Path of the driving task.
+	 * 
+	 * @param trackNumber
+	 * 			Number of track (-1 if no track number available).
+	 * 
+	 * @param sampleRate
+	 * 			Number of samples per second.
+	 */
+	public ChannelRecorder(String outputFolder, ChannelRegistry registry, String driverName, 
+			String absoluteDrivingTaskPath, int trackNumber, int sampleRate) 
+	{
+		List<RecordingChannel> channelList = registry.getChannels();
+		channels = channelList.toArray(new RecordingChannel[channelList.size()]);
+		ringBuffer = new DataRingBuffer(RING_BUFFER_CAPACITY, Math.max(channels.length, 1));
+		blockBuffer = ByteBuffer.allocate(ChannelDataFormat.BLOCK_HEADER_SIZE 
+				+ BLOCK_SIZE * ChannelDataFormat.getSampleSize(channelList));
+		sampleInterval = Math.max(1000 / Math.max(sampleRate, 1), 1);
+		
+		Util.makeDirectory(outputFolder);
+		
+		String fileName = outputFolder + "/channelData" + (trackNumber >= 0 ? "_track" + trackNumber : "");
+		outFile = new File(fileName + ChannelDataFormat.FILE_EXTENSION);
+		for(int i = 2; outFile.exists(); i++)
+			outFile = new File(fileName + "(" + i + ")" + ChannelDataFormat.FILE_EXTENSION);
+		
+		try {
+			
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)));
+			ChannelDataFormat.writeHeader(out, DataWriter.getRelativePath(absoluteDrivingTaskPath), 
+					new Date(), driverName, sampleRate, channelList);
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+			writeErrorOccurred = true;
+		}
+		
+		lastSample = System.currentTimeMillis();
+		
+		writerRunning = true;
+		writerThread = new WriterThread();
+		writerThread.start();
+	}
+	
+	
+	/**
+	 * Samples all channels if the sample interval has elapsed. That method 
+	 * should be called in the update-method of <code>Simulator.java</code>.
+	 */
+	public void update()
+	{
+		update(System.currentTimeMillis());
+	}
+	
+	
+	/**
+	 * Sets the time the last sample has been recorded, e.g. if samples will be 
+	 * recorded at simulation time instead of wall-clock time.
+	 * 
+	 * @param timeStamp
+	 * 			Time stamp (ms).
+	 */
+	public void setLastSampleTime(long timeStamp)
+	{
+		lastSample = timeStamp;
+	}
+	
+	
+	/**
+	 * Records a sample if the sample interval has passed at the given time 
+	 * (e.g. simulation time in lockstep mode).
+	 * 
+	 * @param curTime
+	 * 			Current time stamp (ms).
+	 */
+	public void update(long curTime)
+	{
+		
+		// do not catch up more than one sample after a long frame
+		if(curTime - lastSample >= 2*sampleInterval)
+			lastSample = curTime - 2*sampleInterval;
+		
+		if(curTime - lastSample >= sampleInterval)
+		{
+			sample(curTime);
+			lastSample += sampleInterval;
+		}
+	}
+	
+	
+	/**
+	 * Copies the current values of all channels to the ring buffer. If the 
+	 * ring buffer is full, the sample will be dropped.
+	 * 
+	 * @param timeStamp
+	 * 			Time stamp of the sample.
+	 */
+	public void sample(long timeStamp)
+	{
+		int slot = ringBuffer.claim(timeStamp);
+		if(slot < 0)
+			return;
+		
+		for(int i=0; i<channels.length; i++)
+		{
+			if(channels[i].getType() == ChannelType.INT)
+				ringBuffer.putInt(slot, i, channels[i].getIntValue());
+			else
+				ringBuffer.put(slot, i, channels[i].getValue());
+		}
+		
+		ringBuffer.publish();
+	}
+	
+	
+	/**
+	 * Thread draining the ring buffer and writing its content to file in blocks.
+	 */
+	private class WriterThread extends Thread
+	{
+		public WriterThread()
+		{
+			super("ChannelRecorderThread");
+		}
+		
+		
+		@Override
+		public void run()
+		{
+			long lastFlush = System.currentTimeMillis();
+			
+			while(writerRunning)
+			{
+				int available = ringBuffer.available();
+				if(available >= BLOCK_SIZE || 
+						(available > 0 && System.currentTimeMillis() - lastFlush >= MAX_BLOCK_DELAY))
+				{
+					flush();
+					lastFlush = System.currentTimeMillis();
+				}
+				else
+					LockSupport.parkNanos(IDLE_SLEEP_TIME * 1000000L);
+			}
+			
+			// write remaining samples
+			while(ringBuffer.available() > 0)
+				flush();
+		}
+	}
+	
+	
+	/**
+	 * Writes a block of samples from the ring buffer to file (writer thread only).
+	 * If an error occurs, the samples will be discarded and no further data will
+	 * be written.
+	 */
+	private void flush()
+	{
+		int count = Math.min(ringBuffer.available(), BLOCK_SIZE);
+		long sequence = ringBuffer.getReadSequence();
+		
+		if(writeErrorOccurred)
+		{
+			ringBuffer.release(count);
+			return;
+		}
+		
+		blockBuffer.clear();
+		blockBuffer.putInt(count);
+		
+		for(int row=0; row<count; row++)
+			blockBuffer.putLong(ringBuffer.getTimeStamp(sequence + row));
+		
+		for(int i=0; i<channels.length; i++)
+		{
+			switch(channels[i].getType())
+			{
+				case FLOAT:
+					for(int row=0; row<count; row++)
+						blockBuffer.putFloat(ringBuffer.getValue(sequence + row, i));
+					break;
+				case INT:
+					for(int row=0; row<count; row++)
+						blockBuffer.putInt(ringBuffer.getIntValue(sequence + row, i));
+					break;
+				case BOOLEAN:
+					for(int row=0; row<count; row++)
+						blockBuffer.put((byte) (ringBuffer.getValue(sequence + row, i) != 0 ? 1 : 0));
+					break;
+			}
+		}
+		
+		ringBuffer.release(count);
+		
+		try {
+			
+			out.write(blockBuffer.array(), 0, blockBuffer.position());
+			out.flush();
+			writtenSamples += count;
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.err.println("Could not write to file: " + outFile + ". Channel recording stopped.");
+			writeErrorOccurred = true;
+		}
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of channels recorded.
+	 */
+	public int getChannelCount()
+	{
+		return channels.length;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of samples that could not be recorded because the 
+	 * 			ring buffer was full.
+	 */
+	public long getDroppedSampleCount()
+	{
+		return ringBuffer.getDroppedSamples();
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of samples that have been written to file.
+	 */
+	public long getWrittenSampleCount()
+	{
+		return writtenSamples;
+	}
+	
+	
+	/**
+	 * Stops the writer thread after all queued samples have been written 
+	 * and closes the file.
+	 */
+	public void quit()
+	{
+		writerRunning = false;
+		
+		if(writerThread != null)
+		{
+			LockSupport.unpark(writerThread);
+			try {
+				writerThread.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			writerThread = null;
+		}
+		
+		try {
+			if(out != null)
+				out.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of all channels that will be recorded by the <code>ChannelRecorder</code>.
+ * The ego car, traffic objects and triggers register their channels at start-up;
+ * further signals can be added without modifying any writer. Channel names must 
+ * be unique and will be recorded in order of registration.
+ * 
+ * @author Rafael Math
+ */
+public class ChannelRegistry
+{
+	private Map<String, RecordingChannel> channelMap = new LinkedHashMap<String, RecordingChannel>();
+	
+	
+	/**
+	 * Adds the given channel to the registry. Channels registered while a 
+	 * recording is running will be recorded from the next recording on.
+	 * 
+	 * @param channel
+	 * 			Channel to add.
+	 * 
+	 * @return
+	 * 			false, if a channel with the same name has already been registered.
+	 */
+	public synchronized boolean register(RecordingChannel channel)
+	{
+		if(channelMap.containsKey(channel.getName()))
+		{
+			System.err.println("Recording channel '" + channel.getName() + "' has already been registered");
+			return false;
+		}
+		
+		channelMap.put(channel.getName(), channel);
+		return true;
+	}
+	
+	
+	/**
+	 * Removes the channel with the given name from the registry.
+	 * 
+	 * @param channelName
+	 * 			Name of the channel to remove.
+	 */
+	public synchronized void unregister(String channelName)
+	{
+		channelMap.remove(channelName);
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Copy of the list of all registered channels (order of registration).
+	 */
+	public synchronized List<RecordingChannel> getChannels()
+	{
+		return new ArrayList<RecordingChannel>(channelMap.values());
+	}
+	
+	
+	public synchronized int size()
+	{
+		return channelMap.size();
+	}
+}
@@ -0,0 +1,48 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+/**
+ * Value types of recording channels and their size in the channel data
+ * format.
+ *
+ * @author Rafael Math
+ */
+public enum ChannelType
+{
+	FLOAT(4), INT(4), BOOLEAN(1);
+	
+	private int size;
+	
+	
+	private ChannelType(int size)
+	{
+		this.size = size;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of bytes of a single value in the channel data file.
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+}
@@ -0,0 +1,191 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
+
+/**
+ * Writes records of the binary recording format in compressed chunks. All
+ * records of a given time span (e.g. 10 seconds) are collected and deflated
+ * as one chunk. When closing, an index of all chunks (start time and offset)
+ * is appended, which allows seeking to a time without decompressing the
+ * whole file (see <code>BinaryDataFormat</code> for the file layout).
+ *
+ * Not thread-safe: all methods have to be called by the same thread (in
+ * <code>DataWriter</code>: the writer thread).
+ *
+ * @author Rafael Math
+ */
+public class CompressedChunkWriter
+{
+	private DataOutputStream out;
+	private long position;
+	private long chunkDuration;
+
+	private ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream(64 * 1024);
+	private DataOutputStream chunkOut = new DataOutputStream(chunkBytes);
+	private ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream(16 * 1024);
+	private byte[] compressBuffer = new byte[16 * 1024];
+	private Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+	private long chunkStartTime = 0;
+	private int chunkRecordCount = 0;
+	private ArrayList<ChunkInfo> chunkIndex = new ArrayList<ChunkInfo>();
+
+
+	/**
+	 * Start time, file offset and number of records of a chunk.
+	 */
+	public static class ChunkInfo
+	{
+		private long startTime;
+		private long offset;
+		private int recordCount;
+
+
+		public ChunkInfo(long startTime, long offset, int recordCount)
+		{
+			this.startTime = startTime;
+			this.offset = offset;
+			this.recordCount = recordCount;
+		}
+
+
+		public long getStartTime()
+		{
+			return startTime;
+		}
+
+
+		public long getOffset()
+		{
+			return offset;
+		}
+
+
+		public int getRecordCount()
+		{
+			return recordCount;
+		}
+	}
+
+
+	/**
+	 * Creates a new chunk writer.
+	 *
+	 * @param out
+	 * 			Output stream of the recording (header already written).
+	 *
+	 * @param chunkDuration
+	 * 			Time span (ms) of the records of one chunk.
+	 */
+	public CompressedChunkWriter(DataOutputStream out, long chunkDuration)
+	{
+		this.out = out;
+		this.position = out.size();
+		this.chunkDuration = Math.max(chunkDuration, 1);
+	}
+
+
+	/**
+	 * Adds a record to the current chunk. If the time span of the current chunk
+	 * has been exceeded, the chunk will be compressed and written first.
+	 *
+	 * @throws IOException
+	 */
+	public void writeRecord(long timeStamp, float x, float y, float z, float xRot, float yRot,
+			float zRot, float wRot, float speed, float steeringWheelState, float gasPedalState,
+			float brakePedalState, boolean isEngineOn) throws IOException
+	{
+		if(chunkRecordCount > 0 && timeStamp - chunkStartTime >= chunkDuration)
+			finishChunk();
+
+		if(chunkRecordCount == 0)
+			chunkStartTime = timeStamp;
+
+		BinaryDataFormat.writeRecord(chunkOut, timeStamp, x, y, z, xRot, yRot, zRot, wRot, speed,
+				steeringWheelState, gasPedalState, brakePedalState, isEngineOn);
+		chunkRecordCount++;
+	}
+
+
+	/**
+	 * Compresses all records of the current chunk and writes them to file.
+	 *
+	 * @throws IOException
+	 */
+	public void finishChunk() throws IOException
+	{
+		if(chunkRecordCount == 0)
+			return;
+
+		deflater.reset();
+		deflater.setInput(chunkBytes.toByteArray());
+		deflater.finish();
+
+		compressedBytes.reset();
+		while(!deflater.finished())
+		{
+			int length = deflater.deflate(compressBuffer);
+			compressedBytes.write(compressBuffer, 0, length);
+		}
+
+		chunkIndex.add(new ChunkInfo(chunkStartTime, position, chunkRecordCount));
+
+		out.writeLong(chunkStartTime);
+		out.writeInt(chunkRecordCount);
+		out.writeInt(compressedBytes.size());
+		compressedBytes.writeTo(out);
+		position += BinaryDataFormat.CHUNK_HEADER_SIZE + compressedBytes.size();
+
+		chunkBytes.reset();
+		chunkRecordCount = 0;
+	}
+
+
+	/**
+	 * Writes the last chunk, the chunk index and the trailer. The output stream
+	 * will not be closed.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		finishChunk();
+
+		long indexOffset = position;
+		for(ChunkInfo chunkInfo : chunkIndex)
+		{
+			out.writeLong(chunkInfo.getStartTime());
+			out.writeLong(chunkInfo.getOffset());
+			out.writeInt(chunkInfo.getRecordCount());
+		}
+
+		out.writeLong(indexOffset);
+		out.writeInt(chunkIndex.size());
+		out.writeInt(BinaryDataFormat.INDEX_MAGIC_NUMBER);
+		out.flush();
+
+		deflater.end();
+	}
+}
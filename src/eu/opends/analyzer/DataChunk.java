@@ -0,0 +1,198 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.util.Arrays;
+
+/**
+ * Consecutive range of recorded data sets, stored in primitive columns.
+ * A chunk is filled by exactly one parser thread. The traveled distance is
+ * accumulated relative to the first data set of the chunk and has to be
+ * shifted by the distance of all preceding chunks (see <code>DataReader</code>).
+ *
+ * @author Rafael Math
+ */
+public class DataChunk
+{
+	// indices of the float values of a data set
+	public static final int X_POS = 0;
+	public static final int Y_POS = 1;
+	public static final int Z_POS = 2;
+	public static final int X_ROT = 3;
+	public static final int Y_ROT = 4;
+	public static final int Z_ROT = 5;
+	public static final int W_ROT = 6;
+	public static final int SPEED = 7;
+	public static final int STEERING_WHEEL = 8;
+	public static final int GAS_PEDAL = 9;
+	public static final int BRAKE_PEDAL = 10;
+	public static final int VALUES_PER_ROW = 11;
+
+	private int size = 0;
+	private long[] timeStamps;
+	private float[] values;
+	private boolean[] engineOn;
+	private double[] traveledDistance;
+	private int skippedLines = 0;
+
+
+	public DataChunk(int initialCapacity)
+	{
+		int capacity = Math.max(initialCapacity, 16);
+		timeStamps = new long[capacity];
+		values = new float[capacity * VALUES_PER_ROW];
+		engineOn = new boolean[capacity];
+		traveledDistance = new double[capacity];
+	}
+
+
+	/**
+	 * Appends a data set to the chunk and returns the index of the first
+	 * value, which has to be set with <code>setValue()</code>.
+	 *
+	 * @param timeStamp
+	 * 			Time stamp of the data set.
+	 *
+	 * @param isEngineOn
+	 * 			Engine state.
+	 *
+	 * @return
+	 * 			Index of the new row.
+	 */
+	public int addRow(long timeStamp, boolean isEngineOn)
+	{
+		if(size == timeStamps.length)
+			grow();
+
+		timeStamps[size] = timeStamp;
+		engineOn[size] = isEngineOn;
+		return size++;
+	}
+
+
+	public void setValue(int row, int valueIndex, float value)
+	{
+		values[row * VALUES_PER_ROW + valueIndex] = value;
+	}
+
+
+	public void setEngineOn(int row, boolean isEngineOn)
+	{
+		engineOn[row] = isEngineOn;
+	}
+
+
+	/**
+	 * Removes the last row (e.g. if it could not be parsed completely).
+	 */
+	public void removeLastRow()
+	{
+		if(size > 0)
+			size--;
+	}
+
+
+	/**
+	 * Computes the traveled distance of every row relative to the first row
+	 * of this chunk.
+	 *
+	 * @return
+	 * 			Distance between first and last row of this chunk.
+	 */
+	public double computeLocalDistance()
+	{
+		double distance = 0;
+		for(int i=0; i<size; i++)
+		{
+			if(i > 0)
+				distance += distanceBetween(this, i-1, this, i);
+			traveledDistance[i] = distance;
+		}
+		return distance;
+	}
+
+
+	/**
+	 * Computes the euclidean distance between the positions of two rows.
+	 */
+	public static double distanceBetween(DataChunk chunkA, int rowA, DataChunk chunkB, int rowB)
+	{
+		double dx = chunkA.getValue(rowA, X_POS) - chunkB.getValue(rowB, X_POS);
+		double dy = chunkA.getValue(rowA, Y_POS) - chunkB.getValue(rowB, Y_POS);
+		double dz = chunkA.getValue(rowA, Z_POS) - chunkB.getValue(rowB, Z_POS);
+		return Math.sqrt(dx*dx + dy*dy + dz*dz);
+	}
+
+
+	public int size()
+	{
+		return size;
+	}
+
+
+	public long getTimeStamp(int row)
+	{
+		return timeStamps[row];
+	}
+
+
+	public float getValue(int row, int valueIndex)
+	{
+		return values[row * VALUES_PER_ROW + valueIndex];
+	}
+
+
+	public boolean isEngineOn(int row)
+	{
+		return engineOn[row];
+	}
+
+
+	/**
+	 * @return
+	 * 			Traveled distance relative to the first row of this chunk
+	 * 			(valid after <code>computeLocalDistance()</code>).
+	 */
+	public double getLocalTraveledDistance(int row)
+	{
+		return traveledDistance[row];
+	}
+
+
+	public void incrementSkippedLines()
+	{
+		skippedLines++;
+	}
+
+
+	public int getSkippedLines()
+	{
+		return skippedLines;
+	}
+
+
+	private void grow()
+	{
+		int capacity = timeStamps.length * 2;
+		timeStamps = Arrays.copyOf(timeStamps, capacity);
+		values = Arrays.copyOf(values, capacity * VALUES_PER_ROW);
+		engineOn = Arrays.copyOf(engineOn, capacity);
+		traveledDistance = Arrays.copyOf(traveledDistance, capacity);
+	}
+}
@@ -0,0 +1,350 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single-pass parser for the body of analyzer files. Every line of the text
+ * format is tokenized exactly once and its values are stored as primitives in
+ * a <code>DataChunk</code>. No objects are created per line.
+ *
+ * @author Rafael Math
+ */
+public class DataParser
+{
+	// average length of a line in text format (used to estimate capacity)
+	private static final int ESTIMATED_LINE_LENGTH = 70;
+
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static
+	{
+		POWERS_OF_TEN[0] = 1;
+		for(int i=1; i<POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+	}
+
+	private ByteBuffer buffer;
+	private int position;
+	private int limit;
+
+
+	private DataParser(ByteBuffer buffer, int start, int end)
+	{
+		this.buffer = buffer;
+		this.position = start;
+		this.limit = end;
+	}
+
+
+	/**
+	 * Parses all lines in the given range of the buffer. The range must start
+	 * at the beginning of a line. Lines that cannot be parsed (e.g. an incomplete
+	 * last line) will be skipped and counted.
+	 *
+	 * @param buffer
+	 * 			Buffer containing colon-separated lines. Only absolute get methods
+	 * 			will be used, so the buffer may be shared between threads.
+	 *
+	 * @param start
+	 * 			Index of the first byte to parse.
+	 *
+	 * @param end
+	 * 			Index after the last byte to parse.
+	 *
+	 * @return
+	 * 			Chunk containing all parsed lines.
+	 */
+	public static DataChunk parseText(ByteBuffer buffer, int start, int end)
+	{
+		DataParser parser = new DataParser(buffer, start, end);
+		DataChunk chunk = new DataChunk((end - start) / ESTIMATED_LINE_LENGTH);
+
+		while(parser.position < parser.limit)
+			parser.parseLine(chunk);
+
+		return chunk;
+	}
+
+
+	/**
+	 * Reads the given number of fixed-width records (see <code>BinaryDataFormat</code>).
+	 *
+	 * @param buffer
+	 * 			Buffer containing the records. Only absolute get methods will be
+	 * 			used, so the buffer may be shared between threads.
+	 *
+	 * @param start
+	 * 			Index of the first record.
+	 *
+	 * @param recordCount
+	 * 			Number of records to read.
+	 *
+	 * @return
+	 * 			Chunk containing all records.
+	 */
+	public static DataChunk parseBinary(ByteBuffer buffer, int start, int recordCount)
+	{
+		DataChunk chunk = new DataChunk(recordCount);
+
+		int offset = start;
+		for(int i=0; i<recordCount; i++)
+		{
+			long timeStamp = buffer.getLong(offset);
+			boolean isEngineOn = buffer.get(offset + BinaryDataFormat.RECORD_SIZE - 1) != 0;
+			int row = chunk.addRow(timeStamp, isEngineOn);
+
+			for(int v=0; v<DataChunk.VALUES_PER_ROW; v++)
+				chunk.setValue(row, v, buffer.getFloat(offset + 8 + 4*v));
+
+			offset += BinaryDataFormat.RECORD_SIZE;
+		}
+
+		return chunk;
+	}
+
+
+	private void parseLine(DataChunk chunk)
+	{
+		int lineStart = position;
+		int lineEnd = findLineEnd(lineStart);
+
+		// skip empty lines
+		if(lineEnd == lineStart || (lineEnd == lineStart+1 && buffer.get(lineStart) == '\r'))
+		{
+			position = lineEnd + 1;
+			return;
+		}
+
+		int row = -1;
+		try {
+
+			long timeStamp = parseLong(lineEnd);
+			row = chunk.addRow(timeStamp, false);
+
+			for(int v=0; v<DataChunk.VALUES_PER_ROW; v++)
+				chunk.setValue(row, v, parseFloat(lineEnd));
+
+			// engine state: "true" or "false"
+			skipWhitespace(lineEnd);
+			boolean isEngineOn = position < lineEnd && (buffer.get(position) == 't' || buffer.get(position) == 'T');
+			chunk.setEngineOn(row, isEngineOn);
+
+		} catch (NumberFormatException e) {
+
+			if(row >= 0)
+				chunk.removeLastRow();
+			chunk.incrementSkippedLines();
+		}
+
+		position = lineEnd + 1;
+	}
+
+
+	private int findLineEnd(int start)
+	{
+		for(int i=start; i<limit; i++)
+			if(buffer.get(i) == '\n')
+				return i;
+
+		return limit;
+	}
+
+
+	private long parseLong(int end)
+	{
+		skipWhitespace(end);
+
+		boolean negative = false;
+		if(position < end && buffer.get(position) == '-')
+		{
+			negative = true;
+			position++;
+		}
+
+		long value = 0;
+		int digits = 0;
+		while(position < end)
+		{
+			byte b = buffer.get(position);
+			if(b < '0' || b > '9')
+				break;
+
+			value = value*10 + (b - '0');
+			digits++;
+			position++;
+		}
+
+		if(digits == 0 || digits > 18)
+			throw new NumberFormatException();
+
+		skipSeparator(end);
+		return negative ? -value : value;
+	}
+
+
+	private float parseFloat(int end)
+	{
+		skipWhitespace(end);
+		int tokenStart = position;
+
+		boolean negative = false;
+		if(position < end && (buffer.get(position) == '-' || buffer.get(position) == '+'))
+		{
+			negative = buffer.get(position) == '-';
+			position++;
+		}
+
+		long mantissa = 0;
+		int significantDigits = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean fractionPart = false;
+		boolean simple = true;
+
+		while(position < end)
+		{
+			byte b = buffer.get(position);
+			if(b >= '0' && b <= '9')
+			{
+				digits++;
+				if(significantDigits < 18)
+				{
+					mantissa = mantissa*10 + (b - '0');
+					if(mantissa != 0)
+						significantDigits++;
+					if(fractionPart)
+						exponent--;
+				}
+				else
+				{
+					// too many digits for exact computation
+					simple = false;
+					if(!fractionPart)
+						exponent++;
+				}
+			}
+			else if(b == '.' && !fractionPart)
+				fractionPart = true;
+			else if(b == 'E' || b == 'e')
+			{
+				position++;
+				exponent += (int) parseExponent(end);
+				break;
+			}
+			else if(b == ':' || b == '\r' || b == ' ' || b == '\t')
+				break;
+			else
+			{
+				// e.g. "NaN" or "Infinity"
+				simple = false;
+				digits++;
+			}
+
+			position++;
+		}
+
+		int tokenEnd = position;
+		skipSeparator(end);
+
+		if(digits == 0)
+			throw new NumberFormatException();
+
+		if(simple && mantissa < (1L << 53) && exponent >= -22 && exponent <= 22)
+		{
+			// exact (correctly rounded) double value of the decimal number
+			double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			float result = (float) value;
+
+			// rounding double to float is only ambiguous very close to the middle
+			// between two floats; use the exact (slow) method in this rare case
+			if(!isCloseToMidpoint(value, result))
+				return negative ? -result : result;
+		}
+
+		return parseFloatSlow(tokenStart, tokenEnd);
+	}
+
+
+	private long parseExponent(int end)
+	{
+		boolean negative = false;
+		if(position < end && (buffer.get(position) == '-' || buffer.get(position) == '+'))
+		{
+			negative = buffer.get(position) == '-';
+			position++;
+		}
+
+		long value = 0;
+		int digits = 0;
+		while(position < end)
+		{
+			byte b = buffer.get(position);
+			if(b < '0' || b > '9')
+				break;
+
+			if(value < 100000)
+				value = value*10 + (b - '0');
+			digits++;
+			position++;
+		}
+
+		if(digits == 0)
+			throw new NumberFormatException();
+
+		return negative ? -value : value;
+	}
+
+
+	private static boolean isCloseToMidpoint(double value, float result)
+	{
+		double difference = Math.abs(value - result);
+		double tolerance = 2 * Math.ulp(value);
+		double halfUlp = Math.ulp(result) / 2.0;
+		return Math.abs(difference - halfUlp) <= tolerance || Math.abs(difference - halfUlp/2.0) <= tolerance;
+	}
+
+
+	private float parseFloatSlow(int start, int end)
+	{
+		byte[] bytes = new byte[end - start];
+		for(int i=0; i<bytes.length; i++)
+			bytes[i] = buffer.get(start + i);
+
+		return Float.parseFloat(new String(bytes, StandardCharsets.US_ASCII).trim());
+	}
+
+
+	private void skipSeparator(int end)
+	{
+		skipWhitespace(end);
+		if(position < end && buffer.get(position) == ':')
+			position++;
+		else if(position < end && buffer.get(position) != '\r')
+			throw new NumberFormatException();
+	}
+
+
+	private void skipWhitespace(int end)
+	{
+		while(position < end && (buffer.get(position) == ' ' || buffer.get(position) == '\t'))
+			position++;
+	}
+}
@@ -19,17 +19,24 @@
 package eu.opends.analyzer;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
-import java.util.LinkedList;
-
-import com.jme3.math.Quaternion;
-import com.jme3.math.Vector3f;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import eu.opends.drivingTask.DrivingTask;
 
@@ -39,15 +46,22 @@ import eu.opends.drivingTask.DrivingTask;
  */
 public class DataReader 
 {
+	// files will be split into chunks of this size (bytes) and parsed in parallel
+	private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+	
+	// max. size of the header of binary files (bytes)
+	private static final int MAX_BINARY_HEADER_SIZE = 3 * 65536;
+	
 	private File inFile;
 	private BufferedReader inputReader;
+	private boolean binaryFormat;
+	private boolean compressedFormat;
+	private long bodyOffset;
 	private String nameOfDrivingTaskFile;
 	private String nameOfDriver;
 	private Date fileDate;
 	
-	private Float traveledDistance = 0f;
-	private ArrayList<Vector3f> carPositionList = new ArrayList<Vector3f>();
-	private LinkedList<DataUnit> dataUnitList = new LinkedList<DataUnit>();
+	private DriveDataStore driveDataStore = new DriveDataStore(0);
 	
 	
 	public boolean initReader(String filePath, boolean verbose) 
@@ -60,6 +74,11 @@ public class DataReader
 			System.err.println("File " + inFile.toString()
 					+ " could not be found.");
 		}
+		
+		binaryFormat = BinaryDataFormat.isBinaryFile(inFile);
+		if(binaryFormat)
+			return initBinaryReader(verbose);
+		
 		try {
 			inputReader = new BufferedReader(new FileReader(inFile));
 
@@ -100,6 +119,8 @@ public class DataReader
 			// Read in the used format, so it can be skipped.
 			inputLine = inputReader.readLine();
 			
+			inputReader.close();
+			
 		} catch (IOException e) {
 			//e.printStackTrace();
 			return false;
@@ -109,54 +130,593 @@ public class DataReader
 	}
 	
 	
+	/**
+	 * Reads the header of a recording in binary format (see <code>BinaryDataFormat</code>). 
+	 * The records will be read by <code>loadDriveData()</code>.
+	 * 
+	 * @param verbose
+	 * 			If true, header information will be written to the console.
+	 * 
+	 * @return
+	 * 			true, if the header could be read successfully.
+	 */
+	private boolean initBinaryReader(boolean verbose)
+	{
+		RandomAccessFile file = null;
+		try {
+			
+			file = new RandomAccessFile(inFile, "r");
+			FileChannel channel = file.getChannel();
+			long headerSize = Math.min(channel.size(), MAX_BINARY_HEADER_SIZE);
+			ByteBuffer binaryData = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize);
+			
+			int magicNumber = binaryData.getInt();
+			if(magicNumber != BinaryDataFormat.MAGIC_NUMBER && magicNumber != BinaryDataFormat.COMPRESSED_MAGIC_NUMBER)
+				return false;
+			
+			compressedFormat = (magicNumber == BinaryDataFormat.COMPRESSED_MAGIC_NUMBER);
+			
+			short version = binaryData.getShort();
+			if(version > BinaryDataFormat.VERSION)
+			{
+				System.err.println("Unsupported version of binary analyzer file: " + version);
+				return false;
+			}
+			
+			short recordSize = binaryData.getShort();
+			if(recordSize != BinaryDataFormat.RECORD_SIZE)
+			{
+				System.err.println("Unsupported record size of binary analyzer file: " + recordSize);
+				return false;
+			}
+			
+			fileDate = new Date(binaryData.getLong());
+			nameOfDrivingTaskFile = BinaryDataFormat.readString(binaryData);
+			nameOfDriver = BinaryDataFormat.readString(binaryData);
+			bodyOffset = binaryData.position();
+			
+			if(verbose)
+			{
+				System.out.println("Driving Task: " + nameOfDrivingTaskFile);
+				System.out.println("Creation Time: " + fileDate);
+				System.out.println("Driver: " + nameOfDriver);
+			}
+			
+		} catch (Exception e) {
+			//e.printStackTrace();
+			return false;
+			
+		} finally {
+			
+			// mapping remains valid after the channel has been closed
+			try {
+				if(file != null)
+					file.close();
+			} catch (IOException e) {
+			}
+		}
+		
+		return true;
+	}
+	
+	
+	/**
+	 * Loads all data sets of the file that has been opened by <code>initReader()</code>.
+	 * Large files are split into chunks, which will be parsed in parallel.
+	 * 
+	 * @return
+	 * 			true, if the data could be loaded successfully.
+	 */
 	public boolean loadDriveData() 
-	{		
+	{
+		return loadDriveData(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+	
+	
+	/**
+	 * Loads all data sets recorded in the given time range. In compressed format, 
+	 * only the chunks overlapping this range will be read and decompressed. The 
+	 * traveled distance will be computed from the first loaded data set.
+	 * 
+	 * @param fromTime
+	 * 			Time stamp (ms) of the first data set to load.
+	 * 
+	 * @param toTime
+	 * 			Time stamp (ms) of the last data set to load.
+	 * 
+	 * @return
+	 * 			true, if the data could be loaded successfully.
+	 */
+	public boolean loadDriveData(long fromTime, long toTime) 
+	{
+		RandomAccessFile file = null;
 		try {
-			// get drive data
-			String inputLine = inputReader.readLine();
 			
-			Vector3f previousPos = null;
-
-			while (inputLine != null) 
+			file = new RandomAccessFile(inFile, "r");
+			FileChannel channel = file.getChannel();
+			
+			if(!binaryFormat)
+				bodyOffset = findLineStart(channel, 0, 4);
+			
+			List<DataChunk> chunkList = parseChunks(channel, fromTime, toTime);
+			mergeChunks(chunkList, fromTime, toTime);
+			
+		} catch (Exception e) {
+			//e.printStackTrace();
+			return false;
+			
+		} finally {
+			
+			try {
+				if(file != null)
+					file.close();
+			} catch (IOException e) {
+			}
+		}
+		
+		return true;
+	}
+	
+	
+	/**
+	 * Splits the body of the file into chunks (text format: at line breaks; binary 
+	 * format: at record boundaries; compressed format: at compressed chunks) and parses 
+	 * them. If there is more than one chunk, all chunks will be parsed concurrently on 
+	 * the common fork-join pool.
+	 */
+	private List<DataChunk> parseChunks(final FileChannel channel, long fromTime, long toTime) throws Exception
+	{
+		long fileSize = channel.size();
+		List<Callable<DataChunk>> taskList = new ArrayList<Callable<DataChunk>>();
+		
+		if(compressedFormat)
+		{
+			List<CompressedChunkWriter.ChunkInfo> chunkIndex = readChunkIndex(channel);
+			for(int i=0; i<chunkIndex.size(); i++)
 			{
-				Vector3f carPosition = parseCarPosition(inputLine);
-				carPositionList.add(carPosition);
+				// skip chunks outside the given time range
+				long startTime = chunkIndex.get(i).getStartTime();
+				boolean endsBeforeRange = (i+1 < chunkIndex.size()) && chunkIndex.get(i+1).getStartTime() <= fromTime;
+				if(startTime > toTime || endsBeforeRange)
+					continue;
 				
-				Quaternion carRotation = parseCarRotation(inputLine);
+				final long offset = chunkIndex.get(i).getOffset();
+				taskList.add(new Callable<DataChunk>() {
+					public DataChunk call() throws Exception
+					{
+						DataChunk chunk = inflateChunk(channel, offset);
+						chunk.computeLocalDistance();
+						return chunk;
+					}
+				});
+			}
+		}
+		else if(binaryFormat)
+		{
+			long recordCount = (fileSize - bodyOffset) / BinaryDataFormat.RECORD_SIZE;
+			long recordsPerChunk = CHUNK_SIZE / BinaryDataFormat.RECORD_SIZE;
+			
+			for(long first = 0; first < recordCount; first += recordsPerChunk)
+			{
+				final long start = bodyOffset + first * BinaryDataFormat.RECORD_SIZE;
+				final int count = (int) Math.min(recordsPerChunk, recordCount - first);
+				taskList.add(new Callable<DataChunk>() {
+					public DataChunk call() throws Exception
+					{
+						ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, 
+								(long) count * BinaryDataFormat.RECORD_SIZE);
+						DataChunk chunk = DataParser.parseBinary(buffer, 0, count);
+						chunk.computeLocalDistance();
+						return chunk;
+					}
+				});
+			}
+		}
+		else
+		{
+			long start = bodyOffset;
+			while(start < fileSize)
+			{
+				long end = Math.min(start + CHUNK_SIZE, fileSize);
+				if(end < fileSize)
+					end = findLineStart(channel, end, 1);
 				
-				Long timeStamp = parseTimeStamp(inputLine);
-
-				Float speed = parseSpeed(inputLine);
+				final long chunkStart = start;
+				final int chunkLength = (int) (end - start);
+				taskList.add(new Callable<DataChunk>() {
+					public DataChunk call() throws Exception
+					{
+						ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkLength);
+						DataChunk chunk = DataParser.parseText(buffer, 0, chunkLength);
+						chunk.computeLocalDistance();
+						return chunk;
+					}
+				});
 				
-				if(previousPos == null)
-					previousPos = carPosition;
-
-				traveledDistance += carPosition.distance(previousPos);
-				previousPos = carPosition;
+				start = end;
+			}
+		}
+		
+		List<DataChunk> chunkList = new ArrayList<DataChunk>(taskList.size());
+		if(taskList.size() == 0)
+		{
+			// nothing to parse
+		}
+		else if(taskList.size() == 1)
+		{
+			chunkList.add(taskList.get(0).call());
+		}
+		else
+		{
+			List<ForkJoinTask<DataChunk>> futureList = new ArrayList<ForkJoinTask<DataChunk>>();
+			for(Callable<DataChunk> task : taskList)
+				futureList.add(ForkJoinPool.commonPool().submit(task));
+			
+			for(ForkJoinTask<DataChunk> future : futureList)
+				chunkList.add(future.get());
+		}
+		
+		return chunkList;
+	}
+	
+	
+	/**
+	 * Reads the chunk index of a compressed file. If the index is missing (e.g. 
+	 * the recording has not been closed properly), all chunk headers will be read.
+	 */
+	private List<CompressedChunkWriter.ChunkInfo> readChunkIndex(FileChannel channel) throws IOException
+	{
+		List<CompressedChunkWriter.ChunkInfo> chunkIndex = new ArrayList<CompressedChunkWriter.ChunkInfo>();
+		long fileSize = channel.size();
+		
+		// read trailer
+		if(fileSize - bodyOffset >= BinaryDataFormat.TRAILER_SIZE)
+		{
+			ByteBuffer trailer = readFully(channel, fileSize - BinaryDataFormat.TRAILER_SIZE, 
+					BinaryDataFormat.TRAILER_SIZE);
+			long indexOffset = trailer.getLong();
+			int chunkCount = trailer.getInt();
+			
+			if(trailer.getInt() == BinaryDataFormat.INDEX_MAGIC_NUMBER)
+			{
+				ByteBuffer index = readFully(channel, indexOffset, chunkCount * BinaryDataFormat.INDEX_ENTRY_SIZE);
+				for(int i=0; i<chunkCount; i++)
+					chunkIndex.add(new CompressedChunkWriter.ChunkInfo(index.getLong(), index.getLong(), index.getInt()));
 				
-				Float steeringWheelPosition = parseSteeringWheelPosition(inputLine);
+				return chunkIndex;
+			}
+		}
+		
+		// no index available: scan all complete chunks (until the start of a 
+		// truncated index, which will not continue the sequence of start times)
+		long offset = bodyOffset;
+		long previousStartTime = Long.MIN_VALUE;
+		while(offset + BinaryDataFormat.CHUNK_HEADER_SIZE <= fileSize)
+		{
+			ByteBuffer header = readFully(channel, offset, BinaryDataFormat.CHUNK_HEADER_SIZE);
+			long startTime = header.getLong();
+			int recordCount = header.getInt();
+			int compressedLength = header.getInt();
+			
+			if(startTime <= previousStartTime || recordCount <= 0 || compressedLength <= 0 
+					|| offset + BinaryDataFormat.CHUNK_HEADER_SIZE + compressedLength > fileSize)
+				break;
+			
+			previousStartTime = startTime;
+			
+			chunkIndex.add(new CompressedChunkWriter.ChunkInfo(startTime, offset, recordCount));
+			offset += BinaryDataFormat.CHUNK_HEADER_SIZE + compressedLength;
+		}
+		
+		System.err.println("No chunk index found in file: " + inFile + " (" + chunkIndex.size() + " chunks)");
+		return chunkIndex;
+	}
+	
+	
+	/**
+	 * Reads and decompresses the chunk at the given offset.
+	 */
+	private static DataChunk inflateChunk(FileChannel channel, long offset) throws IOException, DataFormatException
+	{
+		ByteBuffer header = readFully(channel, offset, BinaryDataFormat.CHUNK_HEADER_SIZE);
+		header.getLong();
+		int recordCount = header.getInt();
+		int compressedLength = header.getInt();
+		
+		ByteBuffer compressedData = readFully(channel, offset + BinaryDataFormat.CHUNK_HEADER_SIZE, compressedLength);
+		byte[] records = new byte[recordCount * BinaryDataFormat.RECORD_SIZE];
+		
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressedData.array(), 0, compressedLength);
+			int length = 0;
+			while(length < records.length && !inflater.finished())
+			{
+				int bytesInflated = inflater.inflate(records, length, records.length - length);
+				if(bytesInflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					throw new DataFormatException("Incomplete chunk at offset " + offset);
+				length += bytesInflated;
+			}
+		} finally {
+			inflater.end();
+		}
+		
+		return DataParser.parseBinary(ByteBuffer.wrap(records), 0, recordCount);
+	}
+	
+	
+	/**
+	 * Reads the given number of bytes at the given position (thread-safe).
+	 */
+	private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while(buffer.hasRemaining())
+		{
+			if(channel.read(buffer, position + buffer.position()) < 0)
+				throw new EOFException();
+		}
+		
+		buffer.flip();
+		return buffer;
+	}
+	
+	
+	/**
+	 * Loads the given channels of a channel data file written by <code>ChannelRecorder</code>.
+	 * Only the columns of the requested channels will be read from file; a truncated 
+	 * last block (e.g. after a crash) will be ignored.
+	 * 
+	 * @param filePath
+	 * 			Path of the channel data file.
+	 * 
+	 * @param channelNames
+	 * 			Names of the channels to load. A name ending with "*" selects all 
+	 * 			channels starting with the given prefix (e.g. "traffic.car1.*").
+	 * 			If null, all channels will be loaded.
+	 * 
+	 * @return
+	 * 			Loaded channels or null, if the file could not be read.
+	 */
+	public static ChannelData loadChannelData(String filePath, Collection<String> channelNames)
+	{
+		RandomAccessFile file = null;
+		try {
+			
+			file = new RandomAccessFile(filePath, "r");
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 
+					Math.min(channel.size(), Integer.MAX_VALUE));
+			
+			if(header.getInt() != ChannelDataFormat.MAGIC_NUMBER)
+			{
+				System.err.println("File is not a channel data file: " + filePath);
+				return null;
+			}
+			
+			short version = header.getShort();
+			if(version > ChannelDataFormat.VERSION)
+			{
+				System.err.println("Unsupported version of channel data file: " + version);
+				return null;
+			}
+			
+			Date fileDate = new Date(header.getLong());
+			String drivingTask = BinaryDataFormat.readString(header);
+			String driver = BinaryDataFormat.readString(header);
+			int sampleRate = header.getInt();
+			ChannelData channelData = new ChannelData(drivingTask, driver, fileDate, sampleRate);
+			
+			int channelCount = header.getInt();
+			String[] names = new String[channelCount];
+			ChannelType[] types = new ChannelType[channelCount];
+			int sampleSize = 8;
+			for(int i=0; i<channelCount; i++)
+			{
+				names[i] = BinaryDataFormat.readString(header);
+				types[i] = ChannelType.values()[header.get()];
+				sampleSize += types[i].getSize();
+				channelData.addAvailableChannel(names[i], types[i]);
+			}
+			long bodyOffset = header.position();
+			
+			// select requested channels (in order of the file)
+			List<String> selectedNames = new ArrayList<String>();
+			for(String name : names)
+				if(isChannelSelected(name, channelNames))
+					selectedNames.add(name);
+			
+			// find all complete blocks
+			List<long[]> blockList = new ArrayList<long[]>();
+			int totalRows = 0;
+			int maxRows = 0;
+			long position = bodyOffset;
+			while(position + ChannelDataFormat.BLOCK_HEADER_SIZE <= channel.size())
+			{
+				int rowCount = readFully(channel, position, ChannelDataFormat.BLOCK_HEADER_SIZE).getInt();
+				long blockLength = ChannelDataFormat.BLOCK_HEADER_SIZE + (long) rowCount * sampleSize;
+				if(rowCount <= 0 || position + blockLength > channel.size())
+					break;
 				
-				Float acceleratorPedalPosition = parseAcceleratorPedalPosition(inputLine);
+				blockList.add(new long[]{position, rowCount});
+				totalRows += rowCount;
+				maxRows = Math.max(maxRows, rowCount);
+				position += blockLength;
+			}
+			
+			// read time stamps and the columns of the selected channels only
+			channelData.allocate(selectedNames, totalRows);
+			long[] timeStamps = channelData.getTimeStampArray();
+			ByteBuffer buffer = ByteBuffer.allocate(maxRows * 8);
+			int firstRow = 0;
+			for(long[] block : blockList)
+			{
+				int rowCount = (int) block[1];
+				long columnOffset = block[0] + ChannelDataFormat.BLOCK_HEADER_SIZE;
 				
-				Float brakePedalPosition = parseBrakePedalPosition(inputLine);
+				readColumn(channel, buffer, columnOffset, rowCount * 8);
+				for(int row=0; row<rowCount; row++)
+					timeStamps[firstRow + row] = buffer.getLong();
+				columnOffset += rowCount * 8;
 				
-				Boolean isEngineOn = parseIsEngineOn(inputLine);
-
-				DataUnit dataUnit = new DataUnit(new Date(timeStamp), carPosition, carRotation,
-						speed, steeringWheelPosition, acceleratorPedalPosition, brakePedalPosition,
-						isEngineOn, traveledDistance);
-				dataUnitList.add(dataUnit);
+				for(int i=0; i<channelCount; i++)
+				{
+					int columnLength = rowCount * types[i].getSize();
+					Object column = channelData.getColumn(names[i]);
+					if(column != null)
+					{
+						readColumn(channel, buffer, columnOffset, columnLength);
+						for(int row=0; row<rowCount; row++)
+						{
+							switch(types[i])
+							{
+								case FLOAT: ((float[]) column)[firstRow + row] = buffer.getFloat(); break;
+								case INT: ((int[]) column)[firstRow + row] = buffer.getInt(); break;
+								case BOOLEAN: ((boolean[]) column)[firstRow + row] = (buffer.get() != 0); break;
+							}
+						}
+					}
+					columnOffset += columnLength;
+				}
 				
-				inputLine = inputReader.readLine();
+				firstRow += rowCount;
 			}
-
-
-		} catch (IOException e) {
-			//e.printStackTrace();
-			return false;
+			
+			return channelData;
+			
+		} catch (Exception e) {
+			System.err.println("Could not load channel data file: " + filePath + " (" + e + ")");
+			return null;
+			
+		} finally {
+			
+			try {
+				if(file != null)
+					file.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+	
+	
+	private static boolean isChannelSelected(String name, Collection<String> channelNames)
+	{
+		if(channelNames == null)
+			return true;
+		
+		for(String channelName : channelNames)
+		{
+			if(channelName.endsWith("*"))
+			{
+				if(name.startsWith(channelName.substring(0, channelName.length()-1)))
+					return true;
+			}
+			else if(name.equals(channelName))
+				return true;
 		}
 		
-		return true;
+		return false;
+	}
+	
+	
+	/**
+	 * Reads the given number of bytes at the given position into the given 
+	 * (reused) buffer and prepares the buffer for reading.
+	 */
+	private static void readColumn(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException
+	{
+		buffer.clear();
+		buffer.limit(length);
+		while(buffer.hasRemaining())
+		{
+			if(channel.read(buffer, position + buffer.position()) < 0)
+				throw new EOFException();
+		}
+		
+		buffer.flip();
+	}
+	
+	
+	/**
+	 * Stitches the traveled distance of all chunks (prefix sum) and copies all
+	 * data sets of the given time range to the drive data store.
+	 */
+	private void mergeChunks(List<DataChunk> chunkList, long fromTime, long toTime)
+	{
+		int totalSize = 0;
+		int skippedLines = 0;
+		for(DataChunk chunk : chunkList)
+		{
+			totalSize += chunk.size();
+			skippedLines += chunk.getSkippedLines();
+		}
+		
+		if(skippedLines > 0)
+			System.err.println("Skipped " + skippedLines + " invalid line(s) in file: " + inFile);
+		
+		DriveDataStore store = new DriveDataStore(totalSize);
+		
+		double distanceOffset = 0;
+		double distanceAtFromTime = Double.NaN;
+		DataChunk previousChunk = null;
+		for(DataChunk chunk : chunkList)
+		{
+			if(chunk.size() == 0)
+				continue;
+			
+			// distance between last position of previous chunk and first position of this chunk
+			if(previousChunk != null)
+				distanceOffset += DataChunk.distanceBetween(previousChunk, previousChunk.size()-1, chunk, 0);
+			
+			for(int i=0; i<chunk.size(); i++)
+			{
+				long timeStamp = chunk.getTimeStamp(i);
+				if(timeStamp < fromTime || timeStamp > toTime)
+					continue;
+				
+				double distance = distanceOffset + chunk.getLocalTraveledDistance(i);
+				if(Double.isNaN(distanceAtFromTime))
+					distanceAtFromTime = distance;
+				
+				store.add(chunk, i, (float) (distance - distanceAtFromTime));
+			}
+			
+			distanceOffset += chunk.getLocalTraveledDistance(chunk.size()-1);
+			previousChunk = chunk;
+		}
+		
+		driveDataStore = store;
+	}
+	
+	
+	/**
+	 * Returns the position after the n-th line break at or after the given position.
+	 */
+	private static long findLineStart(FileChannel channel, long position, int lineBreaks) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long offset = position;
+		int remainingLineBreaks = lineBreaks;
+		
+		while(true)
+		{
+			buffer.clear();
+			int bytesRead = channel.read(buffer, offset);
+			if(bytesRead <= 0)
+				return channel.size();
+			
+			for(int i=0; i<bytesRead; i++)
+			{
+				if(buffer.get(i) == '\n')
+				{
+					remainingLineBreaks--;
+					if(remainingLineBreaks == 0)
+						return offset + i + 1;
+				}
+			}
+			
+			offset += bytesRead;
+		}
 	}
 	
 	
@@ -178,21 +738,19 @@ public class DataReader
 	}
 
 	
-	public ArrayList<Vector3f> getCarPositionList()
+	/**
+	 * @return
+	 * 			All data sets loaded by <code>loadDriveData()</code>.
+	 */
+	public DriveDataStore getDriveDataStore()
 	{
-		return carPositionList;
+		return driveDataStore;
 	}
 	
 	
 	public float getTotalDistance()
 	{
-		return traveledDistance;
-	}
-	
-	
-	public LinkedList<DataUnit> getDataUnitList()
-	{
-		return dataUnitList;
+		return driveDataStore.getTotalDistance();
 	}
 	
 	
@@ -235,68 +793,4 @@ public class DataReader
 		
 		return true;
 	}
-	
-	
-	private Long parseTimeStamp(String inputLine) 
-	{
-		String[] splittedLineArray = inputLine.split(":");
-		return Long.parseLong(splittedLineArray[0]);
-	}
-	
-
-	private Vector3f parseCarPosition(String inputLine) 
-	{
-		String[] splittedLineArray = inputLine.split(":");
-
-		return new Vector3f(Float.parseFloat(splittedLineArray[1]), Float
-				.parseFloat(splittedLineArray[2]), Float
-				.parseFloat(splittedLineArray[3]));
-	}
-
-	
-	private Quaternion parseCarRotation(String inputLine)
-	{
-		String[] splittedLineArray = inputLine.split(":");
-
-		return new Quaternion(Float.parseFloat(splittedLineArray[4]), Float
-				.parseFloat(splittedLineArray[5]), Float
-				.parseFloat(splittedLineArray[6]), Float
-				.parseFloat(splittedLineArray[7]));
-	}
-	
-	
-	private Float parseSpeed(String inputLine) 
-	{
-		String[] splittedLineArray = inputLine.split(":");
-		return Float.parseFloat(splittedLineArray[8]);
-
-	}
-	
-	
-	private Float parseSteeringWheelPosition(String inputLine) 
-	{
-		String[] splittedLineArray = inputLine.split(":");
-		return Float.parseFloat(splittedLineArray[9]);
-	}
-	
-	
-	private Float parseAcceleratorPedalPosition(String inputLine) 
-	{
-		String[] splittedLineArray = inputLine.split(":");
-		return Float.parseFloat(splittedLineArray[10]);
-	}
-	
-	
-	private Float parseBrakePedalPosition(String inputLine) 
-	{
-		String[] splittedLineArray = inputLine.split(":");
-		return Float.parseFloat(splittedLineArray[11]);
-	}
-
-	
-	private Boolean parseIsEngineOn(String inputLine) 
-	{
-		String[] splittedLineArray = inputLine.split(":");
-		return Boolean.parseBoolean(splittedLineArray[12]);
-	}
-}
+}
\ No newline at end of file
@@ -0,0 +1,235 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated, lock-free ring buffer for exactly one producer thread and
+ * one consumer thread. Each slot holds a time stamp and a fixed number of
+ * 32 bit values (float or int), stored in primitive arrays. Nothing is allocated when
+ * adding or removing samples.
+ *
+ * The producer adds a sample by calling <code>claim()</code>, filling the
+ * values with <code>put()</code> and making it visible with <code>publish()</code>.
+ * The consumer reads up to <code>available()</code> samples starting at
+ * <code>getReadSequence()</code> and releases them with <code>release()</code>.
+ * If the buffer is full, new samples will be dropped and counted.
+ *
+ * @author Rafael Math
+ */
+public class DataRingBuffer
+{
+	private final int capacity;
+	private final int mask;
+	private final int valuesPerSample;
+	private final long[] timeStamps;
+
+	// float values are stored as their raw bits, so int values are kept exactly
+	private final int[] values;
+
+	// sequence number of the next sample to be published (written by producer only)
+	private final AtomicLong writeSequence = new AtomicLong(0);
+
+	// sequence number of the next sample to be read (written by consumer only)
+	private final AtomicLong readSequence = new AtomicLong(0);
+
+	private final AtomicLong droppedSamples = new AtomicLong(0);
+	private long claimedSequence = -1;
+
+
+	/**
+	 * Creates a new ring buffer.
+	 *
+	 * @param minCapacity
+	 * 			Minimum number of samples that can be buffered (will be rounded
+	 * 			up to the next power of two).
+	 *
+	 * @param valuesPerSample
+	 * 			Number of values per sample.
+	 */
+	public DataRingBuffer(int minCapacity, int valuesPerSample)
+	{
+		int capacity = Integer.highestOneBit(Math.max(minCapacity, 2) - 1) << 1;
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.valuesPerSample = valuesPerSample;
+		this.timeStamps = new long[capacity];
+		this.values = new int[capacity * valuesPerSample];
+	}
+
+
+	/**
+	 * Claims the next free slot (producer only).
+	 *
+	 * @param timeStamp
+	 * 			Time stamp of the new sample.
+	 *
+	 * @return
+	 * 			Index of the first value of the claimed slot, or -1 if the buffer
+	 * 			is full and the sample has been dropped.
+	 */
+	public int claim(long timeStamp)
+	{
+		long sequence = writeSequence.get();
+		if(sequence - readSequence.get() >= capacity)
+		{
+			droppedSamples.incrementAndGet();
+			claimedSequence = -1;
+			return -1;
+		}
+
+		int slot = (int) (sequence & mask);
+		timeStamps[slot] = timeStamp;
+		claimedSequence = sequence;
+		return slot * valuesPerSample;
+	}
+
+
+	/**
+	 * Sets a value of the claimed slot (producer only).
+	 *
+	 * @param baseIndex
+	 * 			Index returned by <code>claim()</code>.
+	 *
+	 * @param valueIndex
+	 * 			Index of the value within the sample.
+	 *
+	 * @param value
+	 * 			Value to set.
+	 */
+	public void put(int baseIndex, int valueIndex, float value)
+	{
+		values[baseIndex + valueIndex] = Float.floatToRawIntBits(value);
+	}
+
+
+	/**
+	 * Sets an int value of the claimed slot (producer only).
+	 *
+	 * @param baseIndex
+	 * 			Index returned by <code>claim()</code>.
+	 *
+	 * @param valueIndex
+	 * 			Index of the value within the sample.
+	 *
+	 * @param value
+	 * 			Value to set.
+	 */
+	public void putInt(int baseIndex, int valueIndex, int value)
+	{
+		values[baseIndex + valueIndex] = value;
+	}
+
+
+	/**
+	 * Makes the claimed slot visible to the consumer (producer only).
+	 */
+	public void publish()
+	{
+		if(claimedSequence >= 0)
+		{
+			// ordered write: all values of the slot are visible before the new sequence
+			writeSequence.lazySet(claimedSequence + 1);
+			claimedSequence = -1;
+		}
+	}
+
+
+	/**
+	 * @return
+	 * 			Number of published samples that have not been released yet.
+	 */
+	public int available()
+	{
+		return (int) (writeSequence.get() - readSequence.get());
+	}
+
+
+	/**
+	 * @return
+	 * 			Sequence number of the oldest sample that has not been released yet.
+	 */
+	public long getReadSequence()
+	{
+		return readSequence.get();
+	}
+
+
+	public long getTimeStamp(long sequence)
+	{
+		return timeStamps[(int) (sequence & mask)];
+	}
+
+
+	public float getValue(long sequence, int valueIndex)
+	{
+		return Float.intBitsToFloat(values[(int) (sequence & mask) * valuesPerSample + valueIndex]);
+	}
+
+
+	public int getIntValue(long sequence, int valueIndex)
+	{
+		return values[(int) (sequence & mask) * valuesPerSample + valueIndex];
+	}
+
+
+	/**
+	 * Frees the given number of slots (consumer only).
+	 *
+	 * @param count
+	 * 			Number of samples that have been processed.
+	 */
+	public void release(int count)
+	{
+		readSequence.lazySet(readSequence.get() + count);
+	}
+
+
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+
+	public int getValuesPerSample()
+	{
+		return valuesPerSample;
+	}
+
+
+	/**
+	 * @return
+	 * 			Number of samples that have been dropped because the buffer was full.
+	 */
+	public long getDroppedSamples()
+	{
+		return droppedSamples.get();
+	}
+
+
+	/**
+	 * @return
+	 * 			Total number of samples that have been published so far.
+	 */
+	public long getPublishedSamples()
+	{
+		return writeSequence.get();
+	}
+}
@@ -411,29 +411,7 @@ public class DataUnit implements Serializable
 		// interpolate rotation
 		Quaternion previousCarRot = previousDataUnit.getCarRotation();
 		Quaternion nextCarRot = nextDataUnit.getCarRotation();
-		
-		float[] previousAngles = previousCarRot.toAngles(null);
-		float[] nextAngles = nextCarRot.toAngles(null);
-		float[] currentAngles = new float [3];
-		
-		for(int i=0; i<3; i++)
-		{
-			// normalize all values to range 0 - 2*PI
-			previousAngles[i] = (previousAngles[i] + FastMath.TWO_PI) % FastMath.TWO_PI;
-			nextAngles[i] = (nextAngles[i] + FastMath.TWO_PI) % FastMath.TWO_PI;
-			
-			// If one angle smaller than 2*PI (360 degrees) and the other greater
-			// add 2*PI (360 degrees) to the smaller angle. This avoids jumping.
-			if(Math.abs(nextAngles[i] - previousAngles[i]) > FastMath.PI)
-				if(nextAngles[i] < previousAngles[i])
-					nextAngles[i] += FastMath.TWO_PI;
-				else
-					previousAngles[i] += FastMath.TWO_PI;
-			
-			// intermediate angle according to progress between previous and next angle
-			currentAngles[i] = previousAngles[i] + ((nextAngles[i] - previousAngles[i]) * percentage);
-		}	
-		Quaternion rotation = (new Quaternion()).fromAngles(currentAngles);
+		Quaternion rotation = interpolateRotation(previousCarRot, nextCarRot, percentage);
 		
 		
 		// interpolate speed		
@@ -477,4 +455,89 @@ public class DataUnit implements Serializable
 		return new DataUnit(date, position, rotation, speed, steeringWheelPos, 
 				gasPedalPos, brakePedalPos, isEngineOn, traveledDistance);
 	}
+	
+	
+	/**
+	 * Interpolates between the data set at the given index of the store and its 
+	 * successor. Equivalent to <code>interpolate(store.getDataUnit(previousIndex), 
+	 * store.getDataUnit(previousIndex+1), currentRecordingTime)</code>, but reads 
+	 * all values directly from the store.
+	 * 
+	 * @param store
+	 * 			Store containing the recorded data sets.
+	 * 
+	 * @param previousIndex
+	 * 			Index of the data set recorded before the given time.
+	 * 
+	 * @param currentRecordingTime
+	 * 			Time (ms) to interpolate at.
+	 * 
+	 * @return
+	 * 			Interpolated data unit.
+	 */
+	public static DataUnit interpolate(DriveDataStore store, int previousIndex, long currentRecordingTime) 
+	{
+		int nextIndex = previousIndex + 1;
+		
+		// current progress (%) between previous and next recorded data set
+		long timeAtPreviousTarget = store.getTimeStamp(previousIndex);
+		long timeElapsedSincePreviousTarget = currentRecordingTime - timeAtPreviousTarget;
+		long totalTimeBetweenTargets = store.getTimeStamp(nextIndex) - timeAtPreviousTarget;
+		float percentage = (float) timeElapsedSincePreviousTarget/totalTimeBetweenTargets;
+		
+		Vector3f previousCarPos = store.getCarPosition(previousIndex, new Vector3f());
+		Vector3f nextCarPos = store.getCarPosition(nextIndex, new Vector3f());
+		Vector3f position = previousCarPos.addLocal(nextCarPos.subtractLocal(previousCarPos).multLocal(percentage));
+		
+		Quaternion previousCarRot = store.getCarRotation(previousIndex, new Quaternion());
+		Quaternion nextCarRot = store.getCarRotation(nextIndex, new Quaternion());
+		Quaternion rotation = interpolateRotation(previousCarRot, nextCarRot, percentage);
+		
+		float speed = interpolateValue(store.getSpeed(previousIndex), store.getSpeed(nextIndex), percentage);
+		float steeringWheelPos = interpolateValue(store.getSteeringWheelPos(previousIndex), 
+				store.getSteeringWheelPos(nextIndex), percentage);
+		float gasPedalPos = interpolateValue(store.getAcceleratorPedalPos(previousIndex), 
+				store.getAcceleratorPedalPos(nextIndex), percentage);
+		float brakePedalPos = interpolateValue(store.getBrakePedalPos(previousIndex), 
+				store.getBrakePedalPos(nextIndex), percentage);
+		boolean isEngineOn = store.isEngineOn(previousIndex);
+		float traveledDistance = interpolateValue(store.getTraveledDistance(previousIndex), 
+				store.getTraveledDistance(nextIndex), percentage);
+		
+		return new DataUnit(new Date(currentRecordingTime), position, rotation, speed, steeringWheelPos, 
+				gasPedalPos, brakePedalPos, isEngineOn, traveledDistance);
+	}
+
+
+	private static float interpolateValue(float previousValue, float nextValue, float percentage)
+	{
+		return previousValue + ((nextValue - previousValue) * percentage);
+	}
+	
+	
+	private static Quaternion interpolateRotation(Quaternion previousCarRot, Quaternion nextCarRot, float percentage)
+	{
+		float[] previousAngles = previousCarRot.toAngles(null);
+		float[] nextAngles = nextCarRot.toAngles(null);
+		float[] currentAngles = new float [3];
+		
+		for(int i=0; i<3; i++)
+		{
+			// normalize all values to range 0 - 2*PI
+			previousAngles[i] = (previousAngles[i] + FastMath.TWO_PI) % FastMath.TWO_PI;
+			nextAngles[i] = (nextAngles[i] + FastMath.TWO_PI) % FastMath.TWO_PI;
+			
+			// If one angle smaller than 2*PI (360 degrees) and the other greater
+			// add 2*PI (360 degrees) to the smaller angle. This avoids jumping.
+			if(Math.abs(nextAngles[i] - previousAngles[i]) > FastMath.PI)
+				if(nextAngles[i] < previousAngles[i])
+					nextAngles[i] += FastMath.TWO_PI;
+				else
+					previousAngles[i] += FastMath.TWO_PI;
+			
+			// intermediate angle according to progress between previous and next angle
+			currentAngles[i] = previousAngles[i] + ((nextAngles[i] - previousAngles[i]) * percentage);
+		}	
+		return (new Quaternion()).fromAngles(currentAngles);
+	}
 }
@@ -18,16 +18,19 @@
 
 package eu.opends.analyzer;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URI;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.concurrent.locks.LockSupport;
 
 import eu.opends.car.Car;
 import eu.opends.tools.Util;
@@ -37,18 +40,62 @@ import eu.opends.tools.Util;
  * That class is responsible for writing drive-data. At the moment it is a
  * ripped down version of similar classes used in CARS.
  * 
+ * Samples are copied into a preallocated ring buffer by the render thread 
+ * and written to file by a separate writer thread, so disk latency does not
+ * affect the frame rate. In compressed format, the writer thread also does
+ * the compression.
+ * 
  * @author Saied
  * 
  */
 public class DataWriter 
 {
+	public enum RecordingFormat
+	{
+		TEXT, 		// colon-separated text
+		BINARY, 	// fixed-width binary records (see BinaryDataFormat)
+		COMPRESSED	// binary records in compressed, indexed chunks (see CompressedChunkWriter)
+	}
+	
 	private Calendar startTime = new GregorianCalendar();
 
+	// indices of the values of a sample in the ring buffer
+	private static final int X_POS = 0;
+	private static final int Y_POS = 1;
+	private static final int Z_POS = 2;
+	private static final int X_ROT = 3;
+	private static final int Y_ROT = 4;
+	private static final int Z_ROT = 5;
+	private static final int W_ROT = 6;
+	private static final int SPEED = 7;
+	private static final int STEERING_WHEEL = 8;
+	private static final int GAS_PEDAL = 9;
+	private static final int BRAKE_PEDAL = 10;
+	private static final int ENGINE_ON = 11;
+	private static final int VALUES_PER_SAMPLE = 12;
+	
+	// 4096 samples = 3.4 minutes at 20 Hz
+	private static final int RING_BUFFER_CAPACITY = 4096;
+	
+	// max. number of samples written between two flushes
+	private static final int BATCH_SIZE = 256;
+	
+	// time the writer thread sleeps if no samples are available (ms)
+	private static final int IDLE_SLEEP_TIME = 20;
+
 	/**
-	 * An array list for not having to write every row directly to file.
+	 * A ring buffer for not having to write every row directly to file.
 	 */
-	private ArrayList<DataUnit> arrayDataList;
+	private DataRingBuffer ringBuffer = new DataRingBuffer(RING_BUFFER_CAPACITY, VALUES_PER_SAMPLE);
+	private WriterThread writerThread;
+	private volatile boolean writerRunning = false;
+	private volatile boolean writeErrorOccurred = false;
+	private volatile long writtenSamples = 0;
+	private StringBuilder lineBuilder = new StringBuilder(256);
 	private BufferedWriter out;
+	private DataOutputStream binaryOut;
+	private CompressedChunkWriter chunkWriter;
+	private boolean binaryFormat;
 	private File outFile;
 	private String newLine = System.getProperty("line.separator");
 	private long lastAnalyzerDataSave;
@@ -59,16 +106,50 @@ public class DataWriter
 
 
 	public DataWriter(String outputFolder, Car car, String driverName, String absoluteDrivingTaskPath, int trackNumber) 
+	{
+		this(outputFolder, car, driverName, absoluteDrivingTaskPath, trackNumber, RecordingFormat.TEXT, 0);
+	}
+	
+	
+	/**
+	 * Creates a new data writer.
+	 * 
+	 * @param outputFolder
+	 * 			Folder the recording will be written to.
+	 * 
+	 * @param car
+	 * 			Car to record.
+	 * 
+	 * @param driverName
+	 * 			Name of the driver.
+	 * 
+	 * @param absoluteDrivingTaskPath
+	 * 			Path of the driving task.
+	 * 
+	 * @param trackNumber
+	 * 			Number of track (-1 if no track number available).
+	 * 
+	 * @param recordingFormat
+	 * 			Format of the recording (text, binary or compressed binary).
+	 * 
+	 * @param chunkDuration
+	 * 			Time span (seconds) of a compressed chunk (compressed format only).
+	 */
+	public DataWriter(String outputFolder, Car car, String driverName, String absoluteDrivingTaskPath, 
+			int trackNumber, RecordingFormat recordingFormat, int chunkDuration) 
 	{
 		this.car = car;
 		this.relativeDrivingTaskPath = getRelativePath(absoluteDrivingTaskPath);
+		this.binaryFormat = (recordingFormat != RecordingFormat.TEXT);
 		
 		Util.makeDirectory(outputFolder);
+		
+		String extension = binaryFormat ? BinaryDataFormat.FILE_EXTENSION : ".txt";
 
 		if(trackNumber >= 0)
-			analyzerDataFile = new File(outputFolder + "/carData_track" + trackNumber + ".txt");
+			analyzerDataFile = new File(outputFolder + "/carData_track" + trackNumber + extension);
 		else
-			analyzerDataFile = new File(outputFolder + "/carData.txt");
+			analyzerDataFile = new File(outputFolder + "/carData" + extension);
 
 		
 		if (analyzerDataFile.getAbsolutePath() == null) 
@@ -83,9 +164,9 @@ public class DataWriter
 		while(outFile.exists()) 
 		{
 			if(trackNumber >= 0)
-				analyzerDataFile = new File(outputFolder + "/carData_track" + trackNumber + "(" + i + ").txt");
+				analyzerDataFile = new File(outputFolder + "/carData_track" + trackNumber + "(" + i + ")" + extension);
 			else
-				analyzerDataFile = new File(outputFolder + "/carData(" + i + ").txt");
+				analyzerDataFile = new File(outputFolder + "/carData(" + i + ")" + extension);
 			
 			outFile = new File(analyzerDataFile.getAbsolutePath());
 			i++;
@@ -93,25 +174,46 @@ public class DataWriter
 		
 		
 		try {
-			out = new BufferedWriter(new FileWriter(outFile));
-			out.write("Driving Task: " + relativeDrivingTaskPath + newLine);
-			out.write("Date-Time: "
-					+ new SimpleDateFormat("yyyy_MM_dd-HH_mm_ss")
-							.format(new Date()) + newLine);
-			out.write("Driver: " + driverName + newLine);
-			out.write("Used Format = Time (ms): Position (x,y,z) : Rotation (x,y,z,w) :"
-					+ " Speed (km/h) : Steering Wheel Position [-1,1] : Gas Pedal Position :"
-					+ " Brake Pedal Position : Engine Running" + newLine);
+			if(binaryFormat)
+			{
+				binaryOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)));
+				
+				if(recordingFormat == RecordingFormat.COMPRESSED)
+				{
+					BinaryDataFormat.writeHeader(binaryOut, BinaryDataFormat.COMPRESSED_MAGIC_NUMBER, 
+							relativeDrivingTaskPath, new Date(), driverName);
+					chunkWriter = new CompressedChunkWriter(binaryOut, chunkDuration * 1000L);
+				}
+				else
+					BinaryDataFormat.writeHeader(binaryOut, relativeDrivingTaskPath, new Date(), driverName);
+			}
+			else
+			{
+				out = new BufferedWriter(new FileWriter(outFile));
+				out.write("Driving Task: " + relativeDrivingTaskPath + newLine);
+				out.write("Date-Time: "
+						+ new SimpleDateFormat("yyyy_MM_dd-HH_mm_ss")
+								.format(new Date()) + newLine);
+				out.write("Driver: " + driverName + newLine);
+				out.write("Used Format = Time (ms): Position (x,y,z) : Rotation (x,y,z,w) :"
+						+ " Speed (km/h) : Steering Wheel Position [-1,1] : Gas Pedal Position :"
+						+ " Brake Pedal Position : Engine Running" + newLine);
+			}
 
 		} catch (IOException e) {
 			e.printStackTrace();
+			writeErrorOccurred = true;
 		}
-		arrayDataList = new ArrayList<DataUnit>();
-		lastAnalyzerDataSave = (new Date()).getTime();
+
+		lastAnalyzerDataSave = System.currentTimeMillis();
+		
+		writerRunning = true;
+		writerThread = new WriterThread();
+		writerThread.start();
 	}
 	
 	
-	private String getRelativePath(String absolutePath)
+	static String getRelativePath(String absolutePath)
 	{
 		URI baseURI = new File("./").toURI();
 		URI absoluteURI = new File(absolutePath).toURI();
@@ -126,22 +228,46 @@ public class DataWriter
 	 * the update-method <code>Simulator.java</code>.
 	 */
 	public void saveAnalyzerData() 
+	{
+		saveAnalyzerData(System.currentTimeMillis());
+	}
+	
+	
+	/**
+	 * Sets the time the last data set has been written, e.g. if data will be 
+	 * written at simulation time instead of wall-clock time.
+	 * 
+	 * @param timeStamp
+	 * 			Time stamp (ms).
+	 */
+	public void setLastSampleTime(long timeStamp)
+	{
+		lastAnalyzerDataSave = timeStamp;
+	}
+	
+	
+	/**
+	 * Writes a data set if the update interval has passed at the given time 
+	 * (e.g. simulation time in lockstep mode).
+	 * 
+	 * @param curTime
+	 * 			Current time stamp (ms).
+	 */
+	public void saveAnalyzerData(long curTime) 
 	{
 		int updateInterval = 50; // = 1000/20
-		
-		Date curDate = new Date();
 
-		if (curDate.getTime() - lastAnalyzerDataSave/*.getTime()*/ >= 2*updateInterval) 
+		if (curTime - lastAnalyzerDataSave >= 2*updateInterval) 
 		{
-			lastAnalyzerDataSave = curDate.getTime() - 2*updateInterval;
+			lastAnalyzerDataSave = curTime - 2*updateInterval;
 		}
 		
 		
-		if (curDate.getTime() - lastAnalyzerDataSave/*.getTime()*/ >= updateInterval) 
+		if (curTime - lastAnalyzerDataSave >= updateInterval) 
 		{
-			//System.err.println("diff: " + (curDate.getTime() - lastAnalyzerDataSave));
+			//System.err.println("diff: " + (curTime - lastAnalyzerDataSave));
 			write(
-					curDate,
+					curTime,
 					Math.round(car.getPosition().x * 1000) / 1000.0f,
 					Math.round(car.getPosition().y * 1000) / 1000.0f,
 					Math.round(car.getPosition().z * 1000) / 1000.0f,
@@ -168,59 +294,242 @@ public class DataWriter
 			float steeringWheelState, float gasPedalState, float brakePedalState,
 			boolean isEngineOn) 
 	{
-		DataUnit row = new DataUnit(curDate, x, y, z, xRot, yRot, zRot, wRot,
-				linearSpeed, steeringWheelState, gasPedalState, brakePedalState,
-				isEngineOn);
-		this.write(row);
-
+		write(curDate.getTime(), x, y, z, xRot, yRot, zRot, wRot, linearSpeed, 
+				steeringWheelState, gasPedalState, brakePedalState, isEngineOn);
+	}
+	
+	
+	/**
+	 * Copies a data set to the ring buffer. The data set will be written to 
+	 * file by the writer thread. If the ring buffer is full, the data set will
+	 * be dropped (see <code>getDroppedSampleCount()</code>).
+	 */
+	public void write(long timeStamp, float x, float y, float z, float xRot,
+			float yRot, float zRot, float wRot, float linearSpeed,
+			float steeringWheelState, float gasPedalState, float brakePedalState,
+			boolean isEngineOn) 
+	{
+		int slot = ringBuffer.claim(timeStamp);
+		if(slot < 0)
+			return;
+		
+		ringBuffer.put(slot, X_POS, x);
+		ringBuffer.put(slot, Y_POS, y);
+		ringBuffer.put(slot, Z_POS, z);
+		ringBuffer.put(slot, X_ROT, xRot);
+		ringBuffer.put(slot, Y_ROT, yRot);
+		ringBuffer.put(slot, Z_ROT, zRot);
+		ringBuffer.put(slot, W_ROT, wRot);
+		ringBuffer.put(slot, SPEED, linearSpeed);
+		ringBuffer.put(slot, STEERING_WHEEL, steeringWheelState);
+		ringBuffer.put(slot, GAS_PEDAL, gasPedalState);
+		ringBuffer.put(slot, BRAKE_PEDAL, brakePedalState);
+		ringBuffer.put(slot, ENGINE_ON, isEngineOn ? 1 : 0);
+		ringBuffer.publish();
 	}
 	
 
 	/**
-	 * Write data to the data pool. After 50 data sets, the pool is flushed to
-	 * the file.
+	 * Write data to the data pool. The pool is written to file by the 
+	 * writer thread.
 	 * 
 	 * @param row
 	 * 			Datarow to write
 	 */
 	public void write(DataUnit row)
 	{
-		arrayDataList.add(row);
-		if (arrayDataList.size() > 50)
-			flush();
+		write(row.getDate().getTime(), row.getXpos(), row.getYpos(), row.getZpos(), 
+				row.getXrot(), row.getYrot(), row.getZrot(), row.getWrot(), row.getSpeed(), 
+				row.getSteeringWheelPos(), row.getAcceleratorPedalPos(), row.getBrakePedalPos(), 
+				row.isEngineOn());
+	}
+	
+	
+	/**
+	 * Thread draining the ring buffer and writing its content to file in batches.
+	 */
+	private class WriterThread extends Thread
+	{
+		public WriterThread()
+		{
+			super("DataWriterThread");
+		}
+		
+		
+		@Override
+		public void run()
+		{
+			while(writerRunning)
+			{
+				if(ringBuffer.available() == 0)
+					LockSupport.parkNanos(IDLE_SLEEP_TIME * 1000000L);
+				else
+					flush();
+			}
+			
+			// write remaining samples
+			while(ringBuffer.available() > 0)
+				flush();
+		}
 	}
 	
 
-	public void flush() 
+	/**
+	 * Writes a batch of samples from the ring buffer to file (writer thread only).
+	 * If an error occurs, the samples will be discarded and no further data will
+	 * be written.
+	 */
+	private void flush() 
 	{
+		int count = Math.min(ringBuffer.available(), BATCH_SIZE);
+		long sequence = ringBuffer.getReadSequence();
+		
+		if(writeErrorOccurred)
+		{
+			ringBuffer.release(count);
+			return;
+		}
+		
 		try {
-			StringBuffer sb = new StringBuffer();
-			for (DataUnit r : arrayDataList) {
-				sb.append(r.getDate().getTime() + ":" + r.getXpos() + ":"
-						+ r.getYpos() + ":" + r.getZpos() + ":" + r.getXrot()
-						+ ":" + r.getYrot() + ":" + r.getZrot() + ":"
-						+ r.getWrot() + ":" + r.getSpeed() + ":"
-						+ r.getSteeringWheelPos() + ":" + r.getAcceleratorPedalPos() + ":"
-						+ r.getBrakePedalPos() + ":" + r.isEngineOn() + newLine
-						);
+			for(int i=0; i<count; i++)
+			{
+				if(binaryFormat)
+					writeBinaryRecord(sequence + i);
+				else
+					writeTextRecord(sequence + i);
 			}
-			out.write(sb.toString());
-			arrayDataList.clear();
-			out.flush();
+			
+			if(binaryFormat)
+				binaryOut.flush();
+			else
+				out.flush();
+			
+			writtenSamples += count;
+			
 		} catch (IOException e) {
 			e.printStackTrace();
-			System.exit(0);
+			System.err.println("Could not write to file: " + outFile + ". Recording stopped.");
+			writeErrorOccurred = true;
 		}
+		
+		ringBuffer.release(count);
+	}
+
+
+	private void writeBinaryRecord(long sequence) throws IOException
+	{
+		if(chunkWriter != null)
+		{
+			writeCompressedRecord(sequence);
+			return;
+		}
+		
+		BinaryDataFormat.writeRecord(binaryOut, ringBuffer.getTimeStamp(sequence), 
+				ringBuffer.getValue(sequence, X_POS), ringBuffer.getValue(sequence, Y_POS), 
+				ringBuffer.getValue(sequence, Z_POS), ringBuffer.getValue(sequence, X_ROT), 
+				ringBuffer.getValue(sequence, Y_ROT), ringBuffer.getValue(sequence, Z_ROT), 
+				ringBuffer.getValue(sequence, W_ROT), ringBuffer.getValue(sequence, SPEED), 
+				ringBuffer.getValue(sequence, STEERING_WHEEL), ringBuffer.getValue(sequence, GAS_PEDAL), 
+				ringBuffer.getValue(sequence, BRAKE_PEDAL), ringBuffer.getValue(sequence, ENGINE_ON) != 0);
+	}
+
+
+	private void writeCompressedRecord(long sequence) throws IOException
+	{
+		chunkWriter.writeRecord(ringBuffer.getTimeStamp(sequence), 
+				ringBuffer.getValue(sequence, X_POS), ringBuffer.getValue(sequence, Y_POS), 
+				ringBuffer.getValue(sequence, Z_POS), ringBuffer.getValue(sequence, X_ROT), 
+				ringBuffer.getValue(sequence, Y_ROT), ringBuffer.getValue(sequence, Z_ROT), 
+				ringBuffer.getValue(sequence, W_ROT), ringBuffer.getValue(sequence, SPEED), 
+				ringBuffer.getValue(sequence, STEERING_WHEEL), ringBuffer.getValue(sequence, GAS_PEDAL), 
+				ringBuffer.getValue(sequence, BRAKE_PEDAL), ringBuffer.getValue(sequence, ENGINE_ON) != 0);
+	}
+
+
+	private void writeTextRecord(long sequence) throws IOException
+	{
+		lineBuilder.setLength(0);
+		lineBuilder.append(ringBuffer.getTimeStamp(sequence));
+		for(int i=X_POS; i<=BRAKE_PEDAL; i++)
+			lineBuilder.append(':').append(ringBuffer.getValue(sequence, i));
+		lineBuilder.append(':').append(ringBuffer.getValue(sequence, ENGINE_ON) != 0);
+		lineBuilder.append(newLine);
+		
+		out.append(lineBuilder);
 	}
 
 	
+	/**
+	 * @return
+	 * 			Number of samples that could not be recorded because the 
+	 * 			ring buffer was full.
+	 */
+	public long getDroppedSampleCount()
+	{
+		return ringBuffer.getDroppedSamples();
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of samples waiting in the ring buffer to be written.
+	 */
+	public int getQueuedSampleCount()
+	{
+		return ringBuffer.available();
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of samples that have been written to file.
+	 */
+	public long getWrittenSampleCount()
+	{
+		return writtenSamples;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			true, if writing to file failed.
+	 */
+	public boolean hasWriteErrorOccurred()
+	{
+		return writeErrorOccurred;
+	}
+
+	
+	/**
+	 * Stops the writer thread after all queued samples have been written 
+	 * and closes the file.
+	 */
 	public void quit() 
 	{
 		dataWriterEnabled = false;
-		flush();
+		writerRunning = false;
+		
+		if(writerThread != null)
+		{
+			LockSupport.unpark(writerThread);
+			try {
+				writerThread.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			writerThread = null;
+		}
+		
 		try {
 			if (out != null)
 				out.close();
+			
+			// append last chunk and chunk index
+			if (chunkWriter != null && !writeErrorOccurred)
+				chunkWriter.close();
+			
+			if (binaryOut != null)
+				binaryOut.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -19,6 +19,7 @@
 package eu.opends.analyzer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -38,7 +39,7 @@ import eu.opends.main.DriveAnalyzer;
 */	
 public class DeviationComputer 
 {
-	private ArrayList<Vector3f> wayPoints;
+	private DriveDataStore wayPoints;
 	private Map<String, IdealTrackContainer> idealTrackMap;
 
 	
@@ -46,12 +47,28 @@ public class DeviationComputer
 	 * Creates a new deviation computer
 	 * 
 	 * @param wayPoints
-	 * 			list of way points
+	 * 			recorded data sets containing the way points
+	 */
+	public DeviationComputer(DriveDataStore wayPoints)
+	{
+		this(wayPoints, DriveAnalyzer.getDrivingTask().getScenarioLoader().getIdealTrackMap());
+	}
+	
+	
+	/**
+	 * Creates a new deviation computer for the given ideal tracks 
+	 * (e.g. without a running analyzer)
+	 * 
+	 * @param wayPoints
+	 * 			recorded data sets containing the way points
+	 * 
+	 * @param idealTrackMap
+	 * 			ideal tracks to compare with
 	 */
-	public DeviationComputer(ArrayList<Vector3f> wayPoints)
+	public DeviationComputer(DriveDataStore wayPoints, Map<String, IdealTrackContainer> idealTrackMap)
 	{
 		this.wayPoints = wayPoints;
-		this.idealTrackMap = DriveAnalyzer.getDrivingTask().getScenarioLoader().getIdealTrackMap();
+		this.idealTrackMap = idealTrackMap;
 	}
 	
 		
@@ -60,8 +77,9 @@ public class DeviationComputer
 	 */
 	public void showAllWayPoints()
 	{
-		for(Vector3f wayPoint : wayPoints) 
-			System.out.println("WP: "+wayPoint.toString());
+		Vector3f wayPoint = new Vector3f();
+		for(int i=0; i<wayPoints.size(); i++) 
+			System.out.println("WP: "+wayPoints.getCarPosition(i, wayPoint).toString());
 	}
 	
 	
@@ -73,7 +91,7 @@ public class DeviationComputer
 	 */
 	public List<Vector3f> getWayPoints()
 	{
-		return wayPoints;
+		return Arrays.asList(wayPoints.getCarPositions());
 	}
 
 	
@@ -86,6 +104,7 @@ public class DeviationComputer
 	public ArrayList<IdealLine> getIdealLines()
 	{
 		ArrayList<IdealLine> idealLineList = new ArrayList<IdealLine>();
+		WayPointGrid wayPointGrid = IdealLine.createWayPointGrid(wayPoints);
 		
 		for(Map.Entry<String, IdealTrackContainer> entry : idealTrackMap.entrySet())
 		{
@@ -96,7 +115,7 @@ public class DeviationComputer
 			
 			try {
 				
-				idealLineList.add(new IdealLine(id, roadWidth, idealPoints, wayPoints));
+				idealLineList.add(new IdealLine(id, roadWidth, idealPoints, wayPoints, wayPointGrid));
 				
 			} catch (Exception e) {
 	
@@ -0,0 +1,280 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+
+/**
+ * Compact, column-oriented store of a recorded drive. Every channel is kept
+ * in a primitive array, so any data set can be accessed in constant time
+ * without holding one object per data set. <code>DataUnit</code> objects
+ * will only be created on request.
+ *
+ * @author Rafael Math
+ */
+public class DriveDataStore
+{
+	private int size = 0;
+	private long[] timeStamps;
+	private float[] xpos, ypos, zpos;
+	private float[] xrot, yrot, zrot, wrot;
+	private float[] speed, steeringWheelPos, gasPedalPos, brakePedalPos;
+	private float[] traveledDistance;
+	private boolean[] engineOn;
+
+
+	/**
+	 * Creates a new store.
+	 *
+	 * @param capacity
+	 * 			Number of data sets that can be added.
+	 */
+	public DriveDataStore(int capacity)
+	{
+		timeStamps = new long[capacity];
+		xpos = new float[capacity];
+		ypos = new float[capacity];
+		zpos = new float[capacity];
+		xrot = new float[capacity];
+		yrot = new float[capacity];
+		zrot = new float[capacity];
+		wrot = new float[capacity];
+		speed = new float[capacity];
+		steeringWheelPos = new float[capacity];
+		gasPedalPos = new float[capacity];
+		brakePedalPos = new float[capacity];
+		traveledDistance = new float[capacity];
+		engineOn = new boolean[capacity];
+	}
+
+
+	/**
+	 * Appends a row of the given chunk to the store.
+	 *
+	 * @param chunk
+	 * 			Chunk containing the data set.
+	 *
+	 * @param row
+	 * 			Index of the data set within the chunk.
+	 *
+	 * @param distance
+	 * 			Distance traveled since the beginning of the recording.
+	 */
+	public void add(DataChunk chunk, int row, float distance)
+	{
+		int i = size++;
+		timeStamps[i] = chunk.getTimeStamp(row);
+		xpos[i] = chunk.getValue(row, DataChunk.X_POS);
+		ypos[i] = chunk.getValue(row, DataChunk.Y_POS);
+		zpos[i] = chunk.getValue(row, DataChunk.Z_POS);
+		xrot[i] = chunk.getValue(row, DataChunk.X_ROT);
+		yrot[i] = chunk.getValue(row, DataChunk.Y_ROT);
+		zrot[i] = chunk.getValue(row, DataChunk.Z_ROT);
+		wrot[i] = chunk.getValue(row, DataChunk.W_ROT);
+		speed[i] = chunk.getValue(row, DataChunk.SPEED);
+		steeringWheelPos[i] = chunk.getValue(row, DataChunk.STEERING_WHEEL);
+		gasPedalPos[i] = chunk.getValue(row, DataChunk.GAS_PEDAL);
+		brakePedalPos[i] = chunk.getValue(row, DataChunk.BRAKE_PEDAL);
+		engineOn[i] = chunk.isEngineOn(row);
+		traveledDistance[i] = distance;
+	}
+
+
+	/**
+	 * @return
+	 * 			Number of data sets in this store.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Returns the index of the last data set recorded at or before the given time
+	 * (binary search). If the given time is before the first data set, 0 will be
+	 * returned.
+	 *
+	 * @param timeStamp
+	 * 			Time stamp (ms) to look up.
+	 *
+	 * @return
+	 * 			Index of the data set.
+	 */
+	public int getIndexAt(long timeStamp)
+	{
+		int index = Arrays.binarySearch(timeStamps, 0, size, timeStamp);
+
+		if(index < 0)
+		{
+			// index of the first data set recorded after the given time stamp
+			int insertionPoint = -index - 1;
+			return Math.max(insertionPoint - 1, 0);
+		}
+
+		// return last data set if time stamp occurs more than once
+		while(index + 1 < size && timeStamps[index + 1] == timeStamp)
+			index++;
+
+		return index;
+	}
+
+
+	/**
+	 * Creates a data unit containing all values of the given data set.
+	 *
+	 * @param index
+	 * 			Index of the data set.
+	 *
+	 * @return
+	 * 			New data unit.
+	 */
+	public DataUnit getDataUnit(int index)
+	{
+		return new DataUnit(new Date(timeStamps[index]), getCarPosition(index, new Vector3f()),
+				getCarRotation(index, new Quaternion()), speed[index], steeringWheelPos[index],
+				gasPedalPos[index], brakePedalPos[index], engineOn[index], traveledDistance[index]);
+	}
+
+
+	/**
+	 * Creates an array containing the car positions of all data sets
+	 * (e.g. for visualization of the driven line).
+	 *
+	 * @return
+	 * 			Array of car positions.
+	 */
+	public Vector3f[] getCarPositions()
+	{
+		Vector3f[] positions = new Vector3f[size];
+		for(int i=0; i<size; i++)
+			positions[i] = getCarPosition(i, new Vector3f());
+
+		return positions;
+	}
+
+
+	/**
+	 * Creates a direct buffer containing the car positions of all data sets
+	 * (x, y, z interleaved), which can be used as position buffer of a mesh.
+	 *
+	 * @return
+	 * 			Buffer of car positions.
+	 */
+	public FloatBuffer getCarPositionBuffer()
+	{
+		FloatBuffer buffer = BufferUtils.createFloatBuffer(3 * size);
+		for(int i=0; i<size; i++)
+			buffer.put(xpos[i]).put(ypos[i]).put(zpos[i]);
+
+		buffer.flip();
+		return buffer;
+	}
+
+
+	public long getTimeStamp(int index)
+	{
+		return timeStamps[index];
+	}
+
+
+	public Vector3f getCarPosition(int index, Vector3f store)
+	{
+		return store.set(xpos[index], ypos[index], zpos[index]);
+	}
+
+
+	public Quaternion getCarRotation(int index, Quaternion store)
+	{
+		return store.set(xrot[index], yrot[index], zrot[index], wrot[index]);
+	}
+
+
+	public float getXpos(int index)
+	{
+		return xpos[index];
+	}
+
+
+	public float getYpos(int index)
+	{
+		return ypos[index];
+	}
+
+
+	public float getZpos(int index)
+	{
+		return zpos[index];
+	}
+
+
+	public float getSpeed(int index)
+	{
+		return speed[index];
+	}
+
+
+	public float getSteeringWheelPos(int index)
+	{
+		return steeringWheelPos[index];
+	}
+
+
+	public float getAcceleratorPedalPos(int index)
+	{
+		return gasPedalPos[index];
+	}
+
+
+	public float getBrakePedalPos(int index)
+	{
+		return brakePedalPos[index];
+	}
+
+
+	public boolean isEngineOn(int index)
+	{
+		return engineOn[index];
+	}
+
+
+	public float getTraveledDistance(int index)
+	{
+		return traveledDistance[index];
+	}
+
+
+	/**
+	 * @return
+	 * 			Distance traveled between first and last data set.
+	 */
+	public float getTotalDistance()
+	{
+		if(size == 0)
+			return 0;
+
+		return traveledDistance[size-1];
+	}
+}
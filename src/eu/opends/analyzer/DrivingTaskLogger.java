@@ -22,26 +22,81 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import eu.opends.tools.Util;
 
 /**
  * This class is used for logging driving task data to a text file. 
  * 
+ * All report methods only add an event to a queue and return immediately;
+ * formatting and writing is done by a background writer thread, so bursts
+ * of trigger events do not stall the render thread. The file will be flushed
+ * according to the flush interval (see constructor) and when calling
+ * <code>quit()</code>.
+ *
  * @author Rafael Math
  */
 public class DrivingTaskLogger 
 {
+	// immutable and therefore thread-safe (in contrast to SimpleDateFormat)
+	private static final DateTimeFormatter timestampFormatter =
+			DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+	// max. time the writer thread waits for new events (ms)
+	private static final int POLL_TIMEOUT = 50;
+
+	// kinds of log lines
+	private static final int PLAIN = 0;			// text only
+	private static final int TIMESTAMPED = 1;	// formatted time stamp --> text
+	private static final int MILLISECONDS = 2;	// milliseconds <tab> text
+
+	private static final LogEvent SHUTDOWN = new LogEvent(PLAIN, 0, null);
+
 	private String outputFolder;
 	private File outFile;
 	private BufferedWriter output;
 	private String newLine = System.getProperty("line.separator");
 	private String driverName;
 	private String drivingTask;
+	private int flushInterval;
+	private BlockingQueue<LogEvent> eventQueue = new LinkedBlockingQueue<LogEvent>();
+	private StringBuilder lineBuilder = new StringBuilder(256);
+	private WriterThread writerThread;
+	private volatile boolean isRunning = false;
+
+
+	/**
+	 * Single entry of the log file, created by the calling thread and
+	 * formatted by the writer thread.
+	 */
+	private static class LogEvent
+	{
+		private int kind;
+		private long time;
+		private String text;
+
+
+		private LogEvent(int kind, long time, String text)
+		{
+			this.kind = kind;
+			this.time = time;
+			this.text = text;
+		}
+	}
+
+
+	public DrivingTaskLogger(String outputFolder, String driverName, String drivingTask)
+	{
+		this(outputFolder, driverName, drivingTask, 0);
+	}
 
 
 	/**
@@ -57,15 +112,24 @@ public class DrivingTaskLogger
 	 * 
 	 * @param drivingTask
 	 * 			Name of the driving task file.
+	 *
+	 * @param flushInterval
+	 * 			Flush policy: 0 = flush whenever all queued events have been written,
+	 * 			n &gt; 0 = flush at most every n milliseconds, -1 = flush on quit only.
 	 */
-	public DrivingTaskLogger(String outputFolder, String driverName, String drivingTask) 
+	public DrivingTaskLogger(String outputFolder, String driverName, String drivingTask, int flushInterval)
 	{
 		this.outputFolder = outputFolder;
 		this.driverName = driverName;
 		this.drivingTask = drivingTask;
+		this.flushInterval = flushInterval;
 
 		Util.makeDirectory(outputFolder);
 		initWriter();
+
+		isRunning = true;
+		writerThread = new WriterThread();
+		writerThread.start();
 	}
 	
 	
@@ -80,29 +144,12 @@ public class DrivingTaskLogger
 	 */
 	public void reportText(String string, Date timestamp) 
 	{
-		// format current time stamp
-		String timestampString = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(timestamp);
-
-		// write data to file
-		try {
-			output.write(timestampString + " --> " + string + newLine);
-			output.flush();
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		addEvent(TIMESTAMPED, timestamp.getTime(), string);
 	}
 	
 	public void reportText(String string, long millisecs) 
 	{
-		// write data to file
-		try {
-			output.write(millisecs + "\t" + string + newLine);
-			output.flush();
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		addEvent(MILLISECONDS, millisecs, string);
 	}
 	
 	
@@ -114,14 +161,7 @@ public class DrivingTaskLogger
 	 */
 	public void reportText(String string) 
 	{
-		// write data to file
-		try {
-			output.write(string + newLine);
-			output.flush();
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		addEvent(PLAIN, 0, string);
 	}
 	
 	
@@ -136,23 +176,15 @@ public class DrivingTaskLogger
 	 */
 	public void reportReactionTime(String triggerName, Calendar startTime) 
 	{
-		// get time stamp of start time
+		// get passed milliseconds since start time (= reaction time)
 		long startTimeInMilliseconds = startTime.getTimeInMillis();
-		String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(startTimeInMilliseconds);
+		long passedMilliseconds = System.currentTimeMillis() - startTimeInMilliseconds;
 
-		// get passed milliseconds since start time (= reaction time)
-		Calendar now = new GregorianCalendar();
-		long passedMilliseconds = now.getTimeInMillis() - startTimeInMilliseconds;
-		String reactionTime = new SimpleDateFormat("mm:ss.SSS").format(passedMilliseconds);
+		// format as mm:ss.SSS
+		String reactionTime = String.format("%02d:%02d.%03d", (passedMilliseconds / 60000) % 60,
+				(passedMilliseconds / 1000) % 60, passedMilliseconds % 1000);
 		
-		// write data to file
-		try {
-			output.write(timestamp + " --> reaction time at '" + triggerName + "': " + reactionTime + newLine);
-			output.flush();
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		addEvent(TIMESTAMPED, startTimeInMilliseconds, "reaction time at '" + triggerName + "': " + reactionTime);
 	}
 
 	
@@ -176,15 +208,7 @@ public class DrivingTaskLogger
 			case 3 : ptString = "empty screen"; break;
 		}
 		
-		// write data to file
-		try {	
-			output.write(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()) + 
-					" --> PresentationTask: " + ptString + newLine);
-			output.flush();
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		addEvent(TIMESTAMPED, System.currentTimeMillis(), "PresentationTask: " + ptString);
 	}
 	
 	
@@ -193,15 +217,7 @@ public class DrivingTaskLogger
 	 */
 	public void reportSpeedLimitExceeded() 
 	{
-		// write data to file
-		try {	
-			output.write(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()) + 
-					" --> exceeded speed limit" + newLine);
-			output.flush();
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		addEvent(TIMESTAMPED, System.currentTimeMillis(), "exceeded speed limit");
 	}
 
 	
@@ -210,15 +226,7 @@ public class DrivingTaskLogger
 	 */
 	public void reportSpeedLimitUnderExceeded() 
 	{
-		// write data to file
-		try {	
-			output.write(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()) + 
-					" --> fall below speed limit" + newLine);
-			output.flush();
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		addEvent(TIMESTAMPED, System.currentTimeMillis(), "fall below speed limit");
 	}
 	
 	
@@ -227,15 +235,7 @@ public class DrivingTaskLogger
 	 */
 	public void reportSpeedNormal() 
 	{
-		// write data to file
-		try {	
-			output.write(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()) + 
-					" --> complying with speed limit again" + newLine);
-			output.flush();
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		addEvent(TIMESTAMPED, System.currentTimeMillis(), "complying with speed limit again");
 	}
 	
 	
@@ -252,13 +252,118 @@ public class DrivingTaskLogger
 	 */
 	public void reportSpeedDifference(float averageDifference, float standardDeviation) 
 	{
-		// write data to file
+		addEvent(TIMESTAMPED, System.currentTimeMillis(), "speed deviation: " + averageDifference +
+				" km/h (average), " + standardDeviation + " km/h (standard deviation)");
+	}
+
+
+	/**
+	 * Formats the given time stamp (thread-safe).
+	 *
+	 * @param millisecs
+	 * 			Time stamp in milliseconds.
+	 *
+	 * @return
+	 * 			Time stamp formatted as "yyyy-MM-dd HH:mm:ss.SSS".
+	 */
+	public static String formatTimestamp(long millisecs)
+	{
+		return timestampFormatter.format(Instant.ofEpochMilli(millisecs));
+	}
+
+
+	private void addEvent(int kind, long time, String text)
+	{
+		if(isRunning)
+			eventQueue.offer(new LogEvent(kind, time, text));
+	}
+
+
+	/**
+	 * Thread writing all queued events to file.
+	 */
+	private class WriterThread extends Thread
+	{
+		public WriterThread()
+		{
+			super("DrivingTaskLoggerThread");
+			setDaemon(true);
+		}
+
+
+		@Override
+		public void run()
+		{
+			long lastFlush = System.currentTimeMillis();
+			boolean unflushed = false;
+			boolean shutdown = false;
+
+			while(!shutdown)
+			{
+				try {
+
+					LogEvent event = eventQueue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+					while(event != null && event != SHUTDOWN)
+					{
+						write(event);
+						unflushed = true;
+						event = eventQueue.poll();
+					}
+
+					shutdown = (event == SHUTDOWN);
+
+				} catch (InterruptedException e) {
+					shutdown = true;
+				}
+
+				long now = System.currentTimeMillis();
+				if(unflushed && flushInterval >= 0 && now - lastFlush >= flushInterval)
+				{
+					flush();
+					lastFlush = now;
+					unflushed = false;
+				}
+			}
+
+			// write events added before quit() has been called
+			LogEvent event;
+			while((event = eventQueue.poll()) != null)
+				if(event != SHUTDOWN)
+					write(event);
+
+			flush();
+		}
+	}
+
+
+	/**
+	 * Formats and writes a single event (writer thread only).
+	 */
+	private void write(LogEvent event)
+	{
+		if(output == null)
+			return;
+
+		lineBuilder.setLength(0);
+		if(event.kind == TIMESTAMPED)
+			lineBuilder.append(formatTimestamp(event.time)).append(" --> ");
+		else if(event.kind == MILLISECONDS)
+			lineBuilder.append(event.time).append('\t');
+		lineBuilder.append(event.text).append(newLine);
+
 		try {	
-			output.write(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()) + 
-					" --> speed deviation: " + averageDifference + " km/h (average), " +
-					standardDeviation + " km/h (standard deviation)" + newLine);
-			output.flush();
+			output.append(lineBuilder);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
 			
+
+	private void flush()
+	{
+		try {
+			if(output != null)
+				output.flush();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -266,10 +371,23 @@ public class DrivingTaskLogger
 	
 	
 	/**
-	 * Closes the file when the simulator has been halted.
+	 * Writes all queued events and closes the file when the simulator has been
+	 * halted.
 	 */
 	public void quit() 
 	{
+		if(!isRunning)
+			return;
+
+		isRunning = false;
+		eventQueue.offer(SHUTDOWN);
+
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+
 		try {
 			
 			if (output != null)
@@ -303,7 +421,7 @@ public class DrivingTaskLogger
 		// write date to file
 		try {
 			
-			String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date());
+			String timestamp = formatTimestamp(System.currentTimeMillis());
 			
 			output = new BufferedWriter(new FileWriter(outFile));
 			output.write("Driver: " + driverName + newLine);
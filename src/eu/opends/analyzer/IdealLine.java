@@ -43,7 +43,8 @@ public class IdealLine
 	
 	private String id;
 	private float roadWidth = 15.0f; // length of halfway vectors (= max deviation from ideal line)
-	private ArrayList<Vector3f> wayPoints;
+	private DriveDataStore wayPoints;
+	private WayPointGrid wayPointGrid;
 	private float area = 0.0f; 
 	private float length = 0.0f;
 	private IdealLineStatus status = IdealLineStatus.Complete;
@@ -52,10 +53,18 @@ public class IdealLine
 	private ArrayList<Vector3f> deviationPoints = new ArrayList<Vector3f>();
 	
 
-	public IdealLine(String id, Float roadWidth, ArrayList<Vector2f> idealPoints, ArrayList<Vector3f> wayPoints) throws Exception
+	public IdealLine(String id, Float roadWidth, ArrayList<Vector2f> idealPoints, DriveDataStore wayPoints) throws Exception
+	{
+		this(id, roadWidth, idealPoints, wayPoints, createWayPointGrid(wayPoints));
+	}
+	
+	
+	public IdealLine(String id, Float roadWidth, ArrayList<Vector2f> idealPoints, DriveDataStore wayPoints, 
+			WayPointGrid wayPointGrid) throws Exception
 	{
 		this.id = id;
 		this.wayPoints = wayPoints;
+		this.wayPointGrid = wayPointGrid;
 		
 		if(roadWidth != null)
 			this.roadWidth = roadWidth;
@@ -169,6 +178,22 @@ public class IdealLine
 	}
 	
 	
+	/**
+	 * Creates a spatial index of the given way points, which can be shared by 
+	 * all ideal lines computed for the same recording.
+	 * 
+	 * @param wayPoints
+	 * 			recorded data sets containing the way points
+	 * 
+	 * @return
+	 * 			grid of way points
+	 */
+	public static WayPointGrid createWayPointGrid(DriveDataStore wayPoints)
+	{
+		return new WayPointGrid(wayPoints, MAX_DISTANCE);
+	}
+	
+	
 	public String getId() 
 	{
 		return id;
@@ -297,14 +322,20 @@ public class IdealLine
 		float rightDistance = 0;
 		boolean leftValueFound = false;
 		boolean rightValueFound = false;
+		Point2D.Float point = new Point2D.Float();
+		
+		// only way points near the line (in recording order) need to be checked, as all 
+		// others are located too far away (the margin compensates for rounding errors)
+		float range = MAX_DISTANCE + 1;
+		int[] nearbyWayPoints = wayPointGrid.getIndicesInRange(
+				Math.min(line.x1, line.x2) - range, Math.min(line.y1, line.y2) - range,
+				Math.max(line.x1, line.x2) + range, Math.max(line.y1, line.y2) + range);
 		
 		// loop is ended as soon as points on the left and right could be found 
-		for(Vector3f wayPoint : wayPoints)
+		for(int i : nearbyWayPoints)
 		{
 			// get coordinates of current way point
-			float x = wayPoint.getX();
-			float z = wayPoint.getZ();
-			Point2D point = new Point2D.Float(x,z);
+			point.setLocation(wayPoints.getXpos(i), wayPoints.getZpos(i));
 			
 			// distance of current point from line segment
 			double distance = line.ptSegDist(point);
@@ -316,13 +347,13 @@ public class IdealLine
 			// if point is already located on the line --> return this point
 			if(line.relativeCCW(point) == 0)
 			{
-				return wayPoint;
+				return wayPoints.getCarPosition(i, new Vector3f());
 			}
 
 			// store distance and coordinates of the nearest point left of the line
 			if(line.relativeCCW(point) == -1)
 			{
-				leftValue = wayPoint;
+				leftValue = wayPoints.getCarPosition(i, new Vector3f());
 				leftDistance = (float) line.ptLineDist(point);
 				leftValueFound = true;
 			}
@@ -330,7 +361,7 @@ public class IdealLine
 			// store distance and coordinates of the nearest point right of the line
 			if(line.relativeCCW(point) == 1)
 			{
-				rightValue = wayPoint;
+				rightValue = wayPoints.getCarPosition(i, new Vector3f());
 				rightDistance = (float) line.ptLineDist(point);
 				rightValueFound = true;
 			}
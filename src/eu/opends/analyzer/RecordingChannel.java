@@ -0,0 +1,79 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+/**
+ * Named, typed signal that can be registered at the <code>ChannelRegistry</code>
+ * in order to be sampled by the <code>ChannelRecorder</code>. Implementations
+ * only have to return the current value, e.g.:
+ * 
+ * <pre>
+ * registry.register(new RecordingChannel("car.speed", ChannelType.FLOAT) {
+ *     public float getValue() { return car.getCurrentSpeedKmh(); }
+ * });
+ * </pre>
+ * 
+ * INT channels should also override <code>getIntValue()</code>, as values are 
+ * recorded from that method (float values are exact up to 2^24 only).
+ * 
+ * <code>getValue()</code> will be called by the render thread and must not block.
+ * 
+ * @author Rafael Math
+ */
+public abstract class RecordingChannel
+{
+	private String name;
+	private ChannelType type;
+	
+	
+	public RecordingChannel(String name, ChannelType type)
+	{
+		this.name = name;
+		this.type = type;
+	}
+	
+	
+	public String getName()
+	{
+		return name;
+	}
+	
+	
+	public ChannelType getType()
+	{
+		return type;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Current value of the channel (booleans: 1 = true, 0 = false).
+	 */
+	public abstract float getValue();
+	
+	
+	/**
+	 * @return
+	 * 			Current value of an INT channel (default: rounded <code>getValue()</code>).
+	 */
+	public int getIntValue()
+	{
+		return Math.round(getValue());
+	}
+}
@@ -0,0 +1,150 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.analyzer;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the x/z coordinates of all way points of a recording.
+ * The indices of the way points of each cell are stored consecutively
+ * (in ascending order) in a single array, so a range query only has to
+ * visit the cells overlapping the given rectangle.
+ *
+ * @author Rafael Math
+ */
+public class WayPointGrid
+{
+	// upper bound of the number of cells (limits memory for widely spread recordings)
+	private static final int MAX_CELLS = 1 << 18;
+
+	private float minX, minZ;
+	private float cellSize;
+	private int columns = 0;
+	private int rows = 0;
+
+	// way points of cell c: cellIndices[cellStart[c]] ... cellIndices[cellStart[c+1]-1]
+	private int[] cellStart = new int[1];
+	private int[] cellIndices = new int[0];
+
+
+	/**
+	 * Creates a grid containing all way points of the given store.
+	 *
+	 * @param wayPoints
+	 * 			Recorded data sets containing the way points.
+	 *
+	 * @param minCellSize
+	 * 			Minimum edge length of a cell (e.g. the max. search distance).
+	 */
+	public WayPointGrid(DriveDataStore wayPoints, float minCellSize)
+	{
+		int size = wayPoints.size();
+		if(size == 0)
+			return;
+
+		minX = Float.POSITIVE_INFINITY;
+		minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxZ = Float.NEGATIVE_INFINITY;
+		for(int i=0; i<size; i++)
+		{
+			minX = Math.min(minX, wayPoints.getXpos(i));
+			minZ = Math.min(minZ, wayPoints.getZpos(i));
+			maxX = Math.max(maxX, wayPoints.getXpos(i));
+			maxZ = Math.max(maxZ, wayPoints.getZpos(i));
+		}
+
+		// enlarge cells if the recording covers a very large area
+		double width = (double) maxX - minX;
+		double height = (double) maxZ - minZ;
+		double size2D = Math.max(Math.sqrt(width * height / MAX_CELLS), Math.max(width, height) / MAX_CELLS);
+		cellSize = (float) Math.max(minCellSize, size2D);
+		columns = (int) ((maxX - minX) / cellSize) + 1;
+		rows = (int) ((maxZ - minZ) / cellSize) + 1;
+
+		// counting sort of the way point indices by cell
+		int[] cellOfWayPoint = new int[size];
+		cellStart = new int[columns * rows + 1];
+		for(int i=0; i<size; i++)
+		{
+			int cell = getRow(wayPoints.getZpos(i)) * columns + getColumn(wayPoints.getXpos(i));
+			cellOfWayPoint[i] = cell;
+			cellStart[cell+1]++;
+		}
+
+		for(int c=0; c<columns * rows; c++)
+			cellStart[c+1] += cellStart[c];
+
+		int[] nextPosition = Arrays.copyOf(cellStart, columns * rows);
+		cellIndices = new int[size];
+		for(int i=0; i<size; i++)
+			cellIndices[nextPosition[cellOfWayPoint[i]]++] = i;
+	}
+
+
+	/**
+	 * Returns the indices of all way points located in the cells overlapping
+	 * the given rectangle (this includes all way points inside the rectangle).
+	 *
+	 * @return
+	 * 			Indices of the way points in ascending order.
+	 */
+	public int[] getIndicesInRange(float fromX, float fromZ, float toX, float toZ)
+	{
+		if(columns == 0 || toX < minX || toZ < minZ)
+			return new int[0];
+
+		int firstColumn = getColumn(fromX);
+		int lastColumn = getColumn(toX);
+		int firstRow = getRow(fromZ);
+		int lastRow = getRow(toZ);
+
+		int count = 0;
+		for(int row = firstRow; row <= lastRow; row++)
+			count += cellStart[row * columns + lastColumn + 1] - cellStart[row * columns + firstColumn];
+
+		int[] result = new int[count];
+		int position = 0;
+		for(int row = firstRow; row <= lastRow; row++)
+		{
+			int start = cellStart[row * columns + firstColumn];
+			int length = cellStart[row * columns + lastColumn + 1] - start;
+			System.arraycopy(cellIndices, start, result, position, length);
+			position += length;
+		}
+
+		// restore recording order of the way points
+		Arrays.sort(result);
+		return result;
+	}
+
+
+	private int getColumn(float x)
+	{
+		int column = (int) ((x - minX) / cellSize);
+		return Math.max(0, Math.min(column, columns - 1));
+	}
+
+
+	private int getRow(float z)
+	{
+		int row = (int) ((z - minZ) / cellSize);
+		return Math.max(0, Math.min(row, rows - 1));
+	}
+}
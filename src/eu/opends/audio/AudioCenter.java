@@ -105,8 +105,13 @@ public class AudioCenter {
 		}		
 	}*/
 
+	// false if not initialized (e.g. headless mode without audio renderer)
+	private static boolean isEnabled() {
+		return audioRenderer != null && audioNodeList != null;
+	}
+
 	public static void playSound(String soundID) {
-		if (soundID != null) {
+		if (soundID != null && isEnabled()) {
 			AudioNode audioNode = audioNodeList.get(soundID);
 			if (audioNode != null)
 				audioRenderer.playSource(audioNode);
@@ -126,14 +131,19 @@ public class AudioCenter {
 	}
 
 	public static void stopSound(String soundID) {
-		audioRenderer.stopSource(audioNodeList.get(soundID));
+		if (isEnabled())
+			audioRenderer.stopSource(audioNodeList.get(soundID));
 	}
 
 	public static void setVolume(String soundID, float volume) {
-		audioNodeVolumeList.put(soundID, volume);
+		if (isEnabled())
+			audioNodeVolumeList.put(soundID, volume);
 	}
 
 	public static void update(float tpf, Camera cam) {
+		if (!isEnabled())
+			return;
+
 		// when simulator is paused, all sound output will be paused
 		if (sim.isPause())
 			pauseAllSoundEffects();
@@ -170,6 +180,9 @@ public class AudioCenter {
 	}
 	
 	public static void stopAllSoundEffects() {
+		if (!isEnabled())
+			return;
+
 		for (Entry<String, AudioNode> entry : audioNodeList.entrySet())
 			audioRenderer.stopSource(entry.getValue());
 	}
@@ -184,6 +197,9 @@ public class AudioCenter {
 	}
 
 	public static AudioNode getAudioNode(String soundID) {
+		if (!isEnabled())
+			return null;
+
 		return audioNodeList.get(soundID);
 	}
 }
@@ -0,0 +1,146 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.basics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import com.bulletphysics.collision.shapes.BvhTriangleMeshShape;
+import com.bulletphysics.collision.shapes.IndexedMesh;
+import com.bulletphysics.collision.shapes.OptimizedBvh;
+import com.bulletphysics.collision.shapes.TriangleIndexVertexArray;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.util.Converter;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+
+/**
+ * Mesh collision shape which stores its bounding volume hierarchy (BVH) 
+ * together with the triangles when exported. <code>MeshCollisionShape</code>
+ * rebuilds the BVH when being imported, which takes most of the time needed 
+ * to create the shape of large models (terrain, city).
+ * 
+ * @author Rafael Math
+ */
+public class CachedMeshCollisionShape extends MeshCollisionShape
+{
+	private OptimizedBvh optimizedBvh = null;
+	
+	
+	/**
+	 * Constructor for import only.
+	 */
+	public CachedMeshCollisionShape()
+	{
+	}
+	
+	
+	/**
+	 * Creates a copy of the given shape sharing triangles and BVH with it.
+	 * 
+	 * @param shape
+	 * 			Mesh collision shape (e.g. created by CollisionShapeFactory).
+	 */
+	public CachedMeshCollisionShape(MeshCollisionShape shape)
+	{
+		BvhTriangleMeshShape bvhShape = (BvhTriangleMeshShape) shape.getCShape();
+		TriangleIndexVertexArray meshInterface = (TriangleIndexVertexArray) bvhShape.getMeshInterface();
+		
+		bulletMesh = meshInterface.getIndexedMeshArray().get(0);
+		numVertices = bulletMesh.numVertices;
+		numTriangles = bulletMesh.numTriangles;
+		vertexStride = bulletMesh.vertexStride;
+		triangleIndexStride = bulletMesh.triangleIndexStride;
+		triangleIndexBase = bulletMesh.triangleIndexBase;
+		vertexBase = bulletMesh.vertexBase;
+		scale = shape.getScale();
+		margin = shape.getMargin();
+		optimizedBvh = bvhShape.getOptimizedBvh();
+		cShape = bvhShape;
+	}
+	
+	
+	@Override
+	public void write(JmeExporter ex) throws IOException
+	{
+		super.write(ex);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(optimizedBvh);
+		out.close();
+		
+		ex.getCapsule(this).write(bytes.toByteArray(), "optimizedBvh", null);
+	}
+	
+	
+	@Override
+	public void read(JmeImporter im) throws IOException
+	{
+		// BVH has to be available before super.read() creates the shape
+		InputCapsule capsule = im.getCapsule(this);
+		byte[] bvhBytes = capsule.readByteArray("optimizedBvh", null);
+		if(bvhBytes != null)
+		{
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bvhBytes));
+			try {
+				optimizedBvh = (OptimizedBvh) in.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			} finally {
+				in.close();
+			}
+		}
+		
+		super.read(im);
+	}
+	
+	
+	@Override
+	protected void createShape()
+	{
+		if(optimizedBvh == null)
+		{
+			super.createShape();
+			optimizedBvh = ((BvhTriangleMeshShape) cShape).getOptimizedBvh();
+			return;
+		}
+		
+		bulletMesh = new IndexedMesh();
+		bulletMesh.numVertices = numVertices;
+		bulletMesh.numTriangles = numTriangles;
+		bulletMesh.vertexStride = vertexStride;
+		bulletMesh.triangleIndexStride = triangleIndexStride;
+		bulletMesh.triangleIndexBase = triangleIndexBase;
+		bulletMesh.vertexBase = vertexBase;
+		
+		TriangleIndexVertexArray meshInterface = new TriangleIndexVertexArray(numTriangles, 
+				triangleIndexBase, triangleIndexStride, numVertices, vertexBase, vertexStride);
+		
+		// use stored BVH (already built for the given scale)
+		BvhTriangleMeshShape bvhShape = new BvhTriangleMeshShape(meshInterface, true, false);
+		bvhShape.setOptimizedBvh(optimizedBvh, Converter.convert(getScale()));
+		bvhShape.setMargin(margin);
+		cShape = bvhShape;
+	}
+}
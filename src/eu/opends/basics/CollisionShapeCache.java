@@ -0,0 +1,280 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.basics;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.List;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.ChildCollisionShape;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.mesh.IndexBuffer;
+
+import eu.opends.tools.Util;
+
+/**
+ * Cache of collision shapes of map objects. Generated shapes are stored as 
+ * j3o files (mesh shapes including their BVH, see CachedMeshCollisionShape)
+ * named after a hash of shape type, model path, scale and the mesh data the 
+ * shape was created from. Hashing the loaded meshes (instead of the model 
+ * file only) also covers models consisting of several files and geometries 
+ * defined in the scene layer.
+ * 
+ * Several simulator processes may use the cache at the same time, as cache 
+ * files are written to a temporary file first and renamed then.
+ * 
+ * @author Rafael Math
+ */
+public class CollisionShapeCache
+{
+	private static final String CACHE_FOLDER = "cache/collisionShapes";
+	private static final String FILE_EXTENSION = ".j3o";
+	private static final int FORMAT_VERSION = 1;
+	
+	
+	/**
+	 * Computes the cache key of the collision shape of the given spatial.
+	 * 
+	 * @param shapeType
+	 * 			Type of the shape (e.g. "meshShape").
+	 * 
+	 * @param modelPath
+	 * 			Path of the model file (may be null or empty).
+	 * 
+	 * @param spatial
+	 * 			Spatial the shape will be created from (local scale applied).
+	 * 
+	 * @return
+	 * 			Hash (hex) or null, if the key could not be computed.
+	 */
+	public static String getKey(String shapeType, String modelPath, Spatial spatial)
+	{
+		try {
+			
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+			
+			buffer.putInt(FORMAT_VERSION);
+			putString(digest, buffer, shapeType);
+			putString(digest, buffer, modelPath == null ? "" : modelPath);
+			
+			// location and rotation of the spatial itself are not part of the shape
+			putVector(digest, buffer, spatial.getLocalScale());
+			if(spatial instanceof Node)
+			{
+				List<Spatial> children = ((Node) spatial).getChildren();
+				putInt(digest, buffer, children.size());
+				for(Spatial child : children)
+					addToDigest(digest, buffer, child);
+			}
+			else
+				addMesh(digest, buffer, ((Geometry) spatial).getMesh());
+			
+			flush(digest, buffer);
+			StringBuilder key = new StringBuilder(40);
+			for(byte b : digest.digest())
+				key.append(String.format("%02x", b));
+			return key.toString();
+			
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
+	
+	private static void addToDigest(MessageDigest digest, ByteBuffer buffer, Spatial spatial)
+	{
+		putVector(digest, buffer, spatial.getLocalTranslation());
+		Quaternion rotation = spatial.getLocalRotation();
+		putFloat(digest, buffer, rotation.getX());
+		putFloat(digest, buffer, rotation.getY());
+		putFloat(digest, buffer, rotation.getZ());
+		putFloat(digest, buffer, rotation.getW());
+		putVector(digest, buffer, spatial.getLocalScale());
+		
+		if(spatial instanceof Node)
+		{
+			List<Spatial> children = ((Node) spatial).getChildren();
+			putInt(digest, buffer, children.size());
+			for(Spatial child : children)
+				addToDigest(digest, buffer, child);
+		}
+		else if(spatial instanceof Geometry)
+		{
+			putInt(digest, buffer, -1);
+			addMesh(digest, buffer, ((Geometry) spatial).getMesh());
+		}
+	}
+	
+	
+	private static void addMesh(MessageDigest digest, ByteBuffer buffer, Mesh mesh)
+	{
+		putInt(digest, buffer, mesh.getMode().ordinal());
+		
+		FloatBuffer positions = mesh.getFloatBuffer(Type.Position);
+		if(positions != null)
+		{
+			putInt(digest, buffer, positions.limit());
+			for(int i=0; i<positions.limit(); i++)
+				putFloat(digest, buffer, positions.get(i));
+		}
+		
+		IndexBuffer indices = mesh.getIndexBuffer();
+		if(indices != null)
+		{
+			putInt(digest, buffer, indices.size());
+			for(int i=0; i<indices.size(); i++)
+				putInt(digest, buffer, indices.get(i));
+		}
+	}
+	
+	
+	private static void putString(MessageDigest digest, ByteBuffer buffer, String string)
+	{
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		putInt(digest, buffer, bytes.length);
+		flush(digest, buffer);
+		digest.update(bytes);
+	}
+	
+	
+	private static void putVector(MessageDigest digest, ByteBuffer buffer, Vector3f vector)
+	{
+		putFloat(digest, buffer, vector.getX());
+		putFloat(digest, buffer, vector.getY());
+		putFloat(digest, buffer, vector.getZ());
+	}
+	
+	
+	private static void putFloat(MessageDigest digest, ByteBuffer buffer, float value)
+	{
+		if(buffer.remaining() < 4)
+			flush(digest, buffer);
+		buffer.putFloat(value);
+	}
+	
+	
+	private static void putInt(MessageDigest digest, ByteBuffer buffer, int value)
+	{
+		if(buffer.remaining() < 4)
+			flush(digest, buffer);
+		buffer.putInt(value);
+	}
+	
+	
+	private static void flush(MessageDigest digest, ByteBuffer buffer)
+	{
+		digest.update(buffer.array(), 0, buffer.position());
+		buffer.clear();
+	}
+	
+	
+	/**
+	 * Reads the collision shape stored under the given key.
+	 * 
+	 * @param key
+	 * 			Cache key (see <code>getKey()</code>); may be null.
+	 * 
+	 * @return
+	 * 			Cached collision shape or null, if not available.
+	 */
+	public static CollisionShape load(String key)
+	{
+		if(key == null)
+			return null;
+		
+		File cacheFile = new File(CACHE_FOLDER, key + FILE_EXTENSION);
+		if(!cacheFile.isFile())
+			return null;
+		
+		try {
+			
+			return (CollisionShape) BinaryImporter.getInstance().load(cacheFile);
+			
+		} catch (Exception e) {
+			
+			System.err.println("Collision shape cache file '" + cacheFile + "' could not be read: " + e.toString());
+			return null;
+		}
+	}
+	
+	
+	/**
+	 * Stores the given collision shape under the given key. Mesh shapes will be
+	 * replaced by equivalent instances of CachedMeshCollisionShape.
+	 * 
+	 * @param key
+	 * 			Cache key (see <code>getKey()</code>); may be null.
+	 * 
+	 * @param collisionShape
+	 * 			Collision shape created by CollisionShapeFactory.
+	 */
+	public static void store(String key, CollisionShape collisionShape)
+	{
+		if(key == null || collisionShape == null)
+			return;
+		
+		File tempFile = null;
+		try {
+			
+			CollisionShape shape = collisionShape;
+			if(shape instanceof MeshCollisionShape)
+				shape = new CachedMeshCollisionShape((MeshCollisionShape) shape);
+			else if(shape instanceof CompoundCollisionShape)
+			{
+				for(ChildCollisionShape child : ((CompoundCollisionShape) shape).getChildren())
+				{
+					if(child.shape instanceof MeshCollisionShape && !(child.shape instanceof CachedMeshCollisionShape))
+						child.shape = new CachedMeshCollisionShape((MeshCollisionShape) child.shape);
+				}
+			}
+			
+			Util.makeDirectory(CACHE_FOLDER);
+			tempFile = File.createTempFile(key, ".tmp", new File(CACHE_FOLDER));
+			BinaryExporter.getInstance().save(shape, tempFile);
+			
+			Files.move(tempFile.toPath(), new File(CACHE_FOLDER, key + FILE_EXTENSION).toPath(), 
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			
+		} catch (Exception e) {
+			
+			System.err.println("Collision shape could not be cached: " + e.toString());
+			
+		} finally {
+			if(tempFile != null)
+				tempFile.delete();
+		}
+	}
+}
@@ -168,7 +168,7 @@ public class InternalMapProcessing implements AnimEventListener
 		        {
 		        	// mesh shape for static objects
 			        if(collisionShapeString.equalsIgnoreCase("meshShape"))
-			        	collisionShape = CollisionShapeFactory.createMeshShape(node);
+			        	collisionShape = createMeshShape(mapObject, node, false);
 			        else
 			        	collisionShape = CollisionShapeFactory.createBoxShape(node);
 		        }
@@ -176,7 +176,7 @@ public class InternalMapProcessing implements AnimEventListener
 		        {
 			        // set whether triangle accuracy should be applied
 			        if(collisionShapeString.equalsIgnoreCase("meshShape"))
-			        	collisionShape = CollisionShapeFactory.createDynamicMeshShape(node);
+			        	collisionShape = createMeshShape(mapObject, node, true);
 			        else
 			        	collisionShape = CollisionShapeFactory.createBoxShape(node);
 		        }		        
@@ -200,6 +200,31 @@ public class InternalMapProcessing implements AnimEventListener
 	}
 	
 	
+	/**
+	 * Creates the (static or dynamic) mesh shape of the given node. Shapes are 
+	 * loaded from the collision shape cache if available, otherwise created 
+	 * and added to the cache.
+	 */
+	private CollisionShape createMeshShape(MapObject mapObject, Node node, boolean isDynamic)
+	{
+		String shapeType = isDynamic ? "dynamicMeshShape" : "meshShape";
+		String key = CollisionShapeCache.getKey(shapeType, mapObject.getModelPath(), node);
+		
+		CollisionShape collisionShape = CollisionShapeCache.load(key);
+		if(collisionShape == null)
+		{
+			if(isDynamic)
+				collisionShape = CollisionShapeFactory.createDynamicMeshShape(node);
+			else
+				collisionShape = CollisionShapeFactory.createMeshShape(node);
+			
+			CollisionShapeCache.store(key, collisionShape);
+		}
+		
+		return collisionShape;
+	}
+	
+	
 	/**
 	 * Generates blind triggers which replace the original boxes.
 	 * 
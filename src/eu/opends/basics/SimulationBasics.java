@@ -293,12 +293,16 @@ public class SimulationBasics extends SimpleApplication
         lightFactory = new LightFactory(this);
         lightFactory.initLight();
         
-        // build sky
-        createSkyBox();
-        
-        keyMappingGUI = new KeyMappingGUI(this);
-        shutDownGUI = new ShutDownGUI(this);
-        instructionScreenGUI = new InstructionScreenGUI(this);
+        // sky and GUI are not needed without display
+        if(!Simulator.isHeadless())
+        {
+	        // build sky
+	        createSkyBox();
+	        
+	        keyMappingGUI = new KeyMappingGUI(this);
+	        shutDownGUI = new ShutDownGUI(this);
+	        instructionScreenGUI = new InstructionScreenGUI(this);
+        }
         
         createCoordinateSystem();
     }
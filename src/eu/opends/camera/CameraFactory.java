@@ -596,7 +596,11 @@ public abstract class CameraFactory
 	 */
 	private void setupChaseCamera() 
 	{
-		chaseCam = new ChaseCamera(cam, targetNode, sim.getInputManager());
+		// mouse control not available in headless mode (no input manager)
+		if(sim.getInputManager() != null)
+			chaseCam = new ChaseCamera(cam, targetNode, sim.getInputManager());
+		else
+			chaseCam = new ChaseCamera(cam, targetNode);
         chaseCam.setUpVector(new Vector3f(0, 1, 0));
         chaseCam.setEnabled(false);
         
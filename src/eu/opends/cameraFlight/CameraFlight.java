@@ -193,7 +193,10 @@ public class CameraFlight
         //fpp.setNumSamples(4);
         fade = new FadeFilter();
         fpp.addFilter(fade);
-        viewPort.addProcessor(fpp);
+        
+        // fade events will be ignored in headless mode
+        if(!Simulator.isHeadless())
+        	viewPort.addProcessor(fpp);
     }
     
     
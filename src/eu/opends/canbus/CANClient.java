@@ -18,20 +18,23 @@
 
 package eu.opends.canbus;
 
-import java.net.Socket;
 import java.net.SocketException;
-//import java.util.Calendar;
-//import java.util.GregorianCalendar;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
 import java.io.*;
 
-//import com.jme3.math.Vector3f;
-
-import eu.opends.car.Car;
+import eu.opends.canbus.CANMessageFormat.CANMessage;
+import eu.opends.car.SteeringCar;
 import eu.opends.drivingTask.settings.SettingsLoader;
 import eu.opends.drivingTask.settings.SettingsLoader.Setting;
 import eu.opends.environment.XMLParser;
 import eu.opends.main.SimulationDefaults;
 import eu.opends.main.Simulator;
+import eu.opends.tools.FramedConnection;
+import eu.opends.tools.FramedConnection.Framing;
+import eu.opends.tools.FramedConnection.MessageListener;
+import eu.opends.tools.LatencyStatistics;
+import eu.opends.tools.Vector3d;
 
 /**
  * This class represents the connector to the CAN-Interface. Steering, gas, brake and 
@@ -47,15 +50,20 @@ public class CANClient extends Thread
 	// angle the real car wheel must be rotated for full lock in simulator 
 	private float maxSteeringAngle;	
 	private Simulator sim;
-	private Car car;
-	//private int framerate;
+	private SteeringCar car;
+	private long updateInterval;
+	private long nextUpdateTime = 0;
 	private boolean stoprequested;
 	private boolean errorOccurred;
-	private float steeringAngle;
-	private boolean doSteering;
-	//private Calendar timeOfLastFire;
-	private PrintWriter printWriter;
-	private Socket socket;
+	private FramedConnection connection;
+	private CANTelemetrySender telemetrySender;
+	private boolean useBinaryProtocol;
+	private CANMessage message = new CANMessage();
+	private DrivingCommandMailbox mailbox;
+	private long currentReceiveTime = 0;
+	private boolean receivedFirstMessage = false;
+	private int lastSequenceNumber = 0;
+	private int staleMessageCount = 0;
 	
 	
 	/**
@@ -70,56 +78,57 @@ public class CANClient extends Thread
 		
 		this.sim = sim;
 		this.car = sim.getCar();
+		this.mailbox = sim.getDrivingCommandMailbox();
 		stoprequested = false;
 		errorOccurred = false;
-		steeringAngle = 0.0f;
-		doSteering = false;
-		//timeOfLastFire = new GregorianCalendar();
 		
 		SettingsLoader settingsLoader = Simulator.getDrivingTask().getSettingsLoader();
 		String ip = settingsLoader.getSetting(Setting.CANInterface_ip, SimulationDefaults.CANInterface_ip);
 		int port = settingsLoader.getSetting(Setting.CANInterface_port, SimulationDefaults.CANInterface_port);
-		//framerate = settingsLoader.getSetting(Setting.CANInterface_updateRate, SimulationDefaults.CANInterface_updateRate);
+		int updateRate = settingsLoader.getSetting(Setting.CANInterface_updateRate, SimulationDefaults.CANInterface_updateRate);
 		maxSteeringAngle = settingsLoader.getSetting(Setting.CANInterface_maxSteeringAngle, SimulationDefaults.CANInterface_maxSteeringAngle); 
+		String protocol = settingsLoader.getSetting(Setting.CANInterface_protocol, SimulationDefaults.CANInterface_protocol);
+		useBinaryProtocol = protocol.equalsIgnoreCase("binary");
 
 		
 		try {
 
 			
 			// connect to Server
-			socket = new Socket(ip,port);
-			socket.setSoTimeout(10);
+			Framing framing = useBinaryProtocol ? Framing.LENGTH_PREFIXED : Framing.XML_ELEMENT;
+			connection = new FramedConnection(ip, port, framing, 64 * 1024);
+			telemetrySender = new CANTelemetrySender(connection, useBinaryProtocol, updateRate);
 
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.err.println("No TCP connection possible to CAN-Interface at " + ip + ":" + port);
 			errorOccurred = true;
 		}
+		
+		// interval between two car data samples (ns)
+		updateInterval = 1000000000L / (updateRate > 0 ? updateRate : SimulationDefaults.CANInterface_updateRate);
     }
 	
     
 	/**
-	 * Listens for incoming CAN instructions (as XML), such as gas, brake, steering angle, 
-	 * reset and change view, which will be forwarded to the XML-parser
+	 * Listens for incoming CAN instructions (as XML or binary messages, see 
+	 * <code>CANMessageFormat</code>), such as gas, brake, steering angle, reset 
+	 * and change view. XML instructions will be forwarded to the XML-parser
 	 */
 	@Override
 	public void run() 
 	{
+		if(telemetrySender != null)
+			telemetrySender.start();
+		
 		// when loop is left, connection will be closed
 		// loop will be left when requested or error occurred
 		while(!stoprequested && !errorOccurred)
 		{
 			try {
 
-				// delete "NUL" at the end of each line
-				String message = readMessage(socket).replace("\0", "");
-				
-				// print XML instruction
-				//System.out.println(message);
-				
-				// parse and evaluate XML instruction
-				XMLParser parser = new XMLParser("<CAN>" + message + "</CAN>");
-				parser.evalCANInstruction(sim,this);
+				// wait up to 100 ms and post all complete messages to the mailbox
+				connection.receive(messageListener, 100);
 				
 			} catch (SocketException e) {
 				
@@ -129,267 +138,367 @@ public class CANClient extends Thread
 				
 			} catch (Exception e) {
 			}
-			
-			// set virtual car's steering angle to the given steering angle
-			if(doSteering)
-				updateSteeringAngle();
+		}
+		
+		if(telemetrySender != null)
+		{
+			telemetrySender.requestStop();
+			try {
+				telemetrySender.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
 		}
 		
 		// close TCP connection to CAN-Interface if connected at all
+		if (connection != null)
+		{
+			// say goodbye (not possible if connection is broken)
+			if(!errorOccurred)
+				sendExit();
+			
+			connection.close();
+			System.out.println("Connection to CAN-Interface closed (" + mailbox.getLatencyStatistics() + ")");
+		}
+	}
+	
+	
+	/**
+	 * Sends "exit" (XML) or an exit message (binary protocol) to the CAN-Interface.
+	 */
+	private void sendExit()
+	{
 		try {
-			if ((socket != null) && (printWriter != null))
+			
+			if(useBinaryProtocol)
 			{
-				// wait for 10 ms
-				try {Thread.sleep(100);} 
-				catch (InterruptedException e){}
-
-				printWriter.print("exit");
-				printWriter.flush();
-				
-				// close socket connection
-				printWriter.close();
-				socket.close();
-				
-				System.out.println("Connection to CAN-Interface closed");
+				ByteBuffer buffer = ByteBuffer.allocate(CANMessageFormat.LENGTH_PREFIX_SIZE + CANMessageFormat.HEADER_SIZE);
+				CANMessageFormat.putExitMessage(buffer, telemetrySender.getSequenceNumber() + 1, System.currentTimeMillis());
+				buffer.flip();
+				connection.send(buffer);
 			}
-		} catch (Exception ex) {
-			System.err.println("Could not close connection to CAN-Interface");
+			else
+				connection.send("exit");
+			
+		} catch (IOException e) {
+			System.err.println("Could not send exit to CAN-Interface: " + e.toString());
 		}
 	}
+	
+	
+	/**
+	 * Evaluates every message received from the CAN-Interface. Driving commands
+	 * will be posted to the mailbox and applied before the next physics step.
+	 */
+	private MessageListener messageListener = new MessageListener()
+	{
+		@Override
+		public void messageReceived(ByteBuffer buffer, long receiveTime) throws Exception
+		{
+			currentReceiveTime = receiveTime;
+			
+			if(useBinaryProtocol)
+			{
+				if(CANMessageFormat.decode(buffer, buffer.remaining(), message))
+					applyBinaryMessage(message);
+				else
+					System.err.println("CANClient: malformed message skipped");
+			}
+			else
+			{
+				// print XML instruction
+				//System.out.println(FramedConnection.toString(buffer));
+				
+				// parse and evaluate XML instruction
+				XMLParser parser = new XMLParser("<CAN>" + FramedConnection.toString(buffer) + "</CAN>");
+				parser.evalCANInstruction(sim,CANClient.this);
+			}
+		}
+	};
 
 	
 	/**
-	 * Sends car data to the CAN-Interface, such as heading, geo coordinates and speed.
+	 * Samples car data, such as heading, geo coordinates and speed, at the update 
+	 * rate of the CAN-Interface and passes it to the telemetry sender. Must be 
+	 * called by the render thread (every frame); sending is done by the telemetry 
+	 * sender thread.
 	 */
-	public synchronized void sendCarData()
+	public void sendCarData()
 	{
-		/*
 		// break, if no connection established
-		if(socket == null || errorOccurred)
+		if(telemetrySender == null || errorOccurred)
 			return;
 		
-		// generate time stamp
-		Calendar currentTime = new GregorianCalendar();
+		// if enough time has passed by since last sample, the car data will be forwarded
+		long now = System.nanoTime();
+		if(now < nextUpdateTime)
+			return;
 		
-		// if enough time has passed by since last fire, the event will be forwarded
-		if(forwardEvent(currentTime))
-		{
-			float speed = ((float) car.getCurrentSpeedKmhRounded());  // in kph
-			float heading = car.getHeadingDegree();       // 0..360 degree
-			Vector3f geoPosition = car.getGeoPosition();
-			float latitude = geoPosition.getX();          // N-S position in model coordinates
-			float longitude = geoPosition.getY();         // W-E position in model coordinates
-
-			try { 	
-
-			 	// send car data (speed, heading, latitude and longitude) to CAN-Interface and flush
-				String positionString = "$SimCarState#" + speed + "#" + heading + "#" + latitude + "#" + longitude + "%";
-				printWriter = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
-			 	printWriter.print(positionString);
-			 	printWriter.flush();
-			 				 	
-			} catch (IOException e) {
-				System.err.println("CANClient_sendCarData(): " + e.toString());
-			}
-
-		}
-		*/
+		// keep a steady rate, but do not catch up after a long frame
+		nextUpdateTime += updateInterval;
+		if(nextUpdateTime <= now)
+			nextUpdateTime = now + updateInterval;
+		
+		float speed = car.getCurrentSpeedKmhRounded();  // in kph
+		float heading = car.getHeadingDegree();         // 0..360 degree
+		Vector3d geoPosition = car.getGeoPosition();
+		float latitude = (float) geoPosition.getX();    // N-S position
+		float longitude = (float) geoPosition.getY();   // W-E position
+		
+		telemetrySender.postCarData(speed, heading, latitude, longitude);
 	}
 	
 	
 	/**
 	 * Sends trigger reports to the CAN-Interface if the simulated car has hit a trigger.
+	 * The report will be sent with the next packet of car data.
 	 * 
 	 * @param triggerID
 	 * 			ID of the CAN-Trigger that will be sent to the CAN-Interface
 	 */
-	public synchronized void sendTriggerData(String triggerID)
+	public void sendTriggerData(String triggerID)
 	{
-		/*
 		// break, if no connection established
-		if(socket == null || errorOccurred)
+		if(telemetrySender == null || errorOccurred)
 			return;
-
-		try { 	
-
-		 	// send trigger data to CAN-bus and flush
-			String triggerString = "$SimCarTrigger#" + triggerID + "%";
-			printWriter = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
-		 	printWriter.print(triggerString);
-		 	printWriter.flush();
-		 				 	
-		} catch (IOException e) {
-			System.err.println("CANClient_sendTriggerData(): " + e.toString());
-		}
-		*/
+		
+		telemetrySender.postTrigger(triggerID);
 	}
 
 	
 	/**
 	 * Sends the current deviation from the normative line to the CAN-Interface.
+	 * The value will be sent with the next packet of car data.
 	 * 
 	 * @param deviation
 	 * 			Value representing the current deviation in meters from the 
 	 * 			normative line.
 	 */
-	public synchronized void sendDeviationData(float deviation) 
+	public void sendDeviationData(float deviation) 
 	{
-		/*
 		// break, if no connection established
-		if(socket == null || errorOccurred)
+		if(telemetrySender == null || errorOccurred)
 			return;
-
-		try { 	
-
-		 	// send deviation data to CAN-Interface and flush
-			String positionString = "$SimDeviationState#" + deviation + "%";
-			printWriter = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
-		 	printWriter.print(positionString);
-		 	printWriter.flush();
-		 				 	
-		} catch (IOException e) {
-			System.err.println("CANClient_sendDeviationData(): " + e.toString());
-		}
-		*/
+		
+		telemetrySender.postDeviation(deviation);
 	}
 	
 	
 	/**
 	 * Sets the target steering angle as read from the CAN-Interface in order 
-	 * to synchronize with the current steering angle of the simulator. Sets 
-	 * "doSteering" to true.
+	 * to synchronize with the current steering angle of the simulator. Steering
+	 * instructions will be performed until suppressed by the keyboard.
 	 * 
 	 * @param steeringAngle
 	 * 			Steering angle as read from the real car
 	 */
-	public synchronized void setSteeringAngle(float steeringAngle) 
+	public void setSteeringAngle(float steeringAngle) 
 	{
-		// set doSteering to true in order to perform steering instructions 
-		// from the real car; otherwise the keyboard will suppress car steering
-		this.doSteering = true;
-		this.steeringAngle = steeringAngle;
+		// maximum angle will be matched to -1 or 1, respectively
+		float targetAngle = -Math.max(Math.min(steeringAngle/maxSteeringAngle,1),-1);
+		
+		// print target (real car) steering angle
+		//System.out.println("target: " + targetAngle);
+		
+		// if target angle is close to straight ahead, steer straight ahead
+		if((targetAngle >= -0.001f) && (targetAngle <= 0.001f))	
+			targetAngle = 0;
+		
+		mailbox.postSteering(targetAngle, currentReceiveTime);
 	}
 	
 	
 	/**
-	 * Sets "doSteering" to false in order to suppress the steering of the real car.
-	 * E.g. if the keyboard steering has higher priority
+	 * Sets the accelerator pedal intensity of the simulated car.
+	 * 
+	 * @param intensity
+	 * 			Pedal intensity (negative values accelerate forward, 0 = released)
 	 */
-	public synchronized void suppressSteering() 
+	public void setAcceleratorPedal(float intensity)
 	{
-		this.doSteering = false;
+		mailbox.postAcceleratorPedal(intensity, currentReceiveTime);
 	}
 	
 	
 	/**
-	 * Requests the connection to close after the current loop
+	 * Sets the brake pedal intensity of the simulated car.
+	 * 
+	 * @param intensity
+	 * 			Pedal intensity (0 = released, 1 = full braking)
 	 */
-	public synchronized void requestStop() 
+	public void setBrakePedal(float intensity)
 	{
-		stoprequested = true;
+		mailbox.postBrakePedal(intensity, currentReceiveTime);
 	}
 	
 	
 	/**
-	 * Compares the current steering angle (in the simulator) with the given 
-	 * steering angle (of the real car). The bigger the difference, the faster
-	 * the steering angle of the simulator will be changed to the wanted value 
+	 * Sets the accelerator pedal as read from the CAN-Interface.
+	 * 
+	 * @param value
+	 * 			Acceleration as read from the real car (0 = released)
 	 */
-	private void updateSteeringAngle() 
+	public void setAcceleration(float value)
 	{
-		try {
-			
-			// get target steering angle from real car
-			// maximum angle will be matched to -1 or 1, respectively
-			float targetAngle = -Math.max(Math.min(steeringAngle/maxSteeringAngle,1),-1);
-			
-			// print target (real car) steering angle
-			//System.out.println("target: " + targetAngle);
-			
-			// if target angle is close to straight ahead, steer straight ahead
-			if((targetAngle >= -0.001f) && (targetAngle <= 0.001f))	
-				targetAngle = 0;
-			
-			car.steer(targetAngle);
-			
-		} catch (Exception e) {
-			e.printStackTrace();
+		value = value*6;
+		if(value <= 0)
+		{
+			setAcceleratorPedal(0);
+			//car.releaseAccel();
+		}
+		else
+		{
+			setAcceleratorPedal(Math.max(-value,-1.0f));
+			sim.getSteeringTask().getPrimaryTask().reportGreenLight();
 		}
 		
+		sim.getThreeVehiclePlatoonTask().reportAcceleratorIntensity(Math.abs(value));
 	}
-    
+	
 	
 	/**
-	 * Reads an incoming message from the socket connection.
+	 * Sets the brake pedal as read from the CAN-Interface.
 	 * 
-	 * @param socket
-	 * 			Socket connection
+	 * @param value
+	 * 			Brake intensity as read from the real car (0 = released, 1 = full braking)
+	 */
+	public void setBrake(float value)
+	{
+		if(value <= 0)
+		{
+			//car.setGasPedalIntensity(0);
+			setBrakePedal(0);
+			sim.getThreeVehiclePlatoonTask().reportBrakeIntensity(0);
+			//car.releaseAccel();
+		}
+		else
+		{
+			// cruise control will be disabled when braking is applied
+			value = Math.min(value,1.0f);
+			setBrakePedal(value); // 1 --> full braking
+			sim.getSteeringTask().getPrimaryTask().reportRedLight();
+			sim.getThreeVehiclePlatoonTask().reportBrakeIntensity(value);
+		}
+	}
+	
+	
+	/**
+	 * Performs the "change view"-button (in the render thread).
+	 */
+	public void changeView()
+	{
+		sim.enqueue(new Callable<Object>() {
+			public Object call()
+			{
+				sim.getCameraFactory().changeCamera();
+				return null;
+			}
+		});
+	}
+	
+	
+	/**
+	 * Performs the "reset car"-button (in the render thread).
+	 */
+	public void resetCar()
+	{
+		sim.enqueue(new Callable<Object>() {
+			public Object call()
+			{
+				car.setToNextResetPosition();
+				return null;
+			}
+		});
+	}
+	
+	
+	/**
+	 * Returns the number of binary messages that have been dropped as their 
+	 * sequence number was not newer than the one of the last message.
 	 * 
 	 * @return
-	 * 			Message string of up to 10,000 characters
-	 * 
-	 * @throws IOException
+	 * 			Number of stale binary messages.
 	 */
-	private String readMessage(Socket socket) throws IOException 
+	public int getStaleMessageCount()
 	{
-		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-		char[] buffer = new char[10000];
-		int nrOfChars = bufferedReader.read(buffer, 0, buffer.length);
-		
-		return new String(buffer, 0, nrOfChars);
+		return staleMessageCount;
 	}
 	
 	
 	/**
-	 * This method checks whether the incoming camera information should 
-	 * be sent to the server at the current time complying with the given 
-	 * frame rate
-	 * 
-	 * @param now
-	 * 			The current time stamp
+	 * Returns the statistics of the time between receiving a driving command 
+	 * and applying it to the car.
 	 * 
-	 * @return true if enough time has passed by since last fire, false otherwise
+	 * @return
+	 * 			Latency statistics.
 	 */
-	/*
-    private boolean forwardEvent(Calendar now)
-    {
-        // fire an event every x milliseconds
-    	int fireInterval = 1000 / framerate;
-
-        // subtract time of last event from current time to get time elapsed since last fire
-        long elapsedMillisecs = timeDiff(now,timeOfLastFire);
-        
-        if (elapsedMillisecs >= fireInterval)
-        {
-            // update time of last fire
-            timeOfLastFire.add(Calendar.MILLISECOND, fireInterval);
-
-            // fire
-            return true;
-        }
-        else
-            // do not fire
-            return false;
-    }
-    */
+	public LatencyStatistics getLatencyStatistics()
+	{
+		return mailbox.getLatencyStatistics();
+	}
+	
 	
-    
 	/**
-	 * This method computes the difference between two given time stamps
-	 * 
-	 * @param timestamp1
-	 * 			First time stamp value to compare
-	 * 
-	 * @param timestamp2
-	 * 			Second time stamp value to compare
-	 * 
-	 * @return difference between the given time stamps in milliseconds (long)
+	 * Suppresses the steering of the real car until the next steering instruction.
+	 * E.g. if the keyboard steering has higher priority
 	 */
-	/*
-    private static long timeDiff(Calendar timestamp1, Calendar timestamp2)
-    {
-        return Math.abs(timestamp1.getTimeInMillis() - timestamp2.getTimeInMillis());
-    }
+	public void suppressSteering() 
+	{
+		mailbox.releaseSteering();
+	}
+	
+	
+	/**
+	 * Requests the connection to close after the current loop
+	 */
+	public synchronized void requestStop() 
+	{
+		stoprequested = true;
+	}
+	
+	
+	/**
+	 * Applies a decoded binary message (same semantics as the XML instructions 
+	 * "steering", "acceleration", "brake" and "button").
+	 * 
+	 * @param message
+	 * 			Decoded binary message.
 	 */
-   
+	private void applyBinaryMessage(CANMessage message) 
+	{
+		if(message.getType() == CANMessageFormat.TYPE_EXIT)
+		{
+			requestStop();
+			return;
+		}
+		
+		// skip messages older than the last applied one
+		int sequenceNumber = message.getSequenceNumber();
+		if(receivedFirstMessage && sequenceNumber - lastSequenceNumber <= 0)
+		{
+			staleMessageCount++;
+			return;
+		}
+		receivedFirstMessage = true;
+		lastSequenceNumber = sequenceNumber;
+		
+		if(message.hasSteering())
+		{
+			setSteeringAngle(-message.getSteering());
+			sim.getSteeringTask().setSteeringIntensity(-0.02f*message.getSteering());
+		}
+		
+		if(message.hasAcceleration())
+			setAcceleration(message.getAcceleration());
+		
+		if(message.hasBrake())
+			setBrake(message.getBrake());
+		
+		if(message.isButtonPressed(CANMessageFormat.BUTTON_CHANGE_VIEW))
+			changeView();
+		
+		if(message.isButtonPressed(CANMessageFormat.BUTTON_RESET))
+			resetCar();
+	}
+
 }
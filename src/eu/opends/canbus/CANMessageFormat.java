@@ -0,0 +1,323 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary control protocol of the CAN-Interface (alternative to the XML
+ * instructions). Every message is preceded by its length, so the receiver
+ * neither has to search for delimiters nor parse any text.
+ * 
+ * Frame layout (big endian):
+ * <pre>
+ * int    length of the following payload (bytes)
+ * byte   message type (TYPE_CONTROL, TYPE_EXIT)
+ * int    sequence number (incremented by the sender)
+ * long   time stamp of the sender (ms)
+ * byte   number of fields
+ * n x    byte field id (FIELD_STEERING, ...), float value
+ * </pre>
+ * 
+ * Fields not contained in a message keep their previous value. The value of
+ * FIELD_BUTTONS is a bit mask of BUTTON_CHANGE_VIEW and BUTTON_RESET.
+ * 
+ * The simulator sends TYPE_TELEMETRY messages in the same layout (fields 
+ * FIELD_SPEED ... FIELD_DEVIATION) and TYPE_TRIGGER messages, whose header 
+ * (number of fields: 0) is followed by the trigger ID (short length, UTF-8).
+ * Before closing the connection, the simulator sends a TYPE_EXIT message 
+ * without fields.
+ * 
+ * @author Rafael Math
+ */
+public class CANMessageFormat
+{
+	public static final int LENGTH_PREFIX_SIZE = 4;
+	public static final int HEADER_SIZE = 14;
+	public static final int FIELD_SIZE = 5;
+	public static final int MAX_MESSAGE_SIZE = HEADER_SIZE + 255 * FIELD_SIZE;
+
+	// message types
+	public static final byte TYPE_CONTROL = 1;
+	public static final byte TYPE_EXIT = 2;
+	public static final byte TYPE_TELEMETRY = 3;
+	public static final byte TYPE_TRIGGER = 4;
+
+	// field ids
+	public static final byte FIELD_STEERING = 1;
+	public static final byte FIELD_ACCELERATION = 2;
+	public static final byte FIELD_BRAKE = 3;
+	public static final byte FIELD_BUTTONS = 4;
+	public static final byte FIELD_SPEED = 16;
+	public static final byte FIELD_HEADING = 17;
+	public static final byte FIELD_LATITUDE = 18;
+	public static final byte FIELD_LONGITUDE = 19;
+	public static final byte FIELD_DEVIATION = 20;
+
+	// button bits
+	public static final int BUTTON_CHANGE_VIEW = 1;
+	public static final int BUTTON_RESET = 2;
+
+
+	/**
+	 * Decoded control message. Absent float fields are NaN, absent buttons 0.
+	 * Instances are meant to be reused by the receiving thread.
+	 */
+	public static class CANMessage
+	{
+		private byte type;
+		private int sequenceNumber;
+		private long timeStamp;
+		private float steering;
+		private float acceleration;
+		private float brake;
+		private int buttons;
+
+
+		public byte getType()
+		{
+			return type;
+		}
+
+
+		public int getSequenceNumber()
+		{
+			return sequenceNumber;
+		}
+
+
+		public long getTimeStamp()
+		{
+			return timeStamp;
+		}
+
+
+		public boolean hasSteering()
+		{
+			return !Float.isNaN(steering);
+		}
+
+
+		public float getSteering()
+		{
+			return steering;
+		}
+
+
+		public boolean hasAcceleration()
+		{
+			return !Float.isNaN(acceleration);
+		}
+
+
+		public float getAcceleration()
+		{
+			return acceleration;
+		}
+
+
+		public boolean hasBrake()
+		{
+			return !Float.isNaN(brake);
+		}
+
+
+		public float getBrake()
+		{
+			return brake;
+		}
+
+
+		public int getButtons()
+		{
+			return buttons;
+		}
+
+
+		public boolean isButtonPressed(int button)
+		{
+			return (buttons & button) != 0;
+		}
+	}
+
+
+	/**
+	 * Decodes the payload (without length prefix) of a message.
+	 * 
+	 * @param buffer
+	 * 			Buffer positioned at the start of the payload; will be positioned 
+	 * 			behind the payload afterwards.
+	 * 
+	 * @param length
+	 * 			Length of the payload as given by the length prefix.
+	 * 
+	 * @param message
+	 * 			Message to fill.
+	 * 
+	 * @return
+	 * 			False, if the payload is malformed (message must not be used).
+	 */
+	public static boolean decode(ByteBuffer buffer, int length, CANMessage message)
+	{
+		int end = buffer.position() + length;
+		if(length < HEADER_SIZE || end > buffer.limit())
+		{
+			buffer.position(Math.min(end, buffer.limit()));
+			return false;
+		}
+
+		message.type = buffer.get();
+		message.sequenceNumber = buffer.getInt();
+		message.timeStamp = buffer.getLong();
+		message.steering = Float.NaN;
+		message.acceleration = Float.NaN;
+		message.brake = Float.NaN;
+		message.buttons = 0;
+
+		int fieldCount = buffer.get() & 0xFF;
+		boolean isValid = (length == HEADER_SIZE + fieldCount * FIELD_SIZE);
+		for(int i=0; isValid && i<fieldCount; i++)
+		{
+			byte fieldID = buffer.get();
+			float value = buffer.getFloat();
+			switch (fieldID)
+			{
+				case FIELD_STEERING : message.steering = value; break;
+				case FIELD_ACCELERATION : message.acceleration = value; break;
+				case FIELD_BRAKE : message.brake = value; break;
+				case FIELD_BUTTONS : message.buttons = (int) value; break;
+				default : System.err.println("CANMessageFormat: unknown field id " + fieldID);
+			}
+		}
+
+		buffer.position(end);
+		return isValid;
+	}
+
+
+	/**
+	 * Writes a control message containing all fields that are not NaN (sender side,
+	 * e.g. for test drivers).
+	 * 
+	 * @throws IOException
+	 */
+	public static void writeControlMessage(DataOutputStream out, int sequenceNumber, long timeStamp,
+			float steering, float acceleration, float brake, int buttons) throws IOException
+	{
+		int fieldCount = (Float.isNaN(steering) ? 0 : 1) + (Float.isNaN(acceleration) ? 0 : 1)
+				+ (Float.isNaN(brake) ? 0 : 1) + (buttons == 0 ? 0 : 1);
+
+		out.writeInt(HEADER_SIZE + fieldCount * FIELD_SIZE);
+		out.writeByte(TYPE_CONTROL);
+		out.writeInt(sequenceNumber);
+		out.writeLong(timeStamp);
+		out.writeByte(fieldCount);
+		writeField(out, FIELD_STEERING, steering);
+		writeField(out, FIELD_ACCELERATION, acceleration);
+		writeField(out, FIELD_BRAKE, brake);
+		if(buttons != 0)
+			writeField(out, FIELD_BUTTONS, buttons);
+		out.flush();
+	}
+
+
+	/**
+	 * Puts a telemetry message (including length prefix) containing all fields 
+	 * that are not NaN into the given buffer.
+	 */
+	public static void putTelemetryMessage(ByteBuffer buffer, int sequenceNumber, long timeStamp,
+			float speed, float heading, float latitude, float longitude, float deviation)
+	{
+		int start = buffer.position();
+		buffer.position(start + LENGTH_PREFIX_SIZE);
+		buffer.put(TYPE_TELEMETRY);
+		buffer.putInt(sequenceNumber);
+		buffer.putLong(timeStamp);
+
+		int fieldCountPosition = buffer.position();
+		buffer.put((byte) 0);
+		int fieldCount = putField(buffer, FIELD_SPEED, speed) + putField(buffer, FIELD_HEADING, heading)
+				+ putField(buffer, FIELD_LATITUDE, latitude) + putField(buffer, FIELD_LONGITUDE, longitude)
+				+ putField(buffer, FIELD_DEVIATION, deviation);
+
+		buffer.put(fieldCountPosition, (byte) fieldCount);
+		buffer.putInt(start, buffer.position() - start - LENGTH_PREFIX_SIZE);
+	}
+
+
+	/**
+	 * Puts an exit message (including length prefix, no fields) into the given buffer.
+	 */
+	public static void putExitMessage(ByteBuffer buffer, int sequenceNumber, long timeStamp)
+	{
+		buffer.putInt(HEADER_SIZE);
+		buffer.put(TYPE_EXIT);
+		buffer.putInt(sequenceNumber);
+		buffer.putLong(timeStamp);
+		buffer.put((byte) 0);
+	}
+
+
+	/**
+	 * Puts a trigger message (including length prefix) into the given buffer.
+	 * 
+	 * @return
+	 * 			False, if the message does not fit into the buffer (nothing written).
+	 */
+	public static boolean putTriggerMessage(ByteBuffer buffer, int sequenceNumber, long timeStamp, String triggerID)
+	{
+		byte[] id = triggerID.getBytes(StandardCharsets.UTF_8);
+		int length = HEADER_SIZE + 2 + id.length;
+		if(id.length > Short.MAX_VALUE || buffer.remaining() < LENGTH_PREFIX_SIZE + length)
+			return false;
+
+		buffer.putInt(length);
+		buffer.put(TYPE_TRIGGER);
+		buffer.putInt(sequenceNumber);
+		buffer.putLong(timeStamp);
+		buffer.put((byte) 0);
+		buffer.putShort((short) id.length);
+		buffer.put(id);
+		return true;
+	}
+
+
+	private static int putField(ByteBuffer buffer, byte fieldID, float value)
+	{
+		if(Float.isNaN(value))
+			return 0;
+
+		buffer.put(fieldID);
+		buffer.putFloat(value);
+		return 1;
+	}
+
+
+	private static void writeField(DataOutputStream out, byte fieldID, float value) throws IOException
+	{
+		if(!Float.isNaN(value))
+		{
+			out.writeByte(fieldID);
+			out.writeFloat(value);
+		}
+	}
+}
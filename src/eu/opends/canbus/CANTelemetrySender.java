@@ -0,0 +1,342 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayDeque;
+
+import eu.opends.tools.FramedConnection;
+
+/**
+ * Sends car data (speed, heading, geo position), deviation from the normative
+ * line and trigger hits back to the CAN-Interface. The render thread only 
+ * stores the latest values (see <code>postCarData()</code> etc.) and returns
+ * immediately; this thread collects all values posted since the last packet 
+ * and sends them as one packet over the connection shared with 
+ * <code>CANClient</code>. A packet is sent whenever new car data has been
+ * posted (rate-limited by the caller), at the latest after one update interval.
+ * 
+ * Binary protocol: one TYPE_TELEMETRY message followed by one TYPE_TRIGGER
+ * message per trigger hit (see <code>CANMessageFormat</code>).
+ * XML protocol: the text messages "$SimCarState#speed#heading#latitude#longitude%",
+ * "$SimDeviationState#deviation%" and "$SimCarTrigger#triggerID%" concatenated.
+ * 
+ * All buffers are allocated once and reused for every packet.
+ * 
+ * @author Rafael Math
+ */
+public class CANTelemetrySender extends Thread
+{
+	private static final int BUFFER_SIZE = 8 * 1024;
+	
+	// max. number of trigger hits waiting to be sent (further hits will be dropped)
+	private static final int MAX_PENDING_TRIGGERS = 64;
+	
+	private FramedConnection connection;
+	private boolean useBinaryProtocol;
+	private long updateInterval;
+	private volatile boolean stoprequested = false;
+	
+	// latest values posted by the render thread (guarded by this)
+	private boolean hasCarData = false;
+	private long carDataTimeStamp;
+	private float speed;
+	private float heading;
+	private float latitude;
+	private float longitude;
+	private boolean hasDeviation = false;
+	private float deviation;
+	private ArrayDeque<String> pendingTriggers = new ArrayDeque<String>();
+	private long coalescedCarDataCount = 0;
+	private long droppedTriggerCount = 0;
+	
+	// snapshot of the values above (sender thread only)
+	private boolean sendCarData;
+	private long sendTimeStamp;
+	private float sendSpeed;
+	private float sendHeading;
+	private float sendLatitude;
+	private float sendLongitude;
+	private boolean sendDeviation;
+	private float sendDeviationValue;
+	private String[] sendTriggers = new String[MAX_PENDING_TRIGGERS];
+	private int sendTriggerCount;
+	
+	// reusable buffers (sender thread only)
+	private ByteBuffer sendBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private StringBuilder textBuilder = new StringBuilder(256);
+	private CharBuffer charBuffer = CharBuffer.allocate(BUFFER_SIZE);
+	private CharsetEncoder encoder = FramedConnection.charset.newEncoder();
+	private int sequenceNumber = 0;
+	private volatile long sentPacketCount = 0;
+	
+	
+	/**
+	 * Creates a new sender (not started yet).
+	 * 
+	 * @param connection
+	 * 			Connection to the CAN-Interface.
+	 * 
+	 * @param useBinaryProtocol
+	 * 			If true, binary messages will be sent, otherwise text messages.
+	 * 
+	 * @param updateRate
+	 * 			Max. number of packets per second (values &lt;= 0: 20 Hz).
+	 */
+	public CANTelemetrySender(FramedConnection connection, boolean useBinaryProtocol, int updateRate)
+	{
+		super("CANTelemetrySender");
+		setDaemon(true);
+		
+		this.connection = connection;
+		this.useBinaryProtocol = useBinaryProtocol;
+		this.updateInterval = 1000 / (updateRate > 0 ? Math.min(updateRate, 1000) : 20);
+	}
+	
+	
+	/**
+	 * Stores the current car data (thread-safe, non-blocking). Car data not 
+	 * sent before the next call will be replaced.
+	 * 
+	 * @param speed
+	 * 			Speed in km/h.
+	 * 
+	 * @param heading
+	 * 			Heading in degree (0..360).
+	 * 
+	 * @param latitude
+	 * 			Latitude of the car.
+	 * 
+	 * @param longitude
+	 * 			Longitude of the car.
+	 */
+	public synchronized void postCarData(float speed, float heading, float latitude, float longitude)
+	{
+		if(hasCarData)
+			coalescedCarDataCount++;
+		
+		this.hasCarData = true;
+		this.carDataTimeStamp = System.currentTimeMillis();
+		this.speed = speed;
+		this.heading = heading;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		
+		notify();
+	}
+	
+	
+	/**
+	 * Stores the current deviation from the normative line (thread-safe, 
+	 * non-blocking). It will be sent with the next packet.
+	 * 
+	 * @param deviation
+	 * 			Deviation in meters.
+	 */
+	public synchronized void postDeviation(float deviation)
+	{
+		this.hasDeviation = true;
+		this.deviation = deviation;
+	}
+	
+	
+	/**
+	 * Adds a trigger hit to the next packet (thread-safe, non-blocking).
+	 * 
+	 * @param triggerID
+	 * 			ID of the trigger.
+	 */
+	public synchronized void postTrigger(String triggerID)
+	{
+		if(pendingTriggers.size() < MAX_PENDING_TRIGGERS)
+			pendingTriggers.add(triggerID);
+		else
+			droppedTriggerCount++;
+	}
+	
+	
+	@Override
+	public void run()
+	{
+		while(!stoprequested)
+		{
+			try {
+				
+				if(takeSnapshot())
+				{
+					if(useBinaryProtocol)
+						encodeBinary();
+					else
+						encodeText();
+					
+					sendBuffer.flip();
+					connection.send(sendBuffer);
+					sentPacketCount++;
+				}
+				
+			} catch (InterruptedException e) {
+				
+				stoprequested = true;
+				
+			} catch (IOException e) {
+				
+				// connection closed or broken; receiving will be stopped by CANClient
+				if(!stoprequested)
+					System.err.println("CANTelemetrySender: " + e.toString());
+				stoprequested = true;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Waits for new car data (at most one update interval) and copies all 
+	 * pending values.
+	 * 
+	 * @return
+	 * 			True, if there is anything to send.
+	 */
+	private synchronized boolean takeSnapshot() throws InterruptedException
+	{
+		if(!hasCarData)
+			wait(updateInterval);
+		
+		sendCarData = hasCarData;
+		sendTimeStamp = hasCarData ? carDataTimeStamp : System.currentTimeMillis();
+		sendSpeed = speed;
+		sendHeading = heading;
+		sendLatitude = latitude;
+		sendLongitude = longitude;
+		sendDeviation = hasDeviation;
+		sendDeviationValue = deviation;
+		
+		sendTriggerCount = 0;
+		while(!pendingTriggers.isEmpty())
+			sendTriggers[sendTriggerCount++] = pendingTriggers.poll();
+		
+		hasCarData = false;
+		hasDeviation = false;
+		
+		return sendCarData || sendDeviation || sendTriggerCount > 0;
+	}
+	
+	
+	private void encodeBinary()
+	{
+		sendBuffer.clear();
+		
+		if(sendCarData || sendDeviation)
+		{
+			CANMessageFormat.putTelemetryMessage(sendBuffer, ++sequenceNumber, sendTimeStamp, 
+					sendCarData ? sendSpeed : Float.NaN, sendCarData ? sendHeading : Float.NaN, 
+					sendCarData ? sendLatitude : Float.NaN, sendCarData ? sendLongitude : Float.NaN, 
+					sendDeviation ? sendDeviationValue : Float.NaN);
+		}
+		
+		for(int i=0; i<sendTriggerCount; i++)
+		{
+			if(!CANMessageFormat.putTriggerMessage(sendBuffer, ++sequenceNumber, sendTimeStamp, sendTriggers[i]))
+				System.err.println("CANTelemetrySender: trigger '" + sendTriggers[i] + "' skipped");
+			sendTriggers[i] = null;
+		}
+	}
+	
+	
+	private void encodeText()
+	{
+		textBuilder.setLength(0);
+		
+		if(sendCarData)
+			textBuilder.append("$SimCarState#").append(sendSpeed).append('#').append(sendHeading)
+				.append('#').append(sendLatitude).append('#').append(sendLongitude).append('%');
+		
+		if(sendDeviation)
+			textBuilder.append("$SimDeviationState#").append(sendDeviationValue).append('%');
+		
+		for(int i=0; i<sendTriggerCount; i++)
+		{
+			textBuilder.append("$SimCarTrigger#").append(sendTriggers[i]).append('%');
+			sendTriggers[i] = null;
+		}
+		
+		charBuffer.clear();
+		int length = Math.min(textBuilder.length(), charBuffer.capacity());
+		for(int i=0; i<length; i++)
+			charBuffer.put(textBuilder.charAt(i));
+		charBuffer.flip();
+		
+		sendBuffer.clear();
+		encoder.reset();
+		encoder.encode(charBuffer, sendBuffer, true);
+		encoder.flush(sendBuffer);
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Sequence number of the last binary message sent.
+	 */
+	public int getSequenceNumber()
+	{
+		return sequenceNumber;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of packets sent to the CAN-Interface.
+	 */
+	public long getSentPacketCount()
+	{
+		return sentPacketCount;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of car data samples replaced by newer ones before sending.
+	 */
+	public synchronized long getCoalescedCarDataCount()
+	{
+		return coalescedCarDataCount;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Number of trigger hits dropped as too many were waiting.
+	 */
+	public synchronized long getDroppedTriggerCount()
+	{
+		return droppedTriggerCount;
+	}
+	
+	
+	/**
+	 * Requests the sender to stop (the connection will not be closed).
+	 */
+	public void requestStop()
+	{
+		stoprequested = true;
+		interrupt();
+	}
+}
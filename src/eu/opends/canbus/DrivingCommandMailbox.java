@@ -0,0 +1,297 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+
+import eu.opends.car.SteeringCar;
+import eu.opends.tools.LatencyStatistics;
+
+/**
+ * Latest-value mailbox of driving commands (steering, accelerator and brake 
+ * pedal) sent by external systems, e.g. the CAN-Interface. Network threads 
+ * post commands at any time without locking; the mailbox only keeps the most
+ * recent value of each control. Before every physics step the latest command 
+ * is applied to the steering car exactly once, so the car is never modified
+ * by network threads while the simulation reads it.
+ * 
+ * Every posted command gets a sequence number; commands superseded before
+ * the next physics step are counted but never applied. Each control also 
+ * keeps the sequence number of the command that last set it, so only controls
+ * changed since the previous physics step are applied (e.g. a steering 
+ * command does not overwrite the pedals set by keyboard or joystick).
+ * 
+ * @author Rafael Math
+ */
+public class DrivingCommandMailbox implements PhysicsTickListener
+{
+	private SteeringCar car;
+	private AtomicReference<DrivingCommand> latestCommand = 
+			new AtomicReference<DrivingCommand>(new DrivingCommand(0, 0, Float.NaN, Float.NaN, Float.NaN, 0, 0, 0));
+	private long lastAppliedSequenceNumber = 0;
+	private long lastAppliedSteeringSequenceNumber = 0;
+	private long lastAppliedAcceleratorSequenceNumber = 0;
+	private long lastAppliedBrakeSequenceNumber = 0;
+	private volatile long appliedCommandCount = 0;
+	private volatile long supersededCommandCount = 0;
+	private LatencyStatistics latencyStatistics = new LatencyStatistics();
+	
+	
+	/**
+	 * Immutable snapshot of all controls. A value of NaN means that the 
+	 * control has not been set (steering: released to the keyboard/joystick).
+	 */
+	public static class DrivingCommand
+	{
+		private long sequenceNumber;
+		private long timeStamp;
+		private float steering;
+		private float acceleratorPedal;
+		private float brakePedal;
+		
+		// sequence numbers of the commands which set the controls
+		private long steeringSequenceNumber;
+		private long acceleratorSequenceNumber;
+		private long brakeSequenceNumber;
+		
+		
+		private DrivingCommand(long sequenceNumber, long timeStamp, float steering, 
+				float acceleratorPedal, float brakePedal, long steeringSequenceNumber, 
+				long acceleratorSequenceNumber, long brakeSequenceNumber)
+		{
+			this.sequenceNumber = sequenceNumber;
+			this.timeStamp = timeStamp;
+			this.steering = steering;
+			this.acceleratorPedal = acceleratorPedal;
+			this.brakePedal = brakePedal;
+			this.steeringSequenceNumber = steeringSequenceNumber;
+			this.acceleratorSequenceNumber = acceleratorSequenceNumber;
+			this.brakeSequenceNumber = brakeSequenceNumber;
+		}
+		
+		
+		public long getSequenceNumber()
+		{
+			return sequenceNumber;
+		}
+		
+		
+		/**
+		 * @return
+		 * 			Receive time (<code>System.nanoTime()</code>) of the latest input.
+		 */
+		public long getTimeStamp()
+		{
+			return timeStamp;
+		}
+		
+		
+		public float getSteering()
+		{
+			return steering;
+		}
+		
+		
+		public float getAcceleratorPedal()
+		{
+			return acceleratorPedal;
+		}
+		
+		
+		public float getBrakePedal()
+		{
+			return brakePedal;
+		}
+	}
+	
+	
+	public DrivingCommandMailbox(SteeringCar car)
+	{
+		this.car = car;
+	}
+	
+	
+	/**
+	 * Posts new control values (thread-safe, lock-free). Controls given as NaN 
+	 * keep their previous value.
+	 * 
+	 * @param steering
+	 * 			Steering (-1 = full left, 1 = full right; see <code>Car.steer()</code>).
+	 * 
+	 * @param acceleratorPedal
+	 * 			Accelerator pedal intensity (negative values accelerate forward).
+	 * 
+	 * @param brakePedal
+	 * 			Brake pedal intensity (0..1).
+	 * 
+	 * @param receiveTime
+	 * 			Time (<code>System.nanoTime()</code>) the input has been received.
+	 */
+	public void post(float steering, float acceleratorPedal, float brakePedal, long receiveTime)
+	{
+		DrivingCommand previous, next;
+		do {
+			
+			previous = latestCommand.get();
+			long sequenceNumber = previous.sequenceNumber + 1;
+			next = new DrivingCommand(sequenceNumber, receiveTime,
+					Float.isNaN(steering) ? previous.steering : steering,
+					Float.isNaN(acceleratorPedal) ? previous.acceleratorPedal : acceleratorPedal,
+					Float.isNaN(brakePedal) ? previous.brakePedal : brakePedal,
+					Float.isNaN(steering) ? previous.steeringSequenceNumber : sequenceNumber,
+					Float.isNaN(acceleratorPedal) ? previous.acceleratorSequenceNumber : sequenceNumber,
+					Float.isNaN(brakePedal) ? previous.brakeSequenceNumber : sequenceNumber);
+			
+		} while(!latestCommand.compareAndSet(previous, next));
+	}
+	
+	
+	public void postSteering(float steering, long receiveTime)
+	{
+		post(steering, Float.NaN, Float.NaN, receiveTime);
+	}
+	
+	
+	public void postAcceleratorPedal(float intensity, long receiveTime)
+	{
+		post(Float.NaN, intensity, Float.NaN, receiveTime);
+	}
+	
+	
+	public void postBrakePedal(float intensity, long receiveTime)
+	{
+		post(Float.NaN, Float.NaN, intensity, receiveTime);
+	}
+	
+	
+	/**
+	 * Stops applying the posted steering until new steering is posted (e.g. if
+	 * the keyboard steering has higher priority). Not a new command: pedals will
+	 * not be applied again.
+	 */
+	public void releaseSteering()
+	{
+		DrivingCommand previous, next;
+		do {
+			
+			previous = latestCommand.get();
+			if(Float.isNaN(previous.steering))
+				return;
+			
+			next = new DrivingCommand(previous.sequenceNumber, previous.timeStamp,
+					Float.NaN, previous.acceleratorPedal, previous.brakePedal, 
+					previous.steeringSequenceNumber, previous.acceleratorSequenceNumber, 
+					previous.brakeSequenceNumber);
+			
+		} while(!latestCommand.compareAndSet(previous, next));
+	}
+	
+	
+	/**
+	 * Returns the most recent command (not necessarily applied yet).
+	 * 
+	 * @return
+	 * 			Latest command.
+	 */
+	public DrivingCommand getLatestCommand()
+	{
+		return latestCommand.get();
+	}
+	
+	
+	/**
+	 * Applies the latest command to the car if it has not been applied yet 
+	 * (physics thread).
+	 */
+	@Override
+	public void prePhysicsTick(PhysicsSpace space, float timeStep)
+	{
+		applyLatestCommand();
+	}
+	
+	
+	/**
+	 * Applies the controls of the latest command which have changed since the 
+	 * last call. Must only be called by the physics thread or while physics is 
+	 * not running.
+	 */
+	public void applyLatestCommand()
+	{
+		DrivingCommand command = latestCommand.get();
+		if(command.sequenceNumber == lastAppliedSequenceNumber)
+			return;
+		
+		supersededCommandCount += command.sequenceNumber - lastAppliedSequenceNumber - 1;
+		lastAppliedSequenceNumber = command.sequenceNumber;
+		
+		// released steering: keep current wheel position
+		if(command.steeringSequenceNumber != lastAppliedSteeringSequenceNumber && !Float.isNaN(command.steering))
+			car.steer(command.steering);
+		lastAppliedSteeringSequenceNumber = command.steeringSequenceNumber;
+		
+		if(command.acceleratorSequenceNumber != lastAppliedAcceleratorSequenceNumber)
+			car.setAcceleratorPedalIntensity(command.acceleratorPedal);
+		lastAppliedAcceleratorSequenceNumber = command.acceleratorSequenceNumber;
+		
+		if(command.brakeSequenceNumber != lastAppliedBrakeSequenceNumber)
+		{
+			lastAppliedBrakeSequenceNumber = command.brakeSequenceNumber;
+			car.setBrakePedalIntensity(command.brakePedal);
+			if(command.brakePedal > 0)
+				car.disableCruiseControlByBrake();
+		}
+		
+		appliedCommandCount++;
+		if(command.timeStamp != 0)
+			latencyStatistics.addSample(command.timeStamp);
+	}
+	
+	
+	@Override
+	public void physicsTick(PhysicsSpace space, float timeStep)
+	{
+	}
+	
+	
+	public long getAppliedCommandCount()
+	{
+		return appliedCommandCount;
+	}
+	
+	
+	public long getSupersededCommandCount()
+	{
+		return supersededCommandCount;
+	}
+	
+	
+	/**
+	 * Statistics of the time between receiving an input and applying it to the car.
+	 * 
+	 * @return
+	 * 			Latency statistics.
+	 */
+	public LatencyStatistics getLatencyStatistics()
+	{
+		return latencyStatistics;
+	}
+}
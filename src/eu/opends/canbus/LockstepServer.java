@@ -0,0 +1,391 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.jme3.bullet.BulletAppState;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
+import eu.opends.car.SteeringCar;
+import eu.opends.main.Simulator;
+import eu.opends.tools.FramedConnection;
+import eu.opends.tools.FramedConnection.Framing;
+import eu.opends.tools.FramedConnection.MessageListener;
+import eu.opends.traffic.PhysicalTraffic;
+
+/**
+ * Lets an external controller (e.g. an autonomous driving stack) drive the 
+ * simulation step by step. The controller sends "apply controls and advance 
+ * N fixed physics steps"; the simulator performs exactly these steps and 
+ * replies with the resulting vehicle state. While a controller is connected,
+ * the simulation does not advance in real time, so runs are deterministic 
+ * and small scenarios can be simulated faster than real time.
+ * Triggers are checked and data is recorded after every single step (time 
+ * stamps in simulation time), no matter how many steps a request contains.
+ * 
+ * All messages are length-prefixed (int, big endian) as in the binary 
+ * CAN protocol (see <code>CANMessageFormat</code>). 
+ * 
+ * Request (21 bytes):
+ * <pre>
+ * byte   TYPE_STEP (or TYPE_EXIT to close the connection)
+ * int    sequence number (echoed in the reply)
+ * int    number of physics steps to advance (0 = only query the state)
+ * float  steering (-1 = full left .. 1 = full right), NaN = unchanged
+ * float  accelerator pedal (0..1), NaN = unchanged
+ * float  brake pedal (0..1), NaN = unchanged
+ * </pre>
+ * 
+ * Reply (69 bytes):
+ * <pre>
+ * byte   TYPE_STATE
+ * int    sequence number of the request
+ * long   number of physics steps performed since the controller connected
+ * double simulation time (s) since the controller connected
+ * float  position x, y, z
+ * float  rotation x, y, z, w (quaternion)
+ * float  speed (km/h)
+ * float  heading (degree)
+ * float  steering wheel, accelerator pedal, brake pedal
+ * </pre>
+ * 
+ * @author Rafael Math
+ */
+public class LockstepServer extends Thread
+{
+	public static final byte TYPE_STEP = 1;
+	public static final byte TYPE_EXIT = 2;
+	public static final byte TYPE_STATE = 3;
+	public static final int REQUEST_SIZE = 21;
+	public static final int REPLY_SIZE = 69;
+
+	// max. number of steps per request (limits the time a frame may take)
+	private static final int MAX_STEP_COUNT = 100000;
+
+	// requests will be processed within the same frame as long as the controller 
+	// replies within REQUEST_WAIT_TIME and FRAME_TIME_BUDGET has not been exceeded
+	private static final long REQUEST_WAIT_TIME = 2000000L;
+	private static final long FRAME_TIME_BUDGET = 20000000L;
+
+	private static final StepRequest DISCONNECTED = new StepRequest();
+
+	private Simulator sim;
+	private SteeringCar car;
+	private float timeStep;
+	private int port;
+	private ServerSocketChannel serverChannel;
+	private volatile FramedConnection connection;
+	private volatile boolean stopRequested = false;
+	private BlockingQueue<StepRequest> requestQueue = new ArrayBlockingQueue<StepRequest>(64);
+
+	// render thread only
+	private boolean isActive = false;
+	private float previousPhysicsSpeed = 1;
+	private long stepCount = 0;
+	private ByteBuffer replyBuffer = ByteBuffer.allocate(4 + REPLY_SIZE);
+
+
+	/**
+	 * Single "apply controls and advance" request.
+	 */
+	private static class StepRequest
+	{
+		private int sequenceNumber;
+		private int stepCount;
+		private float steering;
+		private float acceleratorPedal;
+		private float brakePedal;
+		private long receiveTime;
+	}
+
+
+	/**
+	 * Creates a new lockstep server listening at the given port.
+	 * 
+	 * @param sim
+	 * 			The simulator.
+	 * 
+	 * @param port
+	 * 			TCP port the controller connects to.
+	 * 
+	 * @param timeStep
+	 * 			Duration (s) of a single physics step.
+	 */
+	public LockstepServer(Simulator sim, int port, float timeStep)
+	{
+		super("LockstepServerThread");
+		setDaemon(true);
+
+		this.sim = sim;
+		this.car = sim.getCar();
+		this.port = port;
+		this.timeStep = timeStep;
+
+		try {
+
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.socket().bind(new InetSocketAddress(port));
+
+		} catch (IOException e) {
+			System.err.println("Lockstep server could not be started at port " + port + ": " + e.toString());
+			stopRequested = true;
+		}
+	}
+
+
+	/**
+	 * Accepts one controller at a time and forwards its requests to the render thread.
+	 */
+	@Override
+	public void run()
+	{
+		if(!stopRequested)
+			System.out.println("Lockstep server waiting for controller at port " + port);
+
+		while(!stopRequested)
+		{
+			try {
+
+				SocketChannel channel = serverChannel.accept();
+				connection = new FramedConnection(channel, Framing.LENGTH_PREFIXED, 4096);
+				System.out.println("Lockstep controller connected: " + channel.socket().getRemoteSocketAddress());
+
+				while(!stopRequested && connection != null)
+					connection.receive(messageListener, 100);
+
+			} catch (ClosedChannelException e) {
+
+				// server has been stopped
+
+			} catch (IOException e) {
+
+				System.out.println("Lockstep controller disconnected (" + e.getMessage() + ")");
+			}
+
+			closeConnection();
+		}
+	}
+
+
+	private MessageListener messageListener = new MessageListener()
+	{
+		@Override
+		public void messageReceived(ByteBuffer buffer, long receiveTime) throws Exception
+		{
+			byte type = buffer.get();
+			if(type == TYPE_EXIT)
+			{
+				closeConnection();
+				return;
+			}
+
+			if(type != TYPE_STEP || buffer.remaining() != REQUEST_SIZE - 1)
+			{
+				System.err.println("Lockstep server: invalid request skipped");
+				return;
+			}
+
+			StepRequest request = new StepRequest();
+			request.sequenceNumber = buffer.getInt();
+			request.stepCount = Math.max(0, Math.min(buffer.getInt(), MAX_STEP_COUNT));
+			request.steering = buffer.getFloat();
+			request.acceleratorPedal = buffer.getFloat();
+			request.brakePedal = buffer.getFloat();
+			request.receiveTime = receiveTime;
+			requestQueue.put(request);
+		}
+	};
+
+
+	private synchronized void closeConnection()
+	{
+		if(connection != null)
+		{
+			connection.close();
+			connection = null;
+			requestQueue.offer(DISCONNECTED);
+		}
+	}
+
+
+	/**
+	 * Returns whether a controller is driving the simulation, i.e. real-time 
+	 * updates of car and traffic must be skipped.
+	 * 
+	 * @return
+	 * 			True, if the simulation is advanced by the controller.
+	 */
+	public boolean isActive()
+	{
+		return isActive;
+	}
+
+
+	/**
+	 * Performs all pending requests (render thread, once per frame).
+	 */
+	public void update()
+	{
+		long frameStart = System.nanoTime();
+
+		StepRequest request = requestQueue.poll();
+		while(request != null)
+		{
+			if(request == DISCONNECTED)
+			{
+				deactivate();
+				return;
+			}
+
+			activate();
+			performSteps(request);
+			sendState(request.sequenceNumber);
+
+			if(System.nanoTime() - frameStart > FRAME_TIME_BUDGET)
+				return;
+
+			// controller usually sends the next request immediately
+			try {
+				request = requestQueue.poll(REQUEST_WAIT_TIME, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+
+	private void activate()
+	{
+		if(!isActive)
+		{
+			// stop real-time physics; steps will only be performed on request
+			BulletAppState bulletAppState = sim.getBulletAppState();
+			previousPhysicsSpeed = bulletAppState.getSpeed();
+			bulletAppState.setSpeed(0);
+
+			stepCount = 0;
+			isActive = true;
+		}
+	}
+
+
+	private void deactivate()
+	{
+		if(isActive)
+		{
+			sim.getBulletAppState().setSpeed(previousPhysicsSpeed);
+			isActive = false;
+		}
+	}
+
+
+	private void performSteps(StepRequest request)
+	{
+		// apply controls before the first step (accelerator: negative values forward)
+		DrivingCommandMailbox mailbox = sim.getDrivingCommandMailbox();
+		mailbox.post(request.steering, -request.acceleratorPedal, request.brakePedal, request.receiveTime);
+		mailbox.applyLatestCommand();
+
+		for(int i=0; i<request.stepCount; i++)
+		{
+			car.getTransmission().updateRPM(timeStep);
+			PhysicalTraffic physicalTraffic = sim.getPhysicalTraffic();
+			car.update(timeStep, physicalTraffic.getTrafficObjectList());
+			physicalTraffic.update(timeStep);
+
+			// exactly one step of the given duration (max. sub steps = 0)
+			sim.getPhysicsSpace().update(timeStep, 0);
+			stepCount++;
+
+			// move car node to the new physics location, then check triggers and 
+			// record at simulation time (independent of how requests are batched; 
+			// the clock continues across sessions and real-time phases)
+			car.getCarControl().update(timeStep);
+			car.getCarNode().updateGeometricState();
+			sim.advanceSimulationTime(timeStep);
+			sim.updateLockstepStep(sim.getSimulationTimeStamp());
+		}
+	}
+
+
+	private void sendState(int sequenceNumber)
+	{
+		FramedConnection currentConnection = connection;
+		if(currentConnection == null)
+			return;
+
+		Vector3f position = car.getPosition();
+		Quaternion rotation = car.getRotation();
+
+		replyBuffer.clear();
+		replyBuffer.putInt(REPLY_SIZE);
+		replyBuffer.put(TYPE_STATE);
+		replyBuffer.putInt(sequenceNumber);
+		replyBuffer.putLong(stepCount);
+		replyBuffer.putDouble(stepCount * (double) timeStep);
+		replyBuffer.putFloat(position.getX());
+		replyBuffer.putFloat(position.getY());
+		replyBuffer.putFloat(position.getZ());
+		replyBuffer.putFloat(rotation.getX());
+		replyBuffer.putFloat(rotation.getY());
+		replyBuffer.putFloat(rotation.getZ());
+		replyBuffer.putFloat(rotation.getW());
+		replyBuffer.putFloat(car.getCurrentSpeedKmh());
+		replyBuffer.putFloat(car.getHeadingDegree());
+		replyBuffer.putFloat(car.getSteeringWheelState());
+		replyBuffer.putFloat(Math.abs(car.getAcceleratorPedalIntensity()));
+		replyBuffer.putFloat(car.getBrakePedalIntensity());
+		replyBuffer.flip();
+
+		try {
+			currentConnection.send(replyBuffer);
+		} catch (IOException e) {
+			System.err.println("Lockstep server: could not send state (" + e.getMessage() + ")");
+		}
+	}
+
+
+	/**
+	 * Closes the connection to the controller and stops the server.
+	 */
+	public void requestStop()
+	{
+		stopRequested = true;
+		closeConnection();
+
+		try {
+			if(serverChannel != null)
+				serverChannel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		deactivate();
+	}
+}
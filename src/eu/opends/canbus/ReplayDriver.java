@@ -0,0 +1,245 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
+import eu.opends.analyzer.DataChunk;
+import eu.opends.analyzer.DataParser;
+import eu.opends.analyzer.DataReader;
+import eu.opends.analyzer.DriveDataStore;
+import eu.opends.car.SteeringCar;
+import eu.opends.main.Simulator;
+
+/**
+ * Replays the steering wheel, gas and brake pedal positions of a recording 
+ * on the steering car (in-process replacement of the external tcpserver that
+ * sent recorded commands via the CAN-Interface).
+ * 
+ * The commands are applied before every physics step against simulation time 
+ * (sum of all physics time steps since the replay has been started), so each 
+ * run is independent of frame rate and wall-clock jitter. Values between two 
+ * recorded samples are interpolated linearly. Engine and brake force are 
+ * computed from the pedal positions in the same step (not once per frame). 
+ * The car will be placed at the first recorded position when the replay starts.
+ * 
+ * Any analyzer file (text, binary or compressed) can be replayed, as well as 
+ * colon-separated files without header (e.g. carData_track1.txt of tcpserver).
+ * 
+ * @author Rafael Math
+ */
+public class ReplayDriver implements PhysicsTickListener
+{
+	private Simulator sim;
+	private SteeringCar car;
+	private DriveDataStore store;
+	private volatile boolean isRunning = false;
+	private volatile boolean isFinished = false;
+	private double simulationTime = 0;
+	private int currentIndex = 0;
+	
+	
+	/**
+	 * Creates a new replay driver and loads the given recording.
+	 * 
+	 * @param sim
+	 * 			The simulator.
+	 * 
+	 * @param filePath
+	 * 			Path of the recording to replay.
+	 */
+	public ReplayDriver(Simulator sim, String filePath)
+	{
+		this.sim = sim;
+		this.car = sim.getCar();
+		this.store = loadRecording(filePath);
+		
+		if(store.size() < 2)
+			System.err.println("Replay driver: no data found in '" + filePath + "'");
+		else
+			System.out.println("Replay driver: loaded " + store.size() + " samples from '" + filePath + "'");
+	}
+	
+	
+	private static DriveDataStore loadRecording(String filePath)
+	{
+		if(filePath == null || !new File(filePath).isFile())
+			return new DriveDataStore(0);
+		
+		try {
+			
+			DataReader dataReader = new DataReader();
+			if(dataReader.initReader(filePath, false) && dataReader.loadDriveData())
+				return dataReader.getDriveDataStore();
+			
+		} catch (Exception e) {
+			// no analyzer file header
+		}
+		
+		// colon-separated lines without header (further tab-separated values will be ignored)
+		RandomAccessFile file = null;
+		try {
+			
+			file = new RandomAccessFile(new File(filePath), "r");
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			DataChunk chunk = DataParser.parseText(buffer, 0, buffer.limit());
+			
+			DriveDataStore store = new DriveDataStore(chunk.size());
+			for(int row=0; row<chunk.size(); row++)
+				store.add(chunk, row, 0);
+			
+			return store;
+			
+		} catch (Exception e) {
+			e.printStackTrace();
+			return new DriveDataStore(0);
+			
+		} finally {
+			
+			try {
+				if(file != null)
+					file.close();
+			} catch (Exception e) {
+			}
+		}
+	}
+	
+	
+	/**
+	 * Places the car at the first recorded position and starts replaying the
+	 * recording. Must be called by the render thread.
+	 */
+	public void start()
+	{
+		if(store.size() < 2)
+			return;
+		
+		car.setPosition(store.getCarPosition(0, new Vector3f()));
+		car.setRotation(store.getCarRotation(0, new Quaternion()));
+		
+		simulationTime = 0;
+		currentIndex = 0;
+		isFinished = false;
+		isRunning = true;
+		car.setPedalUpdatePerPhysicsStep(true);
+		sim.getPhysicsSpace().addTickListener(this);
+	}
+	
+	
+	/**
+	 * Stops the replay and releases the pedals.
+	 */
+	public void stop()
+	{
+		sim.getPhysicsSpace().removeTickListener(this);
+		
+		if(isRunning)
+		{
+			isRunning = false;
+			car.resetPedals();
+			car.setPedalUpdatePerPhysicsStep(false);
+		}
+	}
+	
+	
+	public boolean isRunning()
+	{
+		return isRunning;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			true, if the end of the recording has been reached.
+	 */
+	public boolean isFinished()
+	{
+		return isFinished;
+	}
+	
+	
+	/**
+	 * Applies the recorded commands at the current simulation time 
+	 * (called by the physics space before every physics step).
+	 */
+	@Override
+	public void prePhysicsTick(PhysicsSpace space, float timeStep)
+	{
+		if(!isRunning)
+			return;
+		
+		long recordingTime = store.getTimeStamp(0) + (long) (simulationTime * 1000);
+		
+		// advance to the last sample recorded before the current time
+		while(currentIndex + 1 < store.size() && store.getTimeStamp(currentIndex + 1) <= recordingTime)
+			currentIndex++;
+		
+		if(currentIndex + 1 >= store.size())
+		{
+			isRunning = false;
+			isFinished = true;
+			car.resetPedals();
+			car.setPedalUpdatePerPhysicsStep(false);
+			System.out.println("Replay driver: end of recording reached");
+			return;
+		}
+		
+		// interpolate between current and next sample
+		long previousTime = store.getTimeStamp(currentIndex);
+		long nextTime = store.getTimeStamp(currentIndex + 1);
+		float factor = 0;
+		if(nextTime > previousTime)
+			factor = Math.max(0, Math.min((float) (recordingTime - previousTime) / (nextTime - previousTime), 1));
+		
+		float steering = interpolate(store.getSteeringWheelPos(currentIndex), store.getSteeringWheelPos(currentIndex + 1), factor);
+		float gas = interpolate(store.getAcceleratorPedalPos(currentIndex), store.getAcceleratorPedalPos(currentIndex + 1), factor);
+		float brake = interpolate(store.getBrakePedalPos(currentIndex), store.getBrakePedalPos(currentIndex + 1), factor);
+		
+		car.steer(steering);
+		car.setAcceleratorPedalIntensity(-gas); // negative values accelerate forward
+		car.setBrakePedalIntensity(brake);
+		
+		// engine and brake force for this step
+		if(!car.isAutoPilot())
+			car.updatePedalForces(timeStep);
+		
+		simulationTime += timeStep;
+	}
+	
+	
+	@Override
+	public void physicsTick(PhysicsSpace space, float timeStep)
+	{
+	}
+	
+	
+	private static float interpolate(float previousValue, float nextValue, float factor)
+	{
+		return previousValue + factor * (nextValue - previousValue);
+	}
+}
@@ -0,0 +1,436 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.canbus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+
+import eu.opends.car.Car;
+import eu.opends.car.SteeringCar;
+import eu.opends.main.Simulator;
+import eu.opends.traffic.Pedestrian;
+import eu.opends.traffic.PhysicalTraffic;
+import eu.opends.traffic.TrafficObject;
+
+/**
+ * Exchanges vehicle state and driving commands with processes on the same 
+ * machine (e.g. Python controllers) through a memory-mapped file instead of
+ * a TCP connection. After every physics step the state of the steering car 
+ * and of all traffic objects is published; before every physics step the
+ * latest controls written by the external process are applied.
+ * 
+ * Both directions use a seqlock on two alternating slots: the writer fills 
+ * the slot not published last, marks it with an odd sequence number while 
+ * writing and with an even one (2 * counter) when done, then publishes the 
+ * counter. A reader takes the slot of the published counter, copies the data 
+ * and accepts it only if the sequence number of the slot was 2 * counter 
+ * before and after copying (otherwise it retries). Neither side ever blocks.
+ * 
+ * File layout (little endian; offsets in bytes):
+ * <pre>
+ * header (64)
+ *   0  int    MAGIC_NUMBER
+ *   4  int    LAYOUT_VERSION
+ *   8  int    size of a state slot
+ *   12 int    offset of the state slots (64)
+ *   16 int    offset of the control region
+ *   20 int    max. number of traffic objects per state
+ *   32 long   counter of the latest state (slot: counter &amp; 1; 0 = none yet)
+ * state slot (STATE_SIZE + max. traffic objects * TRAFFIC_OBJECT_SIZE)
+ *   0  long   sequence number
+ *   8  long   number of physics steps since start
+ *   16 double simulation time (s)
+ *   24 float  position x, y, z
+ *   36 float  rotation x, y, z, w (quaternion)
+ *   52 float  speed (km/h), heading (degree)
+ *   60 float  steering wheel, accelerator pedal, brake pedal
+ *   72 int    number of traffic objects
+ *   80 n x    traffic object (TRAFFIC_OBJECT_SIZE): name (32 bytes UTF-8, 
+ *             zero-padded), float position x, y, z, speed (km/h), heading 
+ *             (degree; NaN for pedestrians)
+ * control region (written by the external process)
+ *   0  long   counter of the latest controls (slot: counter &amp; 1; 0 = none yet)
+ *   16 2 x    control slot (32): long sequence number, float steering 
+ *             (-1 = full left .. 1 = full right), float accelerator pedal (0..1), 
+ *             float brake pedal (0..1); NaN = unchanged
+ * </pre>
+ * 
+ * @author Rafael Math
+ */
+public class SharedMemoryChannel implements PhysicsTickListener
+{
+	public static final int MAGIC_NUMBER = 0x4F44534D; // "ODSM"
+	public static final int LAYOUT_VERSION = 1;
+	public static final int HEADER_SIZE = 64;
+	public static final int STATE_SIZE = 80;
+	public static final int TRAFFIC_OBJECT_SIZE = 56;
+	public static final int NAME_SIZE = 32;
+	public static final int CONTROL_SLOT_SIZE = 32;
+	public static final int CONTROL_REGION_SIZE = 16 + 2 * CONTROL_SLOT_SIZE;
+
+	private static final int STATE_COUNTER_OFFSET = 32;
+
+	// memory fences between the sequence numbers and the data (see getFence())
+	private static final MethodHandle STORE_FENCE = getFence("releaseFence", "storeFence");
+	private static final MethodHandle LOAD_FENCE = getFence("acquireFence", "loadFence");
+
+	private Simulator sim;
+	private SteeringCar car;
+	private String filePath;
+	private int maxTrafficObjects;
+	private int stateSlotSize;
+	private int controlOffset;
+	private RandomAccessFile file;
+	private MappedByteBuffer buffer;
+	private volatile boolean isClosed = false;
+
+	// physics thread only
+	private long stateCounter = 0;
+	private long stepCount = 0;
+	private double simulationTime = 0;
+	private long lastControlCounter = 0;
+	private HashMap<String, byte[]> nameCache = new HashMap<String, byte[]>();
+	private volatile long tornControlCount = 0;
+
+
+	/**
+	 * Creates (or overwrites) the shared memory file and maps it.
+	 * 
+	 * @param sim
+	 * 			The simulator.
+	 * 
+	 * @param filePath
+	 * 			Path of the file to map (e.g. in /dev/shm); if empty, "opends.shm" 
+	 * 			in /dev/shm or the temporary directory will be used.
+	 * 
+	 * @param maxTrafficObjects
+	 * 			Max. number of traffic objects published per state.
+	 */
+	public SharedMemoryChannel(Simulator sim, String filePath, int maxTrafficObjects)
+	{
+		this.sim = sim;
+		this.car = sim.getCar();
+		this.filePath = getFilePath(filePath);
+		this.maxTrafficObjects = Math.max(0, maxTrafficObjects);
+
+		stateSlotSize = STATE_SIZE + this.maxTrafficObjects * TRAFFIC_OBJECT_SIZE;
+		controlOffset = HEADER_SIZE + 2 * stateSlotSize;
+
+		try {
+
+			file = new RandomAccessFile(this.filePath, "rw");
+			file.setLength(0);
+			file.setLength(controlOffset + CONTROL_REGION_SIZE);
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, controlOffset + CONTROL_REGION_SIZE);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(4, LAYOUT_VERSION);
+			buffer.putInt(8, stateSlotSize);
+			buffer.putInt(12, HEADER_SIZE);
+			buffer.putInt(16, controlOffset);
+			buffer.putInt(20, this.maxTrafficObjects);
+			storeFence();
+
+			// readers check the magic number last
+			buffer.putInt(0, MAGIC_NUMBER);
+
+			System.out.println("Shared memory channel: " + this.filePath);
+
+		} catch (IOException e) {
+			System.err.println("Shared memory channel could not be created at '" + this.filePath + "': " + e.toString());
+			buffer = null;
+		}
+	}
+
+
+	private static String getFilePath(String filePath)
+	{
+		if(filePath != null && !filePath.isEmpty())
+			return filePath;
+
+		File sharedMemoryFolder = new File("/dev/shm");
+		if(sharedMemoryFolder.isDirectory())
+			return new File(sharedMemoryFolder, "opends.shm").getPath();
+
+		return new File(System.getProperty("java.io.tmpdir"), "opends.shm").getPath();
+	}
+
+
+	/**
+	 * Looks up a memory fence: <code>java.lang.invoke.VarHandle</code> (Java 9+) 
+	 * or <code>sun.misc.Unsafe</code> (Java 8). Both are resolved at runtime, so 
+	 * the code compiles without internal API warnings on any Java version; the
+	 * JIT inlines constant method handles.
+	 * 
+	 * @param varHandleFence
+	 * 			Name of the static fence method of VarHandle.
+	 * 
+	 * @param unsafeFence
+	 * 			Name of the equivalent fence method of Unsafe.
+	 * 
+	 * @return
+	 * 			Method handle of type ()void.
+	 */
+	private static MethodHandle getFence(String varHandleFence, String unsafeFence)
+	{
+		MethodType type = MethodType.methodType(void.class);
+		
+		try {
+			
+			Class<?> varHandleClass = Class.forName("java.lang.invoke.VarHandle");
+			return MethodHandles.publicLookup().findStatic(varHandleClass, varHandleFence, type);
+			
+		} catch (Exception e) {
+			// Java 8
+		}
+		
+		try {
+
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			return MethodHandles.lookup().findVirtual(unsafeClass, unsafeFence, type).bindTo(field.get(null));
+
+		} catch (Exception e) {
+			throw new IllegalStateException("No memory fences available", e);
+		}
+	}
+
+
+	/**
+	 * All writes before will be visible before any write after.
+	 */
+	private static void storeFence()
+	{
+		try {
+			STORE_FENCE.invokeExact();
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	/**
+	 * No read after will be performed before any read before.
+	 */
+	private static void loadFence()
+	{
+		try {
+			LOAD_FENCE.invokeExact();
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	/**
+	 * Applies the latest controls of the external process (if new).
+	 */
+	@Override
+	public void prePhysicsTick(PhysicsSpace space, float timeStep)
+	{
+		if(buffer == null || isClosed)
+			return;
+
+		long counter = buffer.getLong(controlOffset);
+		if(counter == lastControlCounter || counter <= 0)
+			return;
+
+		int slot = controlOffset + 16 + (int) (counter & 1) * CONTROL_SLOT_SIZE;
+		long sequenceNumber = buffer.getLong(slot);
+		loadFence();
+
+		float steering = buffer.getFloat(slot + 8);
+		float acceleratorPedal = buffer.getFloat(slot + 12);
+		float brakePedal = buffer.getFloat(slot + 16);
+
+		loadFence();
+		if(sequenceNumber != 2 * counter || buffer.getLong(slot) != sequenceNumber)
+		{
+			// being written: try again before the next step
+			tornControlCount++;
+			return;
+		}
+
+		lastControlCounter = counter;
+
+		// accelerator: negative values forward
+		DrivingCommandMailbox mailbox = sim.getDrivingCommandMailbox();
+		mailbox.post(steering, Float.isNaN(acceleratorPedal) ? Float.NaN : -acceleratorPedal, 
+				brakePedal, System.nanoTime());
+		mailbox.applyLatestCommand();
+	}
+
+
+	/**
+	 * Publishes the state of the steering car and the traffic after the step.
+	 */
+	@Override
+	public void physicsTick(PhysicsSpace space, float timeStep)
+	{
+		if(buffer == null || isClosed)
+			return;
+
+		stepCount++;
+		simulationTime += timeStep;
+
+		long counter = stateCounter + 1;
+		int slot = HEADER_SIZE + (int) (counter & 1) * stateSlotSize;
+
+		// odd: slot is being written
+		buffer.putLong(slot, 2 * counter - 1);
+		storeFence();
+
+		Vector3f position = car.getPosition();
+		Quaternion rotation = car.getRotation();
+		buffer.putLong(slot + 8, stepCount);
+		buffer.putDouble(slot + 16, simulationTime);
+		buffer.putFloat(slot + 24, position.getX());
+		buffer.putFloat(slot + 28, position.getY());
+		buffer.putFloat(slot + 32, position.getZ());
+		buffer.putFloat(slot + 36, rotation.getX());
+		buffer.putFloat(slot + 40, rotation.getY());
+		buffer.putFloat(slot + 44, rotation.getZ());
+		buffer.putFloat(slot + 48, rotation.getW());
+		buffer.putFloat(slot + 52, car.getCurrentSpeedKmh());
+		buffer.putFloat(slot + 56, car.getHeadingDegree());
+		buffer.putFloat(slot + 60, car.getSteeringWheelState());
+		buffer.putFloat(slot + 64, Math.abs(car.getAcceleratorPedalIntensity()));
+		buffer.putFloat(slot + 68, car.getBrakePedalIntensity());
+		buffer.putInt(slot + 72, putTrafficObjects(slot + STATE_SIZE));
+
+		// even: slot is complete
+		storeFence();
+		buffer.putLong(slot, 2 * counter);
+		storeFence();
+		buffer.putLong(STATE_COUNTER_OFFSET, counter);
+		stateCounter = counter;
+	}
+
+
+	private int putTrafficObjects(int offset)
+	{
+		PhysicalTraffic physicalTraffic = sim.getPhysicalTraffic();
+		if(physicalTraffic == null)
+			return 0;
+
+		ArrayList<TrafficObject> trafficObjectList = physicalTraffic.getTrafficObjectList();
+		int count = Math.min(trafficObjectList.size(), maxTrafficObjects);
+		for(int i=0; i<count; i++)
+		{
+			TrafficObject trafficObject = trafficObjectList.get(i);
+			int position = offset + i * TRAFFIC_OBJECT_SIZE;
+
+			putName(position, trafficObject.getName());
+
+			Vector3f location = trafficObject.getPosition();
+			buffer.putFloat(position + NAME_SIZE, location.getX());
+			buffer.putFloat(position + NAME_SIZE + 4, location.getY());
+			buffer.putFloat(position + NAME_SIZE + 8, location.getZ());
+
+			float speed = Float.NaN;
+			float heading = Float.NaN;
+			if(trafficObject instanceof Car)
+			{
+				speed = ((Car) trafficObject).getCurrentSpeedKmh();
+				heading = ((Car) trafficObject).getHeadingDegree();
+			}
+			else if(trafficObject instanceof Pedestrian)
+				speed = ((Pedestrian) trafficObject).getCurrentSpeedKmh();
+
+			buffer.putFloat(position + NAME_SIZE + 12, speed);
+			buffer.putFloat(position + NAME_SIZE + 16, heading);
+		}
+		return count;
+	}
+
+
+	private void putName(int position, String name)
+	{
+		// names do not change, so they will be encoded only once
+		byte[] bytes = nameCache.get(name);
+		if(bytes == null)
+		{
+			bytes = new byte[NAME_SIZE];
+			if(name != null)
+			{
+				byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+				System.arraycopy(encodedName, 0, bytes, 0, Math.min(encodedName.length, NAME_SIZE));
+			}
+			nameCache.put(name, bytes);
+		}
+
+		for(int i=0; i<NAME_SIZE; i++)
+			buffer.put(position + i, bytes[i]);
+	}
+
+
+	/**
+	 * Returns the number of times the controls were read while being written 
+	 * (they will be read again before the next step).
+	 * 
+	 * @return
+	 * 			Number of torn reads of the control region.
+	 */
+	public long getTornControlCount()
+	{
+		return tornControlCount;
+	}
+
+
+	public String getFilePath()
+	{
+		return filePath;
+	}
+
+
+	/**
+	 * Stops publishing and marks the file as closed for readers (magic number 0).
+	 */
+	public void close()
+	{
+		if(buffer == null || isClosed)
+			return;
+
+		isClosed = true;
+		buffer.putInt(0, 0);
+
+		try {
+			file.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -37,6 +37,9 @@ import com.jme3.scene.Node;
 import com.jme3.scene.Spatial.CullHint;
 import com.jme3.scene.shape.Box;
 
+import eu.opends.analyzer.ChannelRegistry;
+import eu.opends.analyzer.ChannelType;
+import eu.opends.analyzer.RecordingChannel;
 import eu.opends.audio.AudioCenter;
 import eu.opends.car.LightTexturesContainer.TurnSignalState;
 import eu.opends.environment.GeoPosition;
@@ -777,6 +780,98 @@ public abstract class Car
 	}
 	
 	
+	/**
+	 * Registers the channels of this car (position, heading, speed, steering wheel,
+	 * pedals, engine state and, if available, transmission) for recording.
+	 * 
+	 * @param registry
+	 * 			Registry of the channel recorder.
+	 * 
+	 * @param prefix
+	 * 			Prefix of all channel names (e.g. "car" --&gt; "car.speed").
+	 */
+	public void registerRecordingChannels(ChannelRegistry registry, String prefix)
+	{
+		final Vector3f position = new Vector3f();
+		
+		registry.register(new RecordingChannel(prefix + ".posX", ChannelType.FLOAT) {
+			public float getValue()
+			{
+				return carControl.getPhysicsLocation(position).x;
+			}
+		});
+		registry.register(new RecordingChannel(prefix + ".posY", ChannelType.FLOAT) {
+			public float getValue()
+			{
+				return carControl.getPhysicsLocation(position).y;
+			}
+		});
+		registry.register(new RecordingChannel(prefix + ".posZ", ChannelType.FLOAT) {
+			public float getValue()
+			{
+				return carControl.getPhysicsLocation(position).z;
+			}
+		});
+		registry.register(new RecordingChannel(prefix + ".heading", ChannelType.FLOAT) {
+			public float getValue()
+			{
+				return getHeadingDegree();
+			}
+		});
+		registry.register(new RecordingChannel(prefix + ".speed", ChannelType.FLOAT) {
+			public float getValue()
+			{
+				return getCurrentSpeedKmh();
+			}
+		});
+		registry.register(new RecordingChannel(prefix + ".steeringWheel", ChannelType.FLOAT) {
+			public float getValue()
+			{
+				return getSteeringWheelState();
+			}
+		});
+		registry.register(new RecordingChannel(prefix + ".gasPedal", ChannelType.FLOAT) {
+			public float getValue()
+			{
+				return getAcceleratorPedalIntensity();
+			}
+		});
+		registry.register(new RecordingChannel(prefix + ".brakePedal", ChannelType.FLOAT) {
+			public float getValue()
+			{
+				return getBrakePedalIntensity();
+			}
+		});
+		registry.register(new RecordingChannel(prefix + ".engineOn", ChannelType.BOOLEAN) {
+			public float getValue()
+			{
+				return isEngineOn() ? 1 : 0;
+			}
+		});
+		
+		if(transmission != null)
+		{
+			registry.register(new RecordingChannel(prefix + ".rpm", ChannelType.FLOAT) {
+				public float getValue()
+				{
+					return transmission.getRPM();
+				}
+			});
+			registry.register(new RecordingChannel(prefix + ".gear", ChannelType.INT) {
+				public float getValue()
+				{
+					return transmission.getGear();
+				}
+				
+				public int getIntValue()
+				{
+					return transmission.getGear();
+				}
+			});
+		}
+	}
+	
+	
 	public void close()
 	{
 		lightTexturesContainer.close();
@@ -47,7 +47,6 @@ import eu.opends.tools.PanelCenter;
 import eu.opends.tools.Util;
 import eu.opends.traffic.FollowBox;
 import eu.opends.traffic.FollowBoxSettings;
-import eu.opends.traffic.PhysicalTraffic;
 import eu.opends.traffic.TrafficObject;
 import eu.opends.traffic.Waypoint;
 import eu.opends.trafficObjectLocator.TrafficObjectLocator;
@@ -83,6 +82,9 @@ public class SteeringCar extends Car implements TrafficObject
 	private FollowBox followBox;
 	
 	private boolean isAutoPilot;
+	
+	// pedal forces are applied by a physics tick listener (e.g. replay driver) instead of update()
+	private volatile boolean isPedalUpdatePerPhysicsStep = false;
 	private boolean accelerateBack = false;
 	private boolean inCenterOfLane;
 	
@@ -172,6 +174,8 @@ public class SteeringCar extends Car implements TrafficObject
         isAutoPilot = scenarioLoader.isAutoPilot();
         followBox = new FollowBox(sim, this, followBoxSettings, isAutoPilot);
         // AutoPilot **************************************************************	
+        
+        registerRecordingChannels(sim.getChannelRegistry(), "car");
 	}
 
 
@@ -232,7 +236,7 @@ public class SteeringCar extends Car implements TrafficObject
 			PanelCenter.getMessageBox().addMessage("________________________________________Auto Pilot off________________________________________", 3);
 			
 			long millisecs = System.currentTimeMillis();
-			Simulator.getDrivingTaskLogger().reportText("Auto Pilot off", millisecs);
+			sim.getDrivingTaskLogger().reportText("Auto Pilot off", millisecs);
 		}
 		else
 		{
@@ -244,7 +248,7 @@ public class SteeringCar extends Car implements TrafficObject
 			PanelCenter.getMessageBox().addMessage("________________________________________Auto Pilot on________________________________________", 3);
 			//PanelCenter.getMessageBox().addMessage(String.valueOf(brakePedalIntensity)+"_" + String.valueOf(acceleratorPedalIntensity), 3);
 			long millisecs = System.currentTimeMillis();
-			Simulator.getDrivingTaskLogger().reportText("_Auto Pilot on", millisecs);
+			sim.getDrivingTaskLogger().reportText("_Auto Pilot on", millisecs);
 		}
 	}
 	
@@ -253,6 +257,20 @@ public class SteeringCar extends Car implements TrafficObject
 		return isAutoPilot;
 	}
 	
+	
+	/**
+	 * If set, <code>update()</code> will not convert the pedal positions into 
+	 * engine and brake force; <code>updatePedalForces()</code> has to be called 
+	 * before every physics step instead.
+	 * 
+	 * @param isPedalUpdatePerPhysicsStep
+	 * 			true, if pedal forces are applied per physics step.
+	 */
+	public void setPedalUpdatePerPhysicsStep(boolean isPedalUpdatePerPhysicsStep)
+	{
+		this.isPedalUpdatePerPhysicsStep = isPedalUpdatePerPhysicsStep;
+	}
+	
 	// This is to put the car in Reverse mode, in case you need to drive backwards
 	public void setAccelerateBack(Boolean accelerateBack)
 	{
@@ -315,55 +333,12 @@ public class SteeringCar extends Car implements TrafficObject
 		
 		if(!isAutoPilot)
 		{
-			// accelerate
-			float pAccel = 0;
-			if(!engineOn)
-			{
-				// apply 0 acceleration when engine not running
-				pAccel = powerTrain.getPAccel(tpf, 0) * 30f;
-			}
-			else if(isAutoAcceleration && (getCurrentSpeedKmh() < minSpeed))
-			{
-				// apply maximum acceleration (= -1 for forward) to maintain minimum speed
-				pAccel = powerTrain.getPAccel(tpf, -1) * 30f;
-			}
-			else if(isCruiseControl && (getCurrentSpeedKmh() < targetSpeedCruiseControl))
-			{
-				// apply maximum acceleration (= -1 for forward) to maintain target speed
-				pAccel = powerTrain.getPAccel(tpf, -1) * 30f;
-				
-				if(isAdaptiveCruiseControl)
-				{
-					// lower speed if leading car is getting to close
-					pAccel = getAdaptivePAccel(pAccel);
-				}
-			}
-			else
-			{
-				// apply acceleration according to gas pedal state
-				pAccel = powerTrain.getPAccel(tpf, acceleratorPedalIntensity) * 30f;
-			}
-			transmission.performAcceleration(pAccel);
+			if(!isPedalUpdatePerPhysicsStep)
+				updatePedalForces(tpf);
 		
 			// brake lights
 			setBrakeLight(brakePedalIntensity > 0);
-			
-			if(handBrakeApplied)
-			{
-				// hand brake
-				carControl.brake(maxBrakeForce);
-				PanelCenter.setHandBrakeIndicator(true);
-			}
-			else
-			{
-				// brake	
-				float appliedBrakeForce = brakePedalIntensity * maxBrakeForce;
-				float currentFriction = powerTrain.getFrictionCoefficient() * maxFreeWheelBrakeForce;
-				carControl.brake(appliedBrakeForce + currentFriction);
-				PanelCenter.setHandBrakeIndicator(false);
-			}
-			
-			
+			PanelCenter.setHandBrakeIndicator(handBrakeApplied);
 		}
 		
 		// lights
@@ -426,6 +401,62 @@ public class SteeringCar extends Car implements TrafficObject
 	
 	}
 	
+	/**
+	 * Converts the current pedal positions (or auto acceleration / cruise control)
+	 * into engine and brake force. Will be called by <code>update()</code> every 
+	 * frame, or by a physics tick listener before every physics step (see 
+	 * <code>setPedalUpdatePerPhysicsStep()</code>).
+	 * 
+	 * @param tpf
+	 * 			Time (s) the force will be applied.
+	 */
+	public void updatePedalForces(float tpf)
+	{
+		// accelerate
+		float pAccel = 0;
+		if(!engineOn)
+		{
+			// apply 0 acceleration when engine not running
+			pAccel = powerTrain.getPAccel(tpf, 0) * 30f;
+		}
+		else if(isAutoAcceleration && (getCurrentSpeedKmh() < minSpeed))
+		{
+			// apply maximum acceleration (= -1 for forward) to maintain minimum speed
+			pAccel = powerTrain.getPAccel(tpf, -1) * 30f;
+		}
+		else if(isCruiseControl && (getCurrentSpeedKmh() < targetSpeedCruiseControl))
+		{
+			// apply maximum acceleration (= -1 for forward) to maintain target speed
+			pAccel = powerTrain.getPAccel(tpf, -1) * 30f;
+			
+			if(isAdaptiveCruiseControl)
+			{
+				// lower speed if leading car is getting to close
+				pAccel = getAdaptivePAccel(pAccel);
+			}
+		}
+		else
+		{
+			// apply acceleration according to gas pedal state
+			pAccel = powerTrain.getPAccel(tpf, acceleratorPedalIntensity) * 30f;
+		}
+		transmission.performAcceleration(pAccel);
+		
+		if(handBrakeApplied)
+		{
+			// hand brake
+			carControl.brake(maxBrakeForce);
+		}
+		else
+		{
+			// brake	
+			float appliedBrakeForce = brakePedalIntensity * maxBrakeForce;
+			float currentFriction = powerTrain.getFrictionCoefficient() * maxFreeWheelBrakeForce;
+			carControl.brake(appliedBrakeForce + currentFriction);
+		}
+	}
+	
+	
 	private float getSteeringWheelStateNoNoise(float currentValue){
 		if  ( currentValue > -0.9f && currentValue < 0.9f)
 		{	
@@ -535,7 +566,7 @@ public class SteeringCar extends Car implements TrafficObject
 		brakePedalIntensity = 0f;
 
 		// check distance from traffic vehicles
-		for(TrafficObject vehicle : PhysicalTraffic.getTrafficObjectList())
+		for(TrafficObject vehicle : sim.getPhysicalTraffic().getTrafficObjectList())
 		{
 			if(belowSafetyDistance(vehicle.getPosition()))
 			{
@@ -19,12 +19,18 @@
 package eu.opends.drivingTask;
 
 import java.io.File;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import eu.opends.basics.SimulationBasics;
 import eu.opends.drivingTask.interaction.InteractionLoader;
 import eu.opends.drivingTask.scenario.ScenarioLoader;
+import eu.opends.drivingTask.scene.ModelLoadingListener;
 import eu.opends.drivingTask.scene.SceneLoader;
 import eu.opends.drivingTask.settings.SettingsLoader;
+import eu.opends.drivingTask.settings.SettingsLoader.Setting;
 import eu.opends.drivingTask.task.TaskLoader;
 
 
@@ -37,6 +43,11 @@ import eu.opends.drivingTask.task.TaskLoader;
  * map objects will be read from the file when method "getMapObjects()"
  * is called.
  * 
+ * The layers are loaded concurrently: scenario and task loader only wait 
+ * for the points of the scene loader (not for its models), the interaction 
+ * loader waits for the settings loader and is run by the calling thread, as 
+ * it registers input mappings.
+ * 
  * @author Rafael Math
  */
 public class DrivingTask 
@@ -75,6 +86,11 @@ public class DrivingTask
 		return taskLoader;
 	}
 	
+	public DrivingTaskDataQuery getDataQuery()
+	{
+		return dtData;
+	}
+	
 	
 	/**
 	 * Creates a DOM-object from the given input file. If the input file 
@@ -88,6 +104,49 @@ public class DrivingTask
 	 * 			XML driving task file to parse
 	 */
 	public DrivingTask(SimulationBasics sim, File xmlfile) 
+	{
+		this(sim, xmlfile, null);
+	}
+	
+	
+	/**
+	 * Creates a DOM-object from the given input file and notifies the given 
+	 * listener about the progress of loading the models of the scene.
+	 * 
+	 * @param sim
+	 * 			Simulator or Analyzer
+	 * 
+	 * @param xmlfile
+	 * 			XML driving task file to parse
+	 * 
+	 * @param modelLoadingListener
+	 * 			Listener to notify after each model (may be null)
+	 */
+	public DrivingTask(SimulationBasics sim, File xmlfile, ModelLoadingListener modelLoadingListener) 
+	{
+		this(sim, xmlfile, modelLoadingListener, null);
+	}
+	
+	
+	/**
+	 * Creates a DOM-object from the given input file, notifies the given 
+	 * listener about the progress of loading the models of the scene and 
+	 * replaces the given settings of settings.xml before any layer reads them.
+	 * 
+	 * @param sim
+	 * 			Simulator or Analyzer
+	 * 
+	 * @param xmlfile
+	 * 			XML driving task file to parse
+	 * 
+	 * @param modelLoadingListener
+	 * 			Listener to notify after each model (may be null)
+	 * 
+	 * @param settingOverrides
+	 * 			Values replacing those of settings.xml (may be null)
+	 */
+	public DrivingTask(SimulationBasics sim, File xmlfile, ModelLoadingListener modelLoadingListener,
+			Map<Setting,String> settingOverrides) 
 	{
 		this.drivingTaskFileName = xmlfile.getName();
 		this.drivingTaskPath = xmlfile.getPath();
@@ -101,11 +160,72 @@ public class DrivingTask
 			sim.stop();
 		}			
 		
-		sceneLoader = new SceneLoader(dtData, sim);
-		scenarioLoader = new ScenarioLoader(dtData, sim, this);
-		settingsLoader = new SettingsLoader(dtData);
+		loadLayers(sim, modelLoadingListener, settingOverrides);
+	}
+	
+	
+	private void loadLayers(final SimulationBasics sim, final ModelLoadingListener modelLoadingListener, 
+			Map<Setting,String> settingOverrides)
+	{
+		// points and reset points of the scene are needed by scenario and task loader
+		final Future<SceneLoader> sceneFuture = DrivingTaskDataQuery.submitLoaderTask(new Callable<SceneLoader>()
+		{
+			public SceneLoader call()
+			{
+				return new SceneLoader(dtData, sim);
+			}
+		});
+		
+		// loading the models is the most expensive part --> run in parallel to the other layers
+		Future<SceneLoader> mapObjectsFuture = DrivingTaskDataQuery.submitLoaderTask(new Callable<SceneLoader>()
+		{
+			public SceneLoader call()
+			{
+				SceneLoader loader = DrivingTaskDataQuery.awaitTask(sceneFuture);
+				loader.setModelLoadingListener(modelLoadingListener);
+				loader.createMapObjects();
+				return loader;
+			}
+		});
+		
+		Future<ScenarioLoader> scenarioFuture = DrivingTaskDataQuery.submitLoaderTask(new Callable<ScenarioLoader>()
+		{
+			public ScenarioLoader call()
+			{
+				return new ScenarioLoader(dtData, sim, DrivingTaskDataQuery.awaitTask(sceneFuture));
+			}
+		});
+		
+		Future<TaskLoader> taskFuture = DrivingTaskDataQuery.submitLoaderTask(new Callable<TaskLoader>()
+		{
+			public TaskLoader call()
+			{
+				return new TaskLoader(dtData, DrivingTaskDataQuery.awaitTask(sceneFuture));
+			}
+		});
+		
+		Future<SettingsLoader> settingsFuture = DrivingTaskDataQuery.submitLoaderTask(new Callable<SettingsLoader>()
+		{
+			public SettingsLoader call()
+			{
+				return new SettingsLoader(dtData);
+			}
+		});
+		
+		settingsLoader = DrivingTaskDataQuery.awaitTask(settingsFuture);
+		
+		// overrides must be in place before the interaction loader reads the joystick settings
+		if(settingOverrides != null)
+			for(Entry<Setting,String> entry : settingOverrides.entrySet())
+				settingsLoader.setOverride(entry.getKey(), entry.getValue());
+		
 		interactionLoader = new InteractionLoader(dtData, sim, settingsLoader);
-		taskLoader = new TaskLoader(dtData, this);
+		
+		// the driver's car is removed from the map objects after all models have been loaded
+		sceneLoader = DrivingTaskDataQuery.awaitTask(mapObjectsFuture);
+		scenarioLoader = DrivingTaskDataQuery.awaitTask(scenarioFuture);
+		scenarioLoader.processSceneCar();
+		taskLoader = DrivingTaskDataQuery.awaitTask(taskFuture);
 	}
 	
 	
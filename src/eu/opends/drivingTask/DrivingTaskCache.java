@@ -0,0 +1,353 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.drivingTask;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import eu.opends.tools.Util;
+
+/**
+ * Cache of validated driving task files. The DOM of every successfully 
+ * validated file is stored in a compact binary form; the cache file is named
+ * after a hash of the content of the XML file and its schema, so it will only
+ * be used as long as neither of them has changed. Reading the binary form
+ * avoids parsing and schema validation of large scene and scenario files.
+ * 
+ * Stored nodes: elements (with attributes, incl. namespace declarations and
+ * schema defaults), text, CDATA sections and comments. Every string is stored
+ * once and referenced by its index afterwards.
+ * 
+ * Several simulator processes (e.g. batch runs) may use the cache at the same 
+ * time, as cache files are written to a temporary file first and renamed then.
+ * 
+ * @author Rafael Math
+ */
+public class DrivingTaskCache
+{
+	private static final String CACHE_FOLDER = "cache/drivingTasks";
+	private static final String FILE_EXTENSION = ".dom";
+	private static final int MAGIC_NUMBER = 0x4F44444D; // "ODDM"
+	private static final int FORMAT_VERSION = 1;
+	
+	// node types
+	private static final byte END = 0;
+	private static final byte ELEMENT = 1;
+	private static final byte TEXT = 2;
+	private static final byte CDATA = 3;
+	private static final byte COMMENT = 4;
+	
+	
+	/**
+	 * Computes the cache key of the given driving task file.
+	 * 
+	 * @param file
+	 * 			XML file.
+	 * 
+	 * @param schemaSource
+	 * 			Path of the schema the file will be validated against.
+	 * 
+	 * @return
+	 * 			Hash of both files (hex) or null, if one of them cannot be read.
+	 */
+	public static String getKey(File file, String schemaSource)
+	{
+		try {
+			
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] buffer = new byte[64 * 1024];
+			
+			digest.update((byte) FORMAT_VERSION);
+			addToDigest(digest, file, buffer);
+			digest.update((byte) 0);
+			if(!schemaSource.isEmpty())
+				addToDigest(digest, new File(schemaSource), buffer);
+			
+			StringBuilder key = new StringBuilder(40);
+			for(byte b : digest.digest())
+				key.append(String.format("%02x", b));
+			return key.toString();
+			
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
+	
+	private static void addToDigest(MessageDigest digest, File file, byte[] buffer) throws IOException
+	{
+		InputStream in = new FileInputStream(file);
+		try {
+			
+			int length;
+			while((length = in.read(buffer)) > 0)
+				digest.update(buffer, 0, length);
+			
+		} finally {
+			in.close();
+		}
+	}
+	
+	
+	/**
+	 * Reads the DOM stored under the given key.
+	 * 
+	 * @param key
+	 * 			Cache key (see <code>getKey()</code>); may be null.
+	 * 
+	 * @return
+	 * 			Cached document or null, if not available.
+	 */
+	public static Document load(String key)
+	{
+		if(key == null)
+			return null;
+		
+		File cacheFile = new File(CACHE_FOLDER, key + FILE_EXTENSION);
+		if(!cacheFile.isFile())
+			return null;
+		
+		DataInputStream in = null;
+		try {
+			
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 64 * 1024));
+			if(in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION)
+				return null;
+			
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			Document document = factory.newDocumentBuilder().newDocument();
+			ArrayList<String> stringTable = new ArrayList<String>(1024);
+			document.setDocumentURI(readString(in, stringTable));
+			readChildren(in, document, document, stringTable);
+			return document;
+			
+		} catch (Exception e) {
+			
+			System.err.println("Driving task cache file '" + cacheFile + "' could not be read: " + e.toString());
+			return null;
+			
+		} finally {
+			close(in);
+		}
+	}
+	
+	
+	private static void readChildren(DataInputStream in, Document document, Node parent, 
+			ArrayList<String> stringTable) throws IOException
+	{
+		byte type;
+		while((type = in.readByte()) != END)
+		{
+			switch (type)
+			{
+				case ELEMENT :
+					String namespaceURI = readString(in, stringTable);
+					Element element = document.createElementNS(namespaceURI, readString(in, stringTable));
+					int attributeCount = in.readShort() & 0xFFFF;
+					for(int i=0; i<attributeCount; i++)
+					{
+						String attributeNamespaceURI = readString(in, stringTable);
+						String attributeName = readString(in, stringTable);
+						element.setAttributeNS(attributeNamespaceURI, attributeName, readString(in, stringTable));
+					}
+					parent.appendChild(element);
+					readChildren(in, document, element, stringTable);
+					break;
+					
+				case TEXT : parent.appendChild(document.createTextNode(readString(in, stringTable))); break;
+				case CDATA : parent.appendChild(document.createCDATASection(readString(in, stringTable))); break;
+				case COMMENT : parent.appendChild(document.createComment(readString(in, stringTable))); break;
+				default : throw new IOException("Invalid node type " + type);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Stores the given DOM under the given key.
+	 * 
+	 * @param key
+	 * 			Cache key (see <code>getKey()</code>); may be null.
+	 * 
+	 * @param document
+	 * 			Validated document.
+	 */
+	public static void store(String key, Document document)
+	{
+		if(key == null || document == null)
+			return;
+		
+		File tempFile = null;
+		DataOutputStream out = null;
+		try {
+			
+			Util.makeDirectory(CACHE_FOLDER);
+			tempFile = File.createTempFile(key, ".tmp", new File(CACHE_FOLDER));
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024));
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(FORMAT_VERSION);
+			HashMap<String, Integer> stringTable = new HashMap<String, Integer>(1024);
+			writeString(out, document.getDocumentURI(), stringTable);
+			writeChildren(out, document, stringTable);
+			out.close();
+			out = null;
+			
+			Files.move(tempFile.toPath(), new File(CACHE_FOLDER, key + FILE_EXTENSION).toPath(), 
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			
+		} catch (Exception e) {
+			
+			System.err.println("Driving task could not be cached: " + e.toString());
+			
+		} finally {
+			close(out);
+			if(tempFile != null)
+				tempFile.delete();
+		}
+	}
+	
+	
+	private static void writeChildren(DataOutputStream out, Node parent, HashMap<String, Integer> stringTable) 
+			throws IOException
+	{
+		NodeList children = parent.getChildNodes();
+		for(int i=0; i<children.getLength(); i++)
+		{
+			Node child = children.item(i);
+			switch (child.getNodeType())
+			{
+				case Node.ELEMENT_NODE :
+					out.writeByte(ELEMENT);
+					writeString(out, child.getNamespaceURI(), stringTable);
+					writeString(out, child.getNodeName(), stringTable);
+					NamedNodeMap attributes = child.getAttributes();
+					out.writeShort(attributes.getLength());
+					for(int k=0; k<attributes.getLength(); k++)
+					{
+						Attr attribute = (Attr) attributes.item(k);
+						writeString(out, attribute.getNamespaceURI(), stringTable);
+						writeString(out, attribute.getName(), stringTable);
+						writeString(out, attribute.getValue(), stringTable);
+					}
+					writeChildren(out, child, stringTable);
+					break;
+					
+				case Node.TEXT_NODE :
+					out.writeByte(TEXT);
+					writeString(out, child.getNodeValue(), stringTable);
+					break;
+					
+				case Node.CDATA_SECTION_NODE :
+					out.writeByte(CDATA);
+					writeString(out, child.getNodeValue(), stringTable);
+					break;
+					
+				case Node.COMMENT_NODE :
+					out.writeByte(COMMENT);
+					writeString(out, child.getNodeValue(), stringTable);
+					break;
+			}
+		}
+		out.writeByte(END);
+	}
+	
+	
+	/**
+	 * Writes the index of the given string (-1: null); strings not written 
+	 * before are appended to the table and followed by their UTF-8 bytes.
+	 */
+	private static void writeString(DataOutputStream out, String string, HashMap<String, Integer> stringTable) 
+			throws IOException
+	{
+		if(string == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		
+		Integer index = stringTable.get(string);
+		if(index != null)
+		{
+			out.writeInt(index);
+			return;
+		}
+		
+		out.writeInt(stringTable.size());
+		stringTable.put(string, stringTable.size());
+		
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	
+	private static String readString(DataInputStream in, ArrayList<String> stringTable) throws IOException
+	{
+		int index = in.readInt();
+		if(index < 0)
+			return null;
+		
+		if(index < stringTable.size())
+			return stringTable.get(index);
+		
+		if(index != stringTable.size())
+			throw new IOException("Invalid string index " + index);
+		
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		String string = new String(bytes, StandardCharsets.UTF_8);
+		stringTable.add(string);
+		return string;
+	}
+	
+	
+	private static void close(Closeable stream)
+	{
+		try {
+			if(stream != null)
+				stream.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -24,9 +24,21 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.InvalidPropertiesFormatException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -81,6 +93,28 @@ public class DrivingTaskDataQuery
     private Document task;
     private boolean verbose = true;
 	private boolean isValid = false;
+	
+	// max. number of compiled expressions per thread (queries containing indices are rarely repeated)
+	private static final int MAX_CACHED_EXPRESSIONS = 10000;
+	private static final NamespaceContext namespaceContext = new DrivingTaskNamespaceContext();
+	private static final ThreadLocal<XPathEngine> xPathEngine = new ThreadLocal<XPathEngine>()
+	{
+		@Override
+		protected XPathEngine initialValue()
+		{
+			return new XPathEngine();
+		}
+	};
+	
+	// small pool shared by all driving tasks for validating the layers and running the loaders
+	private static final int LOADER_THREADS = Math.max(2, Math.min(Layer.values().length, 
+			Runtime.getRuntime().availableProcessors()));
+	private static ExecutorService loaderPool = null;
+	
+	// number of queries, compiled expressions and evaluation time (ns) per layer
+	private AtomicLongArray queryCount = new AtomicLongArray(Layer.values().length);
+	private AtomicLongArray compileCount = new AtomicLongArray(Layer.values().length);
+	private AtomicLongArray queryTime = new AtomicLongArray(Layer.values().length);
     
     
     public static enum Layer 
@@ -113,28 +147,33 @@ public class DrivingTaskDataQuery
 			
 			// look up path names for scene, scenario, interaction and settings files
 			lookupPathNames(pathToPropertiesFile);
+			
+			// validate and parse all files concurrently (layers do not depend on each other)
+			Future<Document> sceneFuture = submitValidation(scenePath, sceneSchema);
+			Future<Document> scenarioFuture = submitValidation(scenarioPath, scenarioSchema);
+			Future<Document> interactionFuture = submitValidation(interactionPath, interactionSchema);
+			Future<Document> settingsFuture = submitValidation(settingsPath, settingsSchema);
+			Future<Document> taskFuture = null;
+			if((new File(taskPath)).exists())
+				taskFuture = submitValidation(taskPath, taskSchema);
 	        
-	        // validate scene file
+	        // collect results in the original order to report the first invalid file
 			errorMsg = "File '" + pathToPropertiesFile + "'\npoints to an invalid scene file: " + scenePath;
-			scene = validateFile(scenePath, sceneSchema);
+			scene = awaitTask(sceneFuture);
 			
-			// validate scenario file
 			errorMsg = "File '" + pathToPropertiesFile + "'\npoints to an invalid scenario file: " + scenarioPath;
-	        scenario = validateFile(scenarioPath, scenarioSchema);
+	        scenario = awaitTask(scenarioFuture);
 	        
-	        // validate interaction file
 	        errorMsg = "File '" + pathToPropertiesFile + "'\npoints to an invalid interaction file: " + interactionPath;
-	        interaction = validateFile(interactionPath, interactionSchema);
+	        interaction = awaitTask(interactionFuture);
 	        
-	        // validate settings file
 	        errorMsg = "File '" + pathToPropertiesFile + "'\npoints to an invalid settings file: " + settingsPath;
-	        settings = validateFile(settingsPath, settingsSchema);
+	        settings = awaitTask(settingsFuture);
 	        
-	        // validate task file
-	        if((new File(taskPath)).exists())
+	        if(taskFuture != null)
 	        {
 	        	errorMsg = "File '" + pathToPropertiesFile + "'\npoints to an invalid task file: " + taskPath;
-	        	task = validateFile(taskPath, taskSchema);
+	        	task = awaitTask(taskFuture);
 	        }
 	        else
 	        	task = newEmptyDocument();
@@ -149,6 +188,104 @@ public class DrivingTaskDataQuery
     }
 	
 	
+	private Future<Document> submitValidation(final String filePath, final String schemaSource)
+	{
+		return submitLoaderTask(new Callable<Document>()
+		{
+			public Document call() throws Exception
+			{
+				return validateFile(filePath, schemaSource);
+			}
+		});
+	}
+	
+	
+	/**
+	 * Runs the given task on the loader pool. Tasks submitted by a thread of 
+	 * the pool itself will be run immediately, as waiting for them could block 
+	 * all threads of the pool.
+	 * 
+	 * @param task
+	 * 			Task to run.
+	 * 
+	 * @return
+	 * 			Future providing the result of the task.
+	 */
+	public static <T> Future<T> submitLoaderTask(Callable<T> task)
+	{
+		FutureTask<T> future = new FutureTask<T>(task);
+		
+		if(Thread.currentThread() instanceof LoaderThread)
+			future.run();
+		else
+			getLoaderPool().execute(future);
+		
+		return future;
+	}
+	
+	
+	/**
+	 * Waits for the given loader task. Exceptions thrown by the task will be 
+	 * re-thrown as if the task had been run by the calling thread.
+	 * 
+	 * @param future
+	 * 			Future of the task.
+	 * 
+	 * @return
+	 * 			Result of the task.
+	 */
+	public static <T> T awaitTask(Future<T> future)
+	{
+		try {
+			
+			return future.get();
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+			
+		} catch (ExecutionException e) {
+			
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if(cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+	
+	
+	private static synchronized ExecutorService getLoaderPool()
+	{
+		if(loaderPool == null)
+		{
+			loaderPool = Executors.newFixedThreadPool(LOADER_THREADS, new ThreadFactory()
+			{
+				private AtomicInteger threadCount = new AtomicInteger(0);
+				
+				public Thread newThread(Runnable runnable)
+				{
+					return new LoaderThread(runnable, "DrivingTaskLoader-" + threadCount.incrementAndGet());
+				}
+			});
+		}
+		
+		return loaderPool;
+	}
+	
+	
+	private static class LoaderThread extends Thread
+	{
+		public LoaderThread(Runnable runnable, String name)
+		{
+			super(runnable, name);
+			setDaemon(true);
+		}
+	}
+	
+	
 	private Document newEmptyDocument()
 	{
 		try {
@@ -447,29 +584,119 @@ public class DrivingTaskDataQuery
 	
 	public Object xPathQuery(Layer layer, String query, QName xPathConst) 
     {
+		long startTime = System.nanoTime();
+		
         try {
 
-            final XPath xpath = XPathFactory.newInstance().newXPath();
-            
-            NamespaceContext nsContext = new DrivingTaskNamespaceContext();
-            xpath.setNamespaceContext(nsContext);
-
             if (!query.startsWith("/")) {
                 query = "/" + layer.toString() + ":" + layer.toString() + "/" + query;
             }
 
-            final XPathExpression expr = xpath.compile(query);
+            XPathEngine engine = xPathEngine.get();
+            XPathExpression expr = engine.getExpression(layer, query);
+            if (expr == null) {
+            	expr = engine.compile(layer, query);
+            	compileCount.incrementAndGet(layer.ordinal());
+            }
+            
             Document document = lookUpSource(layer);
             return expr.evaluate(document, xPathConst);
 
         } catch (XPathExpressionException ex) {
             Logger.getLogger(DrivingTaskDataQuery.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+        	queryCount.incrementAndGet(layer.ordinal());
+        	queryTime.addAndGet(layer.ordinal(), System.nanoTime() - startTime);
         }
         
         return null;
     }
 	
 	
+	/**
+	 * XPath object and compiled expressions of a single thread, as neither of 
+	 * them may be used by several threads at the same time. Expressions are
+	 * independent of the documents, so they are shared by all instances of 
+	 * <code>DrivingTaskDataQuery</code>.
+	 */
+	private static class XPathEngine
+	{
+		private XPath xpath;
+		private EnumMap<Layer, HashMap<String, XPathExpression>> expressionMap = 
+				new EnumMap<Layer, HashMap<String, XPathExpression>>(Layer.class);
+		private int expressionCount = 0;
+		
+		
+		private XPathEngine()
+		{
+			xpath = XPathFactory.newInstance().newXPath();
+			xpath.setNamespaceContext(namespaceContext);
+			
+			for(Layer layer : Layer.values())
+				expressionMap.put(layer, new HashMap<String, XPathExpression>());
+		}
+		
+		
+		private XPathExpression getExpression(Layer layer, String query)
+		{
+			return expressionMap.get(layer).get(query);
+		}
+		
+		
+		private XPathExpression compile(Layer layer, String query) throws XPathExpressionException
+		{
+			XPathExpression expression = xpath.compile(query);
+			
+			if(expressionCount < MAX_CACHED_EXPRESSIONS)
+			{
+				expressionMap.get(layer).put(query, expression);
+				expressionCount++;
+			}
+			
+			return expression;
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of XPath queries, the number of compiled expressions 
+	 * (cache misses) and the total evaluation time of each layer.
+	 * 
+	 * @return
+	 * 			Query statistics, e.g. "scene: 1200 queries (300 compiled), 45.2 ms; ..."
+	 */
+	public String getQueryStatistics()
+	{
+		StringBuilder builder = new StringBuilder();
+		for(Layer layer : Layer.values())
+		{
+			int index = layer.ordinal();
+			if(builder.length() > 0)
+				builder.append("; ");
+			
+			builder.append(String.format(Locale.ENGLISH, "%s: %d queries (%d compiled), %.1f ms", layer, 
+					queryCount.get(index), compileCount.get(index), queryTime.get(index) / 1000000f));
+		}
+		return builder.toString();
+	}
+	
+	
+	public long getQueryCount(Layer layer)
+	{
+		return queryCount.get(layer.ordinal());
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Total evaluation time (ms) of all queries to the given layer.
+	 */
+	public float getQueryTime(Layer layer)
+	{
+		return queryTime.get(layer.ordinal()) / 1000000f;
+	}
+	
+	
 	private Document lookUpSource(Layer layer) 
 	{
 		Document source;
@@ -532,6 +759,12 @@ public class DrivingTaskDataQuery
 	{
 		File file = new File(filePath);
 		
+		// reuse the DOM of an earlier run if neither file nor schema has changed
+		String cacheKey = DrivingTaskCache.getKey(file, schemaSource);
+		Document cachedDocument = DrivingTaskCache.load(cacheKey);
+		if(cachedDocument != null)
+			return cachedDocument;
+		
 		// create new DocumentBuilderFactory and set validation properties
 		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 		
@@ -548,7 +781,9 @@ public class DrivingTaskDataQuery
 		builder.setErrorHandler(new DrivingTaskErrorHandler(file.getName())); 
 		
 		// parse and validate driving task file
-		return builder.parse(file);
+		Document document = builder.parse(file);
+		DrivingTaskCache.store(cacheKey, document);
+		return document;
 	}
 	
 	
@@ -302,9 +302,10 @@ public class InteractionLoader
 					// trigger action
 					List<TriggerAction> triggerActionList = getTriggerActionList(triggerDescription);
 						
-					if(!triggerActionList.isEmpty())
+					// no input manager in headless mode
+					InputManager inputManager = sim.getInputManager();
+					if(!triggerActionList.isEmpty() && inputManager != null)
 					{
-						InputManager inputManager = sim.getInputManager();
 						inputManager.addMapping(triggerName, new KeyTrigger(keyNumber));
 						inputManager.addListener(new KeyActionListener(triggerActionList, triggerName), triggerName);
 					}
@@ -332,9 +333,10 @@ public class InteractionLoader
 					// trigger action
 					List<TriggerAction> triggerActionList = getTriggerActionList(triggerDescription);
 						
-					if(!triggerActionList.isEmpty())
+					// no input manager in headless mode
+					InputManager inputManager = sim.getInputManager();
+					if(!triggerActionList.isEmpty() && inputManager != null)
 					{
-						InputManager inputManager = sim.getInputManager();
 						inputManager.addMapping(triggerName, new JoyButtonTrigger(0,buttonNumber));
 						inputManager.addListener(new KeyActionListener(triggerActionList, triggerName), triggerName);
 					}
@@ -410,9 +412,10 @@ public class InteractionLoader
 					// trigger action
 					List<TriggerAction> triggerActionList = getTriggerActionList(triggerDescription);
 						
-					if(!triggerActionList.isEmpty())
+					// no input manager in headless mode
+					InputManager inputManager = sim.getInputManager();
+					if(!triggerActionList.isEmpty() && inputManager != null)
 					{
-						InputManager inputManager = sim.getInputManager();
 						inputManager.addMapping(triggerName + "Up", new JoyAxisTrigger(controllerID, axis, invertAxis));
 				    	inputManager.addMapping(triggerName + "Down", new JoyAxisTrigger(controllerID, axis, !invertAxis));
 						inputManager.addListener(new AxisAnalogListener(triggerActionList, triggerName, triggeringThreshold, sensitivityFactor), 
@@ -1748,7 +1748,7 @@ public class InteractionMethods
 				timestamp = Boolean.parseBoolean(timeString);
 	
 			// create ReportTextTriggerAction
-			return new ReportTextTriggerAction(delay, repeat, text, timestamp);
+			return new ReportTextTriggerAction(delay, repeat, text, timestamp, (Simulator)sim);
 			
 		} catch (Exception e) {
 			
@@ -1935,7 +1935,7 @@ public class InteractionMethods
 			}
 			
 			// create ReportSpeedTriggerAction
-			return new ReportTrafficLightTriggerAction(delay, repeat, trafficLightID, trafficLightState);
+			return new ReportTrafficLightTriggerAction(delay, repeat, trafficLightID, trafficLightState, (Simulator)sim);
 			
 		} catch (Exception e) {
 			
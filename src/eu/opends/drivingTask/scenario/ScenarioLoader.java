@@ -40,7 +40,6 @@ import eu.opends.basics.MapObject;
 import eu.opends.basics.SimulationBasics;
 import eu.opends.cameraFlight.CameraFlightSettings;
 import eu.opends.car.ResetPosition;
-import eu.opends.drivingTask.DrivingTask;
 import eu.opends.drivingTask.DrivingTaskDataQuery;
 import eu.opends.drivingTask.DrivingTaskDataQuery.Layer;
 import eu.opends.drivingTask.scene.SceneLoader;
@@ -56,7 +55,6 @@ import eu.opends.main.Simulator;
 import eu.opends.traffic.FollowBoxSettings;
 import eu.opends.traffic.PedestrianData;
 import eu.opends.traffic.AnimatedRoadSignData;
-import eu.opends.traffic.PhysicalTraffic;
 import eu.opends.traffic.TrafficCarData;
 import eu.opends.traffic.Waypoint;
 
@@ -82,6 +80,9 @@ public class ScenarioLoader
 	private Map<String, IdealTrackContainer> idealTrackMap = new HashMap<String, IdealTrackContainer>();
 	private List<Intersection> intersectionList = new ArrayList<Intersection>();
 	private List<TrafficLight> globalTrafficLightList = new ArrayList<TrafficLight>();
+	private ArrayList<TrafficCarData> vehicleDataList = new ArrayList<TrafficCarData>();
+	private ArrayList<PedestrianData> pedestrianDataList = new ArrayList<PedestrianData>();
+	private ArrayList<AnimatedRoadSignData> animatedRoadSignDataList = new ArrayList<AnimatedRoadSignData>();
 	private Matrix modelToGeoMatrix;
 	private Matrix geoToModelMatrix;
 	
@@ -125,12 +126,27 @@ public class ScenarioLoader
 	}
 	
 
-	public ScenarioLoader(DrivingTaskDataQuery dtData, SimulationBasics sim, DrivingTask drivingTask) 
+	/**
+	 * Reads the scenario layer. Only points and reset points of the given scene 
+	 * loader are needed, so the scene's map objects may still be loading. The 
+	 * driver's car has to be extracted by calling <code>processSceneCar()</code> 
+	 * after the map objects have been created.
+	 * 
+	 * @param dtData
+	 * 			Driving task data query
+	 * 
+	 * @param sim
+	 * 			Simulator or Analyzer
+	 * 
+	 * @param sceneLoader
+	 * 			Scene loader providing points and reset points
+	 */
+	public ScenarioLoader(DrivingTaskDataQuery dtData, SimulationBasics sim, SceneLoader sceneLoader) 
 	{
 		this.dtData = dtData;
 		this.sim = sim;
-		this.sceneLoader = drivingTask.getSceneLoader();
-		processSceneCar();
+		this.sceneLoader = sceneLoader;
+		extractResetPoints();
 		extractTraffic();
 		extractCameraFlight();
 		extractConversionMatrices();
@@ -143,7 +159,12 @@ public class ScenarioLoader
 	}
 
 
-	private void processSceneCar() 
+	/**
+	 * Looks up the driver's car in the map objects of the scene and removes it 
+	 * from there. Must not be called before <code>SceneLoader.createMapObjects()</code> 
+	 * has finished.
+	 */
+	public void processSceneCar() 
 	{
 		String driverCarRef = dtData.getValue(Layer.SCENARIO, 
 					"/scenario:scenario/scenario:driver/scenario:car/@ref", String.class);
@@ -164,8 +185,6 @@ public class ScenarioLoader
 		
 		if(sceneCar != null)
 			sceneLoader.getMapObjects().remove(sceneCar);
-		
-		extractResetPoints();
 	}
 	
 	
@@ -302,7 +321,29 @@ public class ScenarioLoader
 	
 	
 	private void extractIdealLine()
-	{		
+	{
+		idealTrackMap = extractIdealTracks(dtData, sceneLoader.getPointMap());
+	}
+	
+	
+	/**
+	 * Reads all ideal tracks of the scenario layer. Does not need a running 
+	 * simulation, e.g. for headless analysis of recordings.
+	 * 
+	 * @param dtData
+	 * 			Driving task data.
+	 * 
+	 * @param pointMap
+	 * 			Points of the scene layer (referenced by ideal points).
+	 * 
+	 * @return
+	 * 			Map of ideal track IDs and ideal tracks.
+	 */
+	public static Map<String, IdealTrackContainer> extractIdealTracks(DrivingTaskDataQuery dtData, 
+			Map<String, Vector3f> pointMap)
+	{
+		Map<String, IdealTrackContainer> idealTrackMap = new HashMap<String, IdealTrackContainer>();
+		
 		try {
 			
 			NodeList idealTrackNodes = (NodeList) dtData.xPathQuery(Layer.SCENARIO, 
@@ -330,8 +371,6 @@ public class ScenarioLoader
 						
 						String pointRef = dtData.getValue(Layer.SCENARIO, 
 								"/scenario:scenario/scenario:driver/scenario:idealTracks/scenario:idealTrack["+i+"]/scenario:point["+k+"]/@ref", String.class);
-		
-						Map<String, Vector3f> pointMap = sceneLoader.getPointMap();
 						
 						if(point != null)
 						{
@@ -381,6 +420,8 @@ public class ScenarioLoader
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		
+		return idealTrackMap;
 	}
 	
 	
@@ -408,7 +449,7 @@ public class ScenarioLoader
 	 * 			currentIdealPoint) with distance MAX_DISTANCE_BETWEEN_TWO_IDEAL_POINTS
 	 * 			from previousIdealPoint.
 	 */
-	private Vector2f createIdealPoint(Vector2f previousIdealPoint,	Vector2f currentIdealPoint)
+	private static Vector2f createIdealPoint(Vector2f previousIdealPoint,	Vector2f currentIdealPoint)
 	{
 		// difference in x- and y-coordinates between previous and current ideal point
 		float diffX = currentIdealPoint.x - previousIdealPoint.x;
@@ -759,7 +800,7 @@ public class ScenarioLoader
 				TrafficCarData trafficCarData = new TrafficCarData(name, mass, acceleration, decelerationBrake, 
 						decelerationFreeWheel, engineOn, modelPath, new FollowBoxSettings(wayPoints, minDistance, maxDistance, 
 						curveTension, pathIsCycle, pathIsVisible, startWayPoint), isSpeedLimitedToSteeringCar, hazardLights);
-				PhysicalTraffic.getVehicleDataList().add(trafficCarData);
+				vehicleDataList.add(trafficCarData);
 			}
 			
 		} catch (Exception e) {
@@ -947,7 +988,7 @@ public class ScenarioLoader
 				PedestrianData pedestrianData = new PedestrianData(name, enabled, mass, animationStand, animationWalk, 
 						localScale, localTranslation, localRotation, modelPath, new FollowBoxSettings(wayPoints, minDistance,
 						maxDistance, curveTension, pathIsCycle, pathIsVisible, startWayPoint));
-				PhysicalTraffic.getPedestrianDataList().add(pedestrianData);
+				pedestrianDataList.add(pedestrianData);
 			}
 			
 		} catch (Exception e) {
@@ -1039,7 +1080,7 @@ public class ScenarioLoader
 
 				AnimatedRoadSignData animatedRoadSignData = new AnimatedRoadSignData(name, mass, animationBlink, 
 						localScale, localTranslation, localRotation, modelPath);
-				PhysicalTraffic.getAnimatedRoadSignDataList().add(animatedRoadSignData);
+				animatedRoadSignDataList.add(animatedRoadSignData);
 			}
 			
 		} catch (Exception e) {
@@ -1441,6 +1482,24 @@ public class ScenarioLoader
 	{
 		return globalTrafficLightList;
 	}
+	
+	
+	public ArrayList<TrafficCarData> getVehicleDataList()
+	{
+		return vehicleDataList;
+	}
+	
+	
+	public ArrayList<PedestrianData> getPedestrianDataList()
+	{
+		return pedestrianDataList;
+	}
+	
+	
+	public ArrayList<AnimatedRoadSignData> getAnimatedRoadSignDataList()
+	{
+		return animatedRoadSignDataList;
+	}
 
 
 	// extract FollowBox settings of driving car
@@ -0,0 +1,43 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.drivingTask.scene;
+
+/**
+ * Listener notified about the progress of loading the models of a scene
+ * (e.g. to update a loading screen). Will be called by the thread loading 
+ * the driving task, which is not necessarily the render thread.
+ *
+ * @author Rafael Math
+ */
+public interface ModelLoadingListener
+{
+	/**
+	 * Invoked after a model has been loaded (or failed to load).
+	 * 
+	 * @param modelName
+	 * 			Name of the model.
+	 * 
+	 * @param loadedModels
+	 * 			Number of models processed so far.
+	 * 
+	 * @param totalModels
+	 * 			Number of models of the scene.
+	 */
+	public void onModelLoaded(String modelName, int loadedModels, int totalModels);
+}
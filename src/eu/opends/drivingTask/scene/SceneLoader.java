@@ -23,6 +23,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import javax.xml.xpath.XPathConstants;
 
@@ -93,6 +96,50 @@ public class SceneLoader
 	private String wheelBackRight;
 	private String instrumentCluster;
 	
+	private ModelLoadingListener loadingProgressListener = null;
+	
+	
+	/**
+	 * Properties of a model read from the driving task. Model file and material 
+	 * will be loaded by a worker thread.
+	 */
+	private static class ModelDescription
+	{
+		private String name;
+		private String spatialURL;
+		private Spatial spatial = null;
+		private String materialKey = null;
+		private ColorRGBA color = null;
+		private Float mass = 0f;
+		private Boolean visible = true;
+		private String collisionShape = null;
+		private Vector2f textureScale = null;
+		private Vector3f scale = new Vector3f(1,1,1);
+		private Quaternion rotation = null;
+		private Vector3f translation = null;
+		private String collisionSound = null;
+		private List<ColorRGBA> ambientLightColors = new ArrayList<ColorRGBA>();
+		private ShadowMode shadowMode = null;
+		
+		
+		private ModelDescription(String name)
+		{
+			this.name = name;
+		}
+	}
+	
+	
+	/**
+	 * Reads geometries, points and reset points of the scene layer. Map objects 
+	 * (models) are loaded separately by calling <code>createMapObjects()</code>, 
+	 * as other layers only depend on the points.
+	 * 
+	 * @param dtData
+	 * 			Driving task data query
+	 * 
+	 * @param sim
+	 * 			Simulator or Analyzer
+	 */
 	public SceneLoader(DrivingTaskDataQuery dtData, SimulationBasics sim) 
 	{
 		this.dtData = dtData;
@@ -102,7 +149,6 @@ public class SceneLoader
 		getGeometries(new String[]{"box", "sphere", "cylinder", "terrain"});
 		getPoints();
 		getResetPoints();
-		createMapObjects();
 	}
 	
 	public String getChassis(){
@@ -458,6 +504,19 @@ public class SceneLoader
 	}
 	
 
+	/**
+	 * Sets a listener which will be notified whenever a model has been loaded
+	 * by <code>createMapObjects()</code> (e.g. to show the progress).
+	 * 
+	 * @param listener
+	 * 			Listener to notify (null to remove).
+	 */
+	public void setModelLoadingListener(ModelLoadingListener listener)
+	{
+		this.loadingProgressListener = listener;
+	}
+	
+	
 	public List<MapObject> getMapObjects()
 	{
 		return mapObjectsList;
@@ -504,6 +563,9 @@ public class SceneLoader
 
 		
 		
+		// read all model descriptions first (DOM is not thread-safe)
+		List<ModelDescription> descriptionList = new ArrayList<ModelDescription>();
+		
 		try {
 			
 			NodeList modelNodes = (NodeList) dtData.xPathQuery(Layer.SCENE, 
@@ -514,8 +576,6 @@ public class SceneLoader
 				Node currentNode = modelNodes.item(k-1);
 				
 				// get name
-				//String name = dtData.getValue(Layer.SCENE, 
-				//		"/scene:scene/scene:models/scene:model["+k+"]/@id", String.class);
 				String name = currentNode.getAttributes().getNamedItem("id").getNodeValue();
 				
 				
@@ -543,44 +603,27 @@ public class SceneLoader
 				} catch (Exception e){
 					e.printStackTrace();
 				}
+				
+				ModelDescription description = new ModelDescription(name);
 			
-				// get spatial model
-				Spatial spatial = null;
-				//String spatialURL = dtData.getValue(Layer.SCENE, 
-				//		"/scene:scene/scene:models/scene:model["+k+"]/@key", String.class);
-				String spatialURL = currentNode.getAttributes().getNamedItem("key").getNodeValue();
+				// get spatial model (model files will be loaded in parallel later)
+				description.spatialURL = currentNode.getAttributes().getNamedItem("key").getNodeValue();
 
-				if((spatialURL != null) && (!spatialURL.equals("")))
+				if((description.spatialURL == null) || (description.spatialURL.equals("")))
 				{
-					spatial = assetManager.loadModel(spatialURL);
-				}
-				else
-				{
-					//String geometryRef = dtData.getValue(Layer.SCENE, 
-					//		"/scene:scene/scene:models/scene:model["+k+"]/@ref", String.class);
 					String geometryRef = currentNode.getAttributes().getNamedItem("ref").getNodeValue();
 
 					if((geometryRef != null) && (geometryMap.containsKey(geometryRef)))
 					{
 						// get pre-defined shape (!!! clone() causes errors with multiple terrains !!!)
-						spatial = geometryMap.get(geometryRef).deepClone();
+						description.spatial = geometryMap.get(geometryRef).deepClone();
 					}
 					else
 						throw new Exception("No spatial available for model '" + name + "'");
 				}
-				
-
 
 				NodeList childnodes = currentNode.getChildNodes();
 				
-				Float mass = null;
-				Boolean visible = null;
-				String collisionShape = null;
-				Vector3f scale = null;
-				Quaternion rotation = null;
-				Vector3f translation = null;
-				String collisionSound = null;
-				
 				for (int j = 1; j <= childnodes.getLength(); j++) 
 				{
 					Node currentChild = childnodes.item(j-1);
@@ -588,10 +631,6 @@ public class SceneLoader
 					// get material + color
 					if(currentChild.getNodeName().equals("material"))
 					{
-						// get material
-						//String materialFile = dtData.getValue(Layer.SCENE,
-						//		"/scene:scene/scene:models/scene:model["+k+"]/scene:material/@key", String.class);
-						
 						Node materialNode = currentChild.getAttributes().getNamedItem("key");
 						String matInstance = null;
 						if(materialNode != null)
@@ -599,8 +638,7 @@ public class SceneLoader
 
 						if(matInstance != null && !matInstance.equalsIgnoreCase(""))
 						{
-							Material material = assetManager.loadMaterial(matInstance);
-							spatial.setMaterial(material);
+							description.materialKey = matInstance;
 						}
 						else
 						{
@@ -613,14 +651,8 @@ public class SceneLoader
 								{
 									// get color
 									ColorRGBA color = getColorRGBA(currentMaterialChild);
-	
-									if(color != null && spatial != null)
-									{
-										String matDefinition = "Common/MatDefs/Misc/Unshaded.j3md";
-										Material material = new Material(sim.getAssetManager(), matDefinition);
-										material.setColor("Color", color);
-										spatial.setMaterial(material);
-									}
+									if(color != null)
+										description.color = color;
 								}
 							}
 						}
@@ -628,103 +660,169 @@ public class SceneLoader
 					
 					else if(currentChild.getNodeName().equals("mass"))
 					{
-						mass = Float.parseFloat(currentChild.getTextContent());
+						description.mass = Float.parseFloat(currentChild.getTextContent());
 					}
 					
 					else if(currentChild.getNodeName().equals("visible"))
 					{
-						visible = Boolean.parseBoolean(currentChild.getTextContent());
+						description.visible = Boolean.parseBoolean(currentChild.getTextContent());
 					}
 					
 					else if(currentChild.getNodeName().equals("collisionShape"))
 					{
-						collisionShape = currentChild.getTextContent();
+						description.collisionShape = currentChild.getTextContent();
 					}
 					
 					else if(currentChild.getNodeName().equals("textureScale"))
 					{
-						Vector2f textureScale = getVector2f(currentChild);
-						
-						for(Geometry g : Util.getAllGeometries(spatial))
-						{
-							g.getMesh().scaleTextureCoordinates(textureScale);
-							break;
-						}
+						description.textureScale = getVector2f(currentChild);
 					}
 					
 					else if(currentChild.getNodeName().equals("scale"))
 					{
-						scale = getVector3f(currentChild);
+						description.scale = getVector3f(currentChild);
 					}
 					
 					else if(currentChild.getNodeName().equals("rotation"))
 					{
-						rotation = getQuaternion(currentChild);
+						description.rotation = getQuaternion(currentChild);
 					}
 					
 					else if(currentChild.getNodeName().equals("translation"))
 					{
-						translation = getVector3f(currentChild);
+						description.translation = getVector3f(currentChild);
 					}
 					
 					else if(currentChild.getNodeName().equals("collisionSound"))
 					{
-						collisionSound = currentChild.getAttributes().getNamedItem("ref").getNodeValue();
+						description.collisionSound = currentChild.getAttributes().getNamedItem("ref").getNodeValue();
 					}
 					
 					else if(currentChild.getNodeName().equals("ambientLight"))
 					{
-						// add ambient light to current spatial
-						if(spatial != null)
+						NodeList lightnodes = currentChild.getChildNodes();
+						for (int z = 1; z <= lightnodes.getLength(); z++) 
 						{
-							NodeList lightnodes = currentChild.getChildNodes();
-							for (int z = 1; z <= lightnodes.getLength(); z++) 
-							{
-								Node lightChild = lightnodes.item(z-1);
-								if(lightChild.getNodeName().equals("color"))
-								{
-									AmbientLight ambientLight = new AmbientLight();
-							        ColorRGBA color = getColorRGBA(lightChild);
-							        ambientLight.setColor(color);
-							        spatial.addLight(ambientLight);
-								}
-							}
+							Node lightChild = lightnodes.item(z-1);
+							if(lightChild.getNodeName().equals("color"))
+								description.ambientLightColors.add(getColorRGBA(lightChild));
 						}
 					}
 					
 					else if(currentChild.getNodeName().equals("shadowMode"))
 					{
-						// add shadow mode to current spatial
-						if(spatial != null)
-						{
-							ShadowMode shadowMode = getShadowMode(currentChild);
-							spatial.setShadowMode(shadowMode);							
-						}
+						description.shadowMode = getShadowMode(currentChild);
 					}
 				}
-
-				if(mass == null)
-					mass = 0f;
 				
-				if(visible == null)
-					visible = true;
-				
-				if(scale == null)
-					scale = new Vector3f(1,1,1);
-				
-				// build map object
-				if((name != null) && (spatial != null) && (translation != null) && (rotation != null) && 
-						(collisionShape != null))
-				{
-					MapObject mapObject = new MapObject(name, spatial, translation, rotation, scale,
-							visible, collisionShape, mass, spatialURL, collisionSound);
-					mapObjectsList.add(mapObject);
-				}
+				descriptionList.add(description);
 			}
 			
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		
+		loadModels(descriptionList);
+	}
+	
+	
+	/**
+	 * Loads model files and materials of the given models in parallel and adds 
+	 * the resulting map objects (in order of the driving task) to the list of 
+	 * map objects. Only spatials not yet attached to the scene graph are created 
+	 * here; attaching them and adding physics is done by the render thread 
+	 * (see <code>InternalMapProcessing</code>).
+	 * 
+	 * @param descriptionList
+	 * 			Models read from the driving task.
+	 */
+	private void loadModels(List<ModelDescription> descriptionList)
+	{
+		List<ForkJoinTask<MapObject>> futureList = new ArrayList<ForkJoinTask<MapObject>>();
+		for(final ModelDescription description : descriptionList)
+		{
+			futureList.add(ForkJoinPool.commonPool().submit(new Callable<MapObject>() {
+				public MapObject call() throws Exception
+				{
+					return createMapObject(description);
+				}
+			}));
+		}
+		
+		for(int i=0; i<futureList.size(); i++)
+		{
+			try {
+				
+				MapObject mapObject = futureList.get(i).get();
+				if(mapObject != null)
+					mapObjectsList.add(mapObject);
+				
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			
+			if(loadingProgressListener != null)
+				loadingProgressListener.onModelLoaded(descriptionList.get(i).name, i+1, futureList.size());
+		}
+	}
+	
+	
+	private MapObject createMapObject(ModelDescription description)
+	{
+		Spatial spatial = description.spatial;
+		if(spatial == null)
+			spatial = assetManager.loadModel(description.spatialURL);
+		
+		if(description.materialKey != null)
+		{
+			Material material = assetManager.loadMaterial(description.materialKey);
+			spatial.setMaterial(material);
+		}
+		else if(description.color != null)
+		{
+			String matDefinition = "Common/MatDefs/Misc/Unshaded.j3md";
+			Material material = new Material(assetManager, matDefinition);
+			material.setColor("Color", description.color);
+			spatial.setMaterial(material);
+		}
+		
+		if(description.textureScale != null)
+		{
+			for(Geometry g : Util.getAllGeometries(spatial))
+			{
+				// models from the asset cache share their mesh with other map objects 
+				// (possibly created in parallel): scale a copy of the texture coordinates
+				g.setMesh(g.getMesh().deepClone());
+				g.getMesh().scaleTextureCoordinates(description.textureScale);
+				break;
+			}
+		}
+		
+		// add ambient light to current spatial
+		for(ColorRGBA color : description.ambientLightColors)
+		{
+			AmbientLight ambientLight = new AmbientLight();
+	        ambientLight.setColor(color);
+	        spatial.addLight(ambientLight);
+		}
+		
+		// add shadow mode to current spatial
+		if(description.shadowMode != null)
+			spatial.setShadowMode(description.shadowMode);
+		
+		// invalid <scale> element: keep original size
+		Vector3f scale = (description.scale == null ? new Vector3f(1,1,1) : description.scale);
+		
+		// build map object
+		if((description.name != null) && (description.translation != null) && (description.rotation != null) && 
+				(description.collisionShape != null))
+		{
+			return new MapObject(description.name, spatial, description.translation, description.rotation, 
+					scale, description.visible, description.collisionShape, description.mass, 
+					description.spatialURL, description.collisionSound);
+		}
+		
+		return null;
 	}
 
 
@@ -1156,6 +1254,24 @@ public class SceneLoader
 
 	public void getPoints()
 	{	
+		pointMap.putAll(extractPoints(dtData));
+	}
+	
+	
+	/**
+	 * Reads all points of the scene layer. Does not need a running simulation,
+	 * e.g. for headless analysis of recordings.
+	 * 
+	 * @param dtData
+	 * 			Driving task data.
+	 * 
+	 * @return
+	 * 			Map of point IDs and translations.
+	 */
+	public static Map<String, Vector3f> extractPoints(DrivingTaskDataQuery dtData)
+	{
+		Map<String, Vector3f> pointMap = new HashMap<String, Vector3f>();
+		
 		NodeList pointNodes = (NodeList) dtData.xPathQuery(Layer.SCENE, 
 				"/scene:scene/scene:geometries/scene:point", XPathConstants.NODESET);
 
@@ -1165,12 +1281,14 @@ public class SceneLoader
 					"/scene:scene/scene:geometries/scene:point" + "["+k+"]/@id", String.class);
 
 			if(pointID != null)
-				addPoint("/scene:scene/scene:geometries/scene:point" + "["+k+"]");
+				addPoint(dtData, "/scene:scene/scene:geometries/scene:point" + "["+k+"]", pointMap);
 		}
+		
+		return pointMap;
 	}
 	
 	
-	private void addPoint(String path) 
+	private static void addPoint(DrivingTaskDataQuery dtData, String path, Map<String, Vector3f> pointMap) 
 	{
 		String id = dtData.getValue(Layer.SCENE, path + "/@id", String.class);
 		Vector3f translation = dtData.getVector3f(Layer.SCENE, path + "/scene:translation");
@@ -20,6 +20,7 @@
 package eu.opends.drivingTask.settings;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +42,11 @@ public class SettingsLoader
 {
 	private DrivingTaskDataQuery dtData;
 	private Map<String,String[]> keyAssignmentMap = new HashMap<String,String[]>();
+	private Map<Setting,String> overrideMap = new EnumMap<Setting,String>(Setting.class);
+	
+	// string values of all settings (looked up once) and their typed values (converted on first access)
+	private String[] rawValues = new String[Setting.values().length];
+	private Object[] typedValues = new Object[Setting.values().length];
 
 	public enum Setting
 	{
@@ -95,6 +101,10 @@ public class SettingsLoader
 		HighPolygon_carModel("settings:shadowCarModel/settings:enableHighPolyCarModel"),
 		Analyzer_fileName("settings:analyzer/settings:fileName"),
 		Analyzer_suppressPDFPopup("settings:analyzer/settings:suppressPDFPopup"), 
+		Analyzer_recordingFormat("settings:analyzer/settings:recordingFormat"),
+		Analyzer_chunkDuration("settings:analyzer/settings:chunkDuration"),
+		Analyzer_channelSampleRate("settings:analyzer/settings:channelSampleRate"),
+		Analyzer_logFlushInterval("settings:analyzer/settings:logFlushInterval"),
 		ObjectLocator_enable("settings:objectLocator/settings:enable"),
 		ObjectLocator_fileName("settings:objectLocator/settings:fileName"),
 		HMI_enableConnection("settings:HMI/settings:enableConnection"),
@@ -117,6 +127,15 @@ public class SettingsLoader
 		CANInterface_port("settings:CANInterface/settings:port"),
 		CANInterface_updateRate("settings:CANInterface/settings:updateRate"),
 		CANInterface_maxSteeringAngle("settings:CANInterface/settings:maxSteeringAngle"),
+		CANInterface_protocol("settings:CANInterface/settings:protocol"),
+		ReplayDriver_enableReplay("settings:replayDriver/settings:enableReplay"),
+		ReplayDriver_file("settings:replayDriver/settings:file"),
+		Lockstep_enableServer("settings:lockstep/settings:enableServer"),
+		Lockstep_port("settings:lockstep/settings:port"),
+		Lockstep_timeStep("settings:lockstep/settings:timeStep"),
+		SharedMemory_enableConnection("settings:sharedMemory/settings:enableConnection"),
+		SharedMemory_file("settings:sharedMemory/settings:file"),
+		SharedMemory_maxTrafficObjects("settings:sharedMemory/settings:maxTrafficObjects"),
 		MultiDriver_enableConnection("settings:multiDriver/settings:enableConnection"),
 		MultiDriver_ip("settings:multiDriver/settings:ip"),
 		MultiDriver_port("settings:multiDriver/settings:port"),
@@ -205,6 +224,7 @@ public class SettingsLoader
 	public SettingsLoader(DrivingTaskDataQuery dtData) 
 	{
 		this.dtData = dtData;
+		reload();
 		loadKeyAssignments();
 		loadJoystickKeyAssignments();
 	}
@@ -345,9 +365,24 @@ public class SettingsLoader
 	
 
 	/**
-	 * Looks up the sub node (specified in parameter name) of the given element node
-	 * and writes the data to the global variable with the same name. If this was 
-	 * successful, the global variable "isSet_&lt;name&gt;" will be set to true. 
+	 * Looks up the values of all settings in settings.xml. Must be called again 
+	 * if the settings document has been changed at runtime.
+	 */
+	public void reload()
+	{
+		for(Setting setting : Setting.values())
+		{
+			int index = setting.ordinal();
+			rawValues[index] = (String) dtData.xPathQuery(Layer.SETTINGS, setting.getXPathQuery(), XPathConstants.STRING);
+			typedValues[index] = null;
+		}
+	}
+	
+	
+	/**
+	 * Returns the value of the given setting. The value will be converted to the
+	 * type of the default value on first access; further calls only look up the
+	 * converted value.
 	 * 
 	 * @param <T>
 	 * 			Type of property to look up.
@@ -366,12 +401,25 @@ public class SettingsLoader
 		try {
 			
 			Class<T> cast = (Class<T>) defaultValue.getClass();
-			T returnvalue = (T) dtData.getValue(Layer.SETTINGS, setting.getXPathQuery(), cast);
 			
-			if(returnvalue == null)
-				returnvalue = defaultValue;
+			// same type as requested before
+			int index = setting.ordinal();
+			Object value = typedValues[index];
+			if(value != null && value.getClass() == cast)
+				return (T) value;
+			
+			// values given on the command line take precedence over settings.xml
+			String overrideValue = overrideMap.get(setting);
+			if(overrideValue != null)
+				value = cast.getConstructor(String.class).newInstance(overrideValue);
+			else
+				value = convert(rawValues[index], cast);
+			
+			if(value == null)
+				return defaultValue;
 			
-			return returnvalue;
+			typedValues[index] = value;
+			return (T) value;
 
 		} catch (Exception e2) {
 			dtData.reportInvalidValueError(setting.toString(), dtData.getSettingsPath());
@@ -381,6 +429,49 @@ public class SettingsLoader
 	}
 	
 	
+	/**
+	 * Replaces the value of the given setting in settings.xml (e.g. to run the
+	 * same driving task with different parameters in batch mode).
+	 * 
+	 * @param setting
+	 * 			Setting to override.
+	 * 
+	 * @param value
+	 * 			String representation of the new value (null: use settings.xml).
+	 */
+	public void setOverride(Setting setting, String value)
+	{
+		if(value == null)
+			overrideMap.remove(setting);
+		else
+			overrideMap.put(setting, value);
+		
+		typedValues[setting.ordinal()] = null;
+	}
+	
+	
+	/**
+	 * Converts the string value of a setting like <code>DrivingTaskDataQuery.getValue()</code> 
+	 * (e.g. a missing element results in "" for strings and false for booleans).
+	 * 
+	 * @return
+	 * 			Converted value or null, if the value is not valid for the given type.
+	 */
+	private static <T> T convert(String stringValue, Class<T> cast)
+	{
+		try {
+			
+			if(cast == Boolean.class)
+				return (T) Boolean.valueOf(stringValue);
+			
+			return cast.getConstructor(String.class).newInstance(stringValue);
+			
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
+	
 	public List<KeyMapping> lookUpKeyMappings(ArrayList<KeyMapping> keyMappingList)
 	{
 		for(KeyMapping keyMapping : keyMappingList)
@@ -30,7 +30,6 @@ import org.w3c.dom.NodeList;
 
 import com.jme3.math.Vector3f;
 
-import eu.opends.drivingTask.DrivingTask;
 import eu.opends.drivingTask.DrivingTaskDataQuery;
 import eu.opends.drivingTask.DrivingTaskDataQuery.Layer;
 import eu.opends.drivingTask.scene.SceneLoader;
@@ -54,10 +53,10 @@ public class TaskLoader
 	private HashMap<String, DistanceBar> distanceBarMap = new HashMap<String, DistanceBar>();
 	
 
-	public TaskLoader(DrivingTaskDataQuery dtData, DrivingTask drivingTask) 
+	public TaskLoader(DrivingTaskDataQuery dtData, SceneLoader sceneLoader) 
 	{
 		this.dtData = dtData;
-		this.sceneLoader = drivingTask.getSceneLoader();
+		this.sceneLoader = sceneLoader;
 		extractDistanceBars();
 		extractContreTaskSettings();
 		extractTVPTaskSettings();
@@ -80,6 +80,16 @@ public class EffectCenter
 		isBloom = Simulator.oculusRiftAttached ? false : Simulator.getDrivingTask().getScenarioLoader().isBloomFilter(); 
 		isShadow = Simulator.getDrivingTask().getScenarioLoader().isShadowFilter();
 		
+		// particles and post-processing filters are visual only
+		if(Simulator.isHeadless())
+		{
+			isSnowing = false;
+			isRaining = false;
+			isFog = false;
+			isBloom = false;
+			isShadow = false;
+		}
+		
 		if(isSnowing)
 		{
 			// init snow
@@ -27,7 +27,6 @@ import org.w3c.dom.*;
 import org.xml.sax.InputSource;
 
 import eu.opends.canbus.CANClient;
-import eu.opends.car.SteeringCar;
 import eu.opends.environment.TrafficLight.*;
 import eu.opends.environment.TrafficLightException.InvalidStateCharacterException;
 import eu.opends.main.Simulator;
@@ -159,8 +158,6 @@ public class XMLParser
 			//<message><action name="button">cs</action></message>
 			//<message><action name="button">return</action></message>
 			
-			SteeringCar car = sim.getCar();
-			
 			NodeList nodeLst = doc.getElementsByTagName("message");
 			for(int i=0; i<nodeLst.getLength(); i++)
 			{
@@ -197,10 +194,10 @@ public class XMLParser
 							int value = Integer.parseInt(valueString);
 							System.out.println("Gas: " + value);
 							if(value == 0)
-								car.setAcceleratorPedalIntensity(0);
+								canClient.setAcceleratorPedal(0);
 								//car.releaseAccel();
 							else
-								car.setAcceleratorPedalIntensity(-1);
+								canClient.setAcceleratorPedal(-1);
 						}
 						
 						// performs "cruise forward"-button
@@ -208,19 +205,7 @@ public class XMLParser
 						{
 							float value = Float.parseFloat(valueString);
 							System.out.println("Gas: " + value);
-							value = value*6;
-							if(value <= 0)
-							{
-								car.setAcceleratorPedalIntensity(0);
-								//car.releaseAccel();
-							}
-							else
-							{
-								car.setAcceleratorPedalIntensity(Math.max(-value,-1.0f));
-								sim.getSteeringTask().getPrimaryTask().reportGreenLight();
-							}
-							
-							sim.getThreeVehiclePlatoonTask().reportAcceleratorIntensity(Math.abs(value));
+							canClient.setAcceleration(value);
 						}
 						
 						// performs "cruise backward"-button
@@ -229,10 +214,10 @@ public class XMLParser
 							int value = Integer.parseInt(valueString);
 							System.out.println("Back: " + value);
 							if(value == 0)
-								car.setAcceleratorPedalIntensity(0);
+								canClient.setAcceleratorPedal(0);
 								//car.releaseAccel();
 							else
-								car.setAcceleratorPedalIntensity(1);
+								canClient.setAcceleratorPedal(1);
 						}
 						
 						// performs brake pedal
@@ -242,10 +227,10 @@ public class XMLParser
 							System.out.println("Brake: " + value);
 							if(value == 0)
 								//car.setGasPedalIntensity(0);
-								car.setBrakePedalIntensity(0);
+								canClient.setBrakePedal(0);
 								//car.releaseAccel();
 							else
-								car.setBrakePedalIntensity(1); // 1 --> full braking
+								canClient.setBrakePedal(1); // 1 --> full braking
 						}
 						
 						// performs brake pedal
@@ -253,35 +238,21 @@ public class XMLParser
 						{
 							float value = Float.parseFloat(valueString);
 							System.out.println("Brake: " + value);
-							if(value <= 0)
-							{
-								//car.setGasPedalIntensity(0);
-								car.setBrakePedalIntensity(0);
-								sim.getThreeVehiclePlatoonTask().reportBrakeIntensity(0);
-								//car.releaseAccel();
-							}
-							else
-							{
-								value = Math.min(value,1.0f);
-								car.setBrakePedalIntensity(value); // 1 --> full braking
-								sim.getSteeringTask().getPrimaryTask().reportRedLight();
-								sim.getThreeVehiclePlatoonTask().reportBrakeIntensity(value);
-								car.disableCruiseControlByBrake();
-							}
+							canClient.setBrake(value);
 						}
 						
 						// performs "change view"-button
 						else if(actionID.equals("button") && valueString.equals("cs"))	
 						{
 							System.out.println("Change view");
-							sim.getCameraFactory().changeCamera();
+							canClient.changeView();
 						}
 
 						// performs "reset car"-button
 						else if(actionID.equals("button") && valueString.equals("return"))	
 						{
 							System.out.println("Reset car");
-							car.setToNextResetPosition();
+							canClient.resetCar();
 						}
 						
 						// shows message on display
@@ -318,7 +289,7 @@ public class XMLParser
 							//System.out.println("channel1: " + percentage);
 							//System.out.println(System.currentTimeMillis() + " - accelerate: " + percentage);
 							
-							car.setAcceleratorPedalIntensity(-percentage);
+							canClient.setAcceleratorPedal(-percentage);
 							sim.getThreeVehiclePlatoonTask().reportAcceleratorIntensity(percentage);
 							
 							if(percentage > 0)
@@ -334,14 +305,12 @@ public class XMLParser
 							//System.out.println("channel2: " + percentage);
 							//System.out.println("brake: " + percentage);
 
-							car.setBrakePedalIntensity(percentage); // 1 --> full braking
+							// cruise control will be disabled when braking is applied
+							canClient.setBrakePedal(percentage); // 1 --> full braking
 							sim.getThreeVehiclePlatoonTask().reportBrakeIntensity(percentage);
 							
 							if(percentage > 0)
-							{
 								sim.getSteeringTask().getPrimaryTask().reportRedLight();
-								car.disableCruiseControlByBrake();
-							}
 						}
 
 						
@@ -123,5 +123,17 @@ public class DriveAnalyzerActionListener implements ActionListener
 				analyzer.toggleReplay();
 		}
 		
+		else if (binding.equals(KeyMapping.SKIP_FORWARD.getID())) 
+		{
+			if (value)
+				analyzer.skip(10000);
+		}
+		
+		else if (binding.equals(KeyMapping.SKIP_BACKWARD.getID())) 
+		{
+			if (value)
+				analyzer.skip(-10000);
+		}
+		
 	}
 }
@@ -46,7 +46,8 @@ public class ForceFeedbackJoystickController implements FeatureNotSupportedEvent
 
 	public ForceFeedbackJoystickController(Simulator sim)
 	{
-		enabled = Simulator.getSettingsLoader().getSetting(Setting.Joystick_enableForceFeedback, false);
+		enabled = Simulator.getSettingsLoader().getSetting(Setting.Joystick_enableForceFeedback, false) 
+				&& !Simulator.isHeadless();
 		springForceFactor = Simulator.getSettingsLoader().getSetting(Setting.Joystick_springForce, 1.0f);
 		//damperForceFactor = Simulator.getSettingsLoader().getSetting(Setting.Joystick_damperForce, 1.0f);
 		
@@ -118,6 +118,8 @@ public class KeyMapping
 	public static KeyMapping TOGGLE_LINE = new KeyMapping("toggle_line", "show line", new String[] {"KEY_2"});
 	public static KeyMapping TOGGLE_CONE = new KeyMapping("toggle_cone", "show cone", new String[] {"KEY_3"});
 	public static KeyMapping TOGGLE_REPLAY = new KeyMapping("toggle_replay", "start/stop replay", new String[] {"KEY_RETURN"});
+	public static KeyMapping SKIP_FORWARD = new KeyMapping("skip_forward", "skip 10 seconds forward", new String[] {"KEY_PGUP"});
+	public static KeyMapping SKIP_BACKWARD = new KeyMapping("skip_backward", "skip 10 seconds backward", new String[] {"KEY_PGDN"});
 	
 	
 	// look up table of joystick buttons
@@ -248,6 +250,8 @@ public class KeyMapping
 		keyMappingList.add(KeyMapping.GOTO_PREVIOUS_DATAPOINT);
 		keyMappingList.add(KeyMapping.TOGGLE_MESSAGEBOX);
 		keyMappingList.add(KeyMapping.TOGGLE_REPLAY);
+		keyMappingList.add(KeyMapping.SKIP_FORWARD);
+		keyMappingList.add(KeyMapping.SKIP_BACKWARD);
 		
 		SimulationBasics.getDrivingTask().getSettingsLoader().lookUpKeyMappings(keyMappingList);
 		
@@ -32,7 +32,6 @@ import eu.opends.main.Simulator;
 import eu.opends.niftyGui.MessageBoxGUI;
 import eu.opends.tools.PanelCenter;
 import eu.opends.tools.Util;
-import eu.opends.trigger.TriggerCenter;
 
 /**
  * 
@@ -60,7 +59,7 @@ public class SimulatorActionListener implements ActionListener {
 			}
 
 			// if CAN-Client is running suppress external steering
-			CANClient canClient = Simulator.getCanClient();
+			CANClient canClient = sim.getCanClient();
 			if (canClient != null)
 				canClient.suppressSteering();
 
@@ -82,7 +81,7 @@ public class SimulatorActionListener implements ActionListener {
 			}
 
 			// if CAN-Client is running suppress external steering
-			CANClient canClient = Simulator.getCanClient();
+			CANClient canClient = sim.getCanClient();
 			if (canClient != null)
 				canClient.suppressSteering();
 
@@ -322,7 +321,7 @@ public class SimulatorActionListener implements ActionListener {
 		else if (binding.equals(KeyMapping.RESET_CAR_POS3.getID())) {
 			if (value) {
 				car.setToResetPosition(2);
-				TriggerCenter.performRemoteTriggerAction("resume");
+				sim.getTriggerCenter().performRemoteTriggerAction("resume");
 			}
 
 		}
@@ -330,14 +329,14 @@ public class SimulatorActionListener implements ActionListener {
 		else if (binding.equals(KeyMapping.RESET_CAR_POS4.getID())) {
 			if (value) {
 				car.setToResetPosition(3);
-				TriggerCenter.performRemoteTriggerAction("speed");
+				sim.getTriggerCenter().performRemoteTriggerAction("speed");
 			}
 		}
 
 		else if (binding.equals(KeyMapping.RESET_CAR_POS5.getID())) {
 			if (value) {
 				car.setToResetPosition(4);
-				TriggerCenter.performRemoteTriggerAction("shutDown");
+				sim.getTriggerCenter().performRemoteTriggerAction("shutDown");
 			}
 		}
 
@@ -0,0 +1,348 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.main;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.jme3.math.Vector3f;
+
+import eu.opends.analyzer.BinaryDataFormat;
+import eu.opends.analyzer.DataReader;
+import eu.opends.analyzer.DeviationComputer;
+import eu.opends.analyzer.DriveDataStore;
+import eu.opends.analyzer.IdealLine;
+import eu.opends.drivingTask.DrivingTaskDataQuery;
+import eu.opends.drivingTask.scenario.IdealTrackContainer;
+import eu.opends.drivingTask.scenario.ScenarioLoader;
+import eu.opends.drivingTask.scene.SceneLoader;
+
+/**
+ * Headless analysis of many recordings at once. All analyzer files
+ * (carData*.txt / carData*.bin) found in the given directory and its
+ * sub-directories are analyzed in parallel on a fork-join pool. For every
+ * file (and ideal track) the deviation from the ideal line, the traveled
+ * distance and speed statistics are written to one summary table.
+ *
+ * Usage: BatchAnalyzer &lt;directory&gt; [&lt;drivingTask&gt;] [&lt;outputFile&gt;]
+ *
+ * If no driving task is given, the driving task referenced by each
+ * recording will be used.
+ *
+ * @author Rafael Math
+ */
+public class BatchAnalyzer
+{
+	private static final String DEFAULT_OUTPUT_FILE = "analysisSummary.txt";
+	private static final String SEPARATOR = "\t";
+
+	private Map<String, Map<String, IdealTrackContainer>> idealTrackCache =
+			new HashMap<String, Map<String, IdealTrackContainer>>();
+
+
+	/**
+	 * Results of a single recording.
+	 */
+	private static class AnalysisResult
+	{
+		private File file;
+		private String driver = "";
+		private String error = null;
+		private int samples = 0;
+		private float duration = 0;
+		private float distance = 0;
+		private float meanSpeed = 0;
+		private float maxSpeed = 0;
+		private float speedStdDev = 0;
+		private List<IdealLine> idealLineList = new ArrayList<IdealLine>();
+
+
+		private AnalysisResult(File file)
+		{
+			this.file = file;
+		}
+	}
+
+
+	/**
+	 * Analyzes all recordings of the given directory.
+	 *
+	 * @param directory
+	 * 			Directory containing the analyzer files.
+	 *
+	 * @param drivingTaskPath
+	 * 			Driving task containing the ideal tracks (if null, the driving
+	 * 			task referenced by each file will be used).
+	 *
+	 * @return
+	 * 			Results of all files (same order as files in directory).
+	 */
+	private List<AnalysisResult> analyze(File directory, String drivingTaskPath)
+	{
+		List<File> fileList = new ArrayList<File>();
+		findAnalyzerFiles(directory, fileList);
+		Collections.sort(fileList);
+
+		// driving tasks are loaded sequentially, as the XML queries are not thread-safe
+		List<Callable<AnalysisResult>> taskList = new ArrayList<Callable<AnalysisResult>>();
+		for(final File file : fileList)
+		{
+			final DataReader dataReader = new DataReader();
+
+			String taskPath = drivingTaskPath;
+			boolean isValid = false;
+			try {
+				isValid = dataReader.initReader(file.getPath(), false);
+				if(taskPath == null)
+					taskPath = dataReader.getNameOfDrivingTaskFile();
+			} catch (Exception e) {
+				isValid = false;
+			}
+
+			final Map<String, IdealTrackContainer> idealTrackMap = isValid ? getIdealTracks(taskPath) : null;
+			taskList.add(new Callable<AnalysisResult>() {
+				public AnalysisResult call()
+				{
+					return analyzeFile(file, dataReader, idealTrackMap);
+				}
+			});
+		}
+
+		List<ForkJoinTask<AnalysisResult>> futureList = new ArrayList<ForkJoinTask<AnalysisResult>>();
+		for(Callable<AnalysisResult> task : taskList)
+			futureList.add(ForkJoinPool.commonPool().submit(task));
+
+		List<AnalysisResult> resultList = new ArrayList<AnalysisResult>(futureList.size());
+		for(int i=0; i<futureList.size(); i++)
+		{
+			try {
+				resultList.add(futureList.get(i).get());
+			} catch (Exception e) {
+				AnalysisResult result = new AnalysisResult(fileList.get(i));
+				result.error = e.toString();
+				resultList.add(result);
+			}
+		}
+
+		return resultList;
+	}
+
+
+	private static void findAnalyzerFiles(File directory, List<File> fileList)
+	{
+		File[] files = directory.listFiles();
+		if(files == null)
+			return;
+
+		for(File file : files)
+		{
+			String name = file.getName();
+			if(file.isDirectory())
+				findAnalyzerFiles(file, fileList);
+			else if(name.startsWith("carData") && (name.endsWith(".txt") || name.endsWith(BinaryDataFormat.FILE_EXTENSION)))
+				fileList.add(file);
+		}
+	}
+
+
+	private Map<String, IdealTrackContainer> getIdealTracks(String drivingTaskPath)
+	{
+		if(idealTrackCache.containsKey(drivingTaskPath))
+			return idealTrackCache.get(drivingTaskPath);
+
+		Map<String, IdealTrackContainer> idealTrackMap = null;
+		DrivingTaskDataQuery dtData = new DrivingTaskDataQuery(drivingTaskPath);
+		if(dtData.isValidDrivingTask())
+		{
+			Map<String, Vector3f> pointMap = SceneLoader.extractPoints(dtData);
+			idealTrackMap = ScenarioLoader.extractIdealTracks(dtData, pointMap);
+		}
+
+		idealTrackCache.put(drivingTaskPath, idealTrackMap);
+		return idealTrackMap;
+	}
+
+
+	private static AnalysisResult analyzeFile(File file, DataReader dataReader,
+			Map<String, IdealTrackContainer> idealTrackMap)
+	{
+		AnalysisResult result = new AnalysisResult(file);
+
+		if(idealTrackMap == null)
+		{
+			result.error = "invalid analyzer file or driving task";
+			return result;
+		}
+
+		if(!dataReader.loadDriveData())
+		{
+			result.error = "could not load data";
+			return result;
+		}
+
+		DriveDataStore store = dataReader.getDriveDataStore();
+		result.driver = dataReader.getNameOfDriver();
+		result.samples = store.size();
+		result.distance = store.getTotalDistance();
+
+		if(store.size() > 0)
+		{
+			result.duration = (store.getTimeStamp(store.size()-1) - store.getTimeStamp(0)) / 1000f;
+
+			double sum = 0;
+			double squareSum = 0;
+			float max = Float.NEGATIVE_INFINITY;
+			for(int i=0; i<store.size(); i++)
+			{
+				float speed = store.getSpeed(i);
+				sum += speed;
+				squareSum += speed * speed;
+				max = Math.max(max, speed);
+			}
+
+			double mean = sum / store.size();
+			result.meanSpeed = (float) mean;
+			result.maxSpeed = max;
+			result.speedStdDev = (float) Math.sqrt(Math.max(squareSum / store.size() - mean * mean, 0));
+		}
+
+		result.idealLineList = new DeviationComputer(store, idealTrackMap).getIdealLines();
+		return result;
+	}
+
+
+	/**
+	 * Writes one row per file and ideal line to the given writer.
+	 */
+	private static void writeSummary(List<AnalysisResult> resultList, PrintWriter out)
+	{
+		out.println("file" + SEPARATOR + "driver" + SEPARATOR + "samples" + SEPARATOR + "duration [s]"
+				+ SEPARATOR + "distance [m]" + SEPARATOR + "mean speed [km/h]" + SEPARATOR + "max speed [km/h]"
+				+ SEPARATOR + "speed std. dev. [km/h]" + SEPARATOR + "ideal line" + SEPARATOR + "status"
+				+ SEPARATOR + "area [m^2]" + SEPARATOR + "length [m]" + SEPARATOR + "mean deviation [m]");
+
+		for(AnalysisResult result : resultList)
+		{
+			if(result.error != null)
+			{
+				out.println(result.file.getPath() + SEPARATOR + "error: " + result.error);
+				continue;
+			}
+
+			String fileString = String.format(Locale.ENGLISH, "%s" + SEPARATOR + "%s" + SEPARATOR + "%d"
+					+ SEPARATOR + "%.3f" + SEPARATOR + "%.2f" + SEPARATOR + "%.2f" + SEPARATOR + "%.2f"
+					+ SEPARATOR + "%.2f", result.file.getPath(), result.driver, result.samples, result.duration,
+					result.distance, result.meanSpeed, result.maxSpeed, result.speedStdDev);
+
+			if(result.idealLineList.isEmpty())
+				out.println(fileString + SEPARATOR + "-");
+
+			for(IdealLine idealLine : result.idealLineList)
+			{
+				float area = idealLine.getArea();
+				float length = idealLine.getLength();
+				out.println(fileString + String.format(Locale.ENGLISH, SEPARATOR + "%s" + SEPARATOR + "%s"
+						+ SEPARATOR + "%.2f" + SEPARATOR + "%.2f" + SEPARATOR + "%.4f", idealLine.getId(),
+						idealLine.getStatus(), area, length, area/length));
+			}
+		}
+
+		out.flush();
+	}
+
+
+	private static void writeSummary(List<AnalysisResult> resultList, File outputFile)
+	{
+		PrintWriter out = null;
+		try {
+
+			out = new PrintWriter(outputFile, "UTF-8");
+			writeSummary(resultList, out);
+
+		} catch (FileNotFoundException e) {
+			System.err.println("Summary file " + outputFile + " could not be created.");
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if(out != null)
+				out.close();
+		}
+	}
+
+
+	/**
+	 * Analyzes all recordings of the given directory and writes the summary
+	 * table to the given file (used by BatchRunner after all runs).
+	 *
+	 * @return
+	 * 			Number of analyzed files.
+	 */
+	public static int analyzeDirectory(File directory, String drivingTaskPath, File outputFile)
+	{
+		List<AnalysisResult> resultList = new BatchAnalyzer().analyze(directory, drivingTaskPath);
+		writeSummary(resultList, outputFile);
+		return resultList.size();
+	}
+
+
+	public static void main(String[] args)
+	{
+		Logger.getLogger("").setLevel(Level.SEVERE);
+
+		if(args.length < 1)
+		{
+			System.err.println("Usage: BatchAnalyzer <directory> [<drivingTask>] [<outputFile>]");
+			return;
+		}
+
+		File directory = new File(args[0]);
+		if(!directory.isDirectory())
+		{
+			System.err.println("Directory " + directory + " could not be found.");
+			return;
+		}
+
+		String drivingTaskPath = null;
+		if(args.length >= 2 && !args[1].isEmpty())
+			drivingTaskPath = args[1];
+
+		File outputFile = new File(directory, DEFAULT_OUTPUT_FILE);
+		if(args.length >= 3)
+			outputFile = new File(args[2]);
+
+		long startTime = System.currentTimeMillis();
+		List<AnalysisResult> resultList = new BatchAnalyzer().analyze(directory, drivingTaskPath);
+		writeSummary(resultList, outputFile);
+		writeSummary(resultList, new PrintWriter(System.out));
+		System.out.println("Analyzed " + resultList.size() + " file(s) in "
+				+ (System.currentTimeMillis() - startTime) + " ms; summary written to " + outputFile);
+	}
+}
@@ -0,0 +1,410 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import eu.opends.tools.Util;
+
+/**
+ * Runs many simulations in headless mode, distributed over several worker
+ * JVMs. Every driving task of the run list is run with every parameter
+ * variation. Each run writes its driving task log, recordings and console
+ * output to a folder of its own; when all runs have finished, a summary of
+ * all runs is written and the recordings are analyzed (see BatchAnalyzer).
+ *
+ * Usage: BatchRunner &lt;runList&gt; [&lt;workers&gt;] [&lt;outputFolder&gt;]
+ *
+ * Run list (one entry per line, '#' starts a comment):
+ *
+ *   task &lt;drivingTask&gt;
+ *   variation &lt;name&gt; [&lt;simulator options&gt;]
+ *   options &lt;simulator options of all runs&gt;
+ *   jvm &lt;JVM options of all runs&gt;
+ *   timeout &lt;seconds&gt;
+ *
+ * Example:
+ *
+ *   options -duration 120 -record
+ *   timeout 600
+ *   task assets/DrivingTasks/Projects/Countryside/countryside.xml
+ *   variation manual
+ *   variation autopilot -autopilot true
+ *   variation replay -set ReplayDriver_enableReplay=true -set ReplayDriver_file=carData_track1.txt
+ *
+ * See CommandLineOptions for all simulator options.
+ *
+ * @author Rafael Math
+ */
+public class BatchRunner
+{
+	private static final String SUMMARY_FILE = "batchSummary.txt";
+	private static final String ANALYSIS_FILE = "analysisSummary.txt";
+	private static final String CONSOLE_FILE = "console.txt";
+	private static final String SEPARATOR = "\t";
+
+	private List<String> drivingTaskList = new ArrayList<String>();
+	private List<Variation> variationList = new ArrayList<Variation>();
+	private List<String> commonOptions = new ArrayList<String>();
+	private List<String> jvmOptions = new ArrayList<String>();
+	private long timeout = 0;
+
+
+	/**
+	 * Named set of simulator options.
+	 */
+	private static class Variation
+	{
+		private String name;
+		private List<String> options;
+
+
+		private Variation(String name, List<String> options)
+		{
+			this.name = name;
+			this.options = options;
+		}
+	}
+
+
+	/**
+	 * Single simulation (driving task and variation) and its result.
+	 */
+	private static class Run
+	{
+		private int index;
+		private String drivingTask;
+		private Variation variation;
+		private File folder;
+		private int exitCode = -1;
+		private float wallTime = 0;
+		private String status = "not started";
+
+
+		private Run(int index, String drivingTask, Variation variation, File folder)
+		{
+			this.index = index;
+			this.drivingTask = drivingTask;
+			this.variation = variation;
+			this.folder = folder;
+		}
+	}
+
+
+	/**
+	 * Reads the run list.
+	 *
+	 * @return
+	 * 			true, if the run list contains at least one driving task.
+	 */
+	private boolean readRunList(File runListFile) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(runListFile), "UTF-8"));
+		try {
+
+			String line;
+			int lineNumber = 0;
+			while((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+
+				int commentStart = line.indexOf('#');
+				if(commentStart >= 0)
+					line = line.substring(0, commentStart);
+
+				List<String> tokens = tokenize(line);
+				if(tokens.isEmpty())
+					continue;
+
+				String keyword = tokens.remove(0);
+				if(keyword.equalsIgnoreCase("task") && tokens.size() == 1)
+					drivingTaskList.add(tokens.get(0));
+				else if(keyword.equalsIgnoreCase("variation") && tokens.size() >= 1)
+					variationList.add(new Variation(tokens.remove(0), tokens));
+				else if(keyword.equalsIgnoreCase("options"))
+					commonOptions.addAll(tokens);
+				else if(keyword.equalsIgnoreCase("jvm"))
+					jvmOptions.addAll(tokens);
+				else if(keyword.equalsIgnoreCase("timeout") && tokens.size() == 1)
+					timeout = (long) (Float.parseFloat(tokens.get(0)) * 1000);
+				else
+					System.err.println("Invalid entry in line " + lineNumber + " of " + runListFile);
+			}
+
+		} finally {
+			reader.close();
+		}
+
+		if(variationList.isEmpty())
+			variationList.add(new Variation("default", new ArrayList<String>()));
+
+		return !drivingTaskList.isEmpty();
+	}
+
+
+	/**
+	 * Splits the given line at white spaces (except inside double quotes).
+	 */
+	private static List<String> tokenize(String line)
+	{
+		List<String> tokens = new ArrayList<String>();
+		StringBuilder token = new StringBuilder();
+		boolean inQuotes = false;
+		boolean hasToken = false;
+
+		for(char c : line.toCharArray())
+		{
+			if(c == '"')
+			{
+				inQuotes = !inQuotes;
+				hasToken = true;
+			}
+			else if(Character.isWhitespace(c) && !inQuotes)
+			{
+				if(hasToken)
+					tokens.add(token.toString());
+				token.setLength(0);
+				hasToken = false;
+			}
+			else
+			{
+				token.append(c);
+				hasToken = true;
+			}
+		}
+
+		if(hasToken)
+			tokens.add(token.toString());
+
+		return tokens;
+	}
+
+
+	/**
+	 * Creates one run per driving task and variation.
+	 */
+	private List<Run> createRuns(File outputFolder)
+	{
+		List<Run> runList = new ArrayList<Run>();
+		for(String drivingTask : drivingTaskList)
+		{
+			String taskName = new File(drivingTask).getName().replaceFirst("\\.xml$", "");
+			for(Variation variation : variationList)
+			{
+				int index = runList.size() + 1;
+				String folderName = String.format(Locale.ENGLISH, "%03d_%s_%s", index, taskName, variation.name)
+						.replaceAll("[^A-Za-z0-9_.-]", "_");
+				runList.add(new Run(index, drivingTask, variation, new File(outputFolder, folderName)));
+			}
+		}
+		return runList;
+	}
+
+
+	/**
+	 * Starts a headless simulator JVM for the given run and waits for its end.
+	 */
+	private void execute(Run run)
+	{
+		run.folder.mkdirs();
+
+		String javaExecutable = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+		List<String> command = new ArrayList<String>();
+		command.add(javaExecutable);
+		command.addAll(jvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		String libraryPath = System.getProperty("java.library.path");
+		if(libraryPath != null && !libraryPath.isEmpty())
+			command.add("-Djava.library.path=" + libraryPath);
+		command.add(Simulator.class.getName());
+		command.add("-headless");
+		command.add("-output");
+		command.add(run.folder.getPath());
+		command.addAll(commonOptions);
+		command.addAll(run.variation.options);
+		command.add(run.drivingTask);
+		command.add(run.variation.name);
+
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.redirectErrorStream(true);
+		processBuilder.redirectOutput(new File(run.folder, CONSOLE_FILE));
+
+		System.out.println("Starting run " + run.index + ": " + run.drivingTask + " (" + run.variation.name + ")");
+		long startTime = System.currentTimeMillis();
+
+		try {
+
+			Process process = processBuilder.start();
+
+			boolean finished;
+			if(timeout > 0)
+				finished = process.waitFor(timeout, TimeUnit.MILLISECONDS);
+			else
+			{
+				process.waitFor();
+				finished = true;
+			}
+
+			if(finished)
+			{
+				run.exitCode = process.exitValue();
+				run.status = (run.exitCode == 0) ? "ok" : "failed";
+			}
+			else
+			{
+				process.destroyForcibly();
+				process.waitFor();
+				run.status = "timeout";
+			}
+
+		} catch (IOException e) {
+			run.status = "could not start: " + e.getMessage();
+		} catch (InterruptedException e) {
+			run.status = "interrupted";
+		}
+
+		run.wallTime = (System.currentTimeMillis() - startTime) / 1000f;
+		System.out.println("Finished run " + run.index + ": " + run.status + " after " + run.wallTime + " s");
+	}
+
+
+	/**
+	 * Executes all runs on the given number of worker JVMs.
+	 */
+	private void executeAll(List<Run> runList, int workers)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+
+		List<Future<Void>> futureList = new ArrayList<Future<Void>>();
+		for(final Run run : runList)
+		{
+			futureList.add(executor.submit(new Callable<Void>() {
+				public Void call()
+				{
+					execute(run);
+					return null;
+				}
+			}));
+		}
+
+		for(Future<Void> future : futureList)
+		{
+			try {
+				future.get();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+
+		executor.shutdown();
+	}
+
+
+	/**
+	 * Writes one row per run to the given writer.
+	 */
+	private static void writeSummary(List<Run> runList, PrintWriter out)
+	{
+		out.println("run" + SEPARATOR + "driving task" + SEPARATOR + "variation" + SEPARATOR + "status"
+				+ SEPARATOR + "exit code" + SEPARATOR + "wall time [s]" + SEPARATOR + "output folder");
+
+		for(Run run : runList)
+			out.println(String.format(Locale.ENGLISH, "%d" + SEPARATOR + "%s" + SEPARATOR + "%s" + SEPARATOR
+					+ "%s" + SEPARATOR + "%d" + SEPARATOR + "%.1f" + SEPARATOR + "%s", run.index, run.drivingTask,
+					run.variation.name, run.status, run.exitCode, run.wallTime, run.folder.getPath()));
+
+		out.flush();
+	}
+
+
+	public static void main(String[] args)
+	{
+		if(args.length < 1)
+		{
+			System.err.println("Usage: BatchRunner <runList> [<workers>] [<outputFolder>]");
+			return;
+		}
+
+		File runListFile = new File(args[0]);
+
+		int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		if(args.length >= 2)
+			workers = Math.max(1, Integer.parseInt(args[1]));
+
+		File outputFolder = new File("analyzerData/batch_" + Util.getDateTimeString());
+		if(args.length >= 3)
+			outputFolder = new File(args[2]);
+
+		BatchRunner batchRunner = new BatchRunner();
+		try {
+
+			if(!batchRunner.readRunList(runListFile))
+			{
+				System.err.println("No driving task given in " + runListFile);
+				return;
+			}
+
+		} catch (Exception e) {
+			System.err.println("Run list " + runListFile + " could not be read: " + e);
+			return;
+		}
+
+		outputFolder.mkdirs();
+		List<Run> runList = batchRunner.createRuns(outputFolder);
+
+		long startTime = System.currentTimeMillis();
+		batchRunner.executeAll(runList, workers);
+
+		File summaryFile = new File(outputFolder, SUMMARY_FILE);
+		PrintWriter out = null;
+		try {
+
+			out = new PrintWriter(summaryFile, "UTF-8");
+			writeSummary(runList, out);
+
+		} catch (Exception e) {
+			System.err.println("Summary file " + summaryFile + " could not be created.");
+		} finally {
+			if(out != null)
+				out.close();
+		}
+
+		// deviation, distance and speed of all recordings
+		BatchAnalyzer.analyzeDirectory(outputFolder, null, new File(outputFolder, ANALYSIS_FILE));
+
+		writeSummary(runList, new PrintWriter(System.out));
+		System.out.println("Executed " + runList.size() + " run(s) on " + workers + " worker(s) in "
+				+ (System.currentTimeMillis() - startTime) / 1000 + " s; summary written to " + summaryFile);
+	}
+}
@@ -0,0 +1,199 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.main;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.opends.drivingTask.settings.SettingsLoader.Setting;
+
+/**
+ * Parses the command line of the simulator:
+ * 
+ * Simulator [&lt;options&gt;] [&lt;drivingTask&gt; [&lt;driverName&gt;]]
+ * 
+ * Options:
+ *  -headless                  run without display, GUI and audio in fixed 
+ *                             time steps, as fast as possible
+ *  -realtime                  headless: advance in real time instead
+ *  -output &lt;folder&gt;          folder for log and recording files
+ *  -duration &lt;seconds&gt;       stop simulation after the given simulation time
+ *  -record                    record drive data from the start
+ *  -autopilot &lt;true|false&gt;   switch auto pilot of the driving car on/off
+ *  -set &lt;setting&gt;=&lt;value&gt;    override a setting of settings.xml, e.g.
+ *                             -set ReplayDriver_file=carData_track1.txt
+ * 
+ * All other arguments keep their former meaning (driving task, driver name).
+ * 
+ * @author Rafael Math
+ */
+public class CommandLineOptions
+{
+	private boolean isHeadless = false;
+	private boolean isRealTime = false;
+	private String outputFolder = null;
+	private float duration = 0;
+	private boolean record = false;
+	private Boolean autoPilot = null;
+	private Map<Setting,String> settingOverrides = new EnumMap<Setting,String>(Setting.class);
+	private List<String> arguments = new ArrayList<String>();
+	private boolean isValid = true;
+	
+	
+	public CommandLineOptions(String[] args)
+	{
+		for(int i=0; i<args.length; i++)
+		{
+			String arg = args[i];
+			
+			try {
+				
+				if(arg.equalsIgnoreCase("-headless"))
+					isHeadless = true;
+				else if(arg.equalsIgnoreCase("-realtime"))
+					isRealTime = true;
+				else if(arg.equalsIgnoreCase("-output"))
+					outputFolder = args[++i];
+				else if(arg.equalsIgnoreCase("-duration"))
+					duration = Float.parseFloat(args[++i]);
+				else if(arg.equalsIgnoreCase("-record"))
+					record = true;
+				else if(arg.equalsIgnoreCase("-autopilot"))
+					autoPilot = Boolean.parseBoolean(args[++i]);
+				else if(arg.equalsIgnoreCase("-set"))
+					addSettingOverride(args[++i]);
+				else
+					arguments.add(arg);
+				
+			} catch (ArrayIndexOutOfBoundsException e) {
+				System.err.println("Missing value of command line option '" + arg + "'");
+				isValid = false;
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid value of command line option '" + arg + "'");
+				isValid = false;
+			}
+		}
+	}
+	
+	
+	private void addSettingOverride(String assignment)
+	{
+		int separator = assignment.indexOf('=');
+		if(separator <= 0)
+		{
+			System.err.println("Invalid setting '" + assignment + "' (expected: <setting>=<value>)");
+			isValid = false;
+			return;
+		}
+		
+		String name = assignment.substring(0, separator).trim();
+		String value = assignment.substring(separator + 1).trim();
+		
+		for(Setting setting : Setting.values())
+		{
+			if(setting.name().equalsIgnoreCase(name))
+			{
+				settingOverrides.put(setting, value);
+				return;
+			}
+		}
+		
+		System.err.println("Unknown setting '" + name + "'");
+		isValid = false;
+	}
+	
+	
+	public boolean isValid()
+	{
+		return isValid;
+	}
+	
+	
+	public boolean isHeadless()
+	{
+		return isHeadless;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			true, if a headless simulation should advance in real time 
+	 * 			(frame rate limited) instead of fixed time steps.
+	 */
+	public boolean isRealTime()
+	{
+		return isRealTime;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Output folder given on the command line (null if not given).
+	 */
+	public String getOutputFolder()
+	{
+		return outputFolder;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Duration of the simulation in seconds (0 = unlimited).
+	 */
+	public float getDuration()
+	{
+		return duration;
+	}
+	
+	
+	public boolean isRecording()
+	{
+		return record;
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Auto pilot state given on the command line (null if not given).
+	 */
+	public Boolean getAutoPilot()
+	{
+		return autoPilot;
+	}
+	
+	
+	public Map<Setting,String> getSettingOverrides()
+	{
+		return settingOverrides;
+	}
+	
+	
+	public String getDrivingTaskPath()
+	{
+		return (arguments.size() >= 1) ? arguments.get(0) : "";
+	}
+	
+	
+	public String getDriverName()
+	{
+		return (arguments.size() >= 2) ? arguments.get(1) : "";
+	}
+}
@@ -23,7 +23,6 @@ import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,10 +32,14 @@ import com.jme3.math.ColorRGBA;
 import com.jme3.niftygui.NiftyJmeDisplay;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
-import com.jme3.scene.Spatial;
 import com.jme3.asset.plugins.FileLocator;
 import com.jme3.font.BitmapText;
+import com.jme3.scene.Mesh;
 import com.jme3.scene.Mesh.Mode;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Format;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.VertexBuffer.Usage;
 import com.jme3.scene.Spatial.CullHint;
 import com.jme3.scene.shape.Curve;
 import com.jme3.scene.shape.Cylinder;
@@ -46,6 +49,7 @@ import de.lessvoid.nifty.Nifty;
 import eu.opends.analyzer.DataUnit;
 import eu.opends.analyzer.DeviationComputer;
 import eu.opends.analyzer.DataReader;
+import eu.opends.analyzer.DriveDataStore;
 import eu.opends.analyzer.IdealLine;
 import eu.opends.analyzer.IdealLine.IdealLineStatus;
 import eu.opends.basics.InternalMapProcessing;
@@ -85,6 +89,7 @@ public class DriveAnalyzer extends SimulationBasics
 	private Node pointNode = new Node();
 	private Node lineNode = new Node();
 	private Node coneNode = new Node();
+	private Geometry coneMarker;
 	private Node target = new Node();
 	private int targetIndex = 0;
 	
@@ -92,8 +97,7 @@ public class DriveAnalyzer extends SimulationBasics
 
 	private BitmapText markerText, speedText, timeText;
 	
-	private ArrayList<Vector3f> carPositionList = new ArrayList<Vector3f>();
-	private LinkedList<DataUnit> dataUnitList = new LinkedList<DataUnit>();
+	private DriveDataStore driveDataStore = new DriveDataStore(0);
 	
 	private DataReader dataReader = new DataReader();
 	private Long initialTimeStamp = 0l;
@@ -175,7 +179,7 @@ public class DriveAnalyzer extends SimulationBasics
 		// setup key binding
 		keyBindingCenter = new KeyBindingCenter(this);
      
-		DeviationComputer devComp = new DeviationComputer(carPositionList);
+		DeviationComputer devComp = new DeviationComputer(driveDataStore);
 		//devComp.showAllWayPoints();
 		
 		idealLineList = devComp.getIdealLines();
@@ -226,13 +230,11 @@ public class DriveAnalyzer extends SimulationBasics
 		dataReader.initReader(analyzerFilePath, true);
 		dataReader.loadDriveData();
 		
-		carPositionList = dataReader.getCarPositionList();
+		driveDataStore = dataReader.getDriveDataStore();
+		totalDistance = driveDataStore.getTotalDistance();
 		
-		totalDistance = dataReader.getTotalDistance();
-		dataUnitList = dataReader.getDataUnitList();
-		
-		if(dataUnitList.size() > 0)
-			initialTimeStamp = dataUnitList.get(0).getDate().getTime();
+		if(driveDataStore.size() > 0)
+			initialTimeStamp = driveDataStore.getTimeStamp(0);
 	}
 	
 	
@@ -250,20 +252,15 @@ public class DriveAnalyzer extends SimulationBasics
     	replayIsRunning = true;
     	
 		// end has been reached
-		if((targetIndex + 1) >= dataUnitList.size())
+		if((targetIndex + 1) >= driveDataStore.size())
 		{
-			// make cone at last position invisible (if exists)
-			Spatial currentCone = coneNode.getChild("cone_" + targetIndex);
-			if(currentCone != null)
-				currentCone.setCullHint(CullHint.Always);
-			
 			// reset camera to first position 
 			targetIndex = 0;
-			updateView(dataUnitList.get(targetIndex));
+			updateView(driveDataStore.getDataUnit(targetIndex));
 		}
 		
 		// offset between current time and time in replay (at current position)
-		offset = System.currentTimeMillis() - dataUnitList.get(targetIndex).getDate().getTime();
+		offset = System.currentTimeMillis() - driveDataStore.getTimeStamp(targetIndex);
     }
     
     
@@ -363,38 +360,43 @@ public class DriveAnalyzer extends SimulationBasics
 		Material drivenMaterial = new Material(assetManager,"Common/MatDefs/Misc/Unshaded.j3md");
 		drivenMaterial.setColor("Color", ColorRGBA.Yellow);
 		
+		// all positions are uploaded once and shared by points and line
+		VertexBuffer positionBuffer = new VertexBuffer(Type.Position);
+		positionBuffer.setupData(Usage.Static, 3, Format.Float, driveDataStore.getCarPositionBuffer());
+		
 		// visualize points
-		Curve points = new Curve(carPositionList.toArray(new Vector3f[0]), 1);
+		Mesh points = new Mesh();
 		points.setMode(Mode.Points);
+		points.setBuffer(positionBuffer);
 		points.setPointSize(4f);
+		points.updateBound();
+		points.updateCounts();
 		Geometry geoPoints = new Geometry("drivenPoints", points);
 		geoPoints.setMaterial(drivenMaterial);
 		pointNode.attachChild(geoPoints);
 
 		// visualize line
-		Curve line = new Curve(carPositionList.toArray(new Vector3f[0]), 1);
-		line.setMode(Mode.Lines);
+		Mesh line = new Mesh();
+		line.setMode(Mode.LineStrip);
+		line.setBuffer(positionBuffer);
 		line.setLineWidth(4f);
+		line.updateBound();
+		line.updateCounts();
 		Geometry geoLine = new Geometry("drivenLine", line);
 	    geoLine.setMaterial(drivenMaterial);
 	    lineNode.attachChild(geoLine);
 
 	
-	    // visualize cones
+	    // visualize cone (a single marker, moved to the current data set by updateView())
 	    Material coneMaterial = new Material(assetManager,"Common/MatDefs/Misc/Unshaded.j3md");
 	    coneMaterial.setColor("Color", ColorRGBA.Black);
 		
-		for (int i=0; i<dataUnitList.size(); i++) 
-		{
-			Cylinder cone = new Cylinder(10, 10, 0.3f, 0.01f, 0.9f, true, false);
-			cone.setLineWidth(4f);
-			Geometry geoCone = new Geometry("cone_"+i, cone);
-			geoCone.setLocalTranslation(dataUnitList.get(i).getCarPosition());
-			geoCone.setLocalRotation(dataUnitList.get(i).getCarRotation());
-			geoCone.setMaterial(coneMaterial);
-			geoCone.setCullHint(CullHint.Always);
-			coneNode.attachChild(geoCone);
-		}
+		Cylinder cone = new Cylinder(10, 10, 0.3f, 0.01f, 0.9f, true, false);
+		cone.setLineWidth(4f);
+		coneMarker = new Geometry("cone", cone);
+		coneMarker.setMaterial(coneMaterial);
+		coneMarker.setCullHint(CullHint.Always);
+		coneNode.attachChild(coneMarker);
 
 		if (pointsEnabled)
 			sceneNode.attachChild(pointNode);
@@ -406,7 +408,7 @@ public class DriveAnalyzer extends SimulationBasics
 			sceneNode.attachChild(coneNode);
 		
 		// set camera view and time/speed texts
-		updateView(dataUnitList.get(targetIndex));
+		updateView(driveDataStore.getDataUnit(targetIndex));
 	}
 
 
@@ -483,21 +485,47 @@ public class DriveAnalyzer extends SimulationBasics
 	{
 		if(!replayIsRunning)
 		{
-			if (!isPause() && direction == 1 && (targetIndex + 1) < dataUnitList.size()) 
+			if (!isPause() && direction == 1 && (targetIndex + 1) < driveDataStore.size()) 
 			{
 				targetIndex++;
-				updateView(dataUnitList.get(targetIndex));
+				updateView(driveDataStore.getDataUnit(targetIndex));
 			}
 	
 			if (!isPause() && direction == -1 && (targetIndex - 1) >= 0)
 			{
 				targetIndex--;
-				updateView(dataUnitList.get(targetIndex));
+				updateView(driveDataStore.getDataUnit(targetIndex));
 			}
 		}
 	}
 
 
+	/**
+	 * <code>skip()</code> moves the target to the data set recorded the given 
+	 * time before or after the current data set (binary search in the replay 
+	 * store). A running replay will be continued from the new position.
+	 * 
+	 * @param milliseconds
+	 * 			Time to skip (negative values skip backwards).
+	 */
+	public void skip(long milliseconds) 
+	{
+		if(isPause() || driveDataStore.size() == 0)
+			return;
+		
+		long currentRecordingTime = driveDataStore.getTimeStamp(targetIndex);
+		if(replayIsRunning)
+			currentRecordingTime = System.currentTimeMillis() - offset;
+		
+		targetIndex = driveDataStore.getIndexAt(currentRecordingTime + milliseconds);
+		
+		if(replayIsRunning)
+			offset = System.currentTimeMillis() - driveDataStore.getTimeStamp(targetIndex);
+		
+		updateView(driveDataStore.getDataUnit(targetIndex));
+	}
+
+
 	private void updateView(DataUnit dataUnit) 
 	{
 		currentDataUnit = dataUnit;
@@ -513,20 +541,13 @@ public class DriveAnalyzer extends SimulationBasics
 		// update timestamp
 		updateTimestamp();
 
-		// make previous cone invisible (if exists)
-		Spatial previousCone = coneNode.getChild("cone_" + (targetIndex-1));		
-		if(previousCone != null)
-			previousCone.setCullHint(CullHint.Always);
-		
-		// make current cone visible (if exists)
-		Spatial currentCone = coneNode.getChild("cone_" + targetIndex);
-		if(currentCone != null)
-			currentCone.setCullHint(CullHint.Dynamic);
-		
-		// make next cone invisible (if exists)
-		Spatial nextCone = coneNode.getChild("cone_" + (targetIndex+1));
-		if(nextCone != null)
-			nextCone.setCullHint(CullHint.Always);
+		// move cone to the recorded position of the current data set
+		if(coneMarker != null && targetIndex < driveDataStore.size())
+		{
+			coneMarker.setLocalTranslation(driveDataStore.getCarPosition(targetIndex, coneMarker.getLocalTranslation()));
+			coneMarker.setLocalRotation(driveDataStore.getCarRotation(targetIndex, coneMarker.getLocalRotation()));
+			coneMarker.setCullHint(CullHint.Dynamic);
+		}
 		
 		updateMessageBox();
 	}
@@ -599,7 +620,7 @@ public class DriveAnalyzer extends SimulationBasics
 
 	private void updateTimestamp() 
 	{
-		Long currentTimeStamp = dataUnitList.get(targetIndex).getDate().getTime();
+		Long currentTimeStamp = driveDataStore.getTimeStamp(targetIndex);
 		
 		if(showRelativeTime)
 		{
@@ -640,25 +661,22 @@ public class DriveAnalyzer extends SimulationBasics
 
     private void updatePosition() 
 	{
-		if((targetIndex + 1) < dataUnitList.size())
+		if((targetIndex + 1) < driveDataStore.size())
 		{
 			// offset translates current time string to recording time
 			long currentRecordingTime = System.currentTimeMillis() - offset;
-			long timeAtNextTarget = dataUnitList.get(targetIndex + 1).getDate().getTime();
+			long timeAtNextTarget = driveDataStore.getTimeStamp(targetIndex + 1);
 			
 			if(currentRecordingTime >= timeAtNextTarget)
-			{				
-				targetIndex++;
-				updateView(dataUnitList.get(targetIndex));
+			{
+				// skip all data sets that have been passed since the last frame
+				targetIndex = driveDataStore.getIndexAt(currentRecordingTime);
+				updateView(driveDataStore.getDataUnit(targetIndex));
 			}
 			else
 			{
-				// provide previous and next data units
-				DataUnit previous = dataUnitList.get(targetIndex);
-				DataUnit next = dataUnitList.get(targetIndex+1);
-				
-				// interpolate between previous and next data unit
-				DataUnit interpolatedDataUnit = DataUnit.interpolate(previous, next, currentRecordingTime);
+				// interpolate between previous and next data set
+				DataUnit interpolatedDataUnit = DataUnit.interpolate(driveDataStore, targetIndex, currentRecordingTime);
 				updateView(interpolatedDataUnit);
 			}
 		}
@@ -0,0 +1,99 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package eu.opends.main;
+
+import com.jme3.system.Timer;
+
+/**
+ * Timer advancing by a constant time step per frame, independent of the wall 
+ * clock. In headless mode every frame thus simulates exactly one time step, 
+ * no matter how long it took to compute, and the simulation runs as fast as 
+ * the CPU allows (frame rate not limited).
+ * 
+ * @author Rafael Math
+ */
+public class FixedStepTimer extends Timer
+{
+	// nanoseconds
+	private static final long RESOLUTION = 1000000000L;
+	
+	private float timeStep;
+	private long timePerFrame;
+	private long time = 0;
+	
+	
+	/**
+	 * Creates a new fixed step timer.
+	 * 
+	 * @param timeStep
+	 * 			Simulated time (s) per frame.
+	 */
+	public FixedStepTimer(float timeStep)
+	{
+		this.timeStep = timeStep;
+		this.timePerFrame = Math.round(timeStep * (double) RESOLUTION);
+	}
+	
+	
+	@Override
+	public long getTime()
+	{
+		return time;
+	}
+
+
+	@Override
+	public long getResolution()
+	{
+		return RESOLUTION;
+	}
+
+
+	/**
+	 * @return
+	 * 			Frames per simulated second.
+	 */
+	@Override
+	public float getFrameRate()
+	{
+		return 1f / timeStep;
+	}
+
+
+	@Override
+	public float getTimePerFrame()
+	{
+		return timeStep;
+	}
+
+
+	@Override
+	public void update()
+	{
+		time += timePerFrame;
+	}
+
+
+	@Override
+	public void reset()
+	{
+		time = 0;
+	}
+}
@@ -52,6 +52,15 @@ public class SimulationDefaults
 	public static int CANInterface_port = 5678;
 	public static int CANInterface_updateRate = 20;
 	public static float CANInterface_maxSteeringAngle = 270;
+	public static String CANInterface_protocol = "xml";
+	public static boolean ReplayDriver_enableReplay = false;
+	public static String ReplayDriver_file = "carData_track1.txt";
+	public static boolean Lockstep_enableServer = false;
+	public static int Lockstep_port = 5680;
+	public static float Lockstep_timeStep = 1f/60f;
+	public static boolean SharedMemory_enableConnection = false;
+	public static String SharedMemory_file = "";
+	public static int SharedMemory_maxTrafficObjects = 64;
 	
 	public static boolean MultiDriver_enableConnection = false;
 	public static String MultiDriver_ip = "127.0.0.1";
@@ -81,6 +90,10 @@ public class SimulationDefaults
 	public static int SettingsControllerServer_port = 1000;
 	
 	public static boolean Analyzer_suppressPDFPopup = false;
+	public static String Analyzer_recordingFormat = "text";
+	public static int Analyzer_chunkDuration = 10;
+	public static int Analyzer_channelSampleRate = 20;
+	public static int Analyzer_logFlushInterval = 0;
 	
 	public static float gravity = 9.81f;
 	
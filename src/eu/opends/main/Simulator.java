@@ -33,6 +33,7 @@ import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
 
 import eu.opends.profiler.BasicProfilerState;
+import com.jme3.app.DebugKeysAppState;
 import com.jme3.app.StatsAppState;
 //import com.jme3.app.state.VideoRecorderAppState;
 import com.jme3.input.Joystick;
@@ -41,11 +42,15 @@ import com.jme3.math.Vector3f;
 import com.jme3.niftygui.NiftyJmeDisplay;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.Spatial.CullHint;
+import com.jme3.system.JmeContext;
 import com.sun.javafx.application.PlatformImpl;
 
 import de.lessvoid.nifty.Nifty;
 import eu.opends.analyzer.DrivingTaskLogger;
+import eu.opends.analyzer.ChannelRecorder;
+import eu.opends.analyzer.ChannelRegistry;
 import eu.opends.analyzer.DataWriter;
+import eu.opends.analyzer.DataWriter.RecordingFormat;
 import eu.opends.audio.AudioCenter;
 import eu.opends.basics.InternalMapProcessing;
 import eu.opends.basics.SimulationBasics;
@@ -53,9 +58,14 @@ import eu.opends.camera.SimulatorCam;
 import eu.opends.cameraFlight.CameraFlight;
 import eu.opends.cameraFlight.NotEnoughWaypointsException;
 import eu.opends.canbus.CANClient;
+import eu.opends.canbus.DrivingCommandMailbox;
+import eu.opends.canbus.LockstepServer;
+import eu.opends.canbus.ReplayDriver;
+import eu.opends.canbus.SharedMemoryChannel;
 import eu.opends.car.ResetPosition;
 import eu.opends.car.SteeringCar;
 import eu.opends.drivingTask.DrivingTask;
+import eu.opends.drivingTask.scene.ModelLoadingListener;
 import eu.opends.drivingTask.settings.SettingsLoader.Setting;
 import eu.opends.effects.EffectCenter;
 import eu.opends.environment.TrafficLightCenter;
@@ -116,8 +126,8 @@ public class Simulator extends SimulationBasics
     	return physicalTraffic;
     }
 	
-	private static DrivingTaskLogger drivingTaskLogger;
-	public static DrivingTaskLogger getDrivingTaskLogger()
+	private DrivingTaskLogger drivingTaskLogger;
+	public DrivingTaskLogger getDrivingTaskLogger()
 	{
 		return drivingTaskLogger;
 	}
@@ -129,18 +139,54 @@ public class Simulator extends SimulationBasics
 		return dataWriter;
 	}
 	
+	private ChannelRegistry channelRegistry = new ChannelRegistry();
+	public ChannelRegistry getChannelRegistry()
+	{
+		return channelRegistry;
+	}
+	
+	private ChannelRecorder channelRecorder;
+	public ChannelRecorder getChannelRecorder()
+	{
+		return channelRecorder;
+	}
+	
 	private LightningClient lightningClient;
 	public LightningClient getLightningClient() 
 	{
 		return lightningClient;
 	}
 	
-	private static CANClient canClient;
-	public static CANClient getCanClient() 
+	private CANClient canClient;
+	public CANClient getCanClient() 
 	{
 		return canClient;
 	}
 	
+	private DrivingCommandMailbox drivingCommandMailbox;
+	public DrivingCommandMailbox getDrivingCommandMailbox() 
+	{
+		return drivingCommandMailbox;
+	}
+	
+	private ReplayDriver replayDriver;
+	public ReplayDriver getReplayDriver() 
+	{
+		return replayDriver;
+	}
+	
+	private LockstepServer lockstepServer;
+	public LockstepServer getLockstepServer() 
+	{
+		return lockstepServer;
+	}
+	
+	private SharedMemoryChannel sharedMemoryChannel;
+	public SharedMemoryChannel getSharedMemoryChannel() 
+	{
+		return sharedMemoryChannel;
+	}
+	
 	private MultiDriverClient multiDriverClient;
 	public MultiDriverClient getMultiDriverClient() 
 	{
@@ -251,6 +297,33 @@ public class Simulator extends SimulationBasics
 		return outputFolder;
 	}
 	
+	private static boolean isHeadless = false;
+	public static boolean isHeadless()
+	{
+		return isHeadless;
+	}
+	
+	// simulated time per frame in headless mode (= physics accuracy)
+	private static final float FIXED_TIME_STEP = 1/60f;
+	
+	private static boolean isFixedTimeStep = false;
+	public static boolean isFixedTimeStep()
+	{
+		return isFixedTimeStep;
+	}
+	
+	// time stamp (ms) of recorded data: follows the wall clock in real time and 
+	// advances by the simulated time in fixed time steps and lockstep mode 
+	// (continuous and never running backwards when switching modes)
+	private double simulationTime = System.currentTimeMillis();
+	private double wallClockOffset = 0;
+	
+	// defaults, if driving task has been selected in GUI
+	private CommandLineOptions commandLineOptions = new CommandLineOptions(new String[0]);
+	private float runTime = 0;
+	private boolean durationExceeded = false;
+	private boolean errorOccurred = false;
+	
 	public static boolean oculusRiftAttached = false;/*
     private static OculusRift oculusRift;
 	public static OculusRift getOculusRift()
@@ -269,6 +342,10 @@ public class Simulator extends SimulationBasics
     @Override
     public void simpleInitApp()
     {
+    	// not initialized yet; would fail on cleanup without input manager
+    	if(isHeadless)
+    		stateManager.detach(stateManager.getState(DebugKeysAppState.class));
+    	
     	showStats(false);
     	
     	if(drivingTaskGiven)
@@ -308,24 +385,31 @@ public class Simulator extends SimulationBasics
 
     public void simpleInitDrivingTask(String drivingTaskFileName, String driverName)
     {
-    	stateManager.attach(new BasicProfilerState(false));
+    	if(!isHeadless)
+    		stateManager.attach(new BasicProfilerState(false));
     	
     	SimulationDefaults.drivingTaskFileName = drivingTaskFileName;
     	
-    	Util.makeDirectory("analyzerData");
-    	outputFolder = "analyzerData/" + Util.getDateTimeString();
+    	// each run of a batch writes to its own folder
+    	if(commandLineOptions.getOutputFolder() != null)
+    		outputFolder = commandLineOptions.getOutputFolder();
+    	else
+    	{
+	    	Util.makeDirectory("analyzerData");
+	    	outputFolder = "analyzerData/" + Util.getDateTimeString();
+    	}
     	
     	initDrivingTaskLayers();
     	
     	// show stats if set in driving task
-    	showStats(settingsLoader.getSetting(Setting.General_showStats, false));
+    	showStats(settingsLoader.getSetting(Setting.General_showStats, false) && !isHeadless);
     	
     	// check Oculus Rift mode: auto, enabled, disabled
     	String oculusAttachedString = settingsLoader.getSetting(Setting.OculusRift_isAttached, 
     			SimulationDefaults.OculusRift_isAttached);
-		if(oculusAttachedString.equalsIgnoreCase("enabled"))
+		if(oculusAttachedString.equalsIgnoreCase("enabled") && !isHeadless)
 			oculusRiftAttached = true;
-		else if(oculusAttachedString.equalsIgnoreCase("disabled"))
+		else if(oculusAttachedString.equalsIgnoreCase("disabled") || isHeadless)
 			oculusRiftAttached = false;
 		
     	// sets up physics, camera, light, shadows and sky
@@ -338,8 +422,13 @@ public class Simulator extends SimulationBasics
     	//getPhysicsSpace().setAccuracy(0.011f); // new try
     	
     	PanelCenter.init(this);
+    	
+    	// panel will still be updated by car and triggers, but never displayed
+    	if(isHeadless)
+    		guiNode.detachAllChildren();
 	
-        Joystick[] joysticks = inputManager.getJoysticks();
+        // no input manager in headless mode
+        Joystick[] joysticks = (inputManager != null) ? inputManager.getJoysticks() : null;
         if(joysticks != null)
         	for (Joystick joy : joysticks)
         		System.out.println("Connected joystick: " + joy.toString());
@@ -379,9 +468,12 @@ public class Simulator extends SimulationBasics
     	SimulationDefaults.driverName = driverName;
 		
         // setup key binding
-		keyBindingCenter = new KeyBindingCenter(this);
+		if(!isHeadless)
+			keyBindingCenter = new KeyBindingCenter(this);
         
-        AudioCenter.init(this);
+        // no audio renderer available in headless mode
+        if(!isHeadless)
+        	AudioCenter.init(this);
 
         // setup camera settings
         cameraFactory = new SimulatorCam(this, car);
@@ -401,6 +493,10 @@ public class Simulator extends SimulationBasics
 			lightningClient = new LightningClient();
 		}
 		
+		// driving commands of external systems will be applied before every physics step
+		drivingCommandMailbox = new DrivingCommandMailbox(car);
+		getPhysicsSpace().addTickListener(drivingCommandMailbox);
+		
 		// open TCP connection to CAN-bus
 		if(settingsLoader.getSetting(Setting.CANInterface_enableConnection, SimulationDefaults.CANInterface_enableConnection))
 		{
@@ -408,13 +504,44 @@ public class Simulator extends SimulationBasics
 			canClient.start();
 		}
 		
+		// replay steering, gas and brake of a recording (in-process, synchronized with physics)
+		if(settingsLoader.getSetting(Setting.ReplayDriver_enableReplay, SimulationDefaults.ReplayDriver_enableReplay))
+		{
+			String replayFile = settingsLoader.getSetting(Setting.ReplayDriver_file, SimulationDefaults.ReplayDriver_file);
+			replayDriver = new ReplayDriver(this, replayFile);
+			replayDriver.start();
+		}
+		
+		// let an external controller advance the simulation in fixed time steps
+		if(settingsLoader.getSetting(Setting.Lockstep_enableServer, SimulationDefaults.Lockstep_enableServer))
+		{
+			int lockstepPort = settingsLoader.getSetting(Setting.Lockstep_port, SimulationDefaults.Lockstep_port);
+			float timeStep = settingsLoader.getSetting(Setting.Lockstep_timeStep, SimulationDefaults.Lockstep_timeStep);
+			lockstepServer = new LockstepServer(this, lockstepPort, timeStep);
+			lockstepServer.start();
+		}
+		
+		// exchange state and controls with processes on the same machine via a memory-mapped file
+		if(settingsLoader.getSetting(Setting.SharedMemory_enableConnection, SimulationDefaults.SharedMemory_enableConnection))
+		{
+			String sharedMemoryFile = settingsLoader.getSetting(Setting.SharedMemory_file, SimulationDefaults.SharedMemory_file);
+			int maxTrafficObjects = settingsLoader.getSetting(Setting.SharedMemory_maxTrafficObjects, SimulationDefaults.SharedMemory_maxTrafficObjects);
+			sharedMemoryChannel = new SharedMemoryChannel(this, sharedMemoryFile, maxTrafficObjects);
+			getPhysicsSpace().addTickListener(sharedMemoryChannel);
+		}
+		
 		if(settingsLoader.getSetting(Setting.MultiDriver_enableConnection, SimulationDefaults.MultiDriver_enableConnection))
 		{
 			multiDriverClient = new MultiDriverClient(this, driverName);
 			multiDriverClient.start();
 		}
 		
-		drivingTaskLogger = new DrivingTaskLogger(outputFolder, driverName, drivingTask.getFileName());
+		int logFlushInterval = settingsLoader.getSetting(Setting.Analyzer_logFlushInterval, 
+				SimulationDefaults.Analyzer_logFlushInterval);
+		drivingTaskLogger = new DrivingTaskLogger(outputFolder, driverName, drivingTask.getFileName(), logFlushInterval);
+		
+		if(commandLineOptions.getAutoPilot() != null)
+			car.setAutoPilot(commandLineOptions.getAutoPilot());
 		
 		SpeedControlCenter.init(this);
 		
@@ -463,7 +590,9 @@ public class Simulator extends SimulationBasics
         getPhysicsSpace().addCollisionListener(collisionListener);
         
         String videoPath = settingsLoader.getSetting(Setting.General_captureVideo, "");
-        if((videoPath != null) && (!videoPath.isEmpty()) && (Util.isValidFilename(videoPath)))
+        if(isHeadless && videoPath != null && !videoPath.isEmpty())
+        	System.err.println("Video capture not available in headless mode");
+        else if((videoPath != null) && (!videoPath.isEmpty()) && (Util.isValidFilename(videoPath)))
         {
         	System.err.println("videoPath: " + videoPath);
         	File videoFile = new File(videoPath);
@@ -477,6 +606,16 @@ public class Simulator extends SimulationBasics
 		
 		joystickSpringController = new ForceFeedbackJoystickController(this);
 		
+		// record drive data from the start (e.g. in batch mode)
+		if(commandLineOptions.isRecording())
+		{
+			initializeDataWriter(-1);
+			dataWriter.setDataWriterEnabled(true);
+			dataWriter.setStartTime();
+		}
+		
+		System.out.println("Driving task queries: " + drivingTask.getDataQuery().getQueryStatistics());
+		
 		initializationFinished = true;
     }
 
@@ -485,7 +624,21 @@ public class Simulator extends SimulationBasics
 	{
 		String drivingTaskFileName = SimulationDefaults.drivingTaskFileName;
 		File drivingTaskFile = new File(drivingTaskFileName);
-		drivingTask = new DrivingTask(this, drivingTaskFile);
+		drivingTask = new DrivingTask(this, drivingTaskFile, new ModelLoadingListener()
+		{
+			private int lastPercentage = -1;
+			
+			public void onModelLoaded(String modelName, int loadedModels, int totalModels)
+			{
+				// report progress in steps of 10%
+				int percentage = (100 * loadedModels / totalModels) / 10 * 10;
+				if(percentage != lastPercentage)
+				{
+					System.out.println("Loading models: " + percentage + "% (" + loadedModels + "/" + totalModels + ")");
+					lastPercentage = percentage;
+				}
+			}
+		}, commandLineOptions.getSettingOverrides());
 
 		sceneLoader = drivingTask.getSceneLoader();
 		scenarioLoader = drivingTask.getScenarioLoader();
@@ -503,8 +656,30 @@ public class Simulator extends SimulationBasics
 	 */
 	public void initializeDataWriter(int trackNumber) 
 	{
+		String recordingFormat = settingsLoader.getSetting(Setting.Analyzer_recordingFormat, 
+				SimulationDefaults.Analyzer_recordingFormat);
+		int chunkDuration = settingsLoader.getSetting(Setting.Analyzer_chunkDuration, 
+				SimulationDefaults.Analyzer_chunkDuration);
+		
+		RecordingFormat format = RecordingFormat.TEXT;
+		if(recordingFormat.equalsIgnoreCase("binary"))
+			format = RecordingFormat.BINARY;
+		else if(recordingFormat.equalsIgnoreCase("compressed"))
+			format = RecordingFormat.COMPRESSED;
+		
 		dataWriter = new DataWriter(outputFolder, car, SimulationDefaults.driverName, 
-				SimulationDefaults.drivingTaskFileName, trackNumber);
+				SimulationDefaults.drivingTaskFileName, trackNumber, format, chunkDuration);
+		dataWriter.setLastSampleTime(getSimulationTimeStamp());
+		
+		// record all registered channels alongside (sample rate 0: disabled)
+		int channelSampleRate = settingsLoader.getSetting(Setting.Analyzer_channelSampleRate, 
+				SimulationDefaults.Analyzer_channelSampleRate);
+		if(channelSampleRate > 0 && channelRegistry.size() > 0)
+		{
+			channelRecorder = new ChannelRecorder(outputFolder, channelRegistry, SimulationDefaults.driverName, 
+					SimulationDefaults.drivingTaskFileName, trackNumber, channelSampleRate);
+			channelRecorder.setLastSampleTime(getSimulationTimeStamp());
+		}
 	}
 	
 	
@@ -515,17 +690,33 @@ public class Simulator extends SimulationBasics
     	{
 			super.simpleUpdate(tpf);
 			
+			double frameStartTime = simulationTime;
+			
+			// advance simulation as requested by external controller (if connected)
+			if(lockstepServer != null)
+				lockstepServer.update();
+			
+			// car and traffic will be advanced by the lockstep server instead of in real time
+			boolean isRealTime = (lockstepServer == null || !lockstepServer.isActive());
+			
+			// lockstep server advances the clock per step
+			if(isRealTime)
+				updateSimulationTime(tpf);
+			
 			// updates camera
 			cameraFactory.updateCamera();
 		
-			if(!isPause())
+			if(!isPause() && isRealTime)
 				car.getTransmission().updateRPM(tpf);
 		
-			PanelCenter.update();
+			if(!isHeadless)
+				PanelCenter.update();
 		
-			triggerCenter.doTriggerChecks();
+			// in lockstep mode triggers and recording are handled after every physics step
+			if(isRealTime)
+				triggerCenter.doTriggerChecks();
 		
-			updateDataWriter();
+			updateDataWriter(isRealTime);
 			
 			// send camera data via TCP to Lightning
 			if(lightningClient != null)
@@ -538,16 +729,18 @@ public class Simulator extends SimulationBasics
 			if(multiDriverClient != null)
 				multiDriverClient.update();
 			
-			if(!isPause())
-				car.update(tpf, PhysicalTraffic.getTrafficObjectList());
+			if(!isPause() && isRealTime)
+				car.update(tpf, physicalTraffic.getTrafficObjectList());
 			
 			// TODO start thread in init-method to update traffic
-			physicalTraffic.update(tpf); 
+			if(isRealTime)
+				physicalTraffic.update(tpf); 
 			
 			SpeedControlCenter.update();
 			
 			// update necessary even in pause
-			AudioCenter.update(tpf, cam);
+			if(!isHeadless)
+				AudioCenter.update(tpf, cam);
 			
 			if(!isPause())
 				steeringTask.update(tpf);
@@ -572,7 +765,8 @@ public class Simulator extends SimulationBasics
 			// forward instruction screen if available
 			if(instructionScreenID != null)
 			{
-				instructionScreenGUI.showDialog(instructionScreenID);
+				if(!isHeadless)
+					instructionScreenGUI.showDialog(instructionScreenID);
 				instructionScreenID = null;
 			}
 			
@@ -589,6 +783,16 @@ public class Simulator extends SimulationBasics
     		joystickSpringController.update(tpf);
     		
     		updateCoordinateSystem();
+    		
+    		// stop after the (simulation) duration given on the command line (first frame includes loading time)
+    		if(!isPause() && frameCounter > 1)
+    			runTime += (simulationTime - frameStartTime) / 1000f;
+    		
+    		if(commandLineOptions.getDuration() > 0 && runTime >= commandLineOptions.getDuration() && !durationExceeded)
+    		{
+    			durationExceeded = true;
+    			stop();
+    		}
     	}
     }
 
@@ -601,12 +805,79 @@ public class Simulator extends SimulationBasics
 	}
 	
 
-	private void updateDataWriter() 
+	/**
+	 * Advances the clock of recorded data by the given time per frame (fixed 
+	 * time steps) or to the current wall-clock time.
+	 * 
+	 * @param tpf
+	 * 			Time per frame (s).
+	 */
+	private void updateSimulationTime(float tpf)
+	{
+		if(isFixedTimeStep)
+			advanceSimulationTime(tpf);
+		else
+			simulationTime = Math.max(simulationTime, System.currentTimeMillis() + wallClockOffset);
+	}
+	
+	
+	/**
+	 * Advances the clock of recorded data by the given simulated time. In real 
+	 * time, the clock will continue from the new time on.
+	 * 
+	 * @param timeStep
+	 * 			Simulated time (s).
+	 */
+	public void advanceSimulationTime(float timeStep)
+	{
+		simulationTime += timeStep * 1000.0;
+		wallClockOffset = simulationTime - System.currentTimeMillis();
+	}
+	
+	
+	/**
+	 * @return
+	 * 			Current time stamp (ms) of recorded data (monotonic).
+	 */
+	public long getSimulationTimeStamp()
+	{
+		return (long) simulationTime;
+	}
+	
+	
+	/**
+	 * Trigger checks and recording of a single physics step performed by the 
+	 * lockstep server (instead of once per frame).
+	 * 
+	 * @param timeStamp
+	 * 			Simulation time stamp (ms) of the step.
+	 */
+	public void updateLockstepStep(long timeStamp)
+	{
+		triggerCenter.doTriggerChecks();
+		
+		if(dataWriter != null && dataWriter.isDataWriterEnabled() && !isPause())
+		{
+			dataWriter.saveAnalyzerData(timeStamp);
+			
+			if(channelRecorder != null)
+				channelRecorder.update(timeStamp);
+		}
+	}
+	
+	
+	private void updateDataWriter(boolean isRealTime) 
 	{
 		if (dataWriter != null && dataWriter.isDataWriterEnabled()) 
 		{
-			if(!isPause())
-				dataWriter.saveAnalyzerData();
+			if(!isPause() && isRealTime)
+			{
+				long timeStamp = getSimulationTimeStamp();
+				dataWriter.saveAnalyzerData(timeStamp);
+				
+				if(channelRecorder != null)
+					channelRecorder.update(timeStamp);
+			}
 
 			if (!dataWriterQuittable)
 				dataWriterQuittable = true;
@@ -618,6 +889,12 @@ public class Simulator extends SimulationBasics
 				dataWriter.quit();
 				dataWriter = null;
 				dataWriterQuittable = false;
+				
+				if(channelRecorder != null)
+				{
+					channelRecorder.quit();
+					channelRecorder = null;
+				}
 			}
 		}
 	}
@@ -654,8 +931,41 @@ public class Simulator extends SimulationBasics
 			if(lightningClient != null)
 				lightningClient.close();
 			
+			// write remaining samples of the current recording
+			if(dataWriter != null)
+			{
+				dataWriter.quit();
+				dataWriter = null;
+			}
+			
+			if(channelRecorder != null)
+			{
+				channelRecorder.quit();
+				channelRecorder = null;
+			}
+			
+			// write remaining log events
+			drivingTaskLogger.quit();
+			
 			if(canClient != null)
+			{
+				// let client say goodbye to the CAN-Interface (before exit in headless mode)
 				canClient.requestStop();
+				try {
+					canClient.join(1000);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+			
+			if(replayDriver != null)
+				replayDriver.stop();
+			
+			if(lockstepServer != null)
+				lockstepServer.requestStop();
+			
+			if(sharedMemoryChannel != null)
+				sharedMemoryChannel.close();
 				
 			if(multiDriverClient != null)
 				multiDriverClient.close();
@@ -691,14 +1001,28 @@ public class Simulator extends SimulationBasics
 		super.destroy();
 		logger.info("finished destroy()");
 		
-		if (physicalTraffic.getMultiThreadingEnable()){
+		if (physicalTraffic != null && physicalTraffic.getMultiThreadingEnable()){
 			physicalTraffic.executorShutdown();
 		}
 		
-		PlatformImpl.exit();
+		if(!isHeadless)
+			PlatformImpl.exit();
+		else
+		{
+			// exit code tells batch runner whether run was successful
+			System.exit(errorOccurred ? 1 : 0);
+		}
 		//System.exit(0);
     }
 	
+	
+	@Override
+	public void handleError(String errorMessage, Throwable t)
+	{
+		errorOccurred = true;
+		super.handleError(errorMessage, t);
+	}
+	
 
     public static void main(String[] args) 
     {    
@@ -783,14 +1107,24 @@ public class Simulator extends SimulationBasics
     		logger.fatal("Sample fatal message");
     		*/
     		
-    		oculusRiftAttached = OculusRift.initialize();
+    		// e.g. "-headless" to run without display, audio and GUI (see CommandLineOptions)
+    		CommandLineOptions options = new CommandLineOptions(args);
+    		if(!options.isValid())
+    			return;
+    		
+    		isHeadless = options.isHeadless();
+    		
+    		if(!isHeadless)
+    			oculusRiftAttached = OculusRift.initialize();
     		
     		// only show severe jme3-logs
     		java.util.logging.Logger.getLogger("").setLevel(java.util.logging.Level.SEVERE);
     		
-    		PlatformImpl.startup(() -> {});
+    		if(!isHeadless)
+    			PlatformImpl.startup(() -> {});
     		
 	    	Simulator sim = new Simulator();
+	    	sim.commandLineOptions = options;
     		
 	    	StartPropertiesReader startPropertiesReader = new StartPropertiesReader();
 
@@ -810,23 +1144,51 @@ public class Simulator extends SimulationBasics
 				SimulationDefaults.driverName = startPropertiesReader.getDriverName();
 			
 			
-	    	if(args.length >= 1)
+	    	if(!options.getDrivingTaskPath().isEmpty())
 	    	{
-	    		if(DrivingTask.isValidDrivingTask(new File(args[0])))
+	    		if(DrivingTask.isValidDrivingTask(new File(options.getDrivingTaskPath())))
 	    		{
-	    			SimulationDefaults.drivingTaskFileName = args[0];
+	    			SimulationDefaults.drivingTaskFileName = options.getDrivingTaskPath();
 	    			sim.drivingTaskGiven = true;
 	    		}
 	    	}
 	
-	    	if(args.length >= 2)
+	    	if(!options.getDriverName().isEmpty())
 	    	{
-	    		SimulationDefaults.driverName = args[1];
+	    		SimulationDefaults.driverName = options.getDriverName();
 	    	}
 			
 	    	sim.setPauseOnLostFocus(false);
 	    	
-			sim.start();
+	    	if(isHeadless)
+	    	{
+	    		// driving task selection GUI not available
+	    		if(!sim.drivingTaskGiven)
+	    		{
+	    			System.err.println("Headless mode requires a valid driving task: Simulator -headless <drivingTask> [<driverName>]");
+	    			return;
+	    		}
+	    		
+	    		sim.setShowSettings(false);
+	    		if(options.isRealTime())
+	    		{
+	    			// limit frame rate (NullContext would run as fast as possible otherwise)
+	    			if(sim.getSettings().getFrameRate() <= 0)
+	    				sim.getSettings().setFrameRate(60);
+	    		}
+	    		else
+	    		{
+	    			// every frame simulates one physics step, as fast as the CPU allows
+	    			// (NullContext limits values <= 0 to 60 fps; max. value: no waiting)
+	    			isFixedTimeStep = true;
+	    			sim.getSettings().setFrameRate(Integer.MAX_VALUE);
+	    			sim.setTimer(new FixedStepTimer(FIXED_TIME_STEP));
+	    		}
+	    		
+	    		sim.start(JmeContext.Type.Headless);
+	    	}
+	    	else
+	    		sim.start();
     	}
     	catch(Exception e1)
     	{
@@ -19,13 +19,11 @@
 package eu.opends.multiDriver;
 
 
-import java.net.Socket;
 import java.net.SocketException;
-import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
-import java.io.*;
 
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
@@ -37,6 +35,10 @@ import eu.opends.drivingTask.settings.SettingsLoader.Setting;
 import eu.opends.environment.XMLParser;
 import eu.opends.main.SimulationDefaults;
 import eu.opends.main.Simulator;
+import eu.opends.tools.FramedConnection;
+import eu.opends.tools.FramedConnection.Framing;
+import eu.opends.tools.FramedConnection.MessageListener;
+import eu.opends.tools.LatencyStatistics;
 
 /**
  * This class represents the connector to the CAN-Interface. Steering, gas, brake and 
@@ -51,13 +53,14 @@ public class MultiDriverClient extends Thread
 {
 	private Simulator sim;
 	private ArrayList<Update> updateList = new ArrayList<Update>();
+	private ArrayList<Long> receiveTimeList = new ArrayList<Long>();
+	private long currentReceiveTime;
 	private Car car;
 	private int framerate;
 	private boolean stoprequested;
 	private boolean errorOccurred;
 	private Calendar timeOfLastFire;
-	private PrintWriter printWriter;
-	private Socket socket;
+	private FramedConnection connection;
 	private String id;
 	private ArrayList<String> registeredVehiclesList;
 	
@@ -93,8 +96,7 @@ public class MultiDriverClient extends Thread
 		try {
 
 			// connect to Server
-			socket = new Socket(ip,port);
-			socket.setSoTimeout(10);
+			connection = new FramedConnection(ip, port, Framing.XML_ELEMENT, 64 * 1024);
 			
 		 	// send car data (model path and driver name) to multi driver server and flush
 			
@@ -106,9 +108,7 @@ public class MultiDriverClient extends Thread
 			String registerString = "<multiDriver> <register id=\"salut\"> <modelPath>" + carModelPath + 
 										"</modelPath> <driverName>"	+ driverName + "</driverName> </register> </multiDriver>";
 			*/
-			printWriter = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
-		 	printWriter.print(registerString);
-		 	printWriter.flush();
+			connection.send(registerString);
 		 	
 		 	//System.out.print(registerString);
 
@@ -135,18 +135,8 @@ public class MultiDriverClient extends Thread
 		{
 			try {
 
-				// delete "NUL" at the end of each line
-				String message = readMessage(socket).replace("\0", "");
-				
-				// print XML instruction
-				//System.out.println(message);
-				
-				// parse and evaluate XML instruction
-				// on "registered" --> call method setID();
-				// on "update" --> perform changes
-				// on "unregistered" --> call method requestStop()
-				XMLParser parser = new XMLParser("<multiDriver>" + message + "</multiDriver>");
-				parser.evalMultiDriverInstruction(sim, this);
+				// wait up to 10 ms and evaluate all complete messages
+				connection.receive(messageListener, 10);
 
 			} catch (SocketException e) {
 				
@@ -154,14 +144,6 @@ public class MultiDriverClient extends Thread
 				shutDownMessage = "Multi driver server: connection closed by server";
 				errorOccurred = true;
 				
-			} catch (StringIndexOutOfBoundsException e) {
-				
-				// will be thrown if e.g. "stop server" button has been clicked
-				shutDownMessage = "Multi driver server: connection closed by server";
-				errorOccurred = true;
-				
-			} catch (SocketTimeoutException e) {
-				
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -169,19 +151,34 @@ public class MultiDriverClient extends Thread
 		}
 		
 		// close TCP connection to multi driver server if connected at all
-		try {
-			if ((socket != null) && (printWriter != null))
-			{			
-				// close socket connection
-				printWriter.close();
-				socket.close();
-					
-				System.out.println(shutDownMessage);
-			}
-		} catch (Exception ex) {
-			System.err.println("Could not close connection to multi driver server");
+		if (connection != null)
+		{
+			connection.close();
+			System.out.println(shutDownMessage + " (" + connection.getLatencyStatistics() + ")");
 		}
 	}
+	
+	
+	/**
+	 * Evaluates every message received from the multi driver server.
+	 */
+	private MessageListener messageListener = new MessageListener()
+	{
+		@Override
+		public void messageReceived(ByteBuffer buffer, long receiveTime) throws Exception
+		{
+			// print XML instruction
+			//System.out.println(FramedConnection.toString(buffer));
+			
+			// parse and evaluate XML instruction
+			// on "registered" --> call method setID();
+			// on "update" --> perform changes (latency will be added when performed)
+			// on "unregistered" --> call method requestStop()
+			currentReceiveTime = receiveTime;
+			XMLParser parser = new XMLParser("<multiDriver>" + FramedConnection.toString(buffer) + "</multiDriver>");
+			parser.evalMultiDriverInstruction(sim, MultiDriverClient.this);
+		}
+	};
 
 	
 	/**
@@ -190,7 +187,7 @@ public class MultiDriverClient extends Thread
 	public synchronized void sendCarData()
 	{
 		// break, if no connection established
-		if(socket == null || id == null || errorOccurred)
+		if(connection == null || id == null || errorOccurred)
 			return;
 		
 		// generate time stamp
@@ -217,8 +214,7 @@ public class MultiDriverClient extends Thread
 										"<wheel steering=\"" + wheelSteering + "\" position=\"" + wheelPositon + "\"/>" +
 									"</update>";
 	
-		 	printWriter.print(positionString);
-		 	printWriter.flush();
+			send(positionString);
 		}
 	}
 	
@@ -247,7 +243,7 @@ public class MultiDriverClient extends Thread
 	public synchronized void close() 
 	{
 		// break, if no connection established
-		if(socket == null || id == null || errorOccurred)	
+		if(connection == null || id == null || errorOccurred)	
 		{
 			stoprequested = true;
 			return;
@@ -256,8 +252,30 @@ public class MultiDriverClient extends Thread
 	 	// send unregister string to multi driver server and flush
 		String outputString = "<unregister>" + id + "</unregister>";
 
-	 	printWriter.print(outputString);
-	 	printWriter.flush();
+		send(outputString);
+	}
+	
+	
+	private void send(String string)
+	{
+		try {
+			connection.send(string);
+		} catch (Exception e) {
+			System.err.println("MultiDriverClient: " + e.toString());
+		}
+	}
+	
+	
+	/**
+	 * Returns the statistics of the time between receiving an update and 
+	 * performing it on the scene graph.
+	 * 
+	 * @return
+	 * 			Latency statistics (null, if not connected).
+	 */
+	public LatencyStatistics getLatencyStatistics()
+	{
+		return (connection != null) ? connection.getLatencyStatistics() : null;
 	}
     
 	
@@ -279,27 +297,6 @@ public class MultiDriverClient extends Thread
 	}
 	
 	
-	/**
-	 * Reads an incoming message from the socket connection.
-	 * 
-	 * @param socket
-	 * 			Socket connection
-	 * 
-	 * @return
-	 * 			Message string of up to 10,000 characters
-	 * 
-	 * @throws IOException
-	 */
-	private String readMessage(Socket socket) throws IOException 
-	{
-		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-		char[] buffer = new char[10000];
-		int nrOfChars = bufferedReader.read(buffer, 0, buffer.length);
-		
-		return new String(buffer, 0, nrOfChars);
-	}
-	
-	
 	/**
 	 * This method checks whether the incoming camera information should 
 	 * be sent to the server at the current time complying with the given 
@@ -351,20 +348,30 @@ public class MultiDriverClient extends Thread
 
 	public void addVehicle(String vehicleID, String modelPath, String driverName)
 	{
-		updateList.add(new AddUpdate(sim, vehicleID, modelPath, driverName));
+		addUpdate(new AddUpdate(sim, vehicleID, modelPath, driverName));
 	}
 	
 
 	public void changeVehicle(String vehicleID, String positionString, String rotationString, String headingString, 
 			String wheelString)
 	{
-		updateList.add(new ChangeUpdate(sim, vehicleID, positionString, rotationString, headingString, wheelString));
+		addUpdate(new ChangeUpdate(sim, vehicleID, positionString, rotationString, headingString, wheelString));
 	}
 	
 	
 	public void removeVehicle(String vehicleID)
 	{
-		updateList.add(new RemoveUpdate(sim, vehicleID));
+		addUpdate(new RemoveUpdate(sim, vehicleID));
+	}
+	
+	
+	private void addUpdate(Update update)
+	{
+		synchronized(updateList)
+		{
+			updateList.add(update);
+			receiveTimeList.add(currentReceiveTime);
+		}
 	}
 	
 
@@ -377,11 +384,25 @@ public class MultiDriverClient extends Thread
 	
 	public void updateSceneGraph()
 	{		
-		while(updateList.size() > 0)	
+		Update[] updates;
+		long[] receiveTimes;
+		synchronized(updateList)
+		{
+			if(updateList.isEmpty())
+				return;
+			
+			updates = updateList.toArray(new Update[updateList.size()]);
+			receiveTimes = new long[receiveTimeList.size()];
+			for(int i=0; i<receiveTimes.length; i++)
+				receiveTimes[i] = receiveTimeList.get(i);
+			updateList.clear();
+			receiveTimeList.clear();
+		}
+		
+		for(int i=0; i<updates.length; i++)
 		{
-			Update update = updateList.get(0);
-			update.performUpdate();
-			updateList.remove(0);
+			updates[i].performUpdate();
+			connection.getLatencyStatistics().addSample(receiveTimes[i]);
 		}
 	}
 
@@ -31,7 +31,6 @@ import eu.opends.environment.LaneLimit;
 import eu.opends.jasperReport.ReactionLogger;
 import eu.opends.main.Simulator;
 import eu.opends.tools.Util;
-import eu.opends.traffic.PhysicalTraffic;
 import eu.opends.traffic.TrafficObject;
 
 /**
@@ -409,7 +408,7 @@ public class BrakeReactionTimer extends ReactionTimer
 	private Vector3f getVehicleLoc(String obstacleName)
 	{
 		//System.out.println(obstacleName+ "hi");
-		for(TrafficObject trafficObject : PhysicalTraffic.getTrafficObjectList())
+		for(TrafficObject trafficObject : sim.getPhysicalTraffic().getTrafficObjectList())
 		{
 			if(trafficObject.getName().equals(obstacleName))
 			{
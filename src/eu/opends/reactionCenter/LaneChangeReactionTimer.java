@@ -36,7 +36,6 @@ import eu.opends.jasperReport.ReactionLogger;
 import eu.opends.main.Simulator;
 import eu.opends.tools.PanelCenter;
 import eu.opends.tools.Util;
-import eu.opends.traffic.PhysicalTraffic;
 import eu.opends.traffic.TrafficObject;
 
 /**
@@ -468,7 +467,7 @@ public class LaneChangeReactionTimer extends ReactionTimer
 	private Vector3f getVehicleLoc(String obstacleName)
 	{
 		//System.out.println(obstacleName+ "hi");
-		for(TrafficObject trafficObject : PhysicalTraffic.getTrafficObjectList())
+		for(TrafficObject trafficObject : sim.getPhysicalTraffic().getTrafficObjectList())
 		{
 			if(trafficObject.getName().equals(obstacleName))
 			{
@@ -60,7 +60,7 @@ public class ReactionCenter
 			isRunning = true;
 			
 			System.err.println("Start");
-			Simulator.getDrivingTaskLogger().reportText("Start Time \t Task \t Condition \t Accuracy \t" +
+			sim.getDrivingTaskLogger().reportText("Start Time \t Task \t Condition \t Accuracy \t" +
 					"Lateral Acceleration \t Average TTC \t Minimum TTC \t # of Collisions \t" +
 					"RT_brake1 \t RT_brake2 \t RT_brake3 \t RT_brake4 \t RT_change1 \t RT_change2 \t RT_change3 \t RT_change4");
 		}
@@ -70,7 +70,9 @@ public class ReactionCenter
 	public void setupKeyReactionTimer(String timerID, String reactionGroupID, String correctReaction, 
 			String failureReaction,	String comment)
 	{
-		if(isRunning)
+		if(inputManager == null)
+			System.err.println("Key reaction timer '" + timerID + "' not available in headless mode");
+		else if(isRunning)
 		{
 			// if timerID is not contained in reactionTimerList
 			ReactionTimer reactionTimer = getReactionTimer(timerID);
@@ -68,7 +68,7 @@ public abstract class ReactionTimer
 		comment = newComment;
 		resetTimer();
 		
-		trialLogger = new TrialLogger(newReactionGroupID, comment);
+		trialLogger = new TrialLogger(newReactionGroupID, comment, sim.getDrivingTaskLogger());
 		
 		System.err.println("Setup reaction timer '" + timerID + "' (reaction group: '" + reactionGroupID + "')");
 	}
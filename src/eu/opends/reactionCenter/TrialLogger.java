@@ -18,8 +18,8 @@
 
 package eu.opends.reactionCenter;
 
+import eu.opends.analyzer.DrivingTaskLogger;
 import eu.opends.main.SimulationDefaults;
-import eu.opends.main.Simulator;
 
 /**
  * 
@@ -27,6 +27,7 @@ import eu.opends.main.Simulator;
  */
 public class TrialLogger 
 {
+	private DrivingTaskLogger drivingTaskLogger;
 	private long startTime;
 	private int trialNumber = -1;
 	private String vpn_age_gender_track = "-1;-1;-1;-1";
@@ -55,8 +56,9 @@ public class TrialLogger
 	private String laneChangeRT_success = "";
 	
 	
-	public TrialLogger(String condition_string, String comment) 
+	public TrialLogger(String condition_string, String comment, DrivingTaskLogger drivingTaskLogger) 
 	{
+		this.drivingTaskLogger = drivingTaskLogger;
 		this.trialNumber = parseTrialNumber(comment);
 		
 		// vpn;age;gender;track
@@ -118,7 +120,7 @@ public class TrialLogger
 	public void writeLog()
 	{	
 		// This is what writes out the headlines for the drivingTaskLog file
-		Simulator.getDrivingTaskLogger().reportText(startTime +"\t" + task + "\t" + condition_string + "\t" + 
+		drivingTaskLogger.reportText(startTime +"\t" + task + "\t" + condition_string + "\t" + 
 				reaction + "\t" + latAcl + "\t" + avgTTC + "\t" + minTTC + "\t" + noCollisions + "\t" + 
 				brakeRT_noGas + "\t" + brakeRT_StartBrake + "\t" + brakeRT_80pcBrake +	"\t" + brakeRT_success + "\t" + 
 				laneChangeRT_2angle + "\t" +	laneChangeRT_3angle + "\t" + laneChangeRT_enterLane + "\t" + laneChangeRT_success);
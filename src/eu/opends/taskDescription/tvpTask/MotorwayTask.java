@@ -34,7 +34,6 @@ import eu.opends.tools.DistanceBarSegment;
 import eu.opends.tools.DistanceBar.Pivot;
 import eu.opends.tools.DistanceBarSegment.SegmentType;
 import eu.opends.tools.Util;
-import eu.opends.traffic.PhysicalTraffic;
 import eu.opends.traffic.TrafficCar;
 import eu.opends.traffic.TrafficObject;
 
@@ -75,7 +74,7 @@ public class MotorwayTask
 			city.detachChildNamed("Test01_0-geom-15");
 			
 			
-			for(TrafficObject trafficCar : PhysicalTraffic.getTrafficObjectList())
+			for(TrafficObject trafficCar : sim.getPhysicalTraffic().getTrafficObjectList())
 			{
 				if(trafficCar instanceof TrafficCar)
 				{
@@ -110,7 +109,7 @@ public class MotorwayTask
 		float carX = car.getPosition().getX();
 		float carZ = car.getPosition().getZ();
 		
-		for(TrafficObject trafficCar : PhysicalTraffic.getTrafficObjectList())
+		for(TrafficObject trafficCar : sim.getPhysicalTraffic().getTrafficObjectList())
 		{
 			if(trafficCar instanceof TrafficCar && trafficCar.getPosition().getX() < 0)
 			{
@@ -199,7 +198,7 @@ public class MotorwayTask
 				String distLaneEnd = decimalFormat.format(Math.abs(-913 - carZ));
 				String percentage = decimalFormat.format((distLaneBeginningFloat/281f)*100f);
 				
-				Simulator.getDrivingTaskLogger().reportText(time + " --> Entering motorway" + newLine + 
+				sim.getDrivingTaskLogger().reportText(time + " --> Entering motorway" + newLine + 
 						"Distance to leading car:         " + distLeadingCar + " m" + newLine + 
 						"Distance to follower car:        " + distFollowerCar + " m" + newLine + 
 						"Distance from beginning of lane: " + distLaneBeginning + " m" + newLine + 
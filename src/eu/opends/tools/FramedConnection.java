@@ -0,0 +1,394 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.tools;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+
+/**
+ * TCP connection to an external system (e.g. CAN-Interface, multi driver 
+ * server) which splits the received byte stream into messages. All data is 
+ * read into a persistent direct buffer; any number of messages per read is
+ * supported and incomplete messages are kept until the rest has arrived. 
+ * 
+ * Two kinds of framing are available:
+ * <ul>
+ * <li>LENGTH_PREFIXED: every message is preceded by its length (int, big endian)</li>
+ * <li>XML_ELEMENT: every top-level XML element is a message; bytes outside of 
+ * elements (e.g. NUL terminators) are skipped</li>
+ * </ul>
+ * 
+ * <code>receive()</code> must be called by a single thread, whereas 
+ * <code>send()</code> may be called by any thread.
+ * 
+ * @author Rafael Math
+ */
+public class FramedConnection
+{
+	public enum Framing
+	{
+		LENGTH_PREFIXED, XML_ELEMENT;
+	}
+
+
+	/**
+	 * Will be notified about every complete message.
+	 */
+	public interface MessageListener
+	{
+		/**
+		 * @param message
+		 * 			Content of the message (without length prefix) between position 
+		 * 			and limit; only valid during this call.
+		 * 
+		 * @param receiveTime
+		 * 			Time (<code>System.nanoTime()</code>) the message has been received.
+		 */
+		void messageReceived(ByteBuffer message, long receiveTime) throws Exception;
+	}
+
+
+	public static final Charset charset = Charset.forName("UTF-8");
+	private static final int LENGTH_PREFIX_SIZE = 4;
+
+	private SocketChannel channel;
+	private Selector selector;
+	private Framing framing;
+	private ByteBuffer receiveBuffer;
+	private ByteBuffer messageView;
+	private LatencyStatistics latencyStatistics = new LatencyStatistics();
+	private long receivedMessageCount = 0;
+
+
+	/**
+	 * Connects to the given host.
+	 * 
+	 * @param ip
+	 * 			IP address or host name.
+	 * 
+	 * @param port
+	 * 			Port number.
+	 * 
+	 * @param framing
+	 * 			Framing of the messages sent by the host.
+	 * 
+	 * @param bufferSize
+	 * 			Size of the receive buffer (bytes); limits the size of a single message.
+	 * 
+	 * @throws IOException
+	 * 			if no connection could be established.
+	 */
+	public FramedConnection(String ip, int port, Framing framing, int bufferSize) throws IOException
+	{
+		this(SocketChannel.open(new InetSocketAddress(ip, port)), framing, bufferSize);
+	}
+
+
+	/**
+	 * Uses the given (e.g. accepted) connection.
+	 * 
+	 * @param channel
+	 * 			Connected socket channel.
+	 * 
+	 * @param framing
+	 * 			Framing of the messages sent by the remote host.
+	 * 
+	 * @param bufferSize
+	 * 			Size of the receive buffer (bytes); limits the size of a single message.
+	 * 
+	 * @throws IOException
+	 */
+	public FramedConnection(SocketChannel channel, Framing framing, int bufferSize) throws IOException
+	{
+		this.channel = channel;
+		this.framing = framing;
+
+		receiveBuffer = ByteBuffer.allocateDirect(bufferSize);
+		messageView = receiveBuffer.duplicate();
+
+		channel.socket().setTcpNoDelay(true);
+		channel.configureBlocking(false);
+
+		selector = Selector.open();
+		channel.register(selector, SelectionKey.OP_READ);
+	}
+
+
+	/**
+	 * Waits up to the given time for incoming data and passes all complete 
+	 * messages to the listener.
+	 * 
+	 * @param listener
+	 * 			Listener to notify about every message.
+	 * 
+	 * @param timeout
+	 * 			Max. waiting time in milliseconds.
+	 * 
+	 * @return
+	 * 			Number of messages passed to the listener.
+	 * 
+	 * @throws IOException
+	 * 			(SocketException) if the connection has been closed or the stream
+	 * 			cannot be split into messages.
+	 */
+	public int receive(MessageListener listener, long timeout) throws IOException
+	{
+		if(selector.select(timeout) == 0)
+			return 0;
+
+		selector.selectedKeys().clear();
+
+		int messageCount = 0;
+		boolean bufferFilled;
+		do {
+
+			if(channel.read(receiveBuffer) < 0)
+				throw new SocketException("Connection closed by remote host");
+
+			// more data might be available if buffer has been filled completely
+			bufferFilled = !receiveBuffer.hasRemaining();
+			long receiveTime = System.nanoTime();
+
+			receiveBuffer.flip();
+			if(framing == Framing.LENGTH_PREFIXED)
+				messageCount += extractLengthPrefixedMessages(listener, receiveTime);
+			else
+				messageCount += extractXMLElements(listener, receiveTime);
+			receiveBuffer.compact();
+
+			if(!receiveBuffer.hasRemaining())
+				throw new SocketException("Message exceeds receive buffer (" + receiveBuffer.capacity() + " bytes)");
+
+		} while(bufferFilled);
+
+		receivedMessageCount += messageCount;
+		return messageCount;
+	}
+
+
+	private int extractLengthPrefixedMessages(MessageListener listener, long receiveTime) throws IOException
+	{
+		int messageCount = 0;
+		while(receiveBuffer.remaining() >= LENGTH_PREFIX_SIZE)
+		{
+			int start = receiveBuffer.position();
+			int length = receiveBuffer.getInt(start);
+			if(length < 0 || length > receiveBuffer.capacity() - LENGTH_PREFIX_SIZE)
+			{
+				// stream cannot be synchronized again
+				receiveBuffer.clear();
+				throw new SocketException("Invalid message length: " + length);
+			}
+
+			if(receiveBuffer.remaining() < LENGTH_PREFIX_SIZE + length)
+				break;
+
+			int end = start + LENGTH_PREFIX_SIZE + length;
+			notifyListener(listener, start + LENGTH_PREFIX_SIZE, end, receiveTime);
+			receiveBuffer.position(end);
+			messageCount++;
+		}
+		return messageCount;
+	}
+
+
+	private int extractXMLElements(MessageListener listener, long receiveTime)
+	{
+		int messageCount = 0;
+		int consumed = receiveBuffer.position();
+		int elementStart = -1;
+		int depth = 0;
+
+		int limit = receiveBuffer.limit();
+		for(int i=receiveBuffer.position(); i<limit; i++)
+		{
+			if(receiveBuffer.get(i) != '<')
+				continue;
+
+			int tagEnd = findTagEnd(i, limit);
+			if(tagEnd < 0)
+				break;
+
+			byte next = (i+1 < limit) ? receiveBuffer.get(i+1) : 0;
+			boolean isDeclaration = (next == '?' || next == '!');
+			boolean isEndTag = (next == '/');
+			boolean isEmptyElement = (receiveBuffer.get(tagEnd-1) == '/');
+
+			if(!isDeclaration)
+			{
+				if(elementStart < 0)
+				{
+					if(!isEndTag)
+						elementStart = i;
+				}
+				else if(isEndTag)
+					depth--;
+
+				if(!isEndTag && !isEmptyElement)
+					depth++;
+
+				if(elementStart >= 0 && depth == 0)
+				{
+					notifyListener(listener, elementStart, tagEnd + 1, receiveTime);
+					messageCount++;
+					elementStart = -1;
+				}
+			}
+
+			if(elementStart < 0)
+				consumed = tagEnd + 1;
+
+			i = tagEnd;
+		}
+
+		// skip data outside of elements (except a possibly incomplete tag)
+		if(elementStart >= 0)
+			consumed = elementStart;
+		else
+			consumed = Math.max(consumed, lastIndexOf('<', consumed, limit));
+
+		receiveBuffer.position(consumed);
+		return messageCount;
+	}
+
+
+	private int findTagEnd(int start, int limit)
+	{
+		byte quote = 0;
+		for(int i=start+1; i<limit; i++)
+		{
+			byte b = receiveBuffer.get(i);
+			if(quote != 0)
+			{
+				if(b == quote)
+					quote = 0;
+			}
+			else if(b == '"' || b == '\'')
+				quote = b;
+			else if(b == '>')
+				return i;
+		}
+		return -1;
+	}
+
+
+	private int lastIndexOf(char c, int from, int limit)
+	{
+		for(int i=limit-1; i>=from; i--)
+			if(receiveBuffer.get(i) == c)
+				return i;
+		return limit;
+	}
+
+
+	private void notifyListener(MessageListener listener, int start, int end, long receiveTime)
+	{
+		messageView.limit(end).position(start);
+
+		try {
+			listener.messageReceived(messageView, receiveTime);
+		} catch (Exception e) {
+			// do not lose the following messages
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Decodes the given message as UTF-8 string.
+	 * 
+	 * @param message
+	 * 			Message as passed to the listener.
+	 * 
+	 * @return
+	 * 			Content of the message.
+	 */
+	public static String toString(ByteBuffer message)
+	{
+		return charset.decode(message).toString();
+	}
+
+
+	/**
+	 * Sends the given data completely (blocks until all data has been written).
+	 * 
+	 * @param data
+	 * 			Data between position and limit will be sent.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void send(ByteBuffer data) throws IOException
+	{
+		while(data.hasRemaining())
+		{
+			if(channel.write(data) == 0)
+				Thread.yield();
+		}
+	}
+
+
+	/**
+	 * Sends the given string (UTF-8).
+	 * 
+	 * @param string
+	 * 			String to send.
+	 * 
+	 * @throws IOException
+	 */
+	public void send(String string) throws IOException
+	{
+		send(charset.encode(string));
+	}
+
+
+	/**
+	 * Statistics of the time between receiving and applying the messages. Samples 
+	 * must be added by the user of this connection when a message has been applied.
+	 * 
+	 * @return
+	 * 			Latency statistics of this connection.
+	 */
+	public LatencyStatistics getLatencyStatistics()
+	{
+		return latencyStatistics;
+	}
+
+
+	public long getReceivedMessageCount()
+	{
+		return receivedMessageCount;
+	}
+
+
+	public void close()
+	{
+		try {
+			selector.close();
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
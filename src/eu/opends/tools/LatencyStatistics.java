@@ -0,0 +1,138 @@
+/*
+*  This file is part of OpenDS (Open Source Driving Simulator).
+*  Copyright (C) 2016 Rafael Math
+*
+*  OpenDS is free software: you can redistribute it and/or modify
+*  it under the terms of the GNU General Public License as published by
+*  the Free Software Foundation, either version 3 of the License, or
+*  (at your option) any later version.
+*
+*  OpenDS is distributed in the hope that it will be useful,
+*  but WITHOUT ANY WARRANTY; without even the implied warranty of
+*  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+*  GNU General Public License for more details.
+*
+*  You should have received a copy of the GNU General Public License
+*  along with OpenDS. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package eu.opends.tools;
+
+import java.util.Locale;
+
+/**
+ * Collects latencies between receiving a message and applying it to the 
+ * simulation (e.g. messages of the CAN-Interface). Besides count, mean and
+ * maximum, a histogram (resolution 0.1 ms) is kept in order to compute 
+ * percentiles without storing every single sample. 
+ * 
+ * All methods are thread-safe, as samples are usually added by another 
+ * thread than the one reading the statistics.
+ * 
+ * @author Rafael Math
+ */
+public class LatencyStatistics
+{
+	// histogram resolution in ns; latencies of 100 ms or more share the last bucket
+	private static final long BUCKET_SIZE = 100000L;
+	private static final int BUCKET_COUNT = 1001;
+
+	private long[] histogram = new long[BUCKET_COUNT];
+	private long count = 0;
+	private long sum = 0;
+	private long max = 0;
+
+
+	/**
+	 * Adds the latency of a message that has been applied just now.
+	 * 
+	 * @param receiveTime
+	 * 			Time (<code>System.nanoTime()</code>) the message has been received.
+	 */
+	public void addSample(long receiveTime)
+	{
+		addLatency(System.nanoTime() - receiveTime);
+	}
+
+
+	/**
+	 * Adds a latency.
+	 * 
+	 * @param latency
+	 * 			Latency in nanoseconds.
+	 */
+	public synchronized void addLatency(long latency)
+	{
+		latency = Math.max(latency, 0);
+		histogram[(int) Math.min(latency / BUCKET_SIZE, BUCKET_COUNT - 1)]++;
+		count++;
+		sum += latency;
+		max = Math.max(max, latency);
+	}
+
+
+	public synchronized long getCount()
+	{
+		return count;
+	}
+
+
+	public synchronized float getMeanMillis()
+	{
+		if(count == 0)
+			return 0;
+
+		return (sum / (float) count) / 1000000f;
+	}
+
+
+	public synchronized float getMaxMillis()
+	{
+		return max / 1000000f;
+	}
+
+
+	/**
+	 * Returns the latency not exceeded by the given share of all samples 
+	 * (upper bound of the histogram bucket).
+	 * 
+	 * @param percentile
+	 * 			Share of samples (0..1), e.g. 0.99
+	 * 
+	 * @return
+	 * 			Latency in milliseconds.
+	 */
+	public synchronized float getPercentileMillis(float percentile)
+	{
+		if(count == 0)
+			return 0;
+
+		long threshold = (long) Math.ceil(percentile * count);
+		long sampleCount = 0;
+		for(int i=0; i<BUCKET_COUNT; i++)
+		{
+			sampleCount += histogram[i];
+			if(sampleCount >= threshold)
+				return Math.min((i+1) * BUCKET_SIZE, max) / 1000000f;
+		}
+
+		return getMaxMillis();
+	}
+
+
+	public synchronized void reset()
+	{
+		histogram = new long[BUCKET_COUNT];
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+
+
+	@Override
+	public String toString()
+	{
+		return String.format(Locale.ENGLISH, "%d messages, latency mean: %.3f ms, 99%%: %.3f ms, max: %.3f ms",
+				getCount(), getMeanMillis(), getPercentileMillis(0.99f), getMaxMillis());
+	}
+}
@@ -1279,9 +1279,9 @@ public class PanelCenter
 			if(!reportedExceeding)
 			{
 				if(carSpeed > currentSpeedLimit+10)
-					Simulator.getDrivingTaskLogger().reportSpeedLimitExceeded();
+					((Simulator) sim).getDrivingTaskLogger().reportSpeedLimitExceeded();
 				else
-					Simulator.getDrivingTaskLogger().reportSpeedLimitUnderExceeded();
+					((Simulator) sim).getDrivingTaskLogger().reportSpeedLimitUnderExceeded();
 				reportedExceeding = true;
 			}
 		}
@@ -1289,7 +1289,7 @@ public class PanelCenter
 		{
 			if(reportedExceeding)
 			{
-				Simulator.getDrivingTaskLogger().reportSpeedNormal();
+				((Simulator) sim).getDrivingTaskLogger().reportSpeedNormal();
 				reportedExceeding = false;
 			}
 			speedText.setColor(ColorRGBA.LightGray);
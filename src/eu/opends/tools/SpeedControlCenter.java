@@ -75,7 +75,7 @@ public class SpeedControlCenter
 			float averageDifference = speedDifferenceComputer.getAverageDifference();
 			float standardDeviation = speedDifferenceComputer.getStandardDeviation();
 			
-			Simulator.getDrivingTaskLogger().reportSpeedDifference(averageDifference, standardDeviation);
+			sim.getDrivingTaskLogger().reportSpeedDifference(averageDifference, standardDeviation);
 			
 			speedDifferenceComputer.reset();
 		}
@@ -106,7 +106,7 @@ public class SpeedControlCenter
 	{
 		if(brakeTimer != null)
 		{
-			Simulator.getDrivingTaskLogger().reportReactionTime(triggerNameBrakeTimer, brakeTimer);
+			sim.getDrivingTaskLogger().reportReactionTime(triggerNameBrakeTimer, brakeTimer);
 			brakeTimer = null;
 		}
 	}
@@ -130,7 +130,7 @@ public class SpeedControlCenter
 				||
 			   ((speedChangeValue < 0) &&  (currentSpeedValue < initialSpeedValue+speedChangeValue)))
 			{
-				Simulator.getDrivingTaskLogger().reportReactionTime(triggerNameSpeedChangeTimer, speedChangeTimer);
+				sim.getDrivingTaskLogger().reportReactionTime(triggerNameSpeedChangeTimer, speedChangeTimer);
 				speedChangeTimer = null;
 			}
 		}
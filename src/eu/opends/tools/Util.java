@@ -232,7 +232,7 @@ public class Util
 		File dir = new File(directory);
 		
 		if (!dir.exists())
-			dir.mkdir();
+			dir.mkdirs();
 		else if (!dir.isDirectory())
 			System.err.println("'" + directory + "' exists but is not a directory");		
 	}
@@ -24,6 +24,11 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import eu.opends.analyzer.ChannelRegistry;
+import eu.opends.analyzer.ChannelType;
+import eu.opends.analyzer.RecordingChannel;
+import eu.opends.car.Car;
+import eu.opends.drivingTask.scenario.ScenarioLoader;
 import eu.opends.drivingTask.settings.SettingsLoader;
 import eu.opends.drivingTask.settings.SettingsLoader.Setting;
 import eu.opends.main.SimulationDefaults;
@@ -37,10 +42,11 @@ import eu.opends.main.Simulator;
  */
 public class PhysicalTraffic extends Thread
 {
-	private static ArrayList<TrafficCarData> vehicleDataList = new ArrayList<TrafficCarData>();
-	private static ArrayList<PedestrianData> pedestrianDataList = new ArrayList<PedestrianData>();
-    private static ArrayList<TrafficObject> trafficObjectList = new ArrayList<TrafficObject>();
-    private static ArrayList<AnimatedRoadSignData> animatedRoadSignDataList = new ArrayList<AnimatedRoadSignData>();
+	// traffic of the current driving task (not static, as several simulations may share one JVM)
+	private ArrayList<TrafficCarData> vehicleDataList;
+	private ArrayList<PedestrianData> pedestrianDataList;
+    private ArrayList<TrafficObject> trafficObjectList = new ArrayList<TrafficObject>();
+    private ArrayList<AnimatedRoadSignData> animatedRoadSignDataList;
 	private boolean isRunning = true;
 	private int updateIntervalMsec = 20;
 	private long lastUpdate = 0;
@@ -56,6 +62,12 @@ public class PhysicalTraffic extends Thread
 		if (multiThreadingEnabled){
 				executor = new ScheduledThreadPoolExecutor(multiThreading_numberOfThreads);
 		}
+		
+		ScenarioLoader scenarioLoader = Simulator.getDrivingTask().getScenarioLoader();
+		vehicleDataList = scenarioLoader.getVehicleDataList();
+		pedestrianDataList = scenarioLoader.getPedestrianDataList();
+		animatedRoadSignDataList = scenarioLoader.getAnimatedRoadSignDataList();
+		
 		for(TrafficCarData vehicleData : vehicleDataList)
 		{
 			// build and add traffic cars
@@ -73,27 +85,82 @@ public class PhysicalTraffic extends Thread
 			// build and add animated road signs
 			trafficObjectList.add(new AnimatedRoadSign(sim, animatedRoadSignData));
 		}
+		
+		registerRecordingChannels(sim.getChannelRegistry());
+	}
+	
+	
+	/**
+	 * Registers the channels of all traffic objects for recording. Cars provide 
+	 * the same channels as the ego car, all other objects their position (and 
+	 * speed, if available). Channel names start with "traffic." and the name of 
+	 * the traffic object.
+	 * 
+	 * @param registry
+	 * 			Registry of the channel recorder.
+	 */
+	private void registerRecordingChannels(ChannelRegistry registry)
+	{
+		for(final TrafficObject trafficObject : trafficObjectList)
+		{
+			String prefix = "traffic." + trafficObject.getName();
+			
+			if(trafficObject instanceof Car)
+			{
+				((Car) trafficObject).registerRecordingChannels(registry, prefix);
+				continue;
+			}
+			
+			registry.register(new RecordingChannel(prefix + ".posX", ChannelType.FLOAT) {
+				public float getValue()
+				{
+					return trafficObject.getPosition().x;
+				}
+			});
+			registry.register(new RecordingChannel(prefix + ".posY", ChannelType.FLOAT) {
+				public float getValue()
+				{
+					return trafficObject.getPosition().y;
+				}
+			});
+			registry.register(new RecordingChannel(prefix + ".posZ", ChannelType.FLOAT) {
+				public float getValue()
+				{
+					return trafficObject.getPosition().z;
+				}
+			});
+			
+			if(trafficObject instanceof Pedestrian)
+			{
+				registry.register(new RecordingChannel(prefix + ".speed", ChannelType.FLOAT) {
+					public float getValue()
+					{
+						return ((Pedestrian) trafficObject).getCurrentSpeedKmh();
+					}
+				});
+			}
+		}
 	}
 	
 	
-    public static ArrayList<TrafficCarData> getVehicleDataList()
+    public ArrayList<TrafficCarData> getVehicleDataList()
     {
     	return vehicleDataList;
     }
     
     
-    public static ArrayList<PedestrianData> getPedestrianDataList()
+    public ArrayList<PedestrianData> getPedestrianDataList()
     {
     	return pedestrianDataList;
     }
 
     
-	public static ArrayList<TrafficObject> getTrafficObjectList() 
+	public ArrayList<TrafficObject> getTrafficObjectList() 
 	{
 		return trafficObjectList;		
 	}
 	
-	public static ArrayList<AnimatedRoadSignData> getAnimatedRoadSignDataList() 
+	public ArrayList<AnimatedRoadSignData> getAnimatedRoadSignDataList() 
 	{
 		return animatedRoadSignDataList;		
 	}
@@ -153,7 +220,7 @@ public class PhysicalTraffic extends Thread
 		if (getMultiThreadingEnable()){
 			for (int i=0; i<getTrafficObjectList().size(); i++){
 				TrafficObject singleCar = getTrafficObjectList().get(i);
-				Runnable worker = new MyRunnable(tpf, singleCar);
+				Runnable worker = new MyRunnable(tpf, singleCar, trafficObjectList);
 				executor.execute(worker);
 			}
 		}
@@ -186,10 +253,12 @@ public class PhysicalTraffic extends Thread
 	public static class MyRunnable implements Runnable {
 		private TrafficObject singleVehicle;
 		private float tpf;
+		private ArrayList<TrafficObject> trafficObjectList;
 		
-		MyRunnable(float tpf, TrafficObject singleVehicle){
+		MyRunnable(float tpf, TrafficObject singleVehicle, ArrayList<TrafficObject> trafficObjectList){
 			this.singleVehicle = singleVehicle;
 			this.tpf = tpf;
+			this.trafficObjectList = trafficObjectList;
 		}
 		
 		@Override
@@ -234,7 +234,7 @@ public class TrafficObjectLocator
 				newThingSpatial.setLocalRotation(new Quaternion().fromAngles(angles));
 				newThingSpatial.setLocalScale(scale);
 				
-				Simulator.getDrivingTaskLogger().reportText(
+				sim.getDrivingTaskLogger().reportText(
 					"<wayPoint id=\"" +  name + counter + "\">"
 						+"<translation>"
 							+"<vector jtype=\"java_lang_Float\" size=\"3\">"
@@ -255,7 +255,7 @@ public class TrafficObjectLocator
 				newThingSpatial.setLocalRotation(new Quaternion().fromAngles(angles));
 				newThingSpatial.setLocalScale(scale);
 				
-				Simulator.getDrivingTaskLogger().reportText(
+				sim.getDrivingTaskLogger().reportText(
 					"<model id=\"" +  name + counter + "\" key=\"\" ref=\"box\">"
 						+"<mass>0</mass>"
 							
@@ -308,7 +308,7 @@ public class TrafficObjectLocator
 				newThingSpatial.setLocalRotation(new Quaternion().fromAngles(angles));
 				newThingSpatial.setLocalScale(scale);
 				
-				Simulator.getDrivingTaskLogger().reportText(
+				sim.getDrivingTaskLogger().reportText(
 					"<model id=\"" +  name + counter + "\" key=\"" + currentObjectPath + "\" ref=\"\">"
 						+"<mass>0</mass>"
 						+"<visible>true</visible>"
@@ -52,10 +52,10 @@ public class ReportSpeedTriggerAction extends TriggerAction
 			float currentSpeed = sim.getCar().getCurrentSpeedKmh();
 			
 			if(type.equalsIgnoreCase("greaterThan") && (currentSpeed > targetSpeed))
-				Simulator.getDrivingTaskLogger().reportText("Car exceeded maximum speed of " + 
+				sim.getDrivingTaskLogger().reportText("Car exceeded maximum speed of " + 
 						targetSpeed + "km/h (Driven speed: " + currentSpeed + " km/h)");
 			else if (type.equalsIgnoreCase("lessThan") && (currentSpeed < targetSpeed))
-				Simulator.getDrivingTaskLogger().reportText("Car undershot minimum speed of " + 
+				sim.getDrivingTaskLogger().reportText("Car undershot minimum speed of " + 
 						targetSpeed + "km/h (Driven speed: " + currentSpeed + " km/h)");
 
 			updateCounter();
@@ -34,13 +34,15 @@ public class ReportTextTriggerAction extends TriggerAction
 {
 	private String text;
 	private boolean timestamp;
+	private Simulator sim;
 	
 
-	public ReportTextTriggerAction(float delay, int maxRepeat, String text, boolean timestamp) 
+	public ReportTextTriggerAction(float delay, int maxRepeat, String text, boolean timestamp, Simulator sim) 
 	{
 		super(delay, maxRepeat);
 		this.text = text;
 		this.timestamp = timestamp;
+		this.sim = sim;
 	}
 
 	
@@ -50,9 +52,9 @@ public class ReportTextTriggerAction extends TriggerAction
 		if(!isExceeded())
 		{
 			if(timestamp)
-				Simulator.getDrivingTaskLogger().reportText(text, new Date());
+				sim.getDrivingTaskLogger().reportText(text, new Date());
 			else
-				Simulator.getDrivingTaskLogger().reportText(text);
+				sim.getDrivingTaskLogger().reportText(text);
 
 			updateCounter();
 		}
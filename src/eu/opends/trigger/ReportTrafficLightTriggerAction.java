@@ -34,14 +34,16 @@ public class ReportTrafficLightTriggerAction extends TriggerAction
 {
 	private String trafficLightID;
 	private String targetTrafficLightState;
+	private Simulator sim;
 	
 	
 	public ReportTrafficLightTriggerAction(float delay, int maxRepeat, String trafficLightID, 
-			String trafficLightState) 
+			String trafficLightState, Simulator sim) 
 	{
 		super(delay, maxRepeat);
 		this.trafficLightID = trafficLightID;
 		this.targetTrafficLightState = trafficLightState;
+		this.sim = sim;
 	}
 
 	
@@ -55,7 +57,7 @@ public class ReportTrafficLightTriggerAction extends TriggerAction
 					(targetTrafficLightState.equalsIgnoreCase(trafficLight.getState().toString()))
 				)
 			{
-				Simulator.getDrivingTaskLogger().reportText("Car has passed trigger while traffic light '" + 
+				sim.getDrivingTaskLogger().reportText("Car has passed trigger while traffic light '" + 
 						trafficLightID + "' was " + targetTrafficLightState + ".");
 			}
 			
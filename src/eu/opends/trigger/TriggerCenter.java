@@ -19,18 +19,23 @@
 package eu.opends.trigger;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 //import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 
 //import eu.opends.audio.AudioCenter;
 //import eu.opends.basics.MapObject;
+import eu.opends.analyzer.ChannelType;
+import eu.opends.analyzer.RecordingChannel;
 import eu.opends.basics.SimulationBasics;
 import eu.opends.car.Car;
 import eu.opends.environment.TrafficLightCenter.TriggerType;
@@ -52,6 +57,9 @@ public class TriggerCenter
 
 	private LinkedList<Spatial> roadObjectsTriggerList;
 	public static ArrayList<String> triggerReportList = new ArrayList<String>(5);
+	
+	// number of times each trigger has been hit (recorded as channel "trigger.<ID>")
+	private Map<String,AtomicInteger> triggerHitCountMap = new ConcurrentHashMap<String,AtomicInteger>();
 
 	
 	public static void addToTrafficLightTriggerList(String trafficLightName, Spatial trafficLightTriggerObject)
@@ -99,6 +107,42 @@ public class TriggerCenter
 			}
 
 		}
+		
+		// record hit count of every (remote) trigger
+		registerTriggerChannels(SimulationBasics.getTriggerActionListMap().keySet());
+		registerTriggerChannels(SimulationBasics.getRemoteTriggerActionListMap().keySet());
+	}
+	
+	
+	private void registerTriggerChannels(Collection<String> triggerIDs)
+	{
+		for(String triggerID : triggerIDs)
+		{
+			if(triggerHitCountMap.containsKey(triggerID))
+				continue;
+			
+			final AtomicInteger hitCount = new AtomicInteger(0);
+			triggerHitCountMap.put(triggerID, hitCount);
+			sim.getChannelRegistry().register(new RecordingChannel("trigger." + triggerID, ChannelType.INT) {
+				public float getValue()
+				{
+					return hitCount.get();
+				}
+				
+				public int getIntValue()
+				{
+					return hitCount.get();
+				}
+			});
+		}
+	}
+	
+	
+	private void countTriggerHit(String triggerID)
+	{
+		AtomicInteger hitCount = triggerHitCountMap.get(triggerID);
+		if(hitCount != null)
+			hitCount.incrementAndGet();
 	}
 
 	
@@ -194,7 +238,7 @@ public class TriggerCenter
 				if(car.getCarNode().getWorldBound().intersects(triggerObject.getWorldBound()))
 				{
 					if(SimulationBasics.getTriggerActionListMap().containsKey(triggerName))
-						TriggerCenter.performTriggerAction(triggerName);
+						performTriggerAction(triggerName);
 				}
 			}
 		}
@@ -317,13 +361,14 @@ public class TriggerCenter
 	 * @param triggerID
 	 * 			name of the trigger (needed to look up action)
 	 */
-	public static void performTriggerAction(String triggerID) 
+	public void performTriggerAction(String triggerID) 
 	{
 		if(!triggerReportList.contains(triggerID))
 		{
 			System.err.println("Trigger hit: " + triggerID);
 			// add trigger to report list
 			triggerReportList.add(triggerID);
+			countTriggerHit(triggerID);
 			
 			// remove trigger from report list after 2 seconds
 			int seconds = 2;
@@ -351,11 +396,12 @@ public class TriggerCenter
 	 * @param triggerID
 	 * 			name of the trigger (needed to look up action) 
 	 */
-	public static void performRemoteTriggerAction(String triggerID)
+	public void performRemoteTriggerAction(String triggerID)
 	{
 		if(SimulationBasics.getRemoteTriggerActionListMap().containsKey(triggerID))
 		{
 			System.err.println("Remote trigger hit: " + triggerID);
+			countTriggerHit(triggerID);
 		
 			List<TriggerAction> triggerActionList = SimulationBasics.getRemoteTriggerActionListMap().get(triggerID);
 			for(TriggerAction triggerAction : triggerActionList)
@@ -62,7 +62,9 @@ public class MoviePlayer
 	{
 		if(play != null)
 		{
-			playSynchronized(play);
+			// movies cannot be shown in headless mode
+			if(!Simulator.isHeadless())
+				playSynchronized(play);
 			playedLast = play;
 			play = null;
 		}
@@ -143,7 +145,7 @@ public class MoviePlayer
 				
 				String newLine = System.getProperty("line.separator");
 				String time = new SimpleDateFormat("HH:mm:ss.SSS").format(System.currentTimeMillis());
-				Simulator.getDrivingTaskLogger().reportText(time + " --> Start movie '" + id + "'" + newLine);
+				sim.getDrivingTaskLogger().reportText(time + " --> Start movie '" + id + "'" + newLine);
 			}
 			else
 				System.err.println("Movie '" + id + "' could not be found");
@@ -170,7 +172,7 @@ public class MoviePlayer
 			
 			String newLine = System.getProperty("line.separator");
 			String time = new SimpleDateFormat("HH:mm:ss.SSS").format(System.currentTimeMillis());
-			Simulator.getDrivingTaskLogger().reportText(time + " --> Stop movie" + newLine);
+			sim.getDrivingTaskLogger().reportText(time + " --> Stop movie" + newLine);
 		}
 	}
 }